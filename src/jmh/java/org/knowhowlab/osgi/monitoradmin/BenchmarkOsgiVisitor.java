@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.knowhowlab.osgi.monitoradmin.mocks.MockOsgiVisitor;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.Event;
+import org.osgi.service.monitor.Monitorable;
+
+import java.util.Map;
+
+/**
+ * <code>MockOsgiVisitor</code> that resolves Monitorables with <code>MonitorableIndex</code>
+ * like <code>Activator</code> does and discards posted events, so benchmarks
+ * do not measure mock lookups and do not accumulate events.
+ *
+ * @author dmytro.pishchukhin
+ */
+public class BenchmarkOsgiVisitor extends MockOsgiVisitor {
+    private final MonitorableIndex monitorableIndex = new MonitorableIndex();
+    private volatile long postedEvents;
+
+    @Override
+    public void setReferences(Map<ServiceReference, Monitorable> references) {
+        super.setReferences(references);
+        monitorableIndex.clear();
+        for (ServiceReference reference : references.keySet()) {
+            monitorableIndex.add(reference);
+        }
+    }
+
+    @Override
+    public ServiceReference findMonitorableReference(String monitorableId) {
+        return monitorableIndex.get(monitorableId);
+    }
+
+    @Override
+    public void postEvent(Event event) {
+        postedEvents++;
+    }
+
+    public long getPostedEventsCount() {
+        return postedEvents;
+    }
+}
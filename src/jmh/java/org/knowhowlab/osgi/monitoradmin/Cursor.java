@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-thread cyclic cursor over benchmark data arrays
+ *
+ * @author dmytro.pishchukhin
+ */
+@State(Scope.Thread)
+public class Cursor {
+    private int position;
+
+    /**
+     * Get next index
+     *
+     * @param length data array length
+     * @return index in range [0, length)
+     */
+    int next(int length) {
+        if (++position >= length) {
+            position = 0;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePathFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>MonitorAdminCommon</code> update notifications and events benchmarks
+ *
+ * @author dmytro.pishchukhin
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonitorAdminCommonBenchmark {
+    /**
+     * State with events switched off for all StatusVariables
+     */
+    public static class EventsDisabledState extends MonitorAdminState {
+        @Override
+        protected void configure() {
+            common.switchEvents(new StatusVariablePathFilter("*/*"), false);
+        }
+    }
+
+    @Benchmark
+    public void updated(MonitorAdminState state, Cursor cursor) {
+        int index = cursor.next(state.paths.length);
+        state.common.updated(state.monitorableIds[index / state.variables],
+                state.statusVariables[index % state.variables]);
+    }
+
+    @Benchmark
+    public void updated_EventsDisabled(EventsDisabledState state, Cursor cursor) {
+        int index = cursor.next(state.paths.length);
+        state.common.updated(state.monitorableIds[index / state.variables],
+                state.statusVariables[index % state.variables]);
+    }
+
+    @Benchmark
+    public void fireEvent(MonitorAdminState state, Cursor cursor) {
+        int index = cursor.next(state.paths.length);
+        state.common.fireEvent(state.monitorableIds[index / state.variables],
+                state.statusVariables[index % state.variables], "benchmark");
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableResult;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>MonitorAdminImpl</code> read and events switching benchmarks
+ *
+ * @author dmytro.pishchukhin
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonitorAdminImplBenchmark {
+    private static final String WILDCARD_FILTER = "com.acme.pid1*/sv.*";
+
+    @Benchmark
+    public StatusVariable getStatusVariable_NoSecurity(MonitorAdminState state, Cursor cursor) {
+        return state.unsecuredMonitorAdmin.getStatusVariable(state.paths[cursor.next(state.paths.length)]);
+    }
+
+    @Benchmark
+    public StatusVariable getStatusVariable_Secured(MonitorAdminState state, Cursor cursor) {
+        return state.securedMonitorAdmin.getStatusVariable(state.paths[cursor.next(state.paths.length)]);
+    }
+
+    @Benchmark
+    public StatusVariable getStatusVariable_SecuredUncached(MonitorAdminState state, Cursor cursor) {
+        return state.uncachedMonitorAdmin.getStatusVariable(state.paths[cursor.next(state.paths.length)]);
+    }
+
+    @Benchmark
+    public StatusVariable[] scrape_SingleReads(MonitorAdminState state, ScrapeState scrape, Cursor cursor) {
+        String[] batch = scrape.batches[cursor.next(scrape.batches.length)];
+        StatusVariable[] result = new StatusVariable[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            result[i] = state.securedMonitorAdmin.getStatusVariable(batch[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public StatusVariableResult[] scrape_BulkRead(MonitorAdminState state, ScrapeState scrape, Cursor cursor) {
+        return state.securedMonitorAdmin.readStatusVariables(scrape.batches[cursor.next(scrape.batches.length)]);
+    }
+
+    @Benchmark
+    public StatusVariable[][] dump_SerialReads(MonitorAdminState state) {
+        String[] monitorableIds = state.securedMonitorAdmin.getMonitorableNames();
+        StatusVariable[][] result = new StatusVariable[monitorableIds.length][];
+        for (int i = 0; i < monitorableIds.length; i++) {
+            result[i] = state.securedMonitorAdmin.getStatusVariables(monitorableIds[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public StatusVariableSnapshot dump_Snapshot(MonitorAdminState state) {
+        return state.securedMonitorAdmin.getSnapshot();
+    }
+
+    @Benchmark
+    public void switchEvents_Wildcard(MonitorAdminState state, Cursor cursor) {
+        state.securedMonitorAdmin.switchEvents(WILDCARD_FILTER, cursor.next(2) == 0);
+    }
+
+    /**
+     * Paths split into scrape batches
+     */
+    @State(Scope.Benchmark)
+    public static class ScrapeState {
+        private static final int BATCH_SIZE = 100;
+
+        String[][] batches;
+
+        @Setup(Level.Trial)
+        public void setUp(MonitorAdminState state) {
+            batches = new String[Math.max(1, state.paths.length / BATCH_SIZE)][];
+            for (int i = 0; i < batches.length; i++) {
+                batches[i] = Arrays.copyOfRange(state.paths, i * BATCH_SIZE,
+                        Math.min(state.paths.length, (i + 1) * BATCH_SIZE));
+            }
+        }
+    }
+}
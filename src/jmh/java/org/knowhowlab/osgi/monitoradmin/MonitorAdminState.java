@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.knowhowlab.osgi.monitoradmin.mocks.MockLogVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockMonitorable;
+import org.knowhowlab.osgi.monitoradmin.mocks.MonitorableMockServiceReference;
+import org.knowhowlab.osgi.monitoradmin.mocks.SecurityMockBundle;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.monitor.Monitorable;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.security.AllPermission;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Shared benchmark state: <code>monitorables</code> Monitorables with
+ * <code>variables</code> integer StatusVariables each,
+ * registered with <code>BenchmarkOsgiVisitor</code>.
+ *
+ * @author dmytro.pishchukhin
+ */
+@State(Scope.Benchmark)
+public class MonitorAdminState {
+    static final String MONITORABLE_ID_PATTERN = "com.acme.pid%d";
+    static final String STATUS_VARIABLE_ID_PATTERN = "sv.id%d";
+
+    @Param({"1000", "10000"})
+    public int monitorables;
+
+    @Param({"10"})
+    public int variables;
+
+    BenchmarkOsgiVisitor osgiVisitor;
+    LogVisitor logVisitor;
+    MonitorAdminCommon common;
+    /**
+     * Consumer bundle is <code>null</code> - security is disabled
+     */
+    MonitorAdminImpl unsecuredMonitorAdmin;
+    /**
+     * Consumer bundle holds <code>AllPermission</code>, permission decisions are cached
+     */
+    MonitorAdminImpl securedMonitorAdmin;
+    /**
+     * Consumer bundle holds <code>AllPermission</code>, permission cache is disabled
+     */
+    MonitorAdminImpl uncachedMonitorAdmin;
+
+    String[] monitorableIds;
+    StatusVariable[] statusVariables;
+    String[] paths;
+
+    /**
+     * Strong reference to <code>MockLogVisitor</code> logger to keep its level
+     */
+    private Logger mockLogger;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // console output is not a subject of benchmarks
+        mockLogger = Logger.getLogger(MockLogVisitor.class.getName());
+        mockLogger.setLevel(java.util.logging.Level.WARNING);
+
+        osgiVisitor = new BenchmarkOsgiVisitor();
+        logVisitor = new MockLogVisitor();
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor);
+
+        Bundle bundle = new SecurityMockBundle(new AllPermission());
+        Map<ServiceReference, Monitorable> references = new HashMap<ServiceReference, Monitorable>();
+        monitorableIds = new String[monitorables];
+        statusVariables = new StatusVariable[variables];
+        paths = new String[monitorables * variables];
+        for (int i = 0; i < variables; i++) {
+            statusVariables[i] = new StatusVariable(String.format(STATUS_VARIABLE_ID_PATTERN, i),
+                    StatusVariable.CM_CC, i);
+        }
+        for (int i = 0; i < monitorables; i++) {
+            monitorableIds[i] = String.format(MONITORABLE_ID_PATTERN, i);
+            MockMonitorable monitorable = new MockMonitorable(statusVariables);
+            monitorable.setMonitorableId(monitorableIds[i]);
+            monitorable.setListener(common);
+            references.put(new MonitorableMockServiceReference(bundle, monitorableIds[i]), monitorable);
+            for (int j = 0; j < variables; j++) {
+                paths[i * variables + j] = String.format(MonitorAdminCommon.PATH_PATTERN,
+                        monitorableIds[i], statusVariables[j].getID());
+            }
+        }
+        osgiVisitor.setReferences(references);
+
+        unsecuredMonitorAdmin = new MonitorAdminImpl(logVisitor, common, null);
+        securedMonitorAdmin = new MonitorAdminImpl(logVisitor, common, new SecurityMockBundle(new AllPermission()));
+        uncachedMonitorAdmin = new MonitorAdminImpl(logVisitor, common, new SecurityMockBundle(new AllPermission()),
+                new PermissionCache(logVisitor, 0));
+        configure();
+    }
+
+    /**
+     * Additional configuration of initialized state
+     */
+    protected void configure() {
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        common.shutdown();
+    }
+}
@@ -17,18 +17,39 @@
 
 package org.knowhowlab.osgi.monitoradmin;
 
+import org.knowhowlab.osgi.monitoradmin.api.ExtendedMonitorAdmin;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableHistory;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableStore;
+import org.knowhowlab.osgi.monitoradmin.export.PrometheusExporter;
+import org.knowhowlab.osgi.monitoradmin.histogram.HistogramRecorder;
+import org.knowhowlab.osgi.monitoradmin.history.HistoryRecorder;
+import org.knowhowlab.osgi.monitoradmin.jmx.JmxBridge;
+import org.knowhowlab.osgi.monitoradmin.job.MonitoringJobScheduler;
+import org.knowhowlab.osgi.monitoradmin.persistence.SegmentStore;
 import org.knowhowlab.osgi.monitoradmin.util.Utils;
 import org.osgi.framework.*;
+import org.osgi.service.condpermadmin.ConditionalPermissionAdmin;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 import org.osgi.service.log.LogService;
 import org.osgi.service.monitor.MonitorAdmin;
 import org.osgi.service.monitor.MonitorListener;
 import org.osgi.service.monitor.Monitorable;
+import org.osgi.service.permissionadmin.PermissionAdmin;
 import org.osgi.util.tracker.ServiceTracker;
+import org.osgi.util.tracker.ServiceTrackerCustomizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 
 /**
  * Monitor Admin activator
@@ -41,6 +62,20 @@ public class Activator implements BundleActivator, OsgiVisitor, LogVisitor {
      * Default logger
      */
     private static final Logger LOG = LoggerFactory.getLogger(Activator.class);
+    /**
+     * PermissionAdmin and ConditionalPermissionAdmin services filter
+     */
+    private static final String PERMISSION_ADMIN_FILTER = String.format("(|(%s=%s)(%s=%s))",
+            Constants.OBJECTCLASS, "org.osgi.service.permissionadmin.PermissionAdmin",
+            Constants.OBJECTCLASS, "org.osgi.service.condpermadmin.ConditionalPermissionAdmin");
+    /**
+     * Default permission tables poll interval in milliseconds
+     */
+    private static final int DEFAULT_PERMISSION_POLL_INTERVAL = 5000;
+    /**
+     * Hour in milliseconds
+     */
+    private static final long HOUR = 60L * 60 * 1000;
 
     /**
      * <code>MonitorAdmin</code> <code>ServiceFactory</code> instance
@@ -72,33 +107,223 @@ public class Activator implements BundleActivator, OsgiVisitor, LogVisitor {
      * LogService service tracker
      */
     private ServiceTracker logServiceTracker;
-
+    /**
+     * Current LogService. If <code>null</code> - messages are published to default logger
+     */
+    private volatile LogService logService;
+    /**
+     * Min level of published messages (<code>LogService</code> level constant)
+     */
+    private volatile int logLevel = LogService.LOG_INFO;
+    /**
+     * Monitorable service tracker
+     */
+    private ServiceTracker monitorableTracker;
+    /**
+     * Monitorable service references index
+     */
+    private final MonitorableIndex monitorableIndex = new MonitorableIndex();
+    /**
+     * MonitorPermission decisions cache
+     */
+    private PermissionCache permissionCache;
+    /**
+     * Invalidates permissions cache on bundle and permission admin changes
+     */
+    private PermissionChangesListener permissionChangesListener;
+    /**
+     * Detects permission tables changes that fire no events
+     */
+    private PermissionTablesWatcher permissionTablesWatcher;
+    /**
+     * Permission tables polling task
+     */
+    private ScheduledFuture<?> permissionTablesPolling;
+    /**
+     * Asynchronous events publisher
+     */
+    private AsyncEventPublisher eventPublisher;
+    /**
+     * StatusVariables history recorder
+     */
+    private HistoryRecorder historyRecorder;
+    /**
+     * StatusVariableHistory ServiceFactory registration
+     */
+    private ServiceRegistration historyRegistration;
+    /**
+     * StatusVariables persistent store
+     */
+    private SegmentStore segmentStore;
+    /**
+     * StatusVariableStore ServiceFactory registration
+     */
+    private ServiceRegistration storeRegistration;
+    /**
+     * StatusVariables histograms recorder
+     */
+    private HistogramRecorder histogramRecorder;
+    /**
+     * Histograms Monitorable registration
+     */
+    private ServiceRegistration histogramRegistration;
+    /**
+     * Circuits state Monitorable registration
+     */
+    private ServiceRegistration guardsRegistration;
+    /**
+     * Self-instrumentation Monitorable registration
+     */
+    private ServiceRegistration statisticsRegistration;
+    /**
+     * Prometheus text format exporter
+     */
+    private PrometheusExporter prometheusExporter;
+    /**
+     * Monitorables JMX bridge
+     */
+    private volatile JmxBridge jmxBridge;
 
     public void start(BundleContext bundleContext) throws Exception {
         bc = bundleContext;
 
         // init LogService tracker
-        logServiceTracker = new ServiceTracker(bc, LogService.class.getName(), null);
+        logLevel = getLogLevelProperty(ConstantsMonitorAdmin.LOG_LEVEL, LogService.LOG_INFO);
+        logServiceTracker = new ServiceTracker(bc, LogService.class.getName(), new LogServiceTrackerCustomizer());
         logServiceTracker.open();
 
         // init EventAdmin tracker
         eventAdminTracker = new ServiceTracker(bc, EventAdmin.class.getName(), null);
         eventAdminTracker.open();
 
+        // init Monitorable tracker
+        monitorableTracker = new ServiceTracker(bc, Monitorable.class.getName(), new MonitorableTrackerCustomizer());
+        monitorableTracker.open();
+
         // init commons
-        common = new MonitorAdminCommon(this, this);
+        common = new MonitorAdminCommon(this, this, new MonitoringJobScheduler(
+                getIntProperty(ConstantsMonitorAdmin.SCHEDULER_POOL_SIZE, MonitoringJobScheduler.DEFAULT_POOL_SIZE),
+                getIntProperty(ConstantsMonitorAdmin.SCHEDULER_COLLECTOR_POOL_SIZE, MonitoringJobScheduler.DEFAULT_COLLECTOR_POOL_SIZE),
+                getIntProperty(ConstantsMonitorAdmin.SCHEDULER_READ_TIMEOUT, (int) MonitoringJobScheduler.DEFAULT_READ_TIMEOUT),
+                getBooleanProperty(ConstantsMonitorAdmin.SCHEDULER_PHASE_SPREAD, true)),
+                new MonitorableGuards(
+                        getIntProperty(ConstantsMonitorAdmin.CIRCUIT_FAILURE_THRESHOLD, MonitorableGuards.DEFAULT_FAILURE_THRESHOLD),
+                        getIntProperty(ConstantsMonitorAdmin.CIRCUIT_OPEN_DURATION, (int) MonitorableGuards.DEFAULT_OPEN_DURATION),
+                        getIntProperty(ConstantsMonitorAdmin.CIRCUIT_CALL_TIMEOUT, (int) MonitorableGuards.DEFAULT_CALL_TIMEOUT),
+                        getIntProperty(ConstantsMonitorAdmin.BULKHEAD_MAX_CONCURRENT_CALLS, MonitorableGuards.DEFAULT_MAX_CONCURRENT_CALLS),
+                        getIntProperty(ConstantsMonitorAdmin.CIRCUIT_CALL_POOL_SIZE, MonitorableGuards.DEFAULT_CALL_POOL_SIZE)));
+        if (getBooleanProperty(ConstantsMonitorAdmin.EVENTS_ASYNC, false)) {
+            eventPublisher = new AsyncEventPublisher(this, this,
+                    Math.max(1, getIntProperty(ConstantsMonitorAdmin.EVENTS_QUEUE_CAPACITY, AsyncEventPublisher.DEFAULT_CAPACITY)),
+                    getOverflowPolicyProperty(ConstantsMonitorAdmin.EVENTS_OVERFLOW_POLICY, AsyncEventPublisher.OverflowPolicy.BLOCK));
+            eventPublisher.start();
+            common.setEventPublisher(eventPublisher);
+        }
+        // init permissions cache
+        permissionCache = new PermissionCache(this,
+                getIntProperty(ConstantsMonitorAdmin.PERMISSION_CACHE_SIZE, PermissionCache.DEFAULT_SIZE),
+                getIntProperty(ConstantsMonitorAdmin.PERMISSION_CACHE_TTL, (int) PermissionCache.DEFAULT_TTL));
+        permissionTablesWatcher = new PermissionTablesWatcher(permissionCache, this);
+        permissionChangesListener = new PermissionChangesListener();
+        bc.addBundleListener(permissionChangesListener);
+        bc.addServiceListener(permissionChangesListener, PERMISSION_ADMIN_FILTER);
+        checkPermissionTables();
+        int permissionsPollInterval = getIntProperty(ConstantsMonitorAdmin.PERMISSION_POLL_INTERVAL,
+                DEFAULT_PERMISSION_POLL_INTERVAL);
+        if (permissionsPollInterval > 0) {
+            permissionTablesPolling = common.getScheduler().scheduleWithFixedDelay(permissionChangesListener,
+                    permissionsPollInterval, permissionsPollInterval, TimeUnit.MILLISECONDS);
+        }
         // init factory
-        monitorAdminFactory = new MonitorAdminFactory(this, common);
+        monitorAdminFactory = new MonitorAdminFactory(this, common, permissionCache);
 
         // register MonitorAdmin ServiceFactory
-        monitorAdminRegistration = bundleContext.registerService(MonitorAdmin.class.getName(), monitorAdminFactory, null);
+        monitorAdminRegistration = bundleContext.registerService(
+                new String[]{MonitorAdmin.class.getName(), ExtendedMonitorAdmin.class.getName()}, monitorAdminFactory, null);
         // register MonitorListener
         monitorListenerRegistration = bundleContext.registerService(MonitorListener.class.getName(), common, null);
+        // register StatusVariableHistory ServiceFactory
+        if (getBooleanProperty(ConstantsMonitorAdmin.HISTORY_ENABLED, false)) {
+            historyRecorder = new HistoryRecorder(
+                    getIntProperty(ConstantsMonitorAdmin.HISTORY_CAPACITY, HistoryRecorder.DEFAULT_CAPACITY),
+                    getIntProperty(ConstantsMonitorAdmin.HISTORY_MAX_PATHS, HistoryRecorder.DEFAULT_MAX_PATHS));
+            common.addSampleRecorder(historyRecorder);
+            historyRegistration = bundleContext.registerService(StatusVariableHistory.class.getName(),
+                    new StatusVariableHistoryFactory(this, historyRecorder, permissionCache), null);
+        }
+        // register StatusVariableStore ServiceFactory
+        if (getBooleanProperty(ConstantsMonitorAdmin.PERSISTENCE_ENABLED, false)) {
+            String directoryName = bc.getProperty(ConstantsMonitorAdmin.PERSISTENCE_DIRECTORY);
+            File directory = directoryName != null ? new File(directoryName.trim()) : bc.getDataFile("store");
+            try {
+                if (directory == null) {
+                    throw new IOException("Framework does not provide bundle data directory");
+                }
+                segmentStore = new SegmentStore(this, directory,
+                        getIntProperty(ConstantsMonitorAdmin.PERSISTENCE_SEGMENT_CAPACITY, SegmentStore.DEFAULT_SEGMENT_CAPACITY),
+                        getIntProperty(ConstantsMonitorAdmin.PERSISTENCE_RETENTION_HOURS,
+                                (int) (SegmentStore.DEFAULT_RETENTION / HOUR)) * HOUR,
+                        getIntProperty(ConstantsMonitorAdmin.PERSISTENCE_QUEUE_CAPACITY, SegmentStore.DEFAULT_QUEUE_CAPACITY));
+                common.addSampleRecorder(segmentStore);
+                common.getStatistics().setSegmentStore(segmentStore);
+                storeRegistration = bundleContext.registerService(StatusVariableStore.class.getName(),
+                        new StatusVariableStoreFactory(this, segmentStore, permissionCache), null);
+            } catch (IOException e) {
+                error("Unable to open persistent store", e);
+            }
+        }
+
+        // register self-instrumentation Monitorable
+        Dictionary<String, Object> statisticsProperties = new Hashtable<String, Object>();
+        statisticsProperties.put(Constants.SERVICE_PID, MonitorAdminStatistics.MONITORABLE_ID);
+        statisticsRegistration = bundleContext.registerService(Monitorable.class.getName(), common.getStatistics(),
+                statisticsProperties);
+
+        // register circuits state Monitorable
+        Dictionary<String, Object> guardsProperties = new Hashtable<String, Object>();
+        guardsProperties.put(Constants.SERVICE_PID, MonitorableGuards.MONITORABLE_ID);
+        guardsRegistration = bundleContext.registerService(Monitorable.class.getName(), common.getGuards(), guardsProperties);
+
+        // register histograms Monitorable
+        String histogramPaths = bc.getProperty(ConstantsMonitorAdmin.HISTOGRAM_PATHS);
+        if (histogramPaths != null) {
+            histogramRecorder = new HistogramRecorder(this, Utils.split(histogramPaths));
+            if (!histogramRecorder.isEmpty()) {
+                common.addUpdateRecorder(histogramRecorder);
+                Dictionary<String, Object> properties = new Hashtable<String, Object>();
+                properties.put(Constants.SERVICE_PID, HistogramRecorder.MONITORABLE_ID);
+                histogramRegistration = bundleContext.registerService(Monitorable.class.getName(),
+                        histogramRecorder, properties);
+            }
+        }
+
+        // start Prometheus exporter
+        int prometheusPort = getIntProperty(ConstantsMonitorAdmin.PROMETHEUS_PORT, -1);
+        if (prometheusPort >= 0) {
+            startPrometheusExporter(prometheusPort);
+        }
+
+        // register Monitorables MBeans
+        if (getBooleanProperty(ConstantsMonitorAdmin.JMX_ENABLED, false)) {
+            startJmxBridge();
+        }
 
         info("MonitorAdmin started", null);
     }
 
     public void stop(BundleContext bundleContext) throws Exception {
+        // unregister Monitorables MBeans
+        if (jmxBridge != null) {
+            jmxBridge.close();
+            jmxBridge = null;
+        }
+
+        // stop Prometheus exporter
+        if (prometheusExporter != null) {
+            prometheusExporter.stop();
+            prometheusExporter = null;
+        }
+
         // unregister MonitorAdmin service
         if (monitorAdminRegistration != null) {
             monitorAdminRegistration.unregister();
@@ -111,12 +336,78 @@ public class Activator implements BundleActivator, OsgiVisitor, LogVisitor {
             monitorListenerRegistration = null;
         }
 
+        // unregister StatusVariableHistory service
+        if (historyRegistration != null) {
+            historyRegistration.unregister();
+            historyRegistration = null;
+        }
+        if (historyRecorder != null) {
+            common.removeSampleRecorder(historyRecorder);
+            historyRecorder = null;
+        }
+
+        // unregister StatusVariableStore service
+        if (storeRegistration != null) {
+            storeRegistration.unregister();
+            storeRegistration = null;
+        }
+        if (segmentStore != null) {
+            common.removeSampleRecorder(segmentStore);
+            common.getStatistics().setSegmentStore(null);
+            segmentStore.close();
+            segmentStore = null;
+        }
+
+        // unregister self-instrumentation Monitorable
+        if (statisticsRegistration != null) {
+            statisticsRegistration.unregister();
+            statisticsRegistration = null;
+        }
+
+        // unregister circuits state Monitorable
+        if (guardsRegistration != null) {
+            guardsRegistration.unregister();
+            guardsRegistration = null;
+        }
+
+        // unregister histograms Monitorable
+        if (histogramRegistration != null) {
+            histogramRegistration.unregister();
+            histogramRegistration = null;
+        }
+        if (histogramRecorder != null) {
+            common.removeUpdateRecorder(histogramRecorder);
+            histogramRecorder = null;
+        }
+
+        if (permissionTablesPolling != null) {
+            permissionTablesPolling.cancel(false);
+            permissionTablesPolling = null;
+        }
+        if (permissionChangesListener != null) {
+            bc.removeServiceListener(permissionChangesListener);
+            bc.removeBundleListener(permissionChangesListener);
+            permissionChangesListener = null;
+        }
+
         if (common != null) {
             // cancel started jobs
-            common.cancelAllJobs();
+            common.shutdown();
+            common.setEventPublisher(null);
             monitorAdminFactory = null;
         }
 
+        if (eventPublisher != null) {
+            eventPublisher.stop();
+            eventPublisher = null;
+        }
+
+        if (monitorableTracker != null) {
+            monitorableTracker.close();
+            monitorableTracker = null;
+        }
+        monitorableIndex.clear();
+
         if (eventAdminTracker != null) {
             eventAdminTracker.close();
             eventAdminTracker = null;
@@ -128,10 +419,175 @@ public class Activator implements BundleActivator, OsgiVisitor, LogVisitor {
             logServiceTracker.close();
             logServiceTracker = null;
         }
+        logService = null;
 
         bc = null;
     }
 
+    /**
+     * Start Prometheus exporter that reads StatusVariables on behalf of configured identity bundle.
+     * Exporter is optional: it is not started if <code>com.sun.net.httpserver</code> package is unavailable
+     *
+     * @param port server port
+     */
+    private void startPrometheusExporter(int port) {
+        Bundle bundle = getIdentityProperty(ConstantsMonitorAdmin.PROMETHEUS_IDENTITY);
+        if (bundle == null) {
+            return;
+        }
+        String host = bc.getProperty(ConstantsMonitorAdmin.PROMETHEUS_HOST);
+        InetSocketAddress address = host != null ? new InetSocketAddress(host.trim(), port) : new InetSocketAddress(port);
+        try {
+            prometheusExporter = new PrometheusExporter(this, new MonitorAdminImpl(this, common, bundle, permissionCache),
+                    address, getIntProperty(ConstantsMonitorAdmin.PROMETHEUS_THREADS, PrometheusExporter.DEFAULT_THREADS),
+                    getIntProperty(ConstantsMonitorAdmin.PROMETHEUS_SCRAPE_TIMEOUT, (int) PrometheusExporter.DEFAULT_SCRAPE_TIMEOUT));
+            prometheusExporter.start();
+        } catch (IOException e) {
+            error("Unable to start Prometheus exporter", e);
+        } catch (NoClassDefFoundError e) {
+            warning("Prometheus exporter requires com.sun.net.httpserver package", e);
+        }
+    }
+
+    /**
+     * Start JMX bridge that reads StatusVariables on behalf of configured identity bundle
+     * and register MBeans of already tracked Monitorables
+     */
+    private void startJmxBridge() {
+        Bundle bundle = getIdentityProperty(ConstantsMonitorAdmin.JMX_IDENTITY);
+        if (bundle == null) {
+            return;
+        }
+        jmxBridge = new JmxBridge(this, ManagementFactory.getPlatformMBeanServer(),
+                new MonitorAdminImpl(this, common, bundle, permissionCache));
+        ServiceReference[] references = monitorableTracker.getServiceReferences();
+        if (references != null) {
+            for (ServiceReference reference : references) {
+                updateJmxBridge(MonitorableIndex.getPid(reference));
+            }
+        }
+    }
+
+    /**
+     * Register or unregister MBean of Monitorable depending on its availability
+     *
+     * @param monitorableId <code>Monitorable</code> ID
+     */
+    private void updateJmxBridge(String monitorableId) {
+        JmxBridge bridge = jmxBridge;
+        if (bridge != null && monitorableId != null) {
+            if (monitorableIndex.get(monitorableId) != null) {
+                bridge.register(monitorableId);
+            } else {
+                bridge.unregister(monitorableId);
+            }
+        }
+    }
+
+    /**
+     * Get identity bundle framework property: symbolic name of installed bundle
+     *
+     * @param name property name
+     * @return bundle, MonitorAdmin bundle if property is not set or <code>null</code> if bundle is not installed
+     */
+    private Bundle getIdentityProperty(String name) {
+        String value = bc.getProperty(name);
+        if (value == null) {
+            return bc.getBundle();
+        }
+        value = value.trim();
+        for (Bundle bundle : bc.getBundles()) {
+            if (value.equals(bundle.getSymbolicName())) {
+                return bundle;
+            }
+        }
+        warning("Identity bundle of property " + name + " is not installed: " + value, null);
+        return null;
+    }
+
+    /**
+     * Get integer framework property
+     *
+     * @param name         property name
+     * @param defaultValue default value if property is not set or invalid
+     * @return property value
+     */
+    private int getIntProperty(String name, int defaultValue) {
+        String value = bc.getProperty(name);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                warning("Invalid integer value of property " + name + ": " + value, e);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Get boolean framework property
+     *
+     * @param name         property name
+     * @param defaultValue default value if property is not set
+     * @return property value
+     */
+    private boolean getBooleanProperty(String name, boolean defaultValue) {
+        String value = bc.getProperty(name);
+        return value != null ? Boolean.valueOf(value.trim()) : defaultValue;
+    }
+
+    /**
+     * Get events queue overflow policy framework property
+     *
+     * @param name         property name
+     * @param defaultValue default value if property is not set or invalid
+     * @return property value
+     */
+    private AsyncEventPublisher.OverflowPolicy getOverflowPolicyProperty(String name, AsyncEventPublisher.OverflowPolicy defaultValue) {
+        String value = bc.getProperty(name);
+        if (value != null) {
+            try {
+                return AsyncEventPublisher.OverflowPolicy.parse(value);
+            } catch (IllegalArgumentException e) {
+                warning("Invalid value of property " + name + ": " + value, e);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Get log level framework property
+     *
+     * @param name         property name
+     * @param defaultValue default value if property is not set or invalid
+     * @return <code>LogService</code> level constant
+     */
+    private int getLogLevelProperty(String name, int defaultValue) {
+        String value = bc.getProperty(name);
+        if (value != null) {
+            value = value.trim();
+            if ("debug".equalsIgnoreCase(value)) {
+                return LogService.LOG_DEBUG;
+            } else if ("info".equalsIgnoreCase(value)) {
+                return LogService.LOG_INFO;
+            } else if ("warning".equalsIgnoreCase(value)) {
+                return LogService.LOG_WARNING;
+            } else if ("error".equalsIgnoreCase(value)) {
+                return LogService.LOG_ERROR;
+            }
+            LOG.warn("Invalid value of property " + name + ": " + value);
+        }
+        return defaultValue;
+    }
+
+    public boolean isDebugEnabled() {
+        return logLevel >= LogService.LOG_DEBUG && (logService != null || LOG.isDebugEnabled());
+    }
+
+    public boolean isInfoEnabled() {
+        return logLevel >= LogService.LOG_INFO && (logService != null || LOG.isInfoEnabled());
+    }
+
     /**
      * Publish DEBUG message. If <code>LogService</code> in unavailable message is published to default JUL logger
      *
@@ -139,7 +595,10 @@ public class Activator implements BundleActivator, OsgiVisitor, LogVisitor {
      * @param throwable exception
      */
     public void debug(String message, Throwable throwable) {
-        LogService logService = (LogService) logServiceTracker.getService();
+        if (logLevel < LogService.LOG_DEBUG) {
+            return;
+        }
+        LogService logService = this.logService;
         if (logService != null) {
             logService.log(LogService.LOG_DEBUG, message, throwable);
         } else {
@@ -154,7 +613,10 @@ public class Activator implements BundleActivator, OsgiVisitor, LogVisitor {
      * @param throwable exception
      */
     public void info(String message, Throwable throwable) {
-        LogService logService = (LogService) logServiceTracker.getService();
+        if (logLevel < LogService.LOG_INFO) {
+            return;
+        }
+        LogService logService = this.logService;
         if (logService != null) {
             logService.log(LogService.LOG_INFO, message, throwable);
         } else {
@@ -169,7 +631,10 @@ public class Activator implements BundleActivator, OsgiVisitor, LogVisitor {
      * @param throwable exception
      */
     public void warning(String message, Throwable throwable) {
-        LogService logService = (LogService) logServiceTracker.getService();
+        if (logLevel < LogService.LOG_WARNING) {
+            return;
+        }
+        LogService logService = this.logService;
         if (logService != null) {
             logService.log(LogService.LOG_WARNING, message, throwable);
         } else {
@@ -184,7 +649,10 @@ public class Activator implements BundleActivator, OsgiVisitor, LogVisitor {
      * @param throwable exception
      */
     public void error(String message, Throwable throwable) {
-        LogService logService = (LogService) logServiceTracker.getService();
+        if (logLevel < LogService.LOG_ERROR) {
+            return;
+        }
+        LogService logService = this.logService;
         if (logService != null) {
             logService.log(LogService.LOG_ERROR, message, throwable);
         } else {
@@ -193,16 +661,28 @@ public class Activator implements BundleActivator, OsgiVisitor, LogVisitor {
     }
 
     public Monitorable getService(ServiceReference reference) {
+        ServiceTracker tracker = monitorableTracker;
+        if (tracker != null) {
+            Monitorable monitorable = (Monitorable) tracker.getService(reference);
+            if (monitorable != null) {
+                return monitorable;
+            }
+        }
         return (Monitorable) bc.getService(reference);
     }
 
+    public ServiceReference findMonitorableReference(String monitorableId) {
+        return monitorableIndex.get(monitorableId);
+    }
+
     public ServiceReference[] findMonitorableReferences(String monitorableId) {
-        String filter = null;
-        if (monitorableId != null) {
-            filter = Utils.createServicePidFilter(monitorableId);
+        ServiceTracker tracker = monitorableTracker;
+        if (monitorableId == null && tracker != null) {
+            return tracker.getServiceReferences();
         }
         try {
-            return bc.getServiceReferences(Monitorable.class.getName(), filter);
+            return bc.getServiceReferences(Monitorable.class.getName(),
+                    monitorableId != null ? Utils.createServicePidFilter(monitorableId) : null);
         } catch (InvalidSyntaxException e) {
             warning("Unable to find Monitorable References", e);
             return null;
@@ -217,4 +697,116 @@ public class Activator implements BundleActivator, OsgiVisitor, LogVisitor {
             warning("EventAdmin is unavailable", null);
         }
     }
+
+    /**
+     * Compare permission tables with the previous check. Permissions cache is invalidated if
+     * tables are changed or could not be read
+     */
+    private void checkPermissionTables() {
+        ServiceReference permissionAdminReference = bc.getServiceReference(PermissionAdmin.class.getName());
+        ServiceReference conditionalPermissionAdminReference =
+                bc.getServiceReference(ConditionalPermissionAdmin.class.getName());
+        try {
+            permissionTablesWatcher.check(
+                    permissionAdminReference != null ? (PermissionAdmin) bc.getService(permissionAdminReference) : null,
+                    conditionalPermissionAdminReference != null
+                            ? (ConditionalPermissionAdmin) bc.getService(conditionalPermissionAdminReference) : null);
+        } catch (RuntimeException e) {
+            warning("Unable to read permission tables", e);
+            permissionCache.invalidateAll();
+        } finally {
+            if (permissionAdminReference != null) {
+                bc.ungetService(permissionAdminReference);
+            }
+            if (conditionalPermissionAdminReference != null) {
+                bc.ungetService(conditionalPermissionAdminReference);
+            }
+        }
+    }
+
+    /**
+     * Invalidates <code>MonitorPermission</code> decisions on bundle update/uninstall and
+     * <code>PermissionAdmin</code>/<code>ConditionalPermissionAdmin</code> changes.
+     * Polls permission tables when is run
+     */
+    private class PermissionChangesListener implements BundleListener, ServiceListener, Runnable {
+        public void bundleChanged(BundleEvent event) {
+            switch (event.getType()) {
+                case BundleEvent.UPDATED:
+                case BundleEvent.UNRESOLVED:
+                case BundleEvent.UNINSTALLED:
+                    permissionCache.invalidate(event.getBundle().getBundleId());
+                    break;
+            }
+        }
+
+        public void serviceChanged(ServiceEvent event) {
+            permissionCache.invalidateAll();
+            permissionTablesWatcher.reset();
+            checkPermissionTables();
+        }
+
+        public void run() {
+            checkPermissionTables();
+        }
+    }
+
+    /**
+     * Keeps <code>Monitorable</code> services index up to date
+     */
+    private class MonitorableTrackerCustomizer implements ServiceTrackerCustomizer {
+        public Object addingService(ServiceReference reference) {
+            Object service = bc.getService(reference);
+            if (service != null) {
+                monitorableIndex.add(reference);
+                updateJmxBridge(MonitorableIndex.getPid(reference));
+            }
+            return service;
+        }
+
+        public void modifiedService(ServiceReference reference, Object service) {
+            invalidatePublishedNames(reference);
+            String pid = monitorableIndex.modified(reference);
+            updateJmxBridge(pid);
+            updateJmxBridge(MonitorableIndex.getPid(reference));
+        }
+
+        public void removedService(ServiceReference reference, Object service) {
+            invalidatePublishedNames(reference);
+            updateJmxBridge(monitorableIndex.remove(reference));
+            bc.ungetService(reference);
+        }
+
+        private void invalidatePublishedNames(ServiceReference reference) {
+            MonitorAdminCommon monitorAdminCommon = common;
+            if (monitorAdminCommon != null) {
+                monitorAdminCommon.invalidatePublishedNames(reference);
+            }
+        }
+    }
+
+    /**
+     * Keeps current <code>LogService</code> up to date, so messages are published without tracker lookups
+     */
+    private class LogServiceTrackerCustomizer implements ServiceTrackerCustomizer {
+        public Object addingService(ServiceReference reference) {
+            Object service = bc.getService(reference);
+            if (service != null && logService == null) {
+                logService = (LogService) service;
+            }
+            return service;
+        }
+
+        public void modifiedService(ServiceReference reference, Object service) {
+        }
+
+        public void removedService(ServiceReference reference, Object service) {
+            if (logService == service) {
+                // switch to one of remaining services
+                ServiceTracker tracker = logServiceTracker;
+                logService = tracker != null ? (LogService) tracker.getService() : null;
+            }
+            bc.ungetService(reference);
+        }
+    }
 }
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.osgi.service.event.Event;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous events publisher. Events are put into bounded queue and
+ * posted to <code>EventAdmin</code> by dedicated publisher thread,
+ * so <code>Monitorable</code> threads are not stalled by slow <code>EventAdmin</code>.
+ *
+ * @author dmytro.pishchukhin
+ */
+class AsyncEventPublisher implements Runnable {
+    /**
+     * Default queue capacity
+     */
+    static final int DEFAULT_CAPACITY = 1000;
+
+    /**
+     * Queue overflow policy
+     */
+    enum OverflowPolicy {
+        /**
+         * Producer waits until queue has free space
+         */
+        BLOCK("block"),
+        /**
+         * The oldest queued event is dropped
+         */
+        DROP_OLDEST("drop-oldest"),
+        /**
+         * The new event is dropped
+         */
+        DROP_NEWEST("drop-newest");
+
+        private final String name;
+
+        OverflowPolicy(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Parse policy name
+         *
+         * @param name policy name: <code>block</code>, <code>drop-oldest</code> or <code>drop-newest</code>
+         * @return policy
+         * @throws IllegalArgumentException unknown policy name
+         */
+        static OverflowPolicy parse(String name) throws IllegalArgumentException {
+            for (OverflowPolicy policy : values()) {
+                if (policy.name.equalsIgnoreCase(name.trim())) {
+                    return policy;
+                }
+            }
+            throw new IllegalArgumentException("Unknown overflow policy: " + name);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final OsgiVisitor osgiVisitor;
+    private final LogVisitor logVisitor;
+    private final BlockingQueue<Event> queue;
+    private final OverflowPolicy overflowPolicy;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong highWaterMark = new AtomicLong();
+
+    private volatile Thread publisherThread;
+
+    AsyncEventPublisher(OsgiVisitor osgiVisitor, LogVisitor logVisitor, int capacity, OverflowPolicy overflowPolicy) {
+        this.osgiVisitor = osgiVisitor;
+        this.logVisitor = logVisitor;
+        this.queue = new ArrayBlockingQueue<Event>(capacity);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Start publisher thread
+     */
+    synchronized void start() {
+        if (publisherThread == null) {
+            publisherThread = new Thread(this, "MonitorAdmin Events Publisher");
+            publisherThread.setDaemon(true);
+            publisherThread.start();
+        }
+    }
+
+    /**
+     * Stop publisher thread. Queued events are discarded
+     */
+    synchronized void stop() {
+        Thread thread = publisherThread;
+        if (thread != null) {
+            publisherThread = null;
+            thread.interrupt();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        queue.clear();
+    }
+
+    /**
+     * Put event to publishing queue. If queue is full overflow policy is applied
+     *
+     * @param event event
+     */
+    void publish(Event event) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(event);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                    return;
+                }
+                break;
+            case DROP_NEWEST:
+                if (!queue.offer(event)) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(event)) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                break;
+        }
+        enqueued.incrementAndGet();
+        updateHighWaterMark(queue.size());
+    }
+
+    public void run() {
+        while (publisherThread == Thread.currentThread()) {
+            Event event;
+            try {
+                event = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                osgiVisitor.postEvent(event);
+                published.incrementAndGet();
+            } catch (SecurityException e) {
+                logVisitor.error("MonitorAdmin bundle does not have TopicPermission", e);
+            } catch (RuntimeException e) {
+                logVisitor.error("Unable to post event", e);
+            }
+        }
+    }
+
+    private void updateHighWaterMark(long depth) {
+        long current = highWaterMark.get();
+        while (depth > current && !highWaterMark.compareAndSet(current, depth)) {
+            current = highWaterMark.get();
+        }
+    }
+
+    long getEnqueued() {
+        return enqueued.get();
+    }
+
+    long getPublished() {
+        return published.get();
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    long getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    /**
+     * Start high-water mark tracking from the current queue depth
+     */
+    void resetHighWaterMark() {
+        highWaterMark.set(queue.size());
+    }
+
+    OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+}
@@ -43,4 +43,143 @@ interface ConstantsMonitorAdmin {
      * Initiator
      */
     String MON_LISTENER_ID = "mon.listener.id";
+
+    /**
+     * Framework property prefix of MonitorAdmin configuration
+     */
+    String PROPERTY_PREFIX = "org.knowhowlab.osgi.monitoradmin.";
+    /**
+     * Max number of cached <code>MonitorPermission</code> decisions. 0 - cache is disabled
+     */
+    String PERMISSION_CACHE_SIZE = PROPERTY_PREFIX + "permission.cache.size";
+    /**
+     * Time-to-live in milliseconds of cached <code>MonitorPermission</code> decisions. 0 - decisions do not expire
+     */
+    String PERMISSION_CACHE_TTL = PROPERTY_PREFIX + "permission.cache.ttl";
+    /**
+     * Interval in milliseconds of permission tables changes polling. 0 - tables are not polled
+     */
+    String PERMISSION_POLL_INTERVAL = PROPERTY_PREFIX + "permission.poll.interval";
+    /**
+     * Post events asynchronously from dedicated publisher thread: <code>true</code> or <code>false</code> (default)
+     */
+    String EVENTS_ASYNC = PROPERTY_PREFIX + "events.async";
+    /**
+     * Asynchronous events queue capacity
+     */
+    String EVENTS_QUEUE_CAPACITY = PROPERTY_PREFIX + "events.queue.capacity";
+    /**
+     * Asynchronous events queue overflow policy: <code>block</code> (default), <code>drop-oldest</code> or <code>drop-newest</code>
+     */
+    String EVENTS_OVERFLOW_POLICY = PROPERTY_PREFIX + "events.overflow.policy";
+    /**
+     * Number of worker threads of scheduled jobs scheduler
+     */
+    String SCHEDULER_POOL_SIZE = PROPERTY_PREFIX + "scheduler.pool.size";
+    /**
+     * Number of threads that read StatusVariables of scheduled jobs in parallel, 0 - sequential reads
+     */
+    String SCHEDULER_COLLECTOR_POOL_SIZE = PROPERTY_PREFIX + "scheduler.collector.pool.size";
+    /**
+     * Timeout in milliseconds of StatusVariables read by scheduled jobs
+     */
+    String SCHEDULER_READ_TIMEOUT = PROPERTY_PREFIX + "scheduler.read.timeout";
+    /**
+     * Start scheduled jobs with deterministic offset within their period. Default <code>true</code>
+     */
+    String SCHEDULER_PHASE_SPREAD = PROPERTY_PREFIX + "scheduler.phase.spread";
+    /**
+     * Number of consecutive failed or slow calls of Monitorable that open its circuit, 0 - circuits are never opened
+     */
+    String CIRCUIT_FAILURE_THRESHOLD = PROPERTY_PREFIX + "circuit.failure.threshold";
+    /**
+     * Time in milliseconds after which open circuit permits probe call
+     */
+    String CIRCUIT_OPEN_DURATION = PROPERTY_PREFIX + "circuit.open.duration";
+    /**
+     * Duration in milliseconds after which Monitorable call is abandoned and counted as failed, 0 - unlimited
+     */
+    String CIRCUIT_CALL_TIMEOUT = PROPERTY_PREFIX + "circuit.call.timeout";
+    /**
+     * Number of threads that execute Monitorable calls when call timeout is set
+     */
+    String CIRCUIT_CALL_POOL_SIZE = PROPERTY_PREFIX + "circuit.call.pool.size";
+    /**
+     * Max number of concurrent calls of one Monitorable, 0 - unlimited
+     */
+    String BULKHEAD_MAX_CONCURRENT_CALLS = PROPERTY_PREFIX + "bulkhead.max.concurrent.calls";
+    /**
+     * Min level of published log messages: <code>debug</code>, <code>info</code> (default),
+     * <code>warning</code> or <code>error</code>
+     */
+    String LOG_LEVEL = PROPERTY_PREFIX + "log.level";
+    /**
+     * Record StatusVariables history and register <code>StatusVariableHistory</code> service:
+     * <code>true</code> or <code>false</code> (default)
+     */
+    String HISTORY_ENABLED = PROPERTY_PREFIX + "history.enabled";
+    /**
+     * Number of samples kept per StatusVariable
+     */
+    String HISTORY_CAPACITY = PROPERTY_PREFIX + "history.capacity";
+    /**
+     * Max number of StatusVariables with history
+     */
+    String HISTORY_MAX_PATHS = PROPERTY_PREFIX + "history.max.paths";
+    /**
+     * Enables persistent StatusVariables store (<code>false</code> by default)
+     */
+    String PERSISTENCE_ENABLED = PROPERTY_PREFIX + "persistence.enabled";
+    /**
+     * Persistent store directory. Bundle data directory is used by default
+     */
+    String PERSISTENCE_DIRECTORY = PROPERTY_PREFIX + "persistence.directory";
+    /**
+     * Number of samples per persistent store segment file
+     */
+    String PERSISTENCE_SEGMENT_CAPACITY = PROPERTY_PREFIX + "persistence.segment.capacity";
+    /**
+     * Persistent samples retention period in hours
+     */
+    String PERSISTENCE_RETENTION_HOURS = PROPERTY_PREFIX + "persistence.retention.hours";
+    /**
+     * Max number of samples waiting for persistent store writer, new samples are dropped when it is reached
+     */
+    String PERSISTENCE_QUEUE_CAPACITY = PROPERTY_PREFIX + "persistence.queue.capacity";
+    /**
+     * Comma-separated paths of StatusVariables which percentiles are published by
+     * <code>monitoradmin.histogram</code> Monitorable
+     */
+    String HISTOGRAM_PATHS = PROPERTY_PREFIX + "histogram.paths";
+    /**
+     * Port of Prometheus exporter. Exporter is started if property is set, 0 - any free port
+     */
+    String PROMETHEUS_PORT = PROPERTY_PREFIX + "prometheus.port";
+    /**
+     * Bind address of Prometheus exporter. All interfaces by default
+     */
+    String PROMETHEUS_HOST = PROPERTY_PREFIX + "prometheus.host";
+    /**
+     * Symbolic name of the bundle which <code>MonitorPermission</code>s are honored by Prometheus exporter.
+     * MonitorAdmin bundle by default
+     */
+    String PROMETHEUS_IDENTITY = PROPERTY_PREFIX + "prometheus.identity";
+    /**
+     * Number of Prometheus exporter workers that read Monitorables in parallel
+     */
+    String PROMETHEUS_THREADS = PROPERTY_PREFIX + "prometheus.threads";
+    /**
+     * Max Prometheus scrape duration in milliseconds. Monitorables that are not read within it are skipped
+     */
+    String PROMETHEUS_SCRAPE_TIMEOUT = PROPERTY_PREFIX + "prometheus.scrape.timeout";
+    /**
+     * Register <code>DynamicMBean</code> of every Monitorable in platform MBean server:
+     * <code>true</code> or <code>false</code> (default)
+     */
+    String JMX_ENABLED = PROPERTY_PREFIX + "jmx.enabled";
+    /**
+     * Symbolic name of the bundle which <code>MonitorPermission</code>s are honored by JMX bridge.
+     * MonitorAdmin bundle by default
+     */
+    String JMX_IDENTITY = PROPERTY_PREFIX + "jmx.identity";
 }
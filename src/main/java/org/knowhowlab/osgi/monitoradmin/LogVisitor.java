@@ -23,6 +23,20 @@ package org.knowhowlab.osgi.monitoradmin;
  * @author dpishchukhin
  */
 public interface LogVisitor {
+    /**
+     * Check if DEBUG messages are published. Is used to skip building of DEBUG messages
+     *
+     * @return <code>true</code> if DEBUG messages are published
+     */
+    boolean isDebugEnabled();
+
+    /**
+     * Check if INFO messages are published. Is used to skip building of INFO messages
+     *
+     * @return <code>true</code> if INFO messages are published
+     */
+    boolean isInfoEnabled();
+
     /**
      * Publish DEBUG message
      *
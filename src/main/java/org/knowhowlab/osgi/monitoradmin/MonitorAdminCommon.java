@@ -17,9 +17,16 @@
 
 package org.knowhowlab.osgi.monitoradmin;
 
+import org.knowhowlab.osgi.monitoradmin.api.ExtendedMonitorAdmin;
+import org.knowhowlab.osgi.monitoradmin.api.MonitorableUnavailableException;
 import org.knowhowlab.osgi.monitoradmin.job.AbstractMonitoringJob;
+import org.knowhowlab.osgi.monitoradmin.job.MonitoringJobScheduler;
+import org.knowhowlab.osgi.monitoradmin.history.SampleRecorder;
 import org.knowhowlab.osgi.monitoradmin.job.MonitoringJobVisitor;
+import org.knowhowlab.osgi.monitoradmin.job.WindowAggregate;
+import org.knowhowlab.osgi.monitoradmin.util.EventsSwitchRegistry;
 import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePathFilter;
 import org.knowhowlab.osgi.monitoradmin.util.Utils;
 import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
@@ -29,8 +36,18 @@ import org.osgi.service.monitor.Monitorable;
 import org.osgi.service.monitor.MonitoringJob;
 import org.osgi.service.monitor.StatusVariable;
 
-import java.io.UnsupportedEncodingException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * MonitorAdmin common actions that are not related on Permissions
@@ -47,20 +64,162 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
     static final String PATH_PATTERN = "%s/%s";
 
     /**
-     * Set of StatusVariable paths for which events are disabled
+     * Events on/off switches. Is read without locks
      */
-    private final Set<String> disabledPaths = new HashSet<String>();
+    private final EventsSwitchRegistry eventsSwitches = new EventsSwitchRegistry();
     /**
      * List of run jobs
      */
-    private final List<AbstractMonitoringJob> jobs = new ArrayList<AbstractMonitoringJob>();
+    private final List<AbstractMonitoringJob> jobs = new CopyOnWriteArrayList<AbstractMonitoringJob>();
+    /**
+     * StatusVariable path to jobs that handle its update events.
+     * Is read without locks, modifications are guarded by <code>jobs</code>
+     */
+    private final ConcurrentMap<String, List<AbstractMonitoringJob>> subscriptions =
+            new ConcurrentHashMap<String, List<AbstractMonitoringJob>>();
+    /**
+     * In-flight Monitorable reads by StatusVariable path. Concurrent reads of the same path share the call
+     */
+    private final ConcurrentMap<String, StatusVariableRead> reads = new ConcurrentHashMap<String, StatusVariableRead>();
+    /**
+     * Monitorable service reference to names of published StatusVariables.
+     * Is invalidated on service modification and unregistration
+     */
+    private final ConcurrentMap<ServiceReference, Set<String>> publishedNames =
+            new ConcurrentHashMap<ServiceReference, Set<String>>();
+    /**
+     * Is incremented on every invalidation, so names that are read concurrently with invalidation are not cached
+     */
+    private final AtomicLong publishedNamesVersion = new AtomicLong();
 
     private final OsgiVisitor osgiVisitor;
     private final LogVisitor logVisitor;
+    /**
+     * Asynchronous events publisher. If <code>null</code> - events are posted synchronously
+     */
+    private volatile AsyncEventPublisher eventPublisher;
+    /**
+     * Shared scheduler of scheduled jobs
+     */
+    private final MonitoringJobScheduler scheduler;
+    /**
+     * Monitorables bulkheads and circuit breakers
+     */
+    private final MonitorableGuards guards;
+    /**
+     * Self-instrumentation
+     */
+    private final MonitorAdminStatistics statistics;
+    /**
+     * Recorders of all seen StatusVariable values
+     */
+    private final List<SampleRecorder> sampleRecorders = new CopyOnWriteArrayList<SampleRecorder>();
+    /**
+     * Recorders of StatusVariable values reported with update notifications
+     */
+    private final List<SampleRecorder> updateRecorders = new CopyOnWriteArrayList<SampleRecorder>();
 
     MonitorAdminCommon(OsgiVisitor osgiVisitor, LogVisitor logVisitor) {
+        this(osgiVisitor, logVisitor, MonitoringJobScheduler.DEFAULT_POOL_SIZE);
+    }
+
+    MonitorAdminCommon(OsgiVisitor osgiVisitor, LogVisitor logVisitor, int schedulerPoolSize) {
+        this(osgiVisitor, logVisitor, new MonitoringJobScheduler(schedulerPoolSize));
+    }
+
+    MonitorAdminCommon(OsgiVisitor osgiVisitor, LogVisitor logVisitor, MonitoringJobScheduler scheduler) {
+        this(osgiVisitor, logVisitor, scheduler, new MonitorableGuards());
+    }
+
+    MonitorAdminCommon(OsgiVisitor osgiVisitor, LogVisitor logVisitor, MonitoringJobScheduler scheduler,
+                       MonitorableGuards guards) {
         this.osgiVisitor = osgiVisitor;
         this.logVisitor = logVisitor;
+        this.scheduler = scheduler;
+        this.guards = guards;
+        this.statistics = new MonitorAdminStatistics(this);
+    }
+
+    /**
+     * Get shared scheduler of scheduled jobs
+     *
+     * @return scheduler
+     */
+    MonitoringJobScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Get Monitorables bulkheads and circuit breakers
+     *
+     * @return guards
+     */
+    MonitorableGuards getGuards() {
+        return guards;
+    }
+
+    /**
+     * Get self-instrumentation Monitorable
+     *
+     * @return statistics
+     */
+    MonitorAdminStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Set asynchronous events publisher
+     *
+     * @param eventPublisher publisher or <code>null</code> to post events synchronously
+     */
+    void setEventPublisher(AsyncEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Get asynchronous events publisher
+     *
+     * @return publisher or <code>null</code> if events are posted synchronously
+     */
+    AsyncEventPublisher getEventPublisher() {
+        return eventPublisher;
+    }
+
+    /**
+     * Add recorder of <code>StatusVariable</code> values
+     *
+     * @param recorder recorder
+     */
+    void addSampleRecorder(SampleRecorder recorder) {
+        sampleRecorders.add(recorder);
+    }
+
+    /**
+     * Remove recorder of <code>StatusVariable</code> values
+     *
+     * @param recorder recorder
+     */
+    void removeSampleRecorder(SampleRecorder recorder) {
+        sampleRecorders.remove(recorder);
+    }
+
+    /**
+     * Add recorder of <code>StatusVariable</code> values that are reported with update notifications.
+     * Scheduled jobs measurements are not passed to it
+     *
+     * @param recorder recorder
+     */
+    void addUpdateRecorder(SampleRecorder recorder) {
+        updateRecorders.add(recorder);
+    }
+
+    /**
+     * Remove recorder of <code>StatusVariable</code> values that are reported with update notifications
+     *
+     * @param recorder recorder
+     */
+    void removeUpdateRecorder(SampleRecorder recorder) {
+        updateRecorders.remove(recorder);
     }
 
     /**
@@ -76,25 +235,34 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
      *          or if <code>statusVariable</code> is <code>null</code>
      */
     public void updated(String monitorableId, StatusVariable statusVariable) throws IllegalArgumentException {
-        // validate monitorableId
-        findMonitorableById(monitorableId);
-        if (statusVariable == null) {
-            throw new IllegalArgumentException("StatusVariable is null");
-        }
-        StatusVariablePath path = new StatusVariablePath(monitorableId, statusVariable.getID());
-        if (isEventEnabled(path.getPath())) {
-            fireEvent(monitorableId, statusVariable, null);
-            logVisitor.info("Fire new SV update Event: " + path.getPath(), null);
-        }
-        // find jobs that handle this StatusVariable update event
-        if (!jobs.isEmpty()) {
-            synchronized (jobs) {
-                for (AbstractMonitoringJob job : jobs) {
+        long start = System.nanoTime();
+        try {
+            // validate monitorableId
+            findMonitorableById(monitorableId);
+            if (statusVariable == null) {
+                throw new IllegalArgumentException("StatusVariable is null");
+            }
+            StatusVariablePath path = StatusVariablePath.of(monitorableId, statusVariable.getID());
+            if (eventsSwitches.isEventEnabled(monitorableId, statusVariable.getID())) {
+                fireEvent(monitorableId, statusVariable, null);
+                if (logVisitor.isDebugEnabled()) {
+                    logVisitor.debug("Fire new SV update Event: " + path.getPath(), null);
+                }
+            }
+            recordSample(path, statusVariable);
+            record(updateRecorders, path, statusVariable);
+            // notify jobs that handle this StatusVariable update event
+            List<AbstractMonitoringJob> pathJobs = subscriptions.get(path.getPath());
+            if (pathJobs != null) {
+                for (AbstractMonitoringJob job : pathJobs) {
                     if (job.isHandleUpdateEvent(path.getPath())) {
                         job.handleUpdateEvent(monitorableId, statusVariable);
+                        statistics.notifications.increment();
                     }
                 }
             }
+        } finally {
+            statistics.updates.record(start);
         }
     }
 
@@ -104,19 +272,28 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
      * @return array with StatusVariable paths
      */
     String[] getDisabledNotificationPaths() {
+        if (eventsSwitches.isEmpty()) {
+            return new String[0];
+        }
+        Set<String> disabledPaths = new TreeSet<String>();
+        for (ServiceReference monitorableReference : getMonitorableReferences()) {
+            String pid = (String) monitorableReference.getProperty(Constants.SERVICE_PID);
+            String[] statusVariableNames;
+            try {
+                statusVariableNames = getStatusVariableNames(pid);
+            } catch (IllegalArgumentException e) {
+                // Monitorable is unregistered
+                continue;
+            }
+            for (String statusVariableName : statusVariableNames) {
+                if (!eventsSwitches.isEventEnabled(pid, statusVariableName)) {
+                    disabledPaths.add(String.format(PATH_PATTERN, pid, statusVariableName));
+                }
+            }
+        }
         return disabledPaths.toArray(new String[disabledPaths.size()]);
     }
 
-    /**
-     * Check if events are disabled for given path
-     *
-     * @param path path to check
-     * @return if events are disabled - <code>true</code>, otherwise - <code>false</code>
-     */
-    private boolean isEventEnabled(String path) {
-        return !disabledPaths.contains(path);
-    }
-
     /**
      * Find Monitorable service by monitorable Id. Returns Monitorable service or
      * throws exception.
@@ -133,29 +310,7 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
      *                                  to non-existing service or monitorableId is invalid
      */
     private Monitorable findMonitorableById(String monitorableId) throws IllegalArgumentException {
-        if (monitorableId == null) {
-            throw new IllegalArgumentException("MonitorableId is null");
-        }
-
-        if (!Utils.validatePathId(monitorableId)) {
-            throw new IllegalArgumentException("MonitorableId is invalid");
-        }
-
-        ServiceReference mostSuitableMonitorable = null;
-        ServiceReference[] serviceReferences = osgiVisitor.findMonitorableReferences(monitorableId);
-
-        if (serviceReferences != null) {
-            for (ServiceReference serviceReference : serviceReferences) {
-                if (mostSuitableMonitorable == null ||
-                        mostSuitableMonitorable.compareTo(serviceReference) < 0) {
-                    mostSuitableMonitorable = serviceReference;
-                }
-            }
-        }
-        if (mostSuitableMonitorable == null) {
-            throw new IllegalArgumentException("Monitorable ID: " + monitorableId + " points to non-existing service");
-        }
-        return osgiVisitor.getService(mostSuitableMonitorable);
+        return osgiVisitor.getService(findMonitorableReferenceById(monitorableId));
     }
 
     /**
@@ -174,29 +329,24 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
      *                                  to non-existing service or monitorableId is invalid
      */
     ServiceReference findMonitorableReferenceById(String monitorableId) throws IllegalArgumentException {
-        if (monitorableId == null) {
-            throw new IllegalArgumentException("MonitorableId is null");
-        }
-
-        if (!Utils.validatePathId(monitorableId)) {
-            throw new IllegalArgumentException("MonitorableId is invalid");
-        }
+        long start = System.nanoTime();
+        try {
+            if (monitorableId == null) {
+                throw new IllegalArgumentException("MonitorableId is null");
+            }
 
-        ServiceReference mostSuitableMonitorable = null;
-        ServiceReference[] serviceReferences = osgiVisitor.findMonitorableReferences(monitorableId);
+            if (!Utils.validatePathId(monitorableId)) {
+                throw new IllegalArgumentException("MonitorableId is invalid");
+            }
 
-        if (serviceReferences != null) {
-            for (ServiceReference serviceReference : serviceReferences) {
-                if (mostSuitableMonitorable == null ||
-                        mostSuitableMonitorable.compareTo(serviceReference) < 0) {
-                    mostSuitableMonitorable = serviceReference;
-                }
+            ServiceReference mostSuitableMonitorable = osgiVisitor.findMonitorableReference(monitorableId);
+            if (mostSuitableMonitorable == null) {
+                throw new IllegalArgumentException("Monitorable ID: " + monitorableId + " points to non-existing service");
             }
+            return mostSuitableMonitorable;
+        } finally {
+            statistics.lookups.record(start);
         }
-        if (mostSuitableMonitorable == null) {
-            throw new IllegalArgumentException("Monitorable ID: " + monitorableId + " points to non-existing service");
-        }
-        return mostSuitableMonitorable;
     }
 
     /**
@@ -247,6 +397,36 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
     void addJob(AbstractMonitoringJob job) {
         synchronized (jobs) {
             jobs.add(job);
+            for (String path : job.getStatusVariableNames()) {
+                if (job.isHandleUpdateEvent(path)) {
+                    List<AbstractMonitoringJob> pathJobs = subscriptions.get(path);
+                    if (pathJobs == null) {
+                        pathJobs = new CopyOnWriteArrayList<AbstractMonitoringJob>();
+                        subscriptions.put(path, pathJobs);
+                    }
+                    pathJobs.add(job);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove <code>MonitoringJob</code> from the list and subscriptions
+     *
+     * @param job MonitoringJob
+     */
+    private void removeJob(AbstractMonitoringJob job) {
+        synchronized (jobs) {
+            jobs.remove(job);
+            for (String path : job.getStatusVariableNames()) {
+                List<AbstractMonitoringJob> pathJobs = subscriptions.get(path);
+                if (pathJobs != null) {
+                    pathJobs.remove(job);
+                    if (pathJobs.isEmpty()) {
+                        subscriptions.remove(path);
+                    }
+                }
+            }
         }
     }
 
@@ -257,11 +437,9 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
      */
     List<MonitoringJob> getRunningJobs() {
         List<MonitoringJob> runningJobs = new ArrayList<MonitoringJob>();
-        synchronized (jobs) {
-            for (AbstractMonitoringJob job : jobs) {
-                if (job.isRunning()) {
-                    runningJobs.add(job);
-                }
+        for (AbstractMonitoringJob job : jobs) {
+            if (job.isRunning()) {
+                runningJobs.add(job);
             }
         }
         return runningJobs;
@@ -277,17 +455,23 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
      *          if <code>path</code> is
      *          <code>null</code> or otherwise invalid, or points to a
      *          non-existing <code>StatusVariable</code>
+     * @throws MonitorableUnavailableException Monitorable is isolated or has failed
      */
     public StatusVariable getStatusVariable(String path)
             throws IllegalArgumentException {
-        logVisitor.debug("ENTRY: getStatusVariable: " + path, null);
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: getStatusVariable: " + path, null);
+        }
         try {
-            StatusVariablePath statusVariablePath = new StatusVariablePath(path);
+            StatusVariablePath statusVariablePath = StatusVariablePath.parse(path);
             Monitorable monitorable = findMonitorableById(statusVariablePath.getMonitorableId());
 
-            return monitorable.getStatusVariable(statusVariablePath.getStatusVariableId());
+            return getStatusVariable(statusVariablePath.getMonitorableId(), monitorable,
+                    statusVariablePath.getStatusVariableId());
         } finally {
-            logVisitor.debug("EXIT: getStatusVariable: " + path, null);
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: getStatusVariable: " + path, null);
+            }
         }
     }
 
@@ -300,9 +484,145 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
      * @throws java.lang.IllegalArgumentException
      *          if points to a
      *          non-existing <code>StatusVariable</code>
+     * @throws MonitorableUnavailableException Monitorable is isolated or has failed
      */
     StatusVariable getStatusVariable(ServiceReference serviceReference, String statusVariableId) {
-        return osgiVisitor.getService(serviceReference).getStatusVariable(statusVariableId);
+        return getStatusVariable((String) serviceReference.getProperty(Constants.SERVICE_PID),
+                osgiVisitor.getService(serviceReference), statusVariableId);
+    }
+
+    /**
+     * Read <code>StatusVariable</code> with coalescing: if the same <code>StatusVariable</code> is
+     * being read by another thread, its result is awaited instead of a new <code>Monitorable</code> call
+     *
+     * @param monitorableId    <code>Monitorable</code> ID
+     * @param monitorable      <code>Monitorable</code>
+     * @param statusVariableId <code>StatusVariable</code> id
+     * @return the <code>StatusVariable</code> object
+     * @throws MonitorableUnavailableException call is rejected or has failed
+     */
+    private StatusVariable getStatusVariable(String monitorableId, Monitorable monitorable, String statusVariableId) {
+        if (monitorableId == null) {
+            return readStatusVariable(null, monitorable, statusVariableId);
+        }
+        String path = StatusVariablePath.of(monitorableId, statusVariableId).getPath();
+        StatusVariableRead read = new StatusVariableRead(monitorableId, monitorable, statusVariableId);
+        StatusVariableRead inFlight = reads.putIfAbsent(path, read);
+        try {
+            if (inFlight == null) {
+                try {
+                    read.run();
+                } finally {
+                    reads.remove(path, read);
+                }
+                return read.getResult();
+            }
+            if (inFlight.runner == Thread.currentThread() || GuardedCall.isCallThread()) {
+                // Monitorable reads its own StatusVariable
+                return readStatusVariable(monitorableId, monitorable, statusVariableId);
+            }
+            statistics.coalescedReads.increment();
+            return inFlight.getResult();
+        } catch (InterruptedException e) {
+            // do not wait for shared call
+            Thread.currentThread().interrupt();
+            return readStatusVariable(monitorableId, monitorable, statusVariableId);
+        }
+    }
+
+    /**
+     * Read <code>StatusVariable</code> through <code>Monitorable</code> guard
+     *
+     * @param monitorableId    <code>Monitorable</code> ID
+     * @param monitorable      <code>Monitorable</code>
+     * @param statusVariableId <code>StatusVariable</code> id
+     * @return the <code>StatusVariable</code> object
+     * @throws MonitorableUnavailableException call is rejected, has failed or timed out
+     */
+    private StatusVariable readStatusVariable(String monitorableId, Monitorable monitorable, final String statusVariableId) {
+        return call(monitorableId, monitorable, new MonitorableCall<StatusVariable>() {
+            public StatusVariable call(Monitorable monitorable) {
+                return monitorable.getStatusVariable(statusVariableId);
+            }
+        }, true);
+    }
+
+    /**
+     * Call <code>Monitorable</code> through its bulkhead and circuit breaker.
+     * If call timeout is set, call is executed by guards call thread and abandoned
+     * when timeout is expired. Abandoned call keeps its bulkhead permit until it returns.
+     * <code>IllegalArgumentException</code> of <code>Monitorable</code> means unknown
+     * <code>StatusVariable</code> and is not counted as failure
+     *
+     * @param monitorableId <code>Monitorable</code> ID
+     * @param monitorable   <code>Monitorable</code>
+     * @param call          call
+     * @param read          <code>true</code> - call reads <code>StatusVariable</code>
+     * @return call result
+     * @throws MonitorableUnavailableException call is rejected, has failed or timed out
+     */
+    private <T> T call(String monitorableId, Monitorable monitorable, MonitorableCall<T> call, boolean read) {
+        MonitorableGuard guard = monitorableId != null ? guards.get(monitorableId) : null;
+        if (guard == null) {
+            return call.call(monitorable);
+        }
+        if (!guard.acquire()) {
+            throw new MonitorableUnavailableException(monitorableId,
+                    "Monitorable ID: " + monitorableId + " is unavailable: circuit is open or too many concurrent calls", null);
+        }
+        if (!guards.isTimed()) {
+            boolean success = false;
+            long start = System.nanoTime();
+            try {
+                T result = call.call(monitorable);
+                success = true;
+                return result;
+            } catch (IllegalArgumentException e) {
+                success = true;
+                throw e;
+            } catch (RuntimeException e) {
+                throw new MonitorableUnavailableException(monitorableId,
+                        "Monitorable ID: " + monitorableId + " has failed", e);
+            } finally {
+                guard.releasePermit();
+                guard.complete(success, success && guards.isSlowCall(System.nanoTime() - start), read);
+            }
+        }
+        GuardedCall<T> guardedCall = new GuardedCall<T>(guard, monitorable, call);
+        try {
+            guards.execute(guardedCall);
+        } catch (RejectedExecutionException e) {
+            guard.releasePermit();
+            guards.rejected();
+            throw new MonitorableUnavailableException(monitorableId,
+                    "Monitorable ID: " + monitorableId + " is unavailable: no free call threads", e);
+        }
+        try {
+            T result = guardedCall.get(guards.getCallTimeoutNanos(), TimeUnit.NANOSECONDS);
+            guard.complete(true, false, read);
+            return result;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalArgumentException) {
+                guard.complete(true, false, read);
+                throw (IllegalArgumentException) cause;
+            }
+            guard.complete(false, false, read);
+            throw new MonitorableUnavailableException(monitorableId,
+                    "Monitorable ID: " + monitorableId + " has failed", cause);
+        } catch (TimeoutException e) {
+            guardedCall.abandon();
+            guard.complete(true, true, read);
+            throw new MonitorableUnavailableException(monitorableId,
+                    "Monitorable ID: " + monitorableId + " has not responded within call timeout", e);
+        } catch (InterruptedException e) {
+            guardedCall.abandon();
+            // outcome is unknown: count as failure so half-open circuit is not left without probe result
+            guard.complete(false, false, read);
+            Thread.currentThread().interrupt();
+            throw new MonitorableUnavailableException(monitorableId,
+                    "Monitorable ID: " + monitorableId + " call is interrupted", e);
+        }
     }
 
     /**
@@ -316,8 +636,13 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
      *          if points to a
      *          non-existing <code>StatusVariable</code>
      */
-    String getDescription(ServiceReference serviceReference, String statusVariableId) {
-        return osgiVisitor.getService(serviceReference).getDescription(statusVariableId);
+    String getDescription(ServiceReference serviceReference, final String statusVariableId) {
+        return call((String) serviceReference.getProperty(Constants.SERVICE_PID), osgiVisitor.getService(serviceReference),
+                new MonitorableCall<String>() {
+                    public String call(Monitorable monitorable) {
+                        return monitorable.getDescription(statusVariableId);
+                    }
+                }, false);
     }
 
     /**
@@ -331,8 +656,13 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
      *          if points to a
      *          non-existing <code>StatusVariable</code>
      */
-    boolean notifiesOnChange(ServiceReference serviceReference, String statusVariableId) {
-        return osgiVisitor.getService(serviceReference).notifiesOnChange(statusVariableId);
+    boolean notifiesOnChange(ServiceReference serviceReference, final String statusVariableId) {
+        return call((String) serviceReference.getProperty(Constants.SERVICE_PID), osgiVisitor.getService(serviceReference),
+                new MonitorableCall<Boolean>() {
+                    public Boolean call(Monitorable monitorable) {
+                        return monitorable.notifiesOnChange(statusVariableId);
+                    }
+                }, false);
     }
 
     /**
@@ -346,8 +676,13 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
      *          if points to a
      *          non-existing <code>StatusVariable</code>
      */
-    boolean resetStatusVariable(ServiceReference serviceReference, String statusVariableId) {
-        return osgiVisitor.getService(serviceReference).resetStatusVariable(statusVariableId);
+    boolean resetStatusVariable(ServiceReference serviceReference, final String statusVariableId) {
+        return call((String) serviceReference.getProperty(Constants.SERVICE_PID), osgiVisitor.getService(serviceReference),
+                new MonitorableCall<Boolean>() {
+                    public Boolean call(Monitorable monitorable) {
+                        return monitorable.resetStatusVariable(statusVariableId);
+                    }
+                }, false);
     }
 
 
@@ -357,33 +692,37 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
      * @param job job to cancel
      */
     public void cancelJob(AbstractMonitoringJob job) {
-        synchronized (jobs) {
-            jobs.remove(job);
-            job.cancel();
-        }
+        removeJob(job);
+        job.cancel();
     }
 
     /**
      * Cancel all jobs and clear the list
      */
     void cancelAllJobs() {
-        logVisitor.debug("ENTRY: cancelJobs", null);
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: cancelJobs", null);
+        }
         try {
-            if (!jobs.isEmpty()) {
-                synchronized (jobs) {
-                    Iterator<AbstractMonitoringJob> iterator = jobs.iterator();
-                    while (iterator.hasNext()) {
-                        AbstractMonitoringJob job = iterator.next();
-                        job.cancel();
-                        iterator.remove();
-                    }
-                }
+            for (AbstractMonitoringJob job : jobs) {
+                cancelJob(job);
             }
         } finally {
-            logVisitor.debug("EXIT: cancelJobs", null);
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: cancelJobs", null);
+            }
         }
     }
 
+    /**
+     * Cancel all jobs and stop jobs scheduler
+     */
+    void shutdown() {
+        cancelAllJobs();
+        scheduler.shutdown();
+        guards.shutdown();
+    }
+
     /**
      * Fire StatusVariable update event
      *
@@ -416,27 +755,118 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
             eventProperties.put(ConstantsMonitorAdmin.MON_LISTENER_ID, initiator);
         }
 
-        Event event = new Event(ConstantsMonitorAdmin.TOPIC, eventProperties);
+        postEvent(new Event(ConstantsMonitorAdmin.TOPIC, eventProperties));
+    }
+
+    /**
+     * Fire event with window aggregate. Event value is the mean value
+     *
+     * @param monitorableId    monitorableId
+     * @param statusVariableId StatusVariable id
+     * @param aggregate        window aggregate
+     * @param initiator        initiator. if <code>null</code> - is not added to event
+     */
+    public void fireAggregationEvent(String monitorableId, String statusVariableId, WindowAggregate aggregate,
+                                     String initiator) {
+        Dictionary<String, String> eventProperties = new Hashtable<String, String>();
+        eventProperties.put(ConstantsMonitorAdmin.MON_MONITORABLE_PID, monitorableId);
+        eventProperties.put(ConstantsMonitorAdmin.MON_STATUSVARIABLE_NAME, statusVariableId);
+        eventProperties.put(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE, Double.toString(aggregate.getMean()));
+        eventProperties.put(ExtendedMonitorAdmin.MON_AGGREGATE_MIN, Double.toString(aggregate.getMin()));
+        eventProperties.put(ExtendedMonitorAdmin.MON_AGGREGATE_MAX, Double.toString(aggregate.getMax()));
+        eventProperties.put(ExtendedMonitorAdmin.MON_AGGREGATE_MEAN, Double.toString(aggregate.getMean()));
+        eventProperties.put(ExtendedMonitorAdmin.MON_AGGREGATE_SUM, Double.toString(aggregate.getSum()));
+        eventProperties.put(ExtendedMonitorAdmin.MON_AGGREGATE_COUNT, Long.toString(aggregate.getCount()));
+        eventProperties.put(ExtendedMonitorAdmin.MON_AGGREGATE_WINDOW_START, Long.toString(aggregate.getWindowStart()));
+        eventProperties.put(ExtendedMonitorAdmin.MON_AGGREGATE_WINDOW_END, Long.toString(aggregate.getWindowEnd()));
+        if (initiator != null) {
+            eventProperties.put(ConstantsMonitorAdmin.MON_LISTENER_ID, initiator);
+        }
+        postEvent(new Event(ConstantsMonitorAdmin.TOPIC, eventProperties));
+    }
+
+    /**
+     * Fire event that StatusVariable read of scheduled job has timed out.
+     * Event is posted on {@link ExtendedMonitorAdmin#TIMEOUT_TOPIC} as it has no value
+     *
+     * @param monitorableId    monitorableId
+     * @param statusVariableId StatusVariable id
+     * @param initiator        initiator. if <code>null</code> - is not added to event
+     */
+    public void fireTimeoutEvent(String monitorableId, String statusVariableId, String initiator) {
+        Dictionary<String, String> eventProperties = new Hashtable<String, String>();
+        eventProperties.put(ConstantsMonitorAdmin.MON_MONITORABLE_PID, monitorableId);
+        eventProperties.put(ConstantsMonitorAdmin.MON_STATUSVARIABLE_NAME, statusVariableId);
+        eventProperties.put(ExtendedMonitorAdmin.MON_READ_TIMEOUT, Boolean.TRUE.toString());
+        if (initiator != null) {
+            eventProperties.put(ConstantsMonitorAdmin.MON_LISTENER_ID, initiator);
+        }
+        postEvent(new Event(ExtendedMonitorAdmin.TIMEOUT_TOPIC, eventProperties));
+    }
+
+    private void postEvent(Event event) {
+        long start = System.nanoTime();
         try {
-            osgiVisitor.postEvent(event);
-        } catch (SecurityException e) {
-            logVisitor.error("MonitorAdmin bundle does not have TopicPermission", e);
+            AsyncEventPublisher publisher = eventPublisher;
+            if (publisher != null) {
+                publisher.publish(event);
+                return;
+            }
+            try {
+                osgiVisitor.postEvent(event);
+            } catch (SecurityException e) {
+                logVisitor.error("MonitorAdmin bundle does not have TopicPermission", e);
+            }
+        } finally {
+            statistics.events.record(start);
         }
     }
 
+    public void measurementCompleted(long startTime) {
+        statistics.measurements.record(startTime);
+    }
+
     /**
-     * Switch on/off events
+     * Pass <code>StatusVariable</code> value to recorders
      *
-     * @param paths <code>StatusVariable</code> paths
+     * @param path           <code>StatusVariable</code> path
+     * @param statusVariable <code>StatusVariable</code> value
+     */
+    public void recordSample(StatusVariablePath path, StatusVariable statusVariable) {
+        record(sampleRecorders, path, statusVariable);
+    }
+
+    private void record(List<SampleRecorder> recorders, StatusVariablePath path, StatusVariable statusVariable) {
+        for (SampleRecorder recorder : recorders) {
+            try {
+                recorder.record(path, statusVariable);
+            } catch (RuntimeException e) {
+                logVisitor.error("Unable to record sample: " + path.getPath(), e);
+            }
+        }
+    }
+
+    /**
+     * Switch on/off events. Filter is stored as a rule, so it is applied
+     * to <code>StatusVariable</code>s registered later as well
+     *
+     * @param filter <code>StatusVariable</code> path filter
      * @param on     <code>false</code> if event sending should be switched off,
      *               <code>true</code> if it should be switched on for the given path
      */
-    void switchEvents(Set<String> paths, boolean on) {
-        if (on) {
-            disabledPaths.removeAll(paths);
-        } else {
-            disabledPaths.addAll(paths);
-        }
+    void switchEvents(StatusVariablePathFilter filter, boolean on) {
+        eventsSwitches.switchEvents(filter, on);
+    }
+
+    /**
+     * Switch on/off events for several filters at once
+     *
+     * @param filters <code>StatusVariable</code> path filters
+     * @param on      <code>false</code> if event sending should be switched off,
+     *                <code>true</code> if it should be switched on for the given paths
+     */
+    void switchEvents(Collection<StatusVariablePathFilter> filters, boolean on) {
+        eventsSwitches.switchEvents(filters, on);
     }
 
 
@@ -469,8 +899,23 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
      *          non-existing <code>Monitorable</code>
      */
     String[] getStatusVariableNames(String monitorableId) {
-        Monitorable monitorable = findMonitorableById(monitorableId);
-        String[] statusVariableNames = monitorable.getStatusVariableNames();
+        return getStatusVariableNames(findMonitorableReferenceById(monitorableId));
+    }
+
+    /**
+     * Returns the list of valid <code>StatusVariable</code> names published by
+     * <code>Monitorable</code> service
+     *
+     * @param serviceReference <code>Monitorable</code> service reference
+     * @return a list of valid <code>StatusVariable</code> names
+     */
+    String[] getStatusVariableNames(ServiceReference serviceReference) {
+        String[] statusVariableNames = call((String) serviceReference.getProperty(Constants.SERVICE_PID),
+                osgiVisitor.getService(serviceReference), new MonitorableCall<String[]>() {
+                    public String[] call(Monitorable monitorable) {
+                        return monitorable.getStatusVariableNames();
+                    }
+                }, false);
 
         List<String> result = new ArrayList<String>();
 
@@ -482,6 +927,37 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
         return result.toArray(new String[result.size()]);
     }
 
+    /**
+     * Check that <code>StatusVariable</code> is published by <code>Monitorable</code> service.
+     * Names are read from <code>Monitorable</code> once and cached until the service is modified or unregistered
+     *
+     * @param serviceReference <code>Monitorable</code> service reference
+     * @param statusVariableId <code>StatusVariable</code> ID
+     * @return <code>true</code> - <code>StatusVariable</code> is published, otherwise - <code>false</code>
+     */
+    boolean isPublished(ServiceReference serviceReference, String statusVariableId) {
+        Set<String> names = publishedNames.get(serviceReference);
+        if (names == null) {
+            long version = publishedNamesVersion.get();
+            names = new HashSet<String>(Arrays.asList(getStatusVariableNames(serviceReference)));
+            publishedNames.putIfAbsent(serviceReference, names);
+            if (publishedNamesVersion.get() != version) {
+                publishedNames.remove(serviceReference, names);
+            }
+        }
+        return names.contains(statusVariableId);
+    }
+
+    /**
+     * Drop cached names of <code>StatusVariable</code>s published by <code>Monitorable</code> service
+     *
+     * @param serviceReference modified or unregistered <code>Monitorable</code> service reference
+     */
+    void invalidatePublishedNames(ServiceReference serviceReference) {
+        publishedNamesVersion.incrementAndGet();
+        publishedNames.remove(serviceReference);
+    }
+
     private static class ServiceReferencePidComparator implements Comparator<ServiceReference> {
         public int compare(ServiceReference o1, ServiceReference o2) {
             String pid1 = (String) o1.getProperty(Constants.SERVICE_PID);
@@ -496,29 +972,128 @@ class MonitorAdminCommon implements MonitorListener, MonitoringJobVisitor {
      * @return <code>false</code> - id is invalid, otherwise - <code>true</code>
      */
     private static boolean isValidId(String id) {
-        byte[] nameBytes;
-        try {
-            nameBytes = id.getBytes("UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            // never happens, "UTF-8" must always be supported
-            return false;
-        }
-        if (nameBytes.length > MAX_ID_LENGTH) {
+        // all allowed characters are encoded with one byte in UTF-8
+        if (id.length() > MAX_ID_LENGTH) {
             return false;
         }
 
-
         if (id.equals(".") || id.equals("..")) {
             return false;
         }
 
-        char[] chars = id.toCharArray();
-        for (char aChar : chars) {
-            if (SYMBOLIC_NAME_CHARACTERS.indexOf(aChar) == -1) {
+        for (int i = 0; i < id.length(); i++) {
+            if (SYMBOLIC_NAME_CHARACTERS.indexOf(id.charAt(i)) == -1) {
                 return false;
             }
         }
         return true;
     }
 
+
+    /**
+     * Shared <code>Monitorable</code> call
+     */
+    private class StatusVariableRead extends FutureTask<StatusVariable> {
+        private volatile Thread runner;
+
+        private StatusVariableRead(final String monitorableId, final Monitorable monitorable,
+                                   final String statusVariableId) {
+            super(new Callable<StatusVariable>() {
+                public StatusVariable call() {
+                    return readStatusVariable(monitorableId, monitorable, statusVariableId);
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            runner = Thread.currentThread();
+            try {
+                super.run();
+            } finally {
+                runner = null;
+            }
+        }
+
+        /**
+         * Await call result. Exceptions of the call are rethrown
+         *
+         * @return the <code>StatusVariable</code> object
+         * @throws InterruptedException waiting thread is interrupted
+         */
+        private StatusVariable getResult() throws InterruptedException {
+            try {
+                return get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw (Error) cause;
+            }
+        }
+    }
+
+    /**
+     * <code>Monitorable</code> method call
+     */
+    private interface MonitorableCall<T> {
+        T call(Monitorable monitorable);
+    }
+
+    /**
+     * <code>Monitorable</code> call executed by guards call thread
+     */
+    private static class GuardedCall<T> extends FutureTask<T> {
+        private static final ThreadLocal<Boolean> CALL_THREAD = new ThreadLocal<Boolean>();
+
+        private final MonitorableGuard guard;
+        /**
+         * Set by call thread when call is started or by caller when call is abandoned before start
+         */
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private GuardedCall(MonitorableGuard guard, final Monitorable monitorable, final MonitorableCall<T> call) {
+            super(new Callable<T>() {
+                public T call() {
+                    return call.call(monitorable);
+                }
+            });
+            this.guard = guard;
+        }
+
+        /**
+         * Check if current thread executes <code>Monitorable</code> call, i.e. <code>Monitorable</code>
+         * calls MonitorAdmin from its own method
+         *
+         * @return <code>true</code> - current thread executes <code>Monitorable</code> call
+         */
+        private static boolean isCallThread() {
+            return CALL_THREAD.get() != null;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            CALL_THREAD.set(Boolean.TRUE);
+            try {
+                super.run();
+            } finally {
+                CALL_THREAD.remove();
+                guard.releasePermit();
+            }
+        }
+
+        /**
+         * Cancel call that has not completed within call timeout
+         */
+        private void abandon() {
+            cancel(true);
+            if (started.compareAndSet(false, true)) {
+                guard.releasePermit();
+            }
+        }
+    }
 }
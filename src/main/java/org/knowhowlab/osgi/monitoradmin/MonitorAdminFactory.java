@@ -29,18 +29,24 @@ import org.osgi.framework.ServiceRegistration;
 class MonitorAdminFactory implements ServiceFactory {
     private final LogVisitor logVisitor;
     private final MonitorAdminCommon common;
+    private final PermissionCache permissionCache;
 
-    MonitorAdminFactory(LogVisitor logVisitor, MonitorAdminCommon common) {
+    MonitorAdminFactory(LogVisitor logVisitor, MonitorAdminCommon common, PermissionCache permissionCache) {
         this.logVisitor = logVisitor;
         this.common = common;
+        this.permissionCache = permissionCache;
     }
 
     public Object getService(Bundle bundle, ServiceRegistration serviceRegistration) {
-        logVisitor.debug(String.format("Bind MonitorAdmin instance to %s bundle", bundle.getSymbolicName()), null);
-        return new MonitorAdminImpl(logVisitor, common, bundle);
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug(String.format("Bind MonitorAdmin instance to %s bundle", bundle.getSymbolicName()), null);
+        }
+        return new MonitorAdminImpl(logVisitor, common, bundle, permissionCache);
     }
 
     public void ungetService(Bundle bundle, ServiceRegistration serviceRegistration, Object o) {
-        logVisitor.debug(String.format("Unbind MonitorAdmin instance from %s bundle", bundle.getSymbolicName()), null);
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug(String.format("Unbind MonitorAdmin instance from %s bundle", bundle.getSymbolicName()), null);
+        }
     }
 }
@@ -17,6 +17,11 @@
 
 package org.knowhowlab.osgi.monitoradmin;
 
+import org.knowhowlab.osgi.monitoradmin.api.ExtendedMonitorAdmin;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableResult;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableSnapshot;
+import org.knowhowlab.osgi.monitoradmin.job.MonitoringJobScheduler;
+import org.knowhowlab.osgi.monitoradmin.job.AggregationMonitoringJob;
 import org.knowhowlab.osgi.monitoradmin.job.ScheduledMonitoringJob;
 import org.knowhowlab.osgi.monitoradmin.job.SubscriptionMonitoringJob;
 import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
@@ -27,30 +32,50 @@ import org.osgi.framework.ServiceReference;
 import org.osgi.service.monitor.*;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * MonitorAdmin implementation
  *
  * @author dmytro.pishchukhin
  */
-class MonitorAdminImpl implements MonitorAdmin {
+class MonitorAdminImpl implements ExtendedMonitorAdmin {
     private static final String STARTJOB_PERMISSION_PATTERN = String.format("%s:%%d", MonitorPermission.STARTJOB);
 
     private final LogVisitor logVisitor;
     private final MonitorAdminCommon common;
     private final Bundle consumer;
+    private final PermissionCache permissionCache;
 
     /**
-     * Initialize MonitorAdmin implementation instance
+     * Initialize MonitorAdmin implementation instance with own permissions cache
      *
      * @param logVisitor loggers visitor
      * @param common     commons actions
      * @param consumer   bundle-consumer
      */
     MonitorAdminImpl(LogVisitor logVisitor, MonitorAdminCommon common, Bundle consumer) {
+        this(logVisitor, common, consumer, new PermissionCache(logVisitor, PermissionCache.DEFAULT_SIZE));
+    }
+
+    /**
+     * Initialize MonitorAdmin implementation instance
+     *
+     * @param logVisitor      loggers visitor
+     * @param common          commons actions
+     * @param consumer        bundle-consumer
+     * @param permissionCache shared permissions cache
+     */
+    MonitorAdminImpl(LogVisitor logVisitor, MonitorAdminCommon common, Bundle consumer, PermissionCache permissionCache) {
         this.logVisitor = logVisitor;
         this.common = common;
         this.consumer = consumer;
+        this.permissionCache = permissionCache;
     }
 
     /**
@@ -73,16 +98,216 @@ class MonitorAdminImpl implements MonitorAdmin {
      */
     public StatusVariable getStatusVariable(String path)
             throws IllegalArgumentException, SecurityException {
-        logVisitor.debug("ENTRY: getStatusVariable: " + path, null);
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: getStatusVariable: " + path, null);
+        }
         try {
-            StatusVariablePath statusVariablePath = new StatusVariablePath(path);
+            StatusVariablePath statusVariablePath = StatusVariablePath.parse(path);
             ServiceReference serviceReference = common.findMonitorableReferenceById(statusVariablePath.getMonitorableId());
 
             checkPermissions(statusVariablePath, serviceReference, MonitorPermission.PUBLISH, MonitorPermission.READ);
 
             return common.getStatusVariable(serviceReference, statusVariablePath.getStatusVariableId());
         } finally {
-            logVisitor.debug("EXIT: getStatusVariable: " + path, null);
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: getStatusVariable: " + path, null);
+            }
+        }
+    }
+
+    public StatusVariableResult[] readStatusVariables(String[] paths) throws IllegalArgumentException {
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: readStatusVariables: " + Arrays.toString(paths), null);
+        }
+        try {
+            if (paths == null) {
+                throw new IllegalArgumentException("Paths are null");
+            }
+            StatusVariableResult[] results = new StatusVariableResult[paths.length];
+            // group paths indexes by monitorable Id
+            Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+            StatusVariablePath[] statusVariablePaths = new StatusVariablePath[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                try {
+                    statusVariablePaths[i] = StatusVariablePath.parse(paths[i]);
+                } catch (IllegalArgumentException e) {
+                    results[i] = new StatusVariableResult(paths[i], e);
+                    continue;
+                }
+                List<Integer> group = groups.get(statusVariablePaths[i].getMonitorableId());
+                if (group == null) {
+                    group = new ArrayList<Integer>();
+                    groups.put(statusVariablePaths[i].getMonitorableId(), group);
+                }
+                group.add(i);
+            }
+            for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+                readGroup(group.getKey(), group.getValue(), paths, statusVariablePaths, results);
+            }
+            return results;
+        } finally {
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: readStatusVariables: " + Arrays.toString(paths), null);
+            }
+        }
+    }
+
+    public StatusVariableSnapshot getSnapshot() {
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: getSnapshot", null);
+        }
+        try {
+            ServiceReference[] serviceReferences = common.getMonitorableReferences();
+            MonitoringJobScheduler scheduler = common.getScheduler();
+            List<MonitorableRead> reads = new ArrayList<MonitorableRead>(serviceReferences.length);
+            List<Future<StatusVariable[]>> futures = new ArrayList<Future<StatusVariable[]>>(serviceReferences.length);
+            long startTime = System.currentTimeMillis();
+            long start = System.nanoTime();
+            for (ServiceReference serviceReference : serviceReferences) {
+                MonitorableRead read = new MonitorableRead(serviceReference);
+                reads.add(read);
+                Future<StatusVariable[]> future = null;
+                if (scheduler.isParallelCollection()) {
+                    try {
+                        future = scheduler.collect(read);
+                    } catch (RejectedExecutionException e) {
+                        // collectors are saturated - read by caller thread
+                    }
+                }
+                futures.add(future);
+            }
+            long deadline = System.nanoTime() + scheduler.getReadTimeoutNanos();
+            List<String> monitorableIds = new ArrayList<String>(reads.size());
+            List<StatusVariable[]> statusVariables = new ArrayList<StatusVariable[]>(reads.size());
+            List<String> failedMonitorableIds = new ArrayList<String>();
+            long firstRead = Long.MAX_VALUE;
+            long lastRead = Long.MIN_VALUE;
+            for (int i = 0; i < reads.size(); i++) {
+                MonitorableRead read = reads.get(i);
+                Future<StatusVariable[]> future = futures.get(i);
+                StatusVariable[] values;
+                try {
+                    values = future == null ? read.call()
+                            : future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (IllegalArgumentException e) {
+                    // Monitorable is unregistered or unavailable
+                    failedMonitorableIds.add(read.pid);
+                    continue;
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof IllegalArgumentException) && logVisitor.isDebugEnabled()) {
+                        logVisitor.debug("Monitorable read has failed: " + read.pid, e.getCause());
+                    }
+                    failedMonitorableIds.add(read.pid);
+                    continue;
+                } catch (TimeoutException e) {
+                    future.cancel(false);
+                    if (logVisitor.isDebugEnabled()) {
+                        logVisitor.debug("Monitorable read has timed out: " + read.pid, null);
+                    }
+                    failedMonitorableIds.add(read.pid);
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failedMonitorableIds.add(read.pid);
+                    continue;
+                }
+                if (values.length > 0) {
+                    firstRead = Math.min(firstRead, read.firstRead);
+                    lastRead = Math.max(lastRead, read.lastRead);
+                }
+                monitorableIds.add(read.pid);
+                statusVariables.add(values);
+            }
+            long spread = 0;
+            long captureTime = startTime;
+            if (firstRead <= lastRead) {
+                spread = lastRead - firstRead;
+                captureTime += TimeUnit.NANOSECONDS.toMillis(firstRead - start + spread / 2);
+            }
+            return new StatusVariableSnapshot(captureTime, spread,
+                    monitorableIds.toArray(new String[monitorableIds.size()]),
+                    statusVariables.toArray(new StatusVariable[statusVariables.size()][]),
+                    failedMonitorableIds.toArray(new String[failedMonitorableIds.size()]));
+        } finally {
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: getSnapshot", null);
+            }
+        }
+    }
+
+    /**
+     * Reads published and readable StatusVariables of one Monitorable for snapshot
+     */
+    private class MonitorableRead implements Callable<StatusVariable[]> {
+        private final ServiceReference serviceReference;
+        private final String pid;
+        // times of the first and the last StatusVariable read, System.nanoTime()
+        private volatile long firstRead;
+        private volatile long lastRead;
+
+        private MonitorableRead(ServiceReference serviceReference) {
+            this.serviceReference = serviceReference;
+            this.pid = (String) serviceReference.getProperty(Constants.SERVICE_PID);
+        }
+
+        public StatusVariable[] call() {
+            String[] variableNames = common.getStatusVariableNames(serviceReference);
+            Set<String> availableNames = new TreeSet<String>(
+                    filterVariableNames(pid, variableNames, serviceReference.getBundle(), MonitorPermission.PUBLISH));
+            availableNames.retainAll(filterVariableNames(pid, variableNames, consumer, MonitorPermission.READ));
+            StatusVariable[] result = new StatusVariable[availableNames.size()];
+            int i = 0;
+            firstRead = System.nanoTime();
+            for (String availableName : availableNames) {
+                result[i++] = common.getStatusVariable(serviceReference, availableName);
+            }
+            lastRead = System.nanoTime();
+            return result;
+        }
+    }
+
+    /**
+     * Read StatusVariables of one Monitorable. Monitorable, its StatusVariable names and
+     * permissions for all its StatusVariables are resolved once
+     *
+     * @param monitorableId       monitorable Id
+     * @param indexes             indexes of group paths
+     * @param paths               requested paths
+     * @param statusVariablePaths parsed paths
+     * @param results             results to fill
+     */
+    private void readGroup(String monitorableId, List<Integer> indexes, String[] paths,
+                           StatusVariablePath[] statusVariablePaths, StatusVariableResult[] results) {
+        ServiceReference serviceReference;
+        try {
+            serviceReference = common.findMonitorableReferenceById(monitorableId);
+        } catch (IllegalArgumentException e) {
+            for (int index : indexes) {
+                results[index] = new StatusVariableResult(paths[index], e);
+            }
+            return;
+        }
+        Bundle producer = serviceReference.getBundle();
+        // permissions for all monitorable StatusVariables make per-path checks unnecessary
+        String monitorablePath = String.format(MonitorAdminCommon.PATH_PATTERN, monitorableId, "*");
+        boolean publishGranted = permissionCache.hasPermission(producer, monitorablePath, MonitorPermission.PUBLISH);
+        boolean readGranted = permissionCache.hasPermission(consumer, monitorablePath, MonitorPermission.READ);
+        for (int index : indexes) {
+            StatusVariablePath statusVariablePath = statusVariablePaths[index];
+            try {
+                if (!common.isPublished(serviceReference, statusVariablePath.getStatusVariableId()) || !(publishGranted ||
+                        permissionCache.hasPermission(producer, statusVariablePath.getPath(), MonitorPermission.PUBLISH))) {
+                    throw new IllegalArgumentException(statusVariablePath.getPath() + " StatusVariable is unavailable");
+                }
+                if (!(readGranted ||
+                        permissionCache.hasPermission(consumer, statusVariablePath.getPath(), MonitorPermission.READ))) {
+                    throw new SecurityException(MonitorPermission.READ + " permissions not set for StatusVariable: " + statusVariablePath.getPath());
+                }
+                results[index] = new StatusVariableResult(paths[index],
+                        common.getStatusVariable(serviceReference, statusVariablePath.getStatusVariableId()));
+            } catch (RuntimeException e) {
+                results[index] = new StatusVariableResult(paths[index], e);
+            }
         }
     }
 
@@ -103,15 +328,12 @@ class MonitorAdminImpl implements MonitorAdmin {
      *                                     with the <code>read</code> action present
      */
     private void checkPermissions(StatusVariablePath statusVariablePath, ServiceReference serviceReference, String producerPermission, String consumerPermission) {
-        String[] variableNames = common.getStatusVariableNames(statusVariablePath.getMonitorableId());
-
-        Collection<String> producerVariables = filterVariableNames(statusVariablePath.getMonitorableId(), variableNames, serviceReference.getBundle(), producerPermission);
-        if (!producerVariables.contains(statusVariablePath.getStatusVariableId())) {
+        if (!common.isPublished(serviceReference, statusVariablePath.getStatusVariableId()) ||
+                !permissionCache.hasPermission(serviceReference.getBundle(), statusVariablePath.getPath(), producerPermission)) {
             throw new IllegalArgumentException(statusVariablePath.getPath() + " StatusVariable is unavailable");
         }
 
-        Collection<String> consumerVariables = filterVariableNames(statusVariablePath.getMonitorableId(), variableNames, consumer, consumerPermission);
-        if (!consumerVariables.contains(statusVariablePath.getStatusVariableId())) {
+        if (!permissionCache.hasPermission(consumer, statusVariablePath.getPath(), consumerPermission)) {
             throw new SecurityException(consumerPermission + " permissions not set for StatusVariable: " + statusVariablePath.getPath());
         }
     }
@@ -141,16 +363,20 @@ class MonitorAdminImpl implements MonitorAdmin {
      */
     public String getDescription(String path)
             throws IllegalArgumentException, SecurityException {
-        logVisitor.debug("ENTRY: getDescription: " + path, null);
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: getDescription: " + path, null);
+        }
         try {
-            StatusVariablePath statusVariablePath = new StatusVariablePath(path);
+            StatusVariablePath statusVariablePath = StatusVariablePath.parse(path);
             ServiceReference serviceReference = common.findMonitorableReferenceById(statusVariablePath.getMonitorableId());
 
             checkPermissions(statusVariablePath, serviceReference, MonitorPermission.PUBLISH, MonitorPermission.READ);
 
             return common.getDescription(serviceReference, statusVariablePath.getStatusVariableId());
         } finally {
-            logVisitor.debug("EXIT: getDescription: " + path, null);
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: getDescription: " + path, null);
+            }
         }
     }
 
@@ -169,7 +395,9 @@ class MonitorAdminImpl implements MonitorAdmin {
      * @return the array of <code>Monitorable</code> names
      */
     public String[] getMonitorableNames() {
-        logVisitor.debug("ENTRY: getMonitorableNames", null);
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: getMonitorableNames", null);
+        }
         try {
             ServiceReference[] serviceReferences = common.getMonitorableReferences();
             SortedSet<String> names = new TreeSet<String>();
@@ -190,7 +418,9 @@ class MonitorAdminImpl implements MonitorAdmin {
             }
             return names.toArray(new String[names.size()]);
         } finally {
-            logVisitor.debug("EXIT: getMonitorableNames", null);
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: getMonitorableNames", null);
+            }
         }
     }
 
@@ -207,12 +437,8 @@ class MonitorAdminImpl implements MonitorAdmin {
         List<String> result = new ArrayList<String>();
         if (bundle != null) {
             for (String variableName : variableNames) {
-                try {
-                    if (bundle.hasPermission(new MonitorPermission(String.format(MonitorAdminCommon.PATH_PATTERN, pid, variableName), permissionAction))) {
-                        result.add(variableName);
-                    }
-                } catch (IllegalArgumentException e) {
-                    logVisitor.debug("Unable to check permission", e);
+                if (permissionCache.hasPermission(bundle, String.format(MonitorAdminCommon.PATH_PATTERN, pid, variableName), permissionAction)) {
+                    result.add(variableName);
                 }
             }
         } else {
@@ -252,7 +478,9 @@ class MonitorAdminImpl implements MonitorAdmin {
      */
     public StatusVariable[] getStatusVariables(String monitorableId)
             throws IllegalArgumentException {
-        logVisitor.debug("ENTRY: getStatusVariables: " + monitorableId, null);
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: getStatusVariables: " + monitorableId, null);
+        }
         try {
             List<StatusVariable> result = new ArrayList<StatusVariable>();
 
@@ -272,7 +500,9 @@ class MonitorAdminImpl implements MonitorAdmin {
 
             return result.toArray(new StatusVariable[result.size()]);
         } finally {
-            logVisitor.debug("EXIT: getStatusVariables: " + monitorableId, null);
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: getStatusVariables: " + monitorableId, null);
+            }
         }
     }
 
@@ -306,7 +536,9 @@ class MonitorAdminImpl implements MonitorAdmin {
      */
     public String[] getStatusVariableNames(String monitorableId)
             throws IllegalArgumentException {
-        logVisitor.debug("ENTRY: getStatusVariableNames: " + monitorableId, null);
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: getStatusVariableNames: " + monitorableId, null);
+        }
         try {
             Set<String> result = new TreeSet<String>();
 
@@ -320,7 +552,9 @@ class MonitorAdminImpl implements MonitorAdmin {
 
             return result.toArray(new String[result.size()]);
         } finally {
-            logVisitor.debug("EXIT: getStatusVariableNames: " + monitorableId, null);
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: getStatusVariableNames: " + monitorableId, null);
+            }
         }
     }
 
@@ -355,16 +589,20 @@ class MonitorAdminImpl implements MonitorAdmin {
      */
     public boolean resetStatusVariable(String path)
             throws IllegalArgumentException, SecurityException {
-        logVisitor.debug("ENTRY: resetStatusVariable: " + path, null);
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: resetStatusVariable: " + path, null);
+        }
         try {
-            StatusVariablePath statusVariablePath = new StatusVariablePath(path);
+            StatusVariablePath statusVariablePath = StatusVariablePath.parse(path);
             ServiceReference serviceReference = common.findMonitorableReferenceById(statusVariablePath.getMonitorableId());
 
             checkPermissions(statusVariablePath, serviceReference, MonitorPermission.PUBLISH, MonitorPermission.RESET);
 
             return common.resetStatusVariable(serviceReference, statusVariablePath.getStatusVariableId());
         } finally {
-            logVisitor.debug("EXIT: resetStatusVariable: " + path, null);
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: resetStatusVariable: " + path, null);
+            }
         }
     }
 
@@ -381,14 +619,17 @@ class MonitorAdminImpl implements MonitorAdmin {
      * Usage of the "*" wildcard is allowed in the path argument of this method
      * as a convenience feature. The wildcard can be used in either or both path
      * fragments, but only at the end of the fragments.  The semantics of the
-     * wildcard is that it stands for any matching <code>StatusVariable</code>
-     * at the time of the method call, it does not affect the event sending
-     * status of <code>StatusVariable</code>s which are not yet registered. As
+     * wildcard is that it stands for any matching <code>StatusVariable</code>.
+     * At least one matching <code>StatusVariable</code> must exist at the time of
+     * the method call, permissions are checked against existing ones. If the caller
+     * holds <code>MonitorPermission</code> with the <code>switchevents</code> action for the
+     * wildcard path itself, the wildcard rule is stored, so it also affects the event
+     * sending status of <code>StatusVariable</code>s which are registered later. Otherwise
+     * only the existing matching <code>StatusVariable</code>s are switched. As
      * an example, when the <code>switchEvents("MyMonitorable/*", false)</code>
      * method is executed, event sending from all <code>StatusVariables</code>
-     * of the MyMonitorable service are switched off. However, if the
-     * MyMonitorable service starts to publish a new <code>StatusVariable</code>
-     * later, it's event sending status is on by default.
+     * of the MyMonitorable service are switched off, including
+     * <code>StatusVariable</code>s that MyMonitorable service starts to publish later.
      *
      * @param path the identifier of the <code>StatusVariable</code>(s) in
      *             [Monitorable_id]/[StatusVariable_id] format, possibly with the
@@ -408,11 +649,13 @@ class MonitorAdminImpl implements MonitorAdmin {
      */
     public void switchEvents(String path, boolean on)
             throws IllegalArgumentException, SecurityException {
-        logVisitor.debug("ENTRY: switchEvents: " + path + ", " + on, null);
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: switchEvents: " + path + ", " + on, null);
+        }
         try {
             StatusVariablePathFilter filter = new StatusVariablePathFilter(path);
 
-            Set<String> paths = new TreeSet<String>();
+            List<String> matchedPaths = new ArrayList<String>();
 
             ServiceReference[] monitorableReferences = common.getMonitorableReferences(filter.getMonitorableIdFilter());
             for (ServiceReference monitorableReference : monitorableReferences) {
@@ -420,19 +663,32 @@ class MonitorAdminImpl implements MonitorAdmin {
                 String[] statusVariableNames = common.getStatusVariableNames(pid);
                 for (String statusVariableName : statusVariableNames) {
                     if (filter.match(pid, statusVariableName)) {
-                        checkPermissions(new StatusVariablePath(pid, statusVariableName), monitorableReference,
+                        StatusVariablePath statusVariablePath = StatusVariablePath.of(pid, statusVariableName);
+                        checkPermissions(statusVariablePath, monitorableReference,
                                 MonitorPermission.PUBLISH, MonitorPermission.SWITCHEVENTS);
-                        paths.add(String.format(MonitorAdminCommon.PATH_PATTERN, pid, statusVariableName));
+                        matchedPaths.add(statusVariablePath.getPath());
                     }
                 }
             }
 
-            if (paths.isEmpty()) {
+            if (matchedPaths.isEmpty()) {
                 throw new IllegalArgumentException(String.format("%s does not point any existing StatusVariables", path));
             }
-            common.switchEvents(paths, on);
+            if ((!filter.isMonitorableWildcard() && !filter.isStatusVariableWildcard())
+                    || permissionCache.hasPermission(consumer, filter.getPath(), MonitorPermission.SWITCHEVENTS)) {
+                common.switchEvents(filter, on);
+            } else {
+                // wildcard rule would affect StatusVariables which are not covered by caller permissions
+                List<StatusVariablePathFilter> filters = new ArrayList<StatusVariablePathFilter>(matchedPaths.size());
+                for (String matchedPath : matchedPaths) {
+                    filters.add(new StatusVariablePathFilter(matchedPath));
+                }
+                common.switchEvents(filters, on);
+            }
         } finally {
-            logVisitor.debug("EXIT: switchEvents: " + path + ", " + on, null);
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: switchEvents: " + path + ", " + on, null);
+            }
         }
     }
 
@@ -483,7 +739,15 @@ class MonitorAdminImpl implements MonitorAdmin {
      */
     public MonitoringJob startScheduledJob(String initiator, String[] statusVariables, int schedule, int count)
             throws IllegalArgumentException, SecurityException {
-        logVisitor.debug("ENTRY: startScheduledJob: " + initiator, null);
+        return startScheduledJob(initiator, statusVariables, schedule, count, false, 0);
+    }
+
+    public MonitoringJob startScheduledJob(String initiator, String[] statusVariables, int schedule, int count,
+                                           boolean changeOnly, int heartbeat)
+            throws IllegalArgumentException, SecurityException {
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: startScheduledJob: " + initiator, null);
+        }
         try {
             if (initiator == null) {
                 throw new IllegalArgumentException("Initiator is null");
@@ -497,21 +761,72 @@ class MonitorAdminImpl implements MonitorAdmin {
             if (count < 0) {
                 throw new IllegalArgumentException("Count is invalid: " + count);
             }
+            if (heartbeat < 0) {
+                throw new IllegalArgumentException("Heartbeat is invalid: " + heartbeat);
+            }
             for (String path : statusVariables) {
-                StatusVariablePath statusVariablePath = new StatusVariablePath(path);
+                StatusVariablePath statusVariablePath = StatusVariablePath.parse(path);
                 ServiceReference monitorableReference = common.findMonitorableReferenceById(statusVariablePath.getMonitorableId());
                 String pid = (String) monitorableReference.getProperty(Constants.SERVICE_PID);
 
-                checkPermissions(new StatusVariablePath(pid, statusVariablePath.getStatusVariableId()), monitorableReference,
+                checkPermissions(StatusVariablePath.of(pid, statusVariablePath.getStatusVariableId()), monitorableReference,
                         MonitorPermission.PUBLISH, String.format(STARTJOB_PERMISSION_PATTERN, schedule));
             }
-            ScheduledMonitoringJob job = new ScheduledMonitoringJob(common, logVisitor, initiator,
-                    statusVariables, schedule, count);
+            ScheduledMonitoringJob job = new ScheduledMonitoringJob(common.getScheduler(), common, logVisitor, initiator,
+                    statusVariables, schedule, count, changeOnly, heartbeat);
+            common.addJob(job);
+            job.start();
+            if (logVisitor.isInfoEnabled()) {
+                logVisitor.info("New Scheduled Job is started: " + initiator, null);
+            }
+            return job;
+        } finally {
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: startScheduledJob: " + initiator, null);
+            }
+        }
+    }
+
+    public MonitoringJob startFixedRateJob(String initiator, String[] statusVariables, long period, int count,
+                                           boolean aligned)
+            throws IllegalArgumentException, SecurityException {
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: startFixedRateJob: " + initiator, null);
+        }
+        try {
+            if (initiator == null) {
+                throw new IllegalArgumentException("Initiator is null");
+            }
+            if (statusVariables == null) {
+                throw new IllegalArgumentException("StatusVariables are null");
+            }
+            if (period <= 0) {
+                throw new IllegalArgumentException("Period is invalid: " + period);
+            }
+            if (count < 0) {
+                throw new IllegalArgumentException("Count is invalid: " + count);
+            }
+            String action = String.format(STARTJOB_PERMISSION_PATTERN, TimeUnit.MILLISECONDS.toSeconds(period));
+            for (String path : statusVariables) {
+                StatusVariablePath statusVariablePath = StatusVariablePath.parse(path);
+                ServiceReference monitorableReference = common.findMonitorableReferenceById(statusVariablePath.getMonitorableId());
+                String pid = (String) monitorableReference.getProperty(Constants.SERVICE_PID);
+
+                checkPermissions(StatusVariablePath.of(pid, statusVariablePath.getStatusVariableId()), monitorableReference,
+                        MonitorPermission.PUBLISH, action);
+            }
+            ScheduledMonitoringJob job = new ScheduledMonitoringJob(common.getScheduler(), common, logVisitor, initiator,
+                    statusVariables, period, count, aligned);
             common.addJob(job);
-            logVisitor.info("New Scheduled Job is started: " + initiator, null);
+            job.start();
+            if (logVisitor.isInfoEnabled()) {
+                logVisitor.info("New Fixed-Rate Job is started: " + initiator, null);
+            }
             return job;
         } finally {
-            logVisitor.debug("EXIT: startScheduledJob: " + initiator, null);
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: startFixedRateJob: " + initiator, null);
+            }
         }
     }
 
@@ -553,7 +868,14 @@ class MonitorAdminImpl implements MonitorAdmin {
      */
     public MonitoringJob startJob(String initiator, String[] statusVariables, int count)
             throws IllegalArgumentException, SecurityException {
-        logVisitor.debug("ENTRY: startJob: " + initiator, null);
+        return startJob(initiator, statusVariables, count, 0);
+    }
+
+    public MonitoringJob startJob(String initiator, String[] statusVariables, int count, long minInterval)
+            throws IllegalArgumentException, SecurityException {
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: startJob: " + initiator, null);
+        }
         try {
             if (initiator == null) {
                 throw new IllegalArgumentException("Initiator is null");
@@ -564,8 +886,61 @@ class MonitorAdminImpl implements MonitorAdmin {
             if (count <= 0) {
                 throw new IllegalArgumentException("Count is invalid: " + count);
             }
+            if (minInterval < 0) {
+                throw new IllegalArgumentException("Min interval is invalid: " + minInterval);
+            }
+            for (String path : statusVariables) {
+                StatusVariablePath statusVariablePath = StatusVariablePath.parse(path);
+                ServiceReference monitorableReference = common.findMonitorableReferenceById(statusVariablePath.getMonitorableId());
+                String pid = (String) monitorableReference.getProperty(Constants.SERVICE_PID);
+
+                if (!common.notifiesOnChange(monitorableReference, statusVariablePath.getStatusVariableId())) {
+                    throw new IllegalArgumentException("StatusVariable: " + path + " does not support notifications");
+                }
+
+                checkPermissions(StatusVariablePath.of(pid, statusVariablePath.getStatusVariableId()), monitorableReference,
+                        MonitorPermission.PUBLISH, MonitorPermission.STARTJOB);
+            }
+            SubscriptionMonitoringJob job = new SubscriptionMonitoringJob(common.getScheduler(), common, logVisitor,
+                    initiator, statusVariables, count, minInterval);
+
+            common.addJob(job);
+
+            if (logVisitor.isInfoEnabled()) {
+                logVisitor.info("New Subscription Job is started: " + initiator, null);
+            }
+            return job;
+        } finally {
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: startJob: " + initiator, null);
+            }
+        }
+    }
+
+    public MonitoringJob startAggregationJob(String initiator, String[] statusVariables, long window, long slide, int count)
+            throws IllegalArgumentException, SecurityException {
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: startAggregationJob: " + initiator, null);
+        }
+        try {
+            if (initiator == null) {
+                throw new IllegalArgumentException("Initiator is null");
+            }
+            if (statusVariables == null) {
+                throw new IllegalArgumentException("StatusVariables are null");
+            }
+            if (window <= 0) {
+                throw new IllegalArgumentException("Window is invalid: " + window);
+            }
+            if (slide <= 0 || slide > window || window % slide != 0
+                    || window / slide > AggregationMonitoringJob.MAX_SLIDES_PER_WINDOW) {
+                throw new IllegalArgumentException("Slide is invalid: " + slide);
+            }
+            if (count < 0) {
+                throw new IllegalArgumentException("Count is invalid: " + count);
+            }
             for (String path : statusVariables) {
-                StatusVariablePath statusVariablePath = new StatusVariablePath(path);
+                StatusVariablePath statusVariablePath = StatusVariablePath.parse(path);
                 ServiceReference monitorableReference = common.findMonitorableReferenceById(statusVariablePath.getMonitorableId());
                 String pid = (String) monitorableReference.getProperty(Constants.SERVICE_PID);
 
@@ -573,17 +948,23 @@ class MonitorAdminImpl implements MonitorAdmin {
                     throw new IllegalArgumentException("StatusVariable: " + path + " does not support notifications");
                 }
 
-                checkPermissions(new StatusVariablePath(pid, statusVariablePath.getStatusVariableId()), monitorableReference,
+                checkPermissions(StatusVariablePath.of(pid, statusVariablePath.getStatusVariableId()), monitorableReference,
                         MonitorPermission.PUBLISH, MonitorPermission.STARTJOB);
             }
-            SubscriptionMonitoringJob job = new SubscriptionMonitoringJob(common, logVisitor, initiator, statusVariables, count);
+            AggregationMonitoringJob job = new AggregationMonitoringJob(common.getScheduler(), common, logVisitor,
+                    initiator, statusVariables, window, slide, count);
 
             common.addJob(job);
+            job.start();
 
-            logVisitor.info("New Subscription Job is started: " + initiator, null);
+            if (logVisitor.isInfoEnabled()) {
+                logVisitor.info("New Aggregation Job is started: " + initiator, null);
+            }
             return job;
         } finally {
-            logVisitor.debug("EXIT: startJob: " + initiator, null);
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: startAggregationJob: " + initiator, null);
+            }
         }
     }
 
@@ -603,20 +984,24 @@ class MonitorAdminImpl implements MonitorAdmin {
      * @return the list of running jobs visible to the caller
      */
     public MonitoringJob[] getRunningJobs() {
-        logVisitor.debug("ENTRY: getRunningJobs", null);
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: getRunningJobs", null);
+        }
         try {
             List<MonitoringJob> runningJobs = common.getRunningJobs();
             List<MonitoringJob> result = new ArrayList<MonitoringJob>();
             for (MonitoringJob runningJob : runningJobs) {
                 String[] statusVariableNames = runningJob.getStatusVariableNames();
-                String action = String.format(STARTJOB_PERMISSION_PATTERN, runningJob.getSchedule());
+                long schedule = runningJob.getSchedule();
+                if (runningJob instanceof ScheduledMonitoringJob && ((ScheduledMonitoringJob) runningJob).isFixedRate()) {
+                    schedule = TimeUnit.MILLISECONDS.toSeconds(((ScheduledMonitoringJob) runningJob).getPeriod());
+                }
+                String action = String.format(STARTJOB_PERMISSION_PATTERN, schedule);
                 boolean hasPermissions = true;
-                if (consumer != null) {
-                    for (String statusVariableName : statusVariableNames) {
-                        if (!consumer.hasPermission(new MonitorPermission(statusVariableName, action))) {
-                            hasPermissions = false;
-                            break;
-                        }
+                for (String statusVariableName : statusVariableNames) {
+                    if (!permissionCache.hasPermission(consumer, statusVariableName, action)) {
+                        hasPermissions = false;
+                        break;
                     }
                 }
                 if (hasPermissions) {
@@ -625,7 +1010,9 @@ class MonitorAdminImpl implements MonitorAdmin {
             }
             return result.toArray(new MonitoringJob[result.size()]);
         } finally {
-            logVisitor.debug("EXIT: getRunningJobs", null);
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: getRunningJobs", null);
+            }
         }
     }
 }
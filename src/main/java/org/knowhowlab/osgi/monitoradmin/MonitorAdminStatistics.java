@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.knowhowlab.osgi.monitoradmin.job.ScheduledMonitoringJob;
+import org.knowhowlab.osgi.monitoradmin.persistence.SegmentStore;
+import org.knowhowlab.osgi.monitoradmin.util.StripedCounter;
+import org.osgi.service.monitor.Monitorable;
+import org.osgi.service.monitor.MonitoringJob;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MonitorAdmin self-instrumentation, published as <code>monitoradmin</code> Monitorable.
+ * Counters and latencies are updated by MonitorAdminCommon on its hot paths, so they are
+ * kept in striped counters. Latencies are mean values in microseconds since the last reset
+ *
+ * @author dmytro.pishchukhin
+ */
+class MonitorAdminStatistics implements Monitorable {
+    /**
+     * Self-instrumentation Monitorable ID
+     */
+    static final String MONITORABLE_ID = "monitoradmin";
+
+    private static final String UPDATES = "updates";
+    private static final String UPDATE_TIME = "update.time";
+    private static final String EVENTS = "events";
+    private static final String EVENT_TIME = "event.time";
+    private static final String EVENTS_DROPPED = "events.dropped";
+    private static final String EVENTS_QUEUED = "events.queued";
+    private static final String EVENTS_ENQUEUED = "events.enqueued";
+    private static final String EVENTS_PUBLISHED = "events.published";
+    private static final String EVENTS_QUEUE_PEAK = "events.queue.peak";
+    private static final String STORE_DROPPED = "store.dropped";
+    private static final String STORE_QUEUED = "store.queued";
+    private static final String LOOKUPS = "lookups";
+    private static final String LOOKUP_TIME = "lookup.time";
+    private static final String MEASUREMENTS = "measurements";
+    private static final String MEASUREMENT_TIME = "measurement.time";
+    private static final String NOTIFICATIONS = "notifications";
+    private static final String READS_COALESCED = "reads.coalesced";
+    private static final String JOBS_SCHEDULED = "jobs.scheduled";
+    private static final String JOBS_SUBSCRIPTION = "jobs.subscription";
+    private static final String JOBS_OVERRUNS = "jobs.overruns";
+    private static final String JOBS_TICK_PEAK = "jobs.tick.peak";
+
+    private static final Map<String, String> DESCRIPTIONS = new HashMap<String, String>();
+
+    static {
+        DESCRIPTIONS.put(UPDATES, "Number of StatusVariable update notifications");
+        DESCRIPTIONS.put(UPDATE_TIME, "Mean update notification handling time, us");
+        DESCRIPTIONS.put(EVENTS, "Number of fired StatusVariable events");
+        DESCRIPTIONS.put(EVENT_TIME, "Mean event firing time, us");
+        DESCRIPTIONS.put(EVENTS_DROPPED, "Number of events dropped by asynchronous publisher");
+        DESCRIPTIONS.put(EVENTS_QUEUED, "Number of events in asynchronous publisher queue");
+        DESCRIPTIONS.put(EVENTS_ENQUEUED, "Number of events accepted by asynchronous publisher queue");
+        DESCRIPTIONS.put(EVENTS_PUBLISHED, "Number of events posted by asynchronous publisher");
+        DESCRIPTIONS.put(EVENTS_QUEUE_PEAK, "Max number of events in asynchronous publisher queue");
+        DESCRIPTIONS.put(STORE_DROPPED, "Number of samples dropped by persistent store writer");
+        DESCRIPTIONS.put(STORE_QUEUED, "Number of samples in persistent store writer queue");
+        DESCRIPTIONS.put(LOOKUPS, "Number of Monitorable lookups");
+        DESCRIPTIONS.put(LOOKUP_TIME, "Mean Monitorable lookup time, us");
+        DESCRIPTIONS.put(MEASUREMENTS, "Number of scheduled jobs measurements");
+        DESCRIPTIONS.put(MEASUREMENT_TIME, "Mean scheduled job measurement time, us");
+        DESCRIPTIONS.put(NOTIFICATIONS, "Number of updates delivered to subscription jobs");
+        DESCRIPTIONS.put(READS_COALESCED, "Number of StatusVariable reads served by concurrent read of the same StatusVariable");
+        DESCRIPTIONS.put(JOBS_SCHEDULED, "Number of running scheduled jobs");
+        DESCRIPTIONS.put(JOBS_SUBSCRIPTION, "Number of running subscription jobs");
+        DESCRIPTIONS.put(JOBS_OVERRUNS, "Number of measurements skipped by running fixed-rate jobs");
+        DESCRIPTIONS.put(JOBS_TICK_PEAK, "Max number of scheduled jobs measurements started within 100 ms");
+    }
+
+    private static final String[] NAMES = {UPDATES, UPDATE_TIME, EVENTS, EVENT_TIME, EVENTS_DROPPED, EVENTS_QUEUED,
+            EVENTS_ENQUEUED, EVENTS_PUBLISHED, EVENTS_QUEUE_PEAK, STORE_DROPPED, STORE_QUEUED, LOOKUPS, LOOKUP_TIME, MEASUREMENTS, MEASUREMENT_TIME, NOTIFICATIONS, READS_COALESCED, JOBS_SCHEDULED,
+            JOBS_SUBSCRIPTION, JOBS_OVERRUNS, JOBS_TICK_PEAK};
+
+    private final MonitorAdminCommon common;
+    final Timer updates = new Timer();
+    final Timer events = new Timer();
+    final Timer lookups = new Timer();
+    final Timer measurements = new Timer();
+    final StripedCounter notifications = new StripedCounter();
+    final StripedCounter coalescedReads = new StripedCounter();
+    private volatile SegmentStore segmentStore;
+
+    MonitorAdminStatistics(MonitorAdminCommon common) {
+        this.common = common;
+    }
+
+    /**
+     * Set persistent store which writer queue is published
+     *
+     * @param segmentStore store, <code>null</code> - persistence is disabled
+     */
+    void setSegmentStore(SegmentStore segmentStore) {
+        this.segmentStore = segmentStore;
+    }
+
+    public String[] getStatusVariableNames() {
+        return NAMES.clone();
+    }
+
+    public StatusVariable getStatusVariable(String id) throws IllegalArgumentException {
+        if (UPDATES.equals(id)) {
+            return counter(id, updates.getCount());
+        } else if (UPDATE_TIME.equals(id)) {
+            return latency(id, updates);
+        } else if (EVENTS.equals(id)) {
+            return counter(id, events.getCount());
+        } else if (EVENT_TIME.equals(id)) {
+            return latency(id, events);
+        } else if (EVENTS_DROPPED.equals(id)) {
+            AsyncEventPublisher publisher = common.getEventPublisher();
+            return counter(id, publisher != null ? publisher.getDropped() : 0);
+        } else if (EVENTS_QUEUED.equals(id)) {
+            AsyncEventPublisher publisher = common.getEventPublisher();
+            return new StatusVariable(id, StatusVariable.CM_GAUGE, publisher != null ? publisher.getQueueDepth() : 0);
+        } else if (EVENTS_ENQUEUED.equals(id)) {
+            AsyncEventPublisher publisher = common.getEventPublisher();
+            return counter(id, publisher != null ? publisher.getEnqueued() : 0);
+        } else if (EVENTS_PUBLISHED.equals(id)) {
+            AsyncEventPublisher publisher = common.getEventPublisher();
+            return counter(id, publisher != null ? publisher.getPublished() : 0);
+        } else if (EVENTS_QUEUE_PEAK.equals(id)) {
+            AsyncEventPublisher publisher = common.getEventPublisher();
+            return new StatusVariable(id, StatusVariable.CM_GAUGE,
+                    publisher != null ? (int) Math.min(Integer.MAX_VALUE, publisher.getHighWaterMark()) : 0);
+        } else if (STORE_DROPPED.equals(id)) {
+            SegmentStore store = segmentStore;
+            return counter(id, store != null ? store.getDropped() : 0);
+        } else if (STORE_QUEUED.equals(id)) {
+            SegmentStore store = segmentStore;
+            return new StatusVariable(id, StatusVariable.CM_GAUGE, store != null ? store.getQueueDepth() : 0);
+        } else if (LOOKUPS.equals(id)) {
+            return counter(id, lookups.getCount());
+        } else if (LOOKUP_TIME.equals(id)) {
+            return latency(id, lookups);
+        } else if (MEASUREMENTS.equals(id)) {
+            return counter(id, measurements.getCount());
+        } else if (MEASUREMENT_TIME.equals(id)) {
+            return latency(id, measurements);
+        } else if (NOTIFICATIONS.equals(id)) {
+            return counter(id, notifications.sum());
+        } else if (READS_COALESCED.equals(id)) {
+            return counter(id, coalescedReads.sum());
+        } else if (JOBS_SCHEDULED.equals(id) || JOBS_SUBSCRIPTION.equals(id)) {
+            int scheduled = 0;
+            int subscription = 0;
+            for (MonitoringJob job : common.getRunningJobs()) {
+                if (job instanceof ScheduledMonitoringJob) {
+                    scheduled++;
+                } else {
+                    subscription++;
+                }
+            }
+            return new StatusVariable(id, StatusVariable.CM_GAUGE, JOBS_SCHEDULED.equals(id) ? scheduled : subscription);
+        } else if (JOBS_OVERRUNS.equals(id)) {
+            long overruns = 0;
+            for (MonitoringJob job : common.getRunningJobs()) {
+                if (job instanceof ScheduledMonitoringJob) {
+                    overruns += ((ScheduledMonitoringJob) job).getOverruns();
+                }
+            }
+            return new StatusVariable(id, StatusVariable.CM_GAUGE, (int) Math.min(Integer.MAX_VALUE, overruns));
+        } else if (JOBS_TICK_PEAK.equals(id)) {
+            return new StatusVariable(id, StatusVariable.CM_GAUGE, common.getScheduler().getTickPeak());
+        }
+        throw new IllegalArgumentException("Unknown StatusVariable: " + id);
+    }
+
+    public boolean notifiesOnChange(String id) throws IllegalArgumentException {
+        getDescription(id);
+        return false;
+    }
+
+    /**
+     * Counters, latencies, ticks peak and events queue peak are reset. Reset of a latency resets its counter as well
+     *
+     * @param id StatusVariable id
+     * @return <code>true</code> if StatusVariable is reset
+     * @throws IllegalArgumentException unknown StatusVariable
+     */
+    public boolean resetStatusVariable(String id) throws IllegalArgumentException {
+        if (UPDATES.equals(id) || UPDATE_TIME.equals(id)) {
+            updates.reset();
+        } else if (EVENTS.equals(id) || EVENT_TIME.equals(id)) {
+            events.reset();
+        } else if (LOOKUPS.equals(id) || LOOKUP_TIME.equals(id)) {
+            lookups.reset();
+        } else if (MEASUREMENTS.equals(id) || MEASUREMENT_TIME.equals(id)) {
+            measurements.reset();
+        } else if (NOTIFICATIONS.equals(id)) {
+            notifications.reset();
+        } else if (READS_COALESCED.equals(id)) {
+            coalescedReads.reset();
+        } else if (JOBS_TICK_PEAK.equals(id)) {
+            common.getScheduler().resetTickPeak();
+        } else if (EVENTS_QUEUE_PEAK.equals(id)) {
+            AsyncEventPublisher publisher = common.getEventPublisher();
+            if (publisher == null) {
+                return false;
+            }
+            publisher.resetHighWaterMark();
+        } else {
+            getDescription(id);
+            return false;
+        }
+        return true;
+    }
+
+    public String getDescription(String id) throws IllegalArgumentException {
+        String description = DESCRIPTIONS.get(id);
+        if (description == null) {
+            throw new IllegalArgumentException("Unknown StatusVariable: " + id);
+        }
+        return description;
+    }
+
+    /**
+     * Counter wraps to 0 after <code>Integer.MAX_VALUE</code>, so consumers see it as counter reset
+     * and rates stay correct
+     */
+    static StatusVariable counter(String id, long value) {
+        return new StatusVariable(id, StatusVariable.CM_CC, (int) (value & Integer.MAX_VALUE));
+    }
+
+    private static StatusVariable latency(String id, Timer timer) {
+        return new StatusVariable(id, StatusVariable.CM_GAUGE, timer.getMeanMicros());
+    }
+
+    /**
+     * Number and total duration of operations
+     */
+    static class Timer {
+        private final StripedCounter count = new StripedCounter();
+        private final StripedCounter time = new StripedCounter();
+
+        /**
+         * Record operation
+         *
+         * @param start operation start time, <code>System.nanoTime()</code>
+         */
+        void record(long start) {
+            time.add(System.nanoTime() - start);
+            count.increment();
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        float getMeanMicros() {
+            long operations = count.sum();
+            return operations > 0 ? time.sum() / 1000f / operations : 0;
+        }
+
+        void reset() {
+            count.reset();
+            time.reset();
+        }
+    }
+}
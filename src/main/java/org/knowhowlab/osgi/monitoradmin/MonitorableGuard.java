@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulkhead and circuit breaker of one <code>Monitorable</code>.
+ * <p/>
+ * Bulkhead limits number of concurrent calls, calls over the limit are rejected immediately.
+ * Circuit is opened after a series of consecutive failed or slow calls, all calls are rejected
+ * while it is open. When open duration is expired, one probe call is permitted (half-open state):
+ * its success closes the circuit, its failure opens it again.
+ *
+ * @author dmytro.pishchukhin
+ */
+class MonitorableGuard {
+    static final int CLOSED = 0;
+    static final int OPEN = 1;
+    static final int HALF_OPEN = 2;
+
+    private final MonitorableGuards guards;
+    /**
+     * <code>null</code> - number of concurrent calls is unlimited
+     */
+    private final Semaphore bulkhead;
+    private final AtomicInteger state = new AtomicInteger(CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    MonitorableGuard(MonitorableGuards guards, int maxConcurrentCalls) {
+        this.guards = guards;
+        bulkhead = maxConcurrentCalls > 0 ? new Semaphore(maxConcurrentCalls) : null;
+    }
+
+    /**
+     * Acquire permission to call <code>Monitorable</code>.
+     * Every permitted call must return its permit with {@link #releasePermit()}
+     * and record its outcome with {@link #complete(boolean, boolean, boolean)}
+     *
+     * @return <code>true</code> - call is permitted, <code>false</code> - call is rejected
+     */
+    boolean acquire() {
+        boolean probe = false;
+        int currentState = state.get();
+        if (currentState == OPEN) {
+            if (System.nanoTime() - openedAt < guards.getOpenDurationNanos() || !state.compareAndSet(OPEN, HALF_OPEN)) {
+                guards.rejected();
+                return false;
+            }
+            probe = true;
+        } else if (currentState == HALF_OPEN) {
+            // probe call is in progress
+            guards.rejected();
+            return false;
+        }
+        if (bulkhead != null && !bulkhead.tryAcquire()) {
+            if (probe) {
+                state.set(OPEN);
+            }
+            guards.rejected();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Return bulkhead permit of finished call. Call outcome is recorded separately with
+     * {@link #complete(boolean, boolean, boolean)}
+     */
+    void releasePermit() {
+        if (bulkhead != null) {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Record call outcome
+     *
+     * @param success <code>false</code> if call has failed
+     * @param slow    <code>true</code> if call has exceeded call timeout
+     * @param read    <code>true</code> if call has read <code>StatusVariable</code>. Other successful calls
+     *                neither reset consecutive failures nor close circuit, so failing reads still open circuit
+     *                when they are interleaved with successful metadata calls
+     */
+    void complete(boolean success, boolean slow, boolean read) {
+        if (!success || slow) {
+            guards.failed(slow);
+            if (state.get() == HALF_OPEN) {
+                open();
+            } else if (guards.isBreakerEnabled()
+                    && consecutiveFailures.incrementAndGet() >= guards.getFailureThreshold()
+                    && state.get() == CLOSED) {
+                open();
+            }
+        } else if (read) {
+            if (consecutiveFailures.get() != 0) {
+                consecutiveFailures.set(0);
+            }
+            if (state.get() == HALF_OPEN) {
+                state.set(CLOSED);
+            }
+        } else if (state.get() == HALF_OPEN) {
+            // successful metadata call does not prove that StatusVariables are readable:
+            // open duration is already expired, so the next call is permitted as probe
+            state.compareAndSet(HALF_OPEN, OPEN);
+        }
+    }
+
+    /**
+     * Get circuit state
+     *
+     * @return {@link #CLOSED}, {@link #OPEN} or {@link #HALF_OPEN}
+     */
+    int getState() {
+        return state.get();
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        consecutiveFailures.set(0);
+        state.set(OPEN);
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.osgi.service.monitor.Monitorable;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of <code>Monitorable</code>s bulkheads and circuit breakers.
+ * Guards state is published as <code>monitoradmin.circuits</code> Monitorable.
+ * If call timeout is set, guarded calls are executed by bounded pool of call threads,
+ * so callers are not blocked longer than call timeout by hung <code>Monitorable</code>s
+ *
+ * @author dmytro.pishchukhin
+ */
+class MonitorableGuards implements Monitorable {
+    /**
+     * Guards state Monitorable ID
+     */
+    static final String MONITORABLE_ID = "monitoradmin.circuits";
+    /**
+     * Default number of consecutive failed or slow calls that open circuit
+     */
+    static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    /**
+     * Default open circuit duration in milliseconds
+     */
+    static final long DEFAULT_OPEN_DURATION = 30000;
+    /**
+     * Default call duration in milliseconds after which call is counted as failed
+     */
+    static final long DEFAULT_CALL_TIMEOUT = 5000;
+    /**
+     * Default max number of concurrent calls of one Monitorable
+     */
+    static final int DEFAULT_MAX_CONCURRENT_CALLS = 16;
+    /**
+     * Default number of call threads
+     */
+    static final int DEFAULT_CALL_POOL_SIZE = 32;
+    /**
+     * Max number of calls waiting for a call thread
+     */
+    private static final int CALL_QUEUE_CAPACITY = 1024;
+
+    private static final String OPEN = "open";
+    private static final String OPEN_IDS = "open.ids";
+    private static final String REJECTED = "rejected";
+    private static final String FAILED = "failed";
+    private static final String SLOW = "slow";
+    private static final String[] NAMES = {OPEN, OPEN_IDS, REJECTED, FAILED, SLOW};
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final long callTimeoutNanos;
+    private final int maxConcurrentCalls;
+    /**
+     * <code>null</code> - calls are executed by caller threads
+     */
+    private final ThreadPoolExecutor callExecutor;
+    private final ConcurrentMap<String, MonitorableGuard> guards = new ConcurrentHashMap<String, MonitorableGuard>();
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+    private final AtomicLong slowCalls = new AtomicLong();
+
+    /**
+     * Initialize guards with default configuration
+     */
+    MonitorableGuards() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION, DEFAULT_CALL_TIMEOUT, DEFAULT_MAX_CONCURRENT_CALLS);
+    }
+
+    /**
+     * Initialize guards with default number of call threads
+     *
+     * @param failureThreshold   number of consecutive failed or slow calls that open circuit, 0 - circuits are never opened
+     * @param openDuration       open circuit duration in milliseconds
+     * @param callTimeout        call duration in milliseconds after which call is abandoned and counted as failed, 0 - unlimited
+     * @param maxConcurrentCalls max number of concurrent calls of one Monitorable, 0 - unlimited
+     */
+    MonitorableGuards(int failureThreshold, long openDuration, long callTimeout, int maxConcurrentCalls) {
+        this(failureThreshold, openDuration, callTimeout, maxConcurrentCalls, DEFAULT_CALL_POOL_SIZE);
+    }
+
+    /**
+     * Initialize guards
+     *
+     * @param failureThreshold   number of consecutive failed or slow calls that open circuit, 0 - circuits are never opened
+     * @param openDuration       open circuit duration in milliseconds
+     * @param callTimeout        call duration in milliseconds after which call is abandoned and counted as failed, 0 - unlimited
+     * @param maxConcurrentCalls max number of concurrent calls of one Monitorable, 0 - unlimited
+     * @param callPoolSize       number of call threads that are used if call timeout is set
+     */
+    MonitorableGuards(int failureThreshold, long openDuration, long callTimeout, int maxConcurrentCalls, int callPoolSize) {
+        this.failureThreshold = Math.max(0, failureThreshold);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, openDuration));
+        this.callTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, callTimeout));
+        this.maxConcurrentCalls = Math.max(0, maxConcurrentCalls);
+        if (callTimeoutNanos > 0) {
+            int poolSize = Math.max(1, callPoolSize);
+            callExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(CALL_QUEUE_CAPACITY), new CallThreadFactory());
+            callExecutor.allowCoreThreadTimeOut(true);
+        } else {
+            callExecutor = null;
+        }
+    }
+
+    /**
+     * Get guard of <code>Monitorable</code>
+     *
+     * @param monitorableId <code>Monitorable</code> ID
+     * @return guard or <code>null</code> if guards are disabled
+     */
+    MonitorableGuard get(String monitorableId) {
+        if (failureThreshold == 0 && callTimeoutNanos == 0 && maxConcurrentCalls == 0) {
+            return null;
+        }
+        MonitorableGuard guard = guards.get(monitorableId);
+        if (guard == null) {
+            guard = new MonitorableGuard(this, maxConcurrentCalls);
+            MonitorableGuard existing = guards.putIfAbsent(monitorableId, guard);
+            if (existing != null) {
+                guard = existing;
+            }
+        }
+        return guard;
+    }
+
+    boolean isBreakerEnabled() {
+        return failureThreshold > 0;
+    }
+
+    int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    long getOpenDurationNanos() {
+        return openDurationNanos;
+    }
+
+    long getCallTimeoutNanos() {
+        return callTimeoutNanos;
+    }
+
+    /**
+     * Check if guarded calls are executed by call threads
+     *
+     * @return <code>true</code> - calls are executed by call threads, <code>false</code> - by caller threads
+     */
+    boolean isTimed() {
+        return callExecutor != null;
+    }
+
+    /**
+     * Execute guarded call by call thread
+     *
+     * @param call call
+     * @throws RejectedExecutionException all call threads are busy and queue is full or guards are shut down
+     */
+    void execute(Runnable call) throws RejectedExecutionException {
+        callExecutor.execute(call);
+    }
+
+    /**
+     * Stop call threads
+     */
+    void shutdown() {
+        if (callExecutor != null) {
+            callExecutor.shutdownNow();
+        }
+    }
+
+    boolean isSlowCall(long duration) {
+        return callTimeoutNanos > 0 && duration > callTimeoutNanos;
+    }
+
+    void rejected() {
+        rejectedCalls.incrementAndGet();
+    }
+
+    void failed(boolean slow) {
+        (slow ? slowCalls : failedCalls).incrementAndGet();
+    }
+
+    public String[] getStatusVariableNames() {
+        return NAMES.clone();
+    }
+
+    public StatusVariable getStatusVariable(String id) throws IllegalArgumentException {
+        if (OPEN.equals(id)) {
+            return new StatusVariable(id, StatusVariable.CM_GAUGE, getOpenIds().size());
+        } else if (OPEN_IDS.equals(id)) {
+            StringBuilder builder = new StringBuilder();
+            for (String monitorableId : getOpenIds()) {
+                if (builder.length() > 0) {
+                    builder.append(',');
+                }
+                builder.append(monitorableId);
+            }
+            return new StatusVariable(id, StatusVariable.CM_SI, builder.toString());
+        } else if (REJECTED.equals(id)) {
+            return new StatusVariable(id, StatusVariable.CM_CC, toInt(rejectedCalls.get()));
+        } else if (FAILED.equals(id)) {
+            return new StatusVariable(id, StatusVariable.CM_CC, toInt(failedCalls.get()));
+        } else if (SLOW.equals(id)) {
+            return new StatusVariable(id, StatusVariable.CM_CC, toInt(slowCalls.get()));
+        }
+        throw new IllegalArgumentException("Unknown StatusVariable: " + id);
+    }
+
+    public boolean notifiesOnChange(String id) throws IllegalArgumentException {
+        getStatusVariable(id);
+        return false;
+    }
+
+    public boolean resetStatusVariable(String id) throws IllegalArgumentException {
+        if (REJECTED.equals(id)) {
+            rejectedCalls.set(0);
+        } else if (FAILED.equals(id)) {
+            failedCalls.set(0);
+        } else if (SLOW.equals(id)) {
+            slowCalls.set(0);
+        } else {
+            getStatusVariable(id);
+            return false;
+        }
+        return true;
+    }
+
+    public String getDescription(String id) throws IllegalArgumentException {
+        if (OPEN.equals(id)) {
+            return "Number of Monitorables with open circuit";
+        } else if (OPEN_IDS.equals(id)) {
+            return "Comma-separated IDs of Monitorables with open circuit";
+        } else if (REJECTED.equals(id)) {
+            return "Number of rejected calls";
+        } else if (FAILED.equals(id)) {
+            return "Number of failed calls";
+        } else if (SLOW.equals(id)) {
+            return "Number of calls that have exceeded call timeout";
+        }
+        throw new IllegalArgumentException("Unknown StatusVariable: " + id);
+    }
+
+    private SortedSet<String> getOpenIds() {
+        SortedSet<String> result = new TreeSet<String>();
+        for (Map.Entry<String, MonitorableGuard> entry : guards.entrySet()) {
+            if (entry.getValue().getState() != MonitorableGuard.CLOSED) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    private static int toInt(long value) {
+        return (int) Math.min(Integer.MAX_VALUE, value);
+    }
+
+    private static class CallThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "MonitorAdmin Guard-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Live index of <code>Monitorable</code> <code>ServiceReference</code>s by SERVICE_PID.
+ * <p/>
+ * The index is updated incrementally on registration, modification and unregistration
+ * of <code>Monitorable</code> services, so a lookup of the most suitable reference is a single map read.
+ * If multiple services exist for the same SERVICE_PID, the one with the highest ranking
+ * (the lowest service ID on tie) is returned.
+ *
+ * @author dmytro.pishchukhin
+ */
+class MonitorableIndex {
+    /**
+     * SERVICE_PID to most suitable <code>ServiceReference</code>
+     */
+    private final ConcurrentMap<String, ServiceReference> bestReferences = new ConcurrentHashMap<String, ServiceReference>();
+    /**
+     * SERVICE_PID to all registered <code>ServiceReference</code>s. Guarded by <code>this</code>
+     */
+    private final Map<String, Set<ServiceReference>> references = new HashMap<String, Set<ServiceReference>>();
+    /**
+     * <code>ServiceReference</code> to indexed SERVICE_PID. Guarded by <code>this</code>
+     */
+    private final Map<ServiceReference, String> indexedPids = new HashMap<ServiceReference, String>();
+
+    /**
+     * Get most suitable <code>ServiceReference</code> for the given SERVICE_PID
+     *
+     * @param monitorableId SERVICE_PID
+     * @return <code>ServiceReference</code> or <code>null</code> if no <code>Monitorable</code> is registered
+     */
+    ServiceReference get(String monitorableId) {
+        return bestReferences.get(monitorableId);
+    }
+
+    /**
+     * Add registered <code>Monitorable</code> <code>ServiceReference</code> to index
+     *
+     * @param reference <code>ServiceReference</code>
+     */
+    synchronized void add(ServiceReference reference) {
+        String pid = index(reference);
+        if (pid != null) {
+            updateBestReference(pid);
+        }
+    }
+
+    /**
+     * Update index for modified <code>Monitorable</code> <code>ServiceReference</code>.
+     * SERVICE_PID and SERVICE_RANKING changes are applied. The new most suitable reference
+     * is computed before it is published, so lookups never miss a still registered <code>Monitorable</code>.
+     *
+     * @param reference <code>ServiceReference</code>
+     * @return SERVICE_PID the reference was indexed with before modification or <code>null</code>
+     */
+    synchronized String modified(ServiceReference reference) {
+        String oldPid = unindex(reference);
+        String newPid = index(reference);
+        if (newPid != null) {
+            updateBestReference(newPid);
+        }
+        if (oldPid != null && !oldPid.equals(newPid)) {
+            updateBestReference(oldPid);
+        }
+        return oldPid;
+    }
+
+    /**
+     * Remove unregistered <code>Monitorable</code> <code>ServiceReference</code> from index
+     *
+     * @param reference <code>ServiceReference</code>
+     * @return SERVICE_PID the reference was indexed with or <code>null</code>
+     */
+    synchronized String remove(ServiceReference reference) {
+        String pid = unindex(reference);
+        if (pid != null) {
+            updateBestReference(pid);
+        }
+        return pid;
+    }
+
+    /**
+     * Remove all references from index
+     */
+    synchronized void clear() {
+        references.clear();
+        indexedPids.clear();
+        bestReferences.clear();
+    }
+
+    private String index(ServiceReference reference) {
+        String pid = getPid(reference);
+        if (pid != null) {
+            Set<ServiceReference> pidReferences = references.get(pid);
+            if (pidReferences == null) {
+                pidReferences = new HashSet<ServiceReference>();
+                references.put(pid, pidReferences);
+            }
+            pidReferences.add(reference);
+            indexedPids.put(reference, pid);
+        }
+        return pid;
+    }
+
+    private String unindex(ServiceReference reference) {
+        String pid = indexedPids.remove(reference);
+        if (pid != null) {
+            Set<ServiceReference> pidReferences = references.get(pid);
+            if (pidReferences != null) {
+                pidReferences.remove(reference);
+                if (pidReferences.isEmpty()) {
+                    references.remove(pid);
+                }
+            }
+        }
+        return pid;
+    }
+
+    private void updateBestReference(String pid) {
+        ServiceReference mostSuitableMonitorable = null;
+        Set<ServiceReference> pidReferences = references.get(pid);
+        if (pidReferences != null) {
+            for (ServiceReference serviceReference : pidReferences) {
+                if (mostSuitableMonitorable == null ||
+                        mostSuitableMonitorable.compareTo(serviceReference) < 0) {
+                    mostSuitableMonitorable = serviceReference;
+                }
+            }
+        }
+        if (mostSuitableMonitorable == null) {
+            bestReferences.remove(pid);
+        } else {
+            bestReferences.put(pid, mostSuitableMonitorable);
+        }
+    }
+
+    static String getPid(ServiceReference reference) {
+        Object pid = reference.getProperty(Constants.SERVICE_PID);
+        return pid instanceof String ? (String) pid : null;
+    }
+}
@@ -42,6 +42,15 @@ public interface OsgiVisitor {
      */
     ServiceReference[] findMonitorableReferences(String monitorableId);
 
+    /**
+     * Get the most suitable <code>Monitorable</code> <code>ServiceReference</code> by monitorableId.
+     * If multiple services exist for the same monitorableId, the service with the highest ranking
+     * (the lowest service ID on tie) is returned.
+     * @param monitorableId monitorable Id
+     * @return <code>ServiceReference</code> or <code>null</code>
+     */
+    ServiceReference findMonitorableReference(String monitorableId);
+
     /**
      * Post <code>Event</code> via <code>EventAdmin</code>
      * @param event event
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.osgi.framework.Bundle;
+import org.osgi.service.monitor.MonitorPermission;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of <code>MonitorPermission</code> decisions by (bundle id, path, action).
+ * <p/>
+ * Decisions must be invalidated when bundle permissions could change:
+ * on bundle update/uninstall and on <code>PermissionAdmin</code>/<code>ConditionalPermissionAdmin</code> changes.
+ * Permission tables changes do not fire events, so they are polled by {@link PermissionTablesWatcher},
+ * and every decision expires after time-to-live anyway. If permissions depend on conditions that are
+ * evaluated on every check, the cache is bypassed.
+ *
+ * @author dmytro.pishchukhin
+ */
+class PermissionCache {
+    /**
+     * Default max number of cached decisions
+     */
+    static final int DEFAULT_SIZE = 10000;
+    /**
+     * Default decision time-to-live in milliseconds
+     */
+    static final long DEFAULT_TTL = 30000;
+
+    private final ConcurrentMap<Key, Decision> decisions = new ConcurrentHashMap<Key, Decision>();
+    private final int maxSize;
+    private final long ttlNanos;
+    /**
+     * <code>true</code> - decisions are not cached
+     */
+    private volatile boolean bypassed;
+    private final LogVisitor logVisitor;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    /**
+     * Incremented on every invalidation to skip decisions evaluated before it
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    PermissionCache(LogVisitor logVisitor, int maxSize) {
+        this(logVisitor, maxSize, DEFAULT_TTL);
+    }
+
+    /**
+     * Initialize cache
+     *
+     * @param logVisitor logger
+     * @param maxSize    max number of cached decisions, 0 - cache is disabled
+     * @param ttl        decision time-to-live in milliseconds, 0 - decisions do not expire
+     */
+    PermissionCache(LogVisitor logVisitor, int maxSize, long ttl) {
+        this.logVisitor = logVisitor;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttl));
+    }
+
+    /**
+     * Check that bundle holds <code>MonitorPermission</code> for the given path and action.
+     * If bundle is <code>null</code> security is disabled and permission is granted.
+     *
+     * @param bundle           bundle to check
+     * @param path             <code>StatusVariable</code> path
+     * @param permissionAction <code>MonitorPermission</code> action
+     * @return <code>true</code> if bundle holds permission, otherwise - <code>false</code>
+     */
+    boolean hasPermission(Bundle bundle, String path, String permissionAction) {
+        if (bundle == null) {
+            return true;
+        }
+        if (bypassed) {
+            misses.incrementAndGet();
+            return checkPermission(bundle, path, permissionAction);
+        }
+        Key key = new Key(bundle.getBundleId(), path, permissionAction);
+        Decision decision = decisions.get(key);
+        long now = ttlNanos > 0 ? System.nanoTime() : 0;
+        if (decision != null && (ttlNanos == 0 || now - decision.expires < 0)) {
+            hits.incrementAndGet();
+            return decision.granted;
+        }
+        misses.incrementAndGet();
+        long currentGeneration = generation.get();
+        boolean result = checkPermission(bundle, path, permissionAction);
+        if (maxSize > 0) {
+            if (decision == null && decisions.size() >= maxSize) {
+                evictOne();
+            }
+            decisions.put(key, new Decision(result, now + ttlNanos));
+            if (generation.get() != currentGeneration) {
+                // cache was invalidated during permission check
+                decisions.remove(key);
+            }
+        }
+        return result;
+    }
+
+    private boolean checkPermission(Bundle bundle, String path, String permissionAction) {
+        try {
+            return bundle.hasPermission(new MonitorPermission(path, permissionAction));
+        } catch (IllegalArgumentException e) {
+            logVisitor.debug("Unable to check permission", e);
+            return false;
+        }
+    }
+
+    /**
+     * Turn caching off, e.g. when permissions depend on conditions evaluated on every check.
+     * Cached decisions are removed
+     *
+     * @param bypassed <code>true</code> - decisions are not cached
+     */
+    void setBypassed(boolean bypassed) {
+        this.bypassed = bypassed;
+        if (bypassed) {
+            invalidateAll();
+        }
+    }
+
+    boolean isBypassed() {
+        return bypassed;
+    }
+
+    /**
+     * Remove all decisions for bundle
+     *
+     * @param bundleId bundle id
+     */
+    void invalidate(long bundleId) {
+        generation.incrementAndGet();
+        Iterator<Key> iterator = decisions.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().bundleId == bundleId) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove all decisions
+     */
+    void invalidateAll() {
+        generation.incrementAndGet();
+        decisions.clear();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    int size() {
+        return decisions.size();
+    }
+
+    private void evictOne() {
+        Iterator<Key> iterator = decisions.keySet().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Cached decision with its expiration time, <code>System.nanoTime()</code>
+     */
+    private static final class Decision {
+        private final boolean granted;
+        private final long expires;
+
+        private Decision(boolean granted, long expires) {
+            this.granted = granted;
+            this.expires = expires;
+        }
+    }
+
+    private static final class Key {
+        private final long bundleId;
+        private final String path;
+        private final String action;
+        private final int hash;
+
+        private Key(long bundleId, String path, String action) {
+            this.bundleId = bundleId;
+            this.path = path;
+            this.action = action;
+            this.hash = 31 * (31 * (int) (bundleId ^ (bundleId >>> 32)) + path.hashCode()) + action.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return bundleId == key.bundleId && path.equals(key.path) && action.equals(key.action);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
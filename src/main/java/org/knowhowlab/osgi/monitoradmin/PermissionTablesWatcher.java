@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.osgi.service.condpermadmin.BundleLocationCondition;
+import org.osgi.service.condpermadmin.BundleSignerCondition;
+import org.osgi.service.condpermadmin.ConditionInfo;
+import org.osgi.service.condpermadmin.ConditionalPermissionAdmin;
+import org.osgi.service.condpermadmin.ConditionalPermissionInfo;
+import org.osgi.service.permissionadmin.PermissionAdmin;
+import org.osgi.service.permissionadmin.PermissionInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Detects changes of <code>PermissionAdmin</code> and <code>ConditionalPermissionAdmin</code> tables.
+ * <code>PermissionAdmin.setPermissions</code> and <code>ConditionalPermissionUpdate.commit</code>
+ * fire no events, so tables are polled and compared with the previous state.
+ * <p/>
+ * Cached decisions are removed when tables are changed. Cache is bypassed while conditional
+ * permissions contain conditions other than bundle location and signer: such conditions
+ * may be evaluated differently on every check.
+ *
+ * @author dmytro.pishchukhin
+ */
+class PermissionTablesWatcher {
+    private static final String LOCATION_CONDITION = BundleLocationCondition.class.getName();
+    private static final String SIGNER_CONDITION = BundleSignerCondition.class.getName();
+
+    private final PermissionCache permissionCache;
+    private final LogVisitor logVisitor;
+    /**
+     * Encoded tables of the last check
+     */
+    private List<String> tables;
+
+    PermissionTablesWatcher(PermissionCache permissionCache, LogVisitor logVisitor) {
+        this.permissionCache = permissionCache;
+        this.logVisitor = logVisitor;
+    }
+
+    /**
+     * Compare permission tables with the previous check and update permissions cache
+     *
+     * @param permissionAdmin            <code>PermissionAdmin</code> or <code>null</code> if unavailable
+     * @param conditionalPermissionAdmin <code>ConditionalPermissionAdmin</code> or <code>null</code> if unavailable
+     * @return <code>true</code> if tables are changed since the previous check
+     */
+    synchronized boolean check(PermissionAdmin permissionAdmin, ConditionalPermissionAdmin conditionalPermissionAdmin) {
+        List<String> current = new ArrayList<String>();
+        boolean dynamicConditions = false;
+        if (permissionAdmin != null) {
+            current.add("default:" + encode(permissionAdmin.getDefaultPermissions()));
+            String[] locations = permissionAdmin.getLocations();
+            if (locations != null) {
+                Arrays.sort(locations);
+                for (String location : locations) {
+                    current.add(location + ':' + encode(permissionAdmin.getPermissions(location)));
+                }
+            }
+        }
+        if (conditionalPermissionAdmin != null) {
+            // update is used as a snapshot of the table, it is never committed
+            List<?> infos = conditionalPermissionAdmin.newConditionalPermissionUpdate().getConditionalPermissionInfos();
+            for (Object element : infos) {
+                ConditionalPermissionInfo info = (ConditionalPermissionInfo) element;
+                current.add(info.getEncoded());
+                dynamicConditions |= hasDynamicConditions(info.getConditionInfos());
+            }
+        }
+        boolean changed = tables != null && !tables.equals(current);
+        tables = current;
+        if (dynamicConditions != permissionCache.isBypassed()) {
+            if (logVisitor.isInfoEnabled()) {
+                logVisitor.info(dynamicConditions ? "Permissions cache is bypassed: conditional permissions are used"
+                        : "Permissions cache is enabled", null);
+            }
+            permissionCache.setBypassed(dynamicConditions);
+        } else if (changed) {
+            logVisitor.debug("Permission tables are changed", null);
+            permissionCache.invalidateAll();
+        }
+        return changed;
+    }
+
+    /**
+     * Forget the previous check state
+     */
+    synchronized void reset() {
+        tables = null;
+    }
+
+    private static boolean hasDynamicConditions(ConditionInfo[] conditionInfos) {
+        if (conditionInfos != null) {
+            for (ConditionInfo conditionInfo : conditionInfos) {
+                String type = conditionInfo.getType();
+                if (!LOCATION_CONDITION.equals(type) && !SIGNER_CONDITION.equals(type)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String encode(PermissionInfo[] permissionInfos) {
+        if (permissionInfos == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (PermissionInfo permissionInfo : permissionInfos) {
+            builder.append(permissionInfo.getEncoded()).append(' ');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.knowhowlab.osgi.monitoradmin.history.HistoryRecorder;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceFactory;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * StatusVariableHistory ServiceFactory implementation
+ *
+ * @author dmytro.pishchukhin
+ */
+class StatusVariableHistoryFactory implements ServiceFactory {
+    private final LogVisitor logVisitor;
+    private final HistoryRecorder recorder;
+    private final PermissionCache permissionCache;
+
+    StatusVariableHistoryFactory(LogVisitor logVisitor, HistoryRecorder recorder, PermissionCache permissionCache) {
+        this.logVisitor = logVisitor;
+        this.recorder = recorder;
+        this.permissionCache = permissionCache;
+    }
+
+    public Object getService(Bundle bundle, ServiceRegistration serviceRegistration) {
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug(String.format("Bind StatusVariableHistory instance to %s bundle", bundle.getSymbolicName()), null);
+        }
+        return new StatusVariableHistoryImpl(logVisitor, recorder, bundle, permissionCache);
+    }
+
+    public void ungetService(Bundle bundle, ServiceRegistration serviceRegistration, Object o) {
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug(String.format("Unbind StatusVariableHistory instance from %s bundle", bundle.getSymbolicName()), null);
+        }
+    }
+}
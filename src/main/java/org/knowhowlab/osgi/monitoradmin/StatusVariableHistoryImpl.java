@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableHistory;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableSamples;
+import org.knowhowlab.osgi.monitoradmin.history.HistoryRecorder;
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
+import org.osgi.framework.Bundle;
+import org.osgi.service.monitor.MonitorPermission;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StatusVariableHistory implementation that checks consumer bundle permissions
+ *
+ * @author dmytro.pishchukhin
+ */
+class StatusVariableHistoryImpl implements StatusVariableHistory {
+    private final LogVisitor logVisitor;
+    private final HistoryRecorder recorder;
+    private final Bundle consumer;
+    private final PermissionCache permissionCache;
+
+    StatusVariableHistoryImpl(LogVisitor logVisitor, HistoryRecorder recorder, Bundle consumer,
+                              PermissionCache permissionCache) {
+        this.logVisitor = logVisitor;
+        this.recorder = recorder;
+        this.consumer = consumer;
+        this.permissionCache = permissionCache;
+    }
+
+    public String[] getRecordedPaths() {
+        String[] paths = recorder.getRecordedPaths();
+        List<String> result = new ArrayList<String>(paths.length);
+        for (String path : paths) {
+            if (permissionCache.hasPermission(consumer, path, MonitorPermission.READ)) {
+                result.add(path);
+            }
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    public StatusVariableSamples getLastSamples(String path, int count)
+            throws IllegalArgumentException, SecurityException {
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: getLastSamples: " + path + ", " + count, null);
+        }
+        try {
+            if (count < 0) {
+                throw new IllegalArgumentException("Count is invalid: " + count);
+            }
+            return recorder.getLastSamples(checkPermissions(path), count);
+        } finally {
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: getLastSamples: " + path + ", " + count, null);
+            }
+        }
+    }
+
+    public StatusVariableSamples getSamples(String path, long fromTime, long toTime)
+            throws IllegalArgumentException, SecurityException {
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: getSamples: " + path + ", " + fromTime + ", " + toTime, null);
+        }
+        try {
+            return recorder.getSamples(checkPermissions(path), fromTime, toTime);
+        } finally {
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: getSamples: " + path + ", " + fromTime + ", " + toTime, null);
+            }
+        }
+    }
+
+    private StatusVariablePath checkPermissions(String path) throws IllegalArgumentException, SecurityException {
+        StatusVariablePath statusVariablePath = StatusVariablePath.parse(path);
+        if (!permissionCache.hasPermission(consumer, statusVariablePath.getPath(), MonitorPermission.READ)) {
+            throw new SecurityException("Bundle does not have MonitorPermission to read " + path);
+        }
+        return statusVariablePath;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.knowhowlab.osgi.monitoradmin.api.SampleVisitor;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableStore;
+import org.knowhowlab.osgi.monitoradmin.persistence.SegmentStore;
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
+import org.osgi.framework.Bundle;
+import org.osgi.service.monitor.MonitorPermission;
+
+/**
+ * StatusVariableStore implementation that checks consumer bundle permissions
+ *
+ * @author dmytro.pishchukhin
+ */
+class StatusVariableStoreImpl implements StatusVariableStore {
+    private final LogVisitor logVisitor;
+    private final SegmentStore store;
+    private final Bundle consumer;
+    private final PermissionCache permissionCache;
+
+    StatusVariableStoreImpl(LogVisitor logVisitor, SegmentStore store, Bundle consumer,
+                            PermissionCache permissionCache) {
+        this.logVisitor = logVisitor;
+        this.store = store;
+        this.consumer = consumer;
+        this.permissionCache = permissionCache;
+    }
+
+    public void scan(String path, long fromTime, long toTime, SampleVisitor visitor)
+            throws IllegalArgumentException, SecurityException {
+        if (logVisitor.isDebugEnabled()) {
+            logVisitor.debug("ENTRY: scan: " + path + ", " + fromTime + ", " + toTime, null);
+        }
+        try {
+            if (visitor == null) {
+                throw new IllegalArgumentException("Visitor is null");
+            }
+            StatusVariablePath statusVariablePath = StatusVariablePath.parse(path);
+            if (!permissionCache.hasPermission(consumer, statusVariablePath.getPath(), MonitorPermission.READ)) {
+                throw new SecurityException("Bundle does not have MonitorPermission to read " + path);
+            }
+            store.scan(statusVariablePath, fromTime, toTime, visitor);
+        } finally {
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("EXIT: scan: " + path + ", " + fromTime + ", " + toTime, null);
+            }
+        }
+    }
+}
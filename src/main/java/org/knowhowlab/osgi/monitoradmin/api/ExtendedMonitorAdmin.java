@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.api;
+
+import org.osgi.service.monitor.MonitorAdmin;
+import org.osgi.service.monitor.MonitoringJob;
+
+/**
+ * <code>MonitorAdmin</code> extension with bulk operations
+ *
+ * @author dmytro.pishchukhin
+ */
+public interface ExtendedMonitorAdmin extends MonitorAdmin {
+    /**
+     * Aggregation event property: min value in window
+     */
+    String MON_AGGREGATE_MIN = "mon.statusvariable.min";
+    /**
+     * Aggregation event property: max value in window
+     */
+    String MON_AGGREGATE_MAX = "mon.statusvariable.max";
+    /**
+     * Aggregation event property: mean value in window
+     */
+    String MON_AGGREGATE_MEAN = "mon.statusvariable.mean";
+    /**
+     * Aggregation event property: sum of values in window
+     */
+    String MON_AGGREGATE_SUM = "mon.statusvariable.sum";
+    /**
+     * Aggregation event property: number of values in window
+     */
+    String MON_AGGREGATE_COUNT = "mon.statusvariable.count";
+    /**
+     * Aggregation event property: window start time in milliseconds
+     */
+    String MON_AGGREGATE_WINDOW_START = "mon.window.start";
+    /**
+     * Aggregation event property: window end time in milliseconds
+     */
+    String MON_AGGREGATE_WINDOW_END = "mon.window.end";
+    /**
+     * Topic of scheduled job events which are fired when StatusVariable read has timed out
+     * or Monitorable is unavailable. Such events have no value, so they are not posted
+     * on the standard <code>org/osgi/service/monitor</code> topic
+     */
+    String TIMEOUT_TOPIC = "org/osgi/service/monitor/TIMEOUT";
+    /**
+     * Timeout event property: always <code>true</code>
+     */
+    String MON_READ_TIMEOUT = "mon.statusvariable.timeout";
+
+    /**
+     * Returns <code>StatusVariable</code>s addressed by their full paths.
+     * Paths are grouped by <code>Monitorable</code>, so every <code>Monitorable</code>
+     * is resolved once per call.
+     * <p/>
+     * Invalid, unavailable or not permitted paths do not fail the whole call:
+     * the error is returned in the result of the path instead. The errors are the same that
+     * {@link MonitorAdmin#getStatusVariable(String)} throws for the path.
+     *
+     * @param paths the full paths of the <code>StatusVariable</code>s in
+     *              [Monitorable_ID]/[StatusVariable_ID] format
+     * @return results in the same order as <code>paths</code>
+     * @throws IllegalArgumentException if <code>paths</code> is <code>null</code>
+     */
+    StatusVariableResult[] readStatusVariables(String[] paths) throws IllegalArgumentException;
+
+    /**
+     * Returns snapshot of all <code>StatusVariable</code>s that are published by their
+     * <code>Monitorable</code>s and readable by the caller.
+     * <p/>
+     * <code>Monitorable</code>s are read in parallel, so values are taken close to the snapshot capture time.
+     * <code>Monitorable</code>s that are unavailable or are not read within read timeout are listed
+     * in {@link StatusVariableSnapshot#getFailedMonitorableIds()}.
+     *
+     * @return snapshot, cannot be <code>null</code>
+     */
+    StatusVariableSnapshot getSnapshot();
+
+    /**
+     * Starts a time based <code>MonitoringJob</code> like
+     * {@link MonitorAdmin#startScheduledJob(String, String[], int, int)} does.
+     * <p/>
+     * In change-only mode the job remembers the last value sent for every <code>StatusVariable</code>
+     * and does not send events for unchanged values, so event volume follows the rate of changes.
+     * If <code>heartbeat</code> is set an event of unchanged value is sent when no events were sent
+     * for the <code>StatusVariable</code> during <code>heartbeat</code> seconds.
+     *
+     * @param initiator       the identifier of the entity that initiated the job
+     * @param statusVariables the list of <code>StatusVariable</code>s to be
+     *                        monitored, with each <code>StatusVariable</code> name given in
+     *                        [Monitorable_PID]/[StatusVariable_ID] format
+     * @param schedule        the time in seconds between two measurements
+     * @param count           the number of measurements to be taken, or 0 for the
+     *                        measurement to run until explicitly stopped
+     * @param changeOnly      <code>true</code> - send events only for changed values
+     * @param heartbeat       max time in seconds between events of the same <code>StatusVariable</code>
+     *                        in change-only mode, or 0 for no heartbeat
+     * @return the successfully started job object, cannot be <code>null</code>
+     * @throws IllegalArgumentException if the list of <code>StatusVariable</code> names contains an invalid or
+     *                                  non-existing <code>StatusVariable</code>; if <code>initiator</code>
+     *                                  is <code>null</code> or empty; or if the <code>schedule</code>,
+     *                                  <code>count</code> or <code>heartbeat</code> parameters are invalid
+     * @throws SecurityException        if the caller does not hold <code>MonitorPermission</code> for all
+     *                                  the specified <code>StatusVariable</code>s, with the <code>startjob</code>
+     *                                  action present, or if the permission does not allow starting the
+     *                                  job with the given frequency
+     */
+    MonitoringJob startScheduledJob(String initiator, String[] statusVariables, int schedule, int count,
+                                    boolean changeOnly, int heartbeat)
+            throws IllegalArgumentException, SecurityException;
+
+    /**
+     * Starts a time based <code>MonitoringJob</code> with millisecond period.
+     * <p/>
+     * Unlike {@link MonitorAdmin#startScheduledJob(String, String[], int, int)} the job is executed at fixed rate:
+     * measurements start every <code>period</code> milliseconds regardless of collection time, so
+     * measurements do not drift. If a measurement is not completed within its period the missed
+     * measurements are skipped, not executed back-to-back.
+     * <p/>
+     * The caller needs <code>startjob</code> action with minimal sampling interval not greater than
+     * <code>period</code> in whole seconds, e.g. <code>startjob:0</code> for sub-second periods.
+     *
+     * @param initiator       the identifier of the entity that initiated the job
+     * @param statusVariables the list of <code>StatusVariable</code>s to be
+     *                        monitored, with each <code>StatusVariable</code> name given in
+     *                        [Monitorable_PID]/[StatusVariable_ID] format
+     * @param period          the time in milliseconds between starts of two measurements
+     * @param count           the number of measurements to be taken, or 0 for the
+     *                        measurement to run until explicitly stopped
+     * @param aligned         <code>true</code> - measurements start at wall-clock multiples of <code>period</code>
+     * @return the successfully started job object, cannot be <code>null</code>
+     * @throws IllegalArgumentException if the list of <code>StatusVariable</code> names contains an invalid or
+     *                                  non-existing <code>StatusVariable</code>; if <code>initiator</code>
+     *                                  is <code>null</code> or empty; or if the <code>period</code> or
+     *                                  <code>count</code> parameters are invalid
+     * @throws SecurityException        if the caller does not hold <code>MonitorPermission</code> for all
+     *                                  the specified <code>StatusVariable</code>s, with the <code>startjob</code>
+     *                                  action present, or if the permission does not allow starting the
+     *                                  job with the given frequency
+     */
+    MonitoringJob startFixedRateJob(String initiator, String[] statusVariables, long period, int count,
+                                    boolean aligned)
+            throws IllegalArgumentException, SecurityException;
+
+    /**
+     * Starts a change based <code>MonitoringJob</code> like
+     * {@link MonitorAdmin#startJob(String, String[], int)} does, with rate limit.
+     * <p/>
+     * Events of every <code>StatusVariable</code> are sent at most once per <code>minInterval</code>.
+     * Updates during the interval are coalesced: the latest one is sent at the end of the interval.
+     *
+     * @param initiator       the identifier of the entity that initiated the job
+     * @param statusVariables the list of <code>StatusVariable</code>s to be
+     *                        monitored, with each <code>StatusVariable</code> name given in
+     *                        [Monitorable_PID]/[StatusVariable_ID] format
+     * @param count           the number of changes that must happen to a
+     *                        <code>StatusVariable</code> before a new notification is sent
+     * @param minInterval     min time in milliseconds between events of the same
+     *                        <code>StatusVariable</code>, or 0 for no limit
+     * @return the successfully started job object, cannot be <code>null</code>
+     * @throws IllegalArgumentException if the list of <code>StatusVariable</code> names contains an invalid or
+     *                                  non-existing <code>StatusVariable</code>, or one that does not support
+     *                                  notifications; if the <code>initiator</code> is <code>null</code> or
+     *                                  empty; or if <code>count</code> or <code>minInterval</code> is invalid
+     * @throws SecurityException        if the caller does not hold <code>MonitorPermission</code> for all
+     *                                  the specified <code>StatusVariable</code>s, with the <code>startjob</code>
+     *                                  action present
+     */
+    MonitoringJob startJob(String initiator, String[] statusVariables, int count, long minInterval)
+            throws IllegalArgumentException, SecurityException;
+
+    /**
+     * Starts a <code>MonitoringJob</code> that aggregates updates of <code>StatusVariable</code>s in
+     * time windows. All specified <code>StatusVariable</code>s must exist when the job is started,
+     * and all must support update notifications.
+     * <p/>
+     * Every <code>slide</code> milliseconds the job sends one event per <code>StatusVariable</code>
+     * updated during the last <code>window</code> milliseconds. The event value is the mean value,
+     * the event also contains {@link #MON_AGGREGATE_MIN}, {@link #MON_AGGREGATE_MAX},
+     * {@link #MON_AGGREGATE_MEAN}, {@link #MON_AGGREGATE_SUM}, {@link #MON_AGGREGATE_COUNT},
+     * {@link #MON_AGGREGATE_WINDOW_START} and {@link #MON_AGGREGATE_WINDOW_END} properties.
+     * Boolean values are aggregated as 0 and 1, string values are ignored.
+     *
+     * @param initiator       the identifier of the entity that initiated the job
+     * @param statusVariables the list of <code>StatusVariable</code>s to be
+     *                        monitored, with each <code>StatusVariable</code> name given in
+     *                        [Monitorable_PID]/[StatusVariable_ID] format
+     * @param window          window length in milliseconds
+     * @param slide           time in milliseconds between windows. Equals to <code>window</code> for fixed
+     *                        windows, must divide <code>window</code> for sliding windows.
+     *                        <code>window / slide</code> must not be greater than 3600
+     * @param count           the number of windows, or 0 for the job to run until explicitly stopped
+     * @return the successfully started job object, cannot be <code>null</code>
+     * @throws IllegalArgumentException if the list of <code>StatusVariable</code> names contains an invalid or
+     *                                  non-existing <code>StatusVariable</code>, or one that does not support
+     *                                  notifications; if the <code>initiator</code> is <code>null</code> or
+     *                                  empty; or if <code>window</code>, <code>slide</code> or <code>count</code>
+     *                                  is invalid
+     * @throws SecurityException        if the caller does not hold <code>MonitorPermission</code> for all
+     *                                  the specified <code>StatusVariable</code>s, with the <code>startjob</code>
+     *                                  action present
+     */
+    MonitoringJob startAggregationJob(String initiator, String[] statusVariables, long window, long slide, int count)
+            throws IllegalArgumentException, SecurityException;
+}
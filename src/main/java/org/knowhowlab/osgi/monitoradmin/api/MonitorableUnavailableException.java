@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.api;
+
+/**
+ * Thrown when <code>Monitorable</code> is isolated by MonitorAdmin: its circuit is open after
+ * a series of failed or slow calls, or it has too many concurrent calls, or the call has failed.
+ * Extends <code>IllegalArgumentException</code>, so standard <code>MonitorAdmin</code> clients see
+ * it as unavailable <code>StatusVariable</code>
+ *
+ * @author dmytro.pishchukhin
+ */
+public class MonitorableUnavailableException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final String monitorableId;
+
+    /**
+     * Create exception
+     *
+     * @param monitorableId <code>Monitorable</code> ID
+     * @param message       message
+     * @param cause         failure of <code>Monitorable</code> call or <code>null</code>
+     */
+    public MonitorableUnavailableException(String monitorableId, String message, Throwable cause) {
+        super(message, cause);
+        this.monitorableId = monitorableId;
+    }
+
+    /**
+     * Get ID of unavailable <code>Monitorable</code>
+     *
+     * @return <code>Monitorable</code> ID
+     */
+    public String getMonitorableId() {
+        return monitorableId;
+    }
+}
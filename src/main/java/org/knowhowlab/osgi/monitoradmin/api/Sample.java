@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.api;
+
+/**
+ * Stored <code>StatusVariable</code> sample.
+ * <p/>
+ * Instances are cursors over the storage that are reused by the scan:
+ * they are valid only during {@link SampleVisitor#visit(Sample)} call.
+ *
+ * @author dmytro.pishchukhin
+ */
+public interface Sample {
+    /**
+     * Get <code>StatusVariable</code> path
+     *
+     * @return path in [Monitorable_ID]/[StatusVariable_ID] format
+     */
+    String getPath();
+
+    /**
+     * Get sample timestamp
+     *
+     * @return timestamp in milliseconds
+     */
+    long getTimeStamp();
+
+    /**
+     * Get sample type
+     *
+     * @return one of <code>StatusVariable.TYPE_*</code> constants
+     */
+    int getType();
+
+    /**
+     * Get integer sample value
+     *
+     * @return value
+     * @throws IllegalStateException sample type is not integer
+     */
+    int getInteger() throws IllegalStateException;
+
+    /**
+     * Get float sample value
+     *
+     * @return value
+     * @throws IllegalStateException sample type is not float
+     */
+    float getFloat() throws IllegalStateException;
+
+    /**
+     * Get boolean sample value
+     *
+     * @return value
+     * @throws IllegalStateException sample type is not boolean
+     */
+    boolean getBoolean() throws IllegalStateException;
+
+    /**
+     * Get string sample value. Long strings are stored truncated
+     *
+     * @return value
+     * @throws IllegalStateException sample type is not string
+     */
+    String getString() throws IllegalStateException;
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.api;
+
+/**
+ * Receives samples from {@link StatusVariableStore} scan
+ *
+ * @author dmytro.pishchukhin
+ */
+public interface SampleVisitor {
+    /**
+     * Visit sample
+     *
+     * @param sample sample. Is valid only during this call
+     * @return <code>true</code> to continue scan, <code>false</code> to stop it
+     */
+    boolean visit(Sample sample);
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.api;
+
+/**
+ * History of <code>StatusVariable</code> values.
+ * <p/>
+ * Values are recorded when <code>Monitorable</code>s notify <code>MonitorAdmin</code> about changes
+ * and when scheduled <code>MonitoringJob</code>s take measurements.
+ * Only the last samples of each <code>StatusVariable</code> are kept in memory.
+ * <p/>
+ * The caller must hold <code>MonitorPermission</code> with the <code>read</code> action
+ * for the <code>StatusVariable</code>s.
+ *
+ * @author dmytro.pishchukhin
+ */
+public interface StatusVariableHistory {
+    /**
+     * Returns paths of <code>StatusVariable</code>s with recorded samples that the caller is allowed to read.
+     *
+     * @return array of <code>StatusVariable</code> paths in [Monitorable_ID]/[StatusVariable_ID] format,
+     *         in alphabetical order. It cannot be <code>null</code>
+     */
+    String[] getRecordedPaths();
+
+    /**
+     * Returns the last recorded samples of <code>StatusVariable</code>.
+     *
+     * @param path  the full path of the <code>StatusVariable</code> in
+     *              [Monitorable_ID]/[StatusVariable_ID] format
+     * @param count max number of samples
+     * @return samples in recording order, empty if there are no samples. It cannot be <code>null</code>
+     * @throws IllegalArgumentException if <code>path</code> is <code>null</code> or otherwise invalid,
+     *                                  or <code>count</code> is negative
+     * @throws SecurityException        if the caller does not hold <code>MonitorPermission</code>
+     *                                  for the <code>StatusVariable</code> with the <code>read</code> action present
+     */
+    StatusVariableSamples getLastSamples(String path, int count) throws IllegalArgumentException, SecurityException;
+
+    /**
+     * Returns recorded samples of <code>StatusVariable</code> with timestamps in the given range.
+     *
+     * @param path     the full path of the <code>StatusVariable</code> in
+     *                 [Monitorable_ID]/[StatusVariable_ID] format
+     * @param fromTime range start time in milliseconds, inclusive
+     * @param toTime   range end time in milliseconds, inclusive
+     * @return samples in recording order, empty if there are no samples. It cannot be <code>null</code>
+     * @throws IllegalArgumentException if <code>path</code> is <code>null</code> or otherwise invalid
+     * @throws SecurityException        if the caller does not hold <code>MonitorPermission</code>
+     *                                  for the <code>StatusVariable</code> with the <code>read</code> action present
+     */
+    StatusVariableSamples getSamples(String path, long fromTime, long toTime) throws IllegalArgumentException, SecurityException;
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.api;
+
+import org.osgi.service.monitor.StatusVariable;
+
+/**
+ * Result of <code>StatusVariable</code> bulk read: value or error of the path
+ *
+ * @author dmytro.pishchukhin
+ */
+public final class StatusVariableResult {
+    private final String path;
+    private final StatusVariable statusVariable;
+    private final RuntimeException error;
+
+    /**
+     * Create successful result
+     *
+     * @param path           requested path
+     * @param statusVariable <code>StatusVariable</code>
+     */
+    public StatusVariableResult(String path, StatusVariable statusVariable) {
+        this(path, statusVariable, null);
+    }
+
+    /**
+     * Create failed result
+     *
+     * @param path  requested path
+     * @param error error
+     */
+    public StatusVariableResult(String path, RuntimeException error) {
+        this(path, null, error);
+    }
+
+    private StatusVariableResult(String path, StatusVariable statusVariable, RuntimeException error) {
+        this.path = path;
+        this.statusVariable = statusVariable;
+        this.error = error;
+    }
+
+    /**
+     * Get requested path
+     *
+     * @return path as it was requested
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Check if <code>StatusVariable</code> was read
+     *
+     * @return <code>true</code> if read was successful
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Get <code>StatusVariable</code>
+     *
+     * @return <code>StatusVariable</code> or <code>null</code> if read failed
+     */
+    public StatusVariable getStatusVariable() {
+        return statusVariable;
+    }
+
+    /**
+     * Get read error
+     *
+     * @return <code>IllegalArgumentException</code> if path is invalid or unavailable,
+     *         <code>SecurityException</code> if read is not permitted, <code>null</code> if read was successful
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? path + "=" + statusVariable : path + ": " + error;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.api;
+
+import org.osgi.service.monitor.StatusVariable;
+
+/**
+ * Recorded samples of one <code>StatusVariable</code>.
+ * <p/>
+ * Samples are stored in primitive arrays and are read by index without boxing.
+ * Integer, float and boolean values are packed into <code>int</code>s, float values are stored as
+ * {@link Float#floatToIntBits(float)} bits, boolean values are stored as 1 or 0.
+ *
+ * @author dmytro.pishchukhin
+ */
+public final class StatusVariableSamples {
+    private final String path;
+    private final int size;
+    private final long[] timestamps;
+    private final byte[] types;
+    private final int[] values;
+    private final String[] strings;
+
+    /**
+     * Create samples
+     *
+     * @param path       <code>StatusVariable</code> path
+     * @param size       number of samples
+     * @param timestamps samples timestamps
+     * @param types      samples types (<code>StatusVariable.TYPE_*</code> constants)
+     * @param values     packed integer, float and boolean values
+     * @param strings    string values. Can be <code>null</code> if there are no string samples
+     */
+    public StatusVariableSamples(String path, int size, long[] timestamps, byte[] types, int[] values, String[] strings) {
+        this.path = path;
+        this.size = size;
+        this.timestamps = timestamps;
+        this.types = types;
+        this.values = values;
+        this.strings = strings;
+    }
+
+    /**
+     * Get <code>StatusVariable</code> path
+     *
+     * @return path
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Get number of samples
+     *
+     * @return number of samples
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get sample timestamp
+     *
+     * @param index sample index
+     * @return timestamp in milliseconds
+     */
+    public long getTimeStamp(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    /**
+     * Get sample type
+     *
+     * @param index sample index
+     * @return one of <code>StatusVariable.TYPE_*</code> constants
+     */
+    public int getType(int index) {
+        checkIndex(index);
+        return types[index];
+    }
+
+    /**
+     * Get integer sample value
+     *
+     * @param index sample index
+     * @return value
+     * @throws IllegalStateException sample type is not integer
+     */
+    public int getInteger(int index) throws IllegalStateException {
+        checkType(index, StatusVariable.TYPE_INTEGER);
+        return values[index];
+    }
+
+    /**
+     * Get float sample value
+     *
+     * @param index sample index
+     * @return value
+     * @throws IllegalStateException sample type is not float
+     */
+    public float getFloat(int index) throws IllegalStateException {
+        checkType(index, StatusVariable.TYPE_FLOAT);
+        return Float.intBitsToFloat(values[index]);
+    }
+
+    /**
+     * Get boolean sample value
+     *
+     * @param index sample index
+     * @return value
+     * @throws IllegalStateException sample type is not boolean
+     */
+    public boolean getBoolean(int index) throws IllegalStateException {
+        checkType(index, StatusVariable.TYPE_BOOLEAN);
+        return values[index] != 0;
+    }
+
+    /**
+     * Get string sample value
+     *
+     * @param index sample index
+     * @return value
+     * @throws IllegalStateException sample type is not string
+     */
+    public String getString(int index) throws IllegalStateException {
+        checkType(index, StatusVariable.TYPE_STRING);
+        return strings[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Sample index: " + index + ", size: " + size);
+        }
+    }
+
+    private void checkType(int index, int type) {
+        if (getType(index) != type) {
+            throw new IllegalStateException("Sample " + index + " type is " + types[index]);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.api;
+
+import org.osgi.service.monitor.StatusVariable;
+
+import java.util.Arrays;
+
+/**
+ * Snapshot of <code>StatusVariable</code>s of all <code>Monitorable</code>s.
+ * <p/>
+ * Values are stored in columns: row <code>i</code> of the snapshot is a <code>StatusVariable</code>,
+ * rows of one <code>Monitorable</code> are stored together, <code>Monitorable</code>s are ordered by ID.
+ * Integer, float and boolean values are stored in one <code>int</code> column, strings are stored separately.
+ *
+ * @author dmytro.pishchukhin
+ */
+public final class StatusVariableSnapshot {
+    private final long captureTime;
+    private final long readSpread;
+    private final String[] monitorableIds;
+    // rows of monitorable m are [offsets[m], offsets[m + 1])
+    private final int[] offsets;
+    private final String[] ids;
+    private final byte[] types;
+    private final byte[] collectionMethods;
+    // integer values, float bits or 1/0 for booleans
+    private final int[] values;
+    // string values, null if snapshot has no strings
+    private final String[] strings;
+    private final String[] failedMonitorableIds;
+
+    /**
+     * Create snapshot
+     *
+     * @param captureTime          capture time in milliseconds
+     * @param readSpread           time in nanoseconds between the first and the last read
+     * @param monitorableIds       <code>Monitorable</code> IDs
+     * @param statusVariables      <code>StatusVariable</code>s per <code>Monitorable</code>
+     * @param failedMonitorableIds IDs of <code>Monitorable</code>s that were not read
+     */
+    public StatusVariableSnapshot(long captureTime, long readSpread, String[] monitorableIds,
+                                  StatusVariable[][] statusVariables, String[] failedMonitorableIds) {
+        this.captureTime = captureTime;
+        this.readSpread = readSpread;
+        this.monitorableIds = monitorableIds;
+        this.failedMonitorableIds = failedMonitorableIds;
+        offsets = new int[monitorableIds.length + 1];
+        boolean hasStrings = false;
+        for (int m = 0; m < monitorableIds.length; m++) {
+            offsets[m + 1] = offsets[m] + statusVariables[m].length;
+            for (StatusVariable statusVariable : statusVariables[m]) {
+                hasStrings |= statusVariable.getType() == StatusVariable.TYPE_STRING;
+            }
+        }
+        int size = offsets[monitorableIds.length];
+        ids = new String[size];
+        types = new byte[size];
+        collectionMethods = new byte[size];
+        values = new int[size];
+        strings = hasStrings ? new String[size] : null;
+        int row = 0;
+        for (StatusVariable[] monitorableVariables : statusVariables) {
+            for (StatusVariable statusVariable : monitorableVariables) {
+                ids[row] = statusVariable.getID();
+                types[row] = (byte) statusVariable.getType();
+                collectionMethods[row] = (byte) statusVariable.getCollectionMethod();
+                switch (statusVariable.getType()) {
+                    case StatusVariable.TYPE_INTEGER:
+                        values[row] = statusVariable.getInteger();
+                        break;
+                    case StatusVariable.TYPE_FLOAT:
+                        values[row] = Float.floatToIntBits(statusVariable.getFloat());
+                        break;
+                    case StatusVariable.TYPE_BOOLEAN:
+                        values[row] = statusVariable.getBoolean() ? 1 : 0;
+                        break;
+                    case StatusVariable.TYPE_STRING:
+                        strings[row] = statusVariable.getString();
+                        break;
+                }
+                row++;
+            }
+        }
+    }
+
+    /**
+     * Get capture time: the middle between the first and the last read
+     *
+     * @return time in milliseconds
+     */
+    public long getCaptureTime() {
+        return captureTime;
+    }
+
+    /**
+     * Get time between the first and the last <code>StatusVariable</code> read
+     *
+     * @return spread in nanoseconds
+     */
+    public long getReadSpread() {
+        return readSpread;
+    }
+
+    /**
+     * Get number of <code>StatusVariable</code>s
+     *
+     * @return number of rows
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Get IDs of read <code>Monitorable</code>s
+     *
+     * @return IDs in alphabetical order
+     */
+    public String[] getMonitorableIds() {
+        return monitorableIds.clone();
+    }
+
+    /**
+     * Get IDs of <code>Monitorable</code>s that are unavailable or have not been read in time.
+     * Their <code>StatusVariable</code>s are not in the snapshot
+     *
+     * @return IDs in alphabetical order
+     */
+    public String[] getFailedMonitorableIds() {
+        return failedMonitorableIds.clone();
+    }
+
+    /**
+     * Get the first row of <code>Monitorable</code>. Rows of <code>Monitorable</code> <code>m</code>
+     * are from <code>getOffset(m)</code> to <code>getOffset(m + 1)</code> exclusive
+     *
+     * @param monitorable <code>Monitorable</code> index, from 0 to number of <code>Monitorable</code>s inclusive
+     * @return row index
+     */
+    public int getOffset(int monitorable) {
+        return offsets[monitorable];
+    }
+
+    /**
+     * Get <code>Monitorable</code> ID of row
+     *
+     * @param row row index
+     * @return <code>Monitorable</code> ID
+     */
+    public String getMonitorableId(int row) {
+        checkRow(row);
+        int index = Arrays.binarySearch(offsets, row);
+        if (index < 0) {
+            return monitorableIds[-index - 2];
+        }
+        // skip Monitorables without StatusVariables
+        while (offsets[index + 1] == row) {
+            index++;
+        }
+        return monitorableIds[index];
+    }
+
+    /**
+     * Get <code>StatusVariable</code> ID of row
+     *
+     * @param row row index
+     * @return <code>StatusVariable</code> ID
+     */
+    public String getStatusVariableId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * Get path of row
+     *
+     * @param row row index
+     * @return path in [Monitorable_ID]/[StatusVariable_ID] format
+     */
+    public String getPath(int row) {
+        return getMonitorableId(row) + '/' + ids[row];
+    }
+
+    /**
+     * Get type of row
+     *
+     * @param row row index
+     * @return one of <code>StatusVariable.TYPE_*</code> constants
+     */
+    public int getType(int row) {
+        return types[row];
+    }
+
+    /**
+     * Get collection method of row
+     *
+     * @param row row index
+     * @return one of <code>StatusVariable.CM_*</code> constants
+     */
+    public int getCollectionMethod(int row) {
+        return collectionMethods[row];
+    }
+
+    /**
+     * Get integer value of row
+     *
+     * @param row row index
+     * @return value
+     * @throws IllegalStateException if row type is not integer
+     */
+    public int getInteger(int row) throws IllegalStateException {
+        checkType(row, StatusVariable.TYPE_INTEGER);
+        return values[row];
+    }
+
+    /**
+     * Get float value of row
+     *
+     * @param row row index
+     * @return value
+     * @throws IllegalStateException if row type is not float
+     */
+    public float getFloat(int row) throws IllegalStateException {
+        checkType(row, StatusVariable.TYPE_FLOAT);
+        return Float.intBitsToFloat(values[row]);
+    }
+
+    /**
+     * Get boolean value of row
+     *
+     * @param row row index
+     * @return value
+     * @throws IllegalStateException if row type is not boolean
+     */
+    public boolean getBoolean(int row) throws IllegalStateException {
+        checkType(row, StatusVariable.TYPE_BOOLEAN);
+        return values[row] != 0;
+    }
+
+    /**
+     * Get string value of row
+     *
+     * @param row row index
+     * @return value
+     * @throws IllegalStateException if row type is not string
+     */
+    public String getString(int row) throws IllegalStateException {
+        checkType(row, StatusVariable.TYPE_STRING);
+        return strings[row];
+    }
+
+    /**
+     * Create <code>StatusVariable</code> of row. Its timestamp is creation time
+     *
+     * @param row row index
+     * @return <code>StatusVariable</code>
+     */
+    public StatusVariable getStatusVariable(int row) {
+        switch (types[row]) {
+            case StatusVariable.TYPE_INTEGER:
+                return new StatusVariable(ids[row], collectionMethods[row], values[row]);
+            case StatusVariable.TYPE_FLOAT:
+                return new StatusVariable(ids[row], collectionMethods[row], Float.intBitsToFloat(values[row]));
+            case StatusVariable.TYPE_BOOLEAN:
+                return new StatusVariable(ids[row], collectionMethods[row], values[row] != 0);
+            default:
+                return new StatusVariable(ids[row], collectionMethods[row], strings[row]);
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= ids.length) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", size: " + ids.length);
+        }
+    }
+
+    private void checkType(int row, int type) {
+        if (types[row] != type) {
+            throw new IllegalStateException("StatusVariable type is " + types[row] + ": " + getPath(row));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StatusVariableSnapshot{captureTime=" + captureTime + ", readSpread=" + readSpread
+                + ", monitorables=" + monitorableIds.length + ", size=" + ids.length
+                + ", failed=" + Arrays.toString(failedMonitorableIds) + "}";
+    }
+}
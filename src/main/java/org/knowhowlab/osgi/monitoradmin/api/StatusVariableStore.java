@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.api;
+
+/**
+ * Persistent store of <code>StatusVariable</code> samples. Samples survive framework restarts
+ * and are deleted after the retention period.
+ * <p/>
+ * The caller must hold <code>MonitorPermission</code> with the <code>read</code> action
+ * for the <code>StatusVariable</code>s.
+ *
+ * @author dmytro.pishchukhin
+ */
+public interface StatusVariableStore {
+    /**
+     * Scan stored samples of <code>StatusVariable</code> with timestamps in the given range.
+     * Samples are passed to visitor in storing order.
+     *
+     * @param path     the full path of the <code>StatusVariable</code> in
+     *                 [Monitorable_ID]/[StatusVariable_ID] format
+     * @param fromTime range start time in milliseconds, inclusive
+     * @param toTime   range end time in milliseconds, inclusive
+     * @param visitor  samples visitor
+     * @throws IllegalArgumentException if <code>path</code> is <code>null</code> or otherwise invalid,
+     *                                  or <code>visitor</code> is <code>null</code>
+     * @throws SecurityException        if the caller does not hold <code>MonitorPermission</code>
+     *                                  for the <code>StatusVariable</code> with the <code>read</code> action present
+     */
+    void scan(String path, long fromTime, long toTime, SampleVisitor visitor)
+            throws IllegalArgumentException, SecurityException;
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.export;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.knowhowlab.osgi.monitoradmin.LogVisitor;
+import org.osgi.service.monitor.MonitorAdmin;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves readable StatusVariables in Prometheus text exposition format over JDK built-in HTTP server.
+ * StatusVariables are read with the given <code>MonitorAdmin</code> instance, so only those variables
+ * are exported, which are readable by the bundle the instance is bound to.
+ * <p/>
+ * Monitorables are resolved in parallel by small pool of workers, results are streamed to the response
+ * in Monitorables names order as soon as they are available.
+ * Every scrape has a deadline: Monitorables that are not read before it are cancelled and reported
+ * by <code>monitoradmin_scrape_missing</code> metric, so one slow Monitorable does not stall the scrape.
+ * StatusVariables which metric names collide with already written ones are skipped and reported
+ * by <code>monitoradmin_scrape_collisions</code> metric, as duplicate metric families invalidate the whole response.
+ * Requests are handled by single thread that owns reusable <code>PrometheusWriter</code>.
+ *
+ * @author dmytro.pishchukhin
+ */
+public class PrometheusExporter implements HttpHandler {
+    /**
+     * Metrics context path
+     */
+    public static final String CONTEXT_PATH = "/metrics";
+    /**
+     * Default number of Monitorables resolver workers
+     */
+    public static final int DEFAULT_THREADS = 4;
+    /**
+     * Default scrape timeout in milliseconds
+     */
+    public static final long DEFAULT_SCRAPE_TIMEOUT = 5000;
+
+    /**
+     * Scrape timeout that is sent by Prometheus server
+     */
+    private static final String SCRAPE_TIMEOUT_HEADER = "X-Prometheus-Scrape-Timeout-Seconds";
+    /**
+     * Time in milliseconds that is reserved from Prometheus server scrape timeout for the response sending
+     */
+    private static final long SCRAPE_TIMEOUT_MARGIN = 500;
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final LogVisitor logVisitor;
+    private final MonitorAdmin monitorAdmin;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final ThreadPoolExecutor resolver;
+    private final long scrapeTimeoutNanos;
+    /**
+     * Is used by request handler thread only
+     */
+    private final PrometheusWriter writer = new PrometheusWriter();
+
+    /**
+     * Initialize exporter with default scrape timeout
+     *
+     * @param logVisitor   logger
+     * @param monitorAdmin <code>MonitorAdmin</code> bound to exporter identity
+     * @param address      server address
+     * @param threads      number of Monitorables resolver workers
+     * @throws IOException unable to bind server address
+     */
+    public PrometheusExporter(LogVisitor logVisitor, MonitorAdmin monitorAdmin, InetSocketAddress address, int threads)
+            throws IOException {
+        this(logVisitor, monitorAdmin, address, threads, DEFAULT_SCRAPE_TIMEOUT);
+    }
+
+    /**
+     * Initialize exporter
+     *
+     * @param logVisitor    logger
+     * @param monitorAdmin  <code>MonitorAdmin</code> bound to exporter identity
+     * @param address       server address
+     * @param threads       number of Monitorables resolver workers
+     * @param scrapeTimeout max scrape duration in milliseconds. Shorter timeout that is sent by Prometheus server
+     *                      is honored as well
+     * @throws IOException unable to bind server address
+     */
+    public PrometheusExporter(LogVisitor logVisitor, MonitorAdmin monitorAdmin, InetSocketAddress address, int threads,
+                              long scrapeTimeout) throws IOException {
+        this.logVisitor = logVisitor;
+        this.monitorAdmin = monitorAdmin;
+        this.scrapeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, scrapeTimeout));
+        int poolSize = Math.max(1, threads);
+        resolver = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ExporterThreadFactory("MonitorAdmin Prometheus Resolver-"));
+        resolver.allowCoreThreadTimeOut(true);
+        requestExecutor = Executors.newSingleThreadExecutor(new ExporterThreadFactory("MonitorAdmin Prometheus Exporter-"));
+        server = HttpServer.create(address, 0);
+        server.createContext(CONTEXT_PATH, this);
+        server.setExecutor(requestExecutor);
+    }
+
+    /**
+     * Start serving requests
+     */
+    public void start() {
+        server.start();
+        if (logVisitor.isInfoEnabled()) {
+            logVisitor.info("Prometheus exporter is listening on port " + getPort(), null);
+        }
+    }
+
+    /**
+     * Stop server and workers
+     */
+    public void stop() {
+        server.stop(0);
+        requestExecutor.shutdownNow();
+        resolver.shutdownNow();
+    }
+
+    /**
+     * Get bound port
+     *
+     * @return port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            long deadline = System.nanoTime() + getScrapeTimeout(exchange);
+            List<MonitorableTask> tasks = resolve(monitorAdmin.getMonitorableNames());
+            // chunked response
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            writer.reset(out);
+            try {
+                List<String> missing = new ArrayList<String>();
+                List<String> collisions = new ArrayList<String>();
+                for (MonitorableTask task : tasks) {
+                    StatusVariable[] statusVariables = get(task, deadline);
+                    if (statusVariables != null) {
+                        for (StatusVariable statusVariable : statusVariables) {
+                            if (!writer.writeStatusVariable(task.monitorableId, statusVariable)) {
+                                collisions.add(task.monitorableId + '/' + statusVariable.getID());
+                            }
+                        }
+                    } else if (task.isCancelled()) {
+                        missing.add(task.monitorableId);
+                    }
+                }
+                if (!missing.isEmpty()) {
+                    writer.writeMissing(missing);
+                    if (logVisitor.isDebugEnabled()) {
+                        logVisitor.debug("Monitorables are not read within scrape timeout: " + missing, null);
+                    }
+                }
+                if (!collisions.isEmpty()) {
+                    writer.writeCollisions(collisions);
+                    if (logVisitor.isDebugEnabled()) {
+                        logVisitor.debug("StatusVariables are skipped because of metric name collision: " + collisions, null);
+                    }
+                }
+                writer.flush();
+            } finally {
+                writer.reset(null);
+                // cancel remaining tasks if client has gone
+                for (MonitorableTask task : tasks) {
+                    task.cancel(true);
+                }
+            }
+        } catch (IOException e) {
+            logVisitor.debug("Unable to write Prometheus response", e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Submit read tasks of given Monitorables to resolver workers
+     *
+     * @param monitorableIds <code>Monitorable</code> IDs
+     * @return tasks in the same order
+     */
+    private List<MonitorableTask> resolve(String[] monitorableIds) {
+        List<MonitorableTask> tasks = new ArrayList<MonitorableTask>(monitorableIds.length);
+        for (String monitorableId : monitorableIds) {
+            MonitorableTask task = new MonitorableTask(monitorableId);
+            resolver.execute(task);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Get scrape timeout: configured one or shorter timeout of Prometheus server
+     *
+     * @param exchange request
+     * @return timeout in nanoseconds
+     */
+    private long getScrapeTimeout(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst(SCRAPE_TIMEOUT_HEADER);
+        if (header != null) {
+            try {
+                long serverTimeout = (long) (Double.parseDouble(header.trim()) * 1000) - SCRAPE_TIMEOUT_MARGIN;
+                return Math.min(scrapeTimeoutNanos, TimeUnit.MILLISECONDS.toNanos(Math.max(1, serverTimeout)));
+            } catch (NumberFormatException e) {
+                if (logVisitor.isDebugEnabled()) {
+                    logVisitor.debug("Invalid scrape timeout header: " + header, e);
+                }
+            }
+        }
+        return scrapeTimeoutNanos;
+    }
+
+    /**
+     * Wait for task result until scrape deadline. Task that is not completed before deadline is cancelled
+     *
+     * @param task     task
+     * @param deadline scrape deadline, <code>System.nanoTime()</code>
+     * @return <code>StatusVariable</code>s or <code>null</code> if Monitorable is not available or task is cancelled
+     * @throws IOException request handler is interrupted
+     */
+    private StatusVariable[] get(MonitorableTask task, long deadline) throws IOException {
+        try {
+            return task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Request handler is interrupted");
+        } catch (ExecutionException e) {
+            // Monitorable has been unregistered or has failed
+            logVisitor.debug("Unable to read Monitorable StatusVariables", e.getCause());
+            return null;
+        } catch (TimeoutException e) {
+            // task could be completed after timeout
+            return task.cancel(true) ? null : get(task, deadline);
+        }
+    }
+
+    /**
+     * Reads StatusVariables of one Monitorable
+     */
+    private class MonitorableTask extends FutureTask<StatusVariable[]> {
+        private final String monitorableId;
+
+        private MonitorableTask(final String monitorableId) {
+            super(new Callable<StatusVariable[]>() {
+                public StatusVariable[] call() throws Exception {
+                    return monitorAdmin.getStatusVariables(monitorableId);
+                }
+            });
+            this.monitorableId = monitorableId;
+        }
+    }
+
+    private static class ExporterThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final String prefix;
+
+        private ExporterThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
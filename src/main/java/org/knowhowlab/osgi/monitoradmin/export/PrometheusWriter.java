@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.export;
+
+import org.osgi.service.monitor.StatusVariable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streaming writer of Prometheus text exposition format (version 0.0.4).
+ * Characters are encoded straight into reusable byte buffer which is flushed
+ * to the response stream when it is full, so no intermediate strings are built.
+ * Instance is not thread-safe.
+ *
+ * @author dmytro.pishchukhin
+ */
+class PrometheusWriter {
+    static final int BUFFER_SIZE = 8192;
+    /**
+     * Metric of Monitorables that are not read within scrape timeout
+     */
+    static final String MISSING_METRIC = "monitoradmin_scrape_missing";
+    /**
+     * Metric of StatusVariables that are skipped because their metric names collide
+     */
+    static final String COLLISION_METRIC = "monitoradmin_scrape_collisions";
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private OutputStream out;
+    // metric name of the current StatusVariable
+    private final StringBuilder name = new StringBuilder();
+    // metric names written to the current response
+    private final Set<String> names = new HashSet<String>();
+
+    /**
+     * Bind writer to the response stream
+     *
+     * @param out response stream
+     */
+    void reset(OutputStream out) {
+        this.out = out;
+        position = 0;
+        names.clear();
+        names.add(MISSING_METRIC);
+        names.add(COLLISION_METRIC);
+    }
+
+    /**
+     * Write <code>StatusVariable</code> as metric family with single sample.
+     * Metric name is <code>[Monitorable_id]_[StatusVariable_id]</code> where characters
+     * that are not allowed by Prometheus are replaced with '_'. <code>StatusVariable</code>
+     * which metric name is already written to the response is skipped, as duplicate metric
+     * families make the whole response invalid.
+     * String values are written as <code>value</code> label of the sample with value 1
+     *
+     * @param monitorableId <code>Monitorable</code> ID
+     * @param statusVariable <code>StatusVariable</code>
+     * @return <code>false</code> - <code>StatusVariable</code> is skipped because of metric name collision
+     * @throws IOException unable to write to the response stream
+     */
+    boolean writeStatusVariable(String monitorableId, StatusVariable statusVariable) throws IOException {
+        name.setLength(0);
+        appendName(monitorableId, true);
+        name.append('_');
+        appendName(statusVariable.getID(), false);
+        if (!names.add(name.toString())) {
+            return false;
+        }
+        writeAscii("# TYPE ");
+        writeAscii(name);
+        writeAscii(statusVariable.getCollectionMethod() == StatusVariable.CM_CC ? " counter\n" : " gauge\n");
+        writeAscii(name);
+        switch (statusVariable.getType()) {
+            case StatusVariable.TYPE_INTEGER:
+                write(' ');
+                writeInt(statusVariable.getInteger());
+                break;
+            case StatusVariable.TYPE_FLOAT:
+                write(' ');
+                writeFloat(statusVariable.getFloat());
+                break;
+            case StatusVariable.TYPE_BOOLEAN:
+                writeAscii(statusVariable.getBoolean() ? " 1" : " 0");
+                break;
+            default:
+                writeAscii("{value=\"");
+                writeLabelValue(statusVariable.getString());
+                writeAscii("\"} 1");
+                break;
+        }
+        write('\n');
+        return true;
+    }
+
+    /**
+     * Write metric family with sample of value 1 for every <code>StatusVariable</code>
+     * which is skipped because of metric name collision
+     *
+     * @param paths <code>StatusVariable</code> paths
+     * @throws IOException unable to write to the response stream
+     */
+    void writeCollisions(List<String> paths) throws IOException {
+        writeAscii("# HELP " + COLLISION_METRIC + " StatusVariables that are skipped because of metric name collision\n");
+        writeAscii("# TYPE " + COLLISION_METRIC + " gauge\n");
+        for (String path : paths) {
+            writeAscii(COLLISION_METRIC + "{path=\"");
+            writeLabelValue(path);
+            writeAscii("\"} 1\n");
+        }
+    }
+
+    /**
+     * Write metric family with sample of value 1 for every <code>Monitorable</code>
+     * which <code>StatusVariable</code>s are missing in the response
+     *
+     * @param monitorableIds <code>Monitorable</code> IDs
+     * @throws IOException unable to write to the response stream
+     */
+    void writeMissing(List<String> monitorableIds) throws IOException {
+        writeAscii("# HELP " + MISSING_METRIC + " Monitorables that are not read within scrape timeout\n");
+        writeAscii("# TYPE " + MISSING_METRIC + " gauge\n");
+        for (String monitorableId : monitorableIds) {
+            writeAscii(MISSING_METRIC + "{monitorable=\"");
+            writeLabelValue(monitorableId);
+            writeAscii("\"} 1\n");
+        }
+    }
+
+    /**
+     * Flush buffered bytes to the response stream
+     *
+     * @throws IOException unable to write to the response stream
+     */
+    void flush() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        out.flush();
+    }
+
+    private void appendName(String value, boolean first) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':'
+                    || (c >= '0' && c <= '9' && !(first && i == 0))) {
+                name.append(c);
+            } else {
+                name.append('_');
+            }
+        }
+    }
+
+    private void writeLabelValue(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                writeAscii("\\\\");
+            } else if (c == '"') {
+                writeAscii("\\\"");
+            } else if (c == '\n') {
+                writeAscii("\\n");
+            } else if (c < 0x80) {
+                write(c);
+            } else if (c < 0x800) {
+                write(0xC0 | (c >> 6));
+                write(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                write(0xF0 | (codePoint >> 18));
+                write(0x80 | ((codePoint >> 12) & 0x3F));
+                write(0x80 | ((codePoint >> 6) & 0x3F));
+                write(0x80 | (codePoint & 0x3F));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                // unpaired surrogate
+                write('?');
+            } else {
+                write(0xE0 | (c >> 12));
+                write(0x80 | ((c >> 6) & 0x3F));
+                write(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        if (value == Integer.MIN_VALUE) {
+            writeAscii("-2147483648");
+            return;
+        }
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+        if (position + 10 > buffer.length) {
+            flushBuffer();
+        }
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    private void writeFloat(float value) throws IOException {
+        if (Float.isNaN(value)) {
+            writeAscii("NaN");
+        } else if (Float.isInfinite(value)) {
+            writeAscii(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == (int) value) {
+            writeInt((int) value);
+        } else {
+            writeAscii(Float.toString(value));
+        }
+    }
+
+    private void writeAscii(CharSequence value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            write(value.charAt(i));
+        }
+    }
+
+    private void write(int b) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.histogram;
+
+import org.knowhowlab.osgi.monitoradmin.LogVisitor;
+import org.knowhowlab.osgi.monitoradmin.history.SampleRecorder;
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
+import org.knowhowlab.osgi.monitoradmin.util.Utils;
+import org.osgi.service.monitor.Monitorable;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records numeric values of selected <code>StatusVariable</code>s into histograms and publishes
+ * their percentiles as <code>StatusVariable</code>s of {@link #MONITORABLE_ID} <code>Monitorable</code>.
+ * Only values reported by <code>Monitorable</code>s with update notifications are recorded:
+ * scheduled jobs measurements would skew the distribution towards job periods.
+ * <p/>
+ * Derived <code>StatusVariable</code> id is [Monitorable_ID].[StatusVariable_ID].[statistic], e.g.
+ * <code>com.acme.pid.latency.p99</code> for <code>com.acme.pid/latency</code>. If such id is too long
+ * or is the same as the id of another path, h[index of path in paths list].[statistic] is used, e.g.
+ * <code>h2.p99</code>. Statistics are <code>p50</code>, <code>p90</code>, <code>p99</code>,
+ * <code>p999</code>, <code>max</code> and <code>count</code>.
+ *
+ * @author dmytro.pishchukhin
+ */
+public class HistogramRecorder implements SampleRecorder, Monitorable {
+    /**
+     * Histograms <code>Monitorable</code> ID
+     */
+    public static final String MONITORABLE_ID = "monitoradmin.histogram";
+
+    private static final String[] STATISTICS = {"p50", "p90", "p99", "p999", "max", "count"};
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String DESCRIPTION_PATTERN = "%s of %s";
+    private static final int MAX_ID_LENGTH = 32;
+    private static final String INDEX_PREFIX = "h";
+
+    // are not modified after initialization
+    private final Map<String, LogHistogram> histogramsByPath = new HashMap<String, LogHistogram>();
+    private final Map<String, Source> sourcesByDerivedId = new HashMap<String, Source>();
+    private final String[] statusVariableNames;
+
+    /**
+     * Create recorder
+     *
+     * @param logVisitor logger
+     * @param paths      source <code>StatusVariable</code> paths. Invalid and duplicated paths are skipped
+     */
+    public HistogramRecorder(LogVisitor logVisitor, String[] paths) {
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < paths.length; i++) {
+            String path = paths[i];
+            StatusVariablePath statusVariablePath;
+            try {
+                statusVariablePath = StatusVariablePath.parse(path);
+            } catch (IllegalArgumentException e) {
+                logVisitor.warning("Invalid histogram path: " + path, e);
+                continue;
+            }
+            if (histogramsByPath.containsKey(statusVariablePath.getPath())) {
+                continue;
+            }
+            String derivedId = statusVariablePath.getMonitorableId() + '.' + statusVariablePath.getStatusVariableId();
+            if (sourcesByDerivedId.containsKey(derivedId) || !isValidDerivedId(derivedId)) {
+                derivedId = INDEX_PREFIX + i;
+            }
+            LogHistogram histogram = new LogHistogram();
+            histogramsByPath.put(statusVariablePath.getPath(), histogram);
+            sourcesByDerivedId.put(derivedId, new Source(statusVariablePath.getPath(), histogram));
+            for (String statistic : STATISTICS) {
+                names.add(derivedId + '.' + statistic);
+            }
+        }
+        statusVariableNames = names.toArray(new String[names.size()]);
+    }
+
+    private static boolean isValidDerivedId(String derivedId) {
+        for (String statistic : STATISTICS) {
+            String id = derivedId + '.' + statistic;
+            if (id.length() > MAX_ID_LENGTH || !Utils.validatePathId(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void record(StatusVariablePath path, StatusVariable statusVariable) {
+        LogHistogram histogram = histogramsByPath.get(path.getPath());
+        if (histogram == null) {
+            return;
+        }
+        switch (statusVariable.getType()) {
+            case StatusVariable.TYPE_INTEGER:
+                histogram.record(statusVariable.getInteger());
+                break;
+            case StatusVariable.TYPE_FLOAT:
+                histogram.record(statusVariable.getFloat());
+                break;
+        }
+    }
+
+    /**
+     * Check if there are recorded paths
+     *
+     * @return <code>true</code> if no paths are recorded
+     */
+    public boolean isEmpty() {
+        return histogramsByPath.isEmpty();
+    }
+
+    public String[] getStatusVariableNames() {
+        return statusVariableNames.clone();
+    }
+
+    public StatusVariable getStatusVariable(String id) throws IllegalArgumentException {
+        int statistic = parseStatistic(id);
+        LogHistogram histogram = getSource(id).histogram;
+        switch (statistic) {
+            case 4:
+                return new StatusVariable(id, StatusVariable.CM_SI, (float) histogram.getMax());
+            case 5:
+                return new StatusVariable(id, StatusVariable.CM_CC, (int) Math.min(Integer.MAX_VALUE, histogram.getCount()));
+            default:
+                return new StatusVariable(id, StatusVariable.CM_SI,
+                        (float) histogram.getValueAtPercentile(PERCENTILES[statistic]));
+        }
+    }
+
+    public boolean notifiesOnChange(String id) throws IllegalArgumentException {
+        getSource(id);
+        return false;
+    }
+
+    /**
+     * Reset histogram of source <code>StatusVariable</code>. All its statistics are reset
+     *
+     * @param id derived <code>StatusVariable</code> id
+     * @return <code>true</code>
+     * @throws IllegalArgumentException id is unknown
+     */
+    public boolean resetStatusVariable(String id) throws IllegalArgumentException {
+        getSource(id).histogram.reset();
+        return true;
+    }
+
+    public String getDescription(String id) throws IllegalArgumentException {
+        return String.format(DESCRIPTION_PATTERN, STATISTICS[parseStatistic(id)], getSource(id).path);
+    }
+
+    private Source getSource(String id) throws IllegalArgumentException {
+        Source source = null;
+        int index = id != null ? id.lastIndexOf('.') : -1;
+        if (index > 0) {
+            source = sourcesByDerivedId.get(id.substring(0, index));
+        }
+        if (source == null) {
+            throw new IllegalArgumentException("Unknown StatusVariable: " + id);
+        }
+        return source;
+    }
+
+    private static int parseStatistic(String id) throws IllegalArgumentException {
+        if (id != null) {
+            int index = id.lastIndexOf('.');
+            for (int i = 0; i < STATISTICS.length; i++) {
+                if (id.startsWith(STATISTICS[i], index + 1) && id.length() - index - 1 == STATISTICS[i].length()) {
+                    return i;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown StatusVariable: " + id);
+    }
+
+    private static class Source {
+        private final String path;
+        private final LogHistogram histogram;
+
+        private Source(String path, LogHistogram histogram) {
+            this.path = path;
+            this.histogram = histogram;
+        }
+    }
+}
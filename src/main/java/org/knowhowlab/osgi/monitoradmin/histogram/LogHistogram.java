@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.histogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory histogram with log-linear buckets: every power of two range is split into
+ * {@link #SUB_BUCKETS} linear sub-buckets, so value error is below 1/{@link #SUB_BUCKETS}.
+ * Values from 2^{@link #MIN_EXPONENT} to 2^{@link #MAX_EXPONENT} are tracked, smaller positive values
+ * are counted in the lowest bucket, larger - in the highest one. Non-positive values and NaN
+ * are counted as 0.
+ * <p/>
+ * Recording is lock-free. Percentiles are calculated from the snapshot of counters that
+ * is not atomic with concurrent recording.
+ *
+ * @author dmytro.pishchukhin
+ */
+class LogHistogram {
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int MIN_EXPONENT = -20;
+    static final int MAX_EXPONENT = 43;
+    // bucket 0 counts zeros
+    private static final int BUCKETS = 1 + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+    private static final int MANTISSA_BITS = 52;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    // bits of max value, non-negative doubles are ordered as their bits
+    private final AtomicLong maxBits = new AtomicLong();
+
+    void record(double value) {
+        if (!(value > 0)) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.incrementAndGet();
+        long bits = Double.doubleToLongBits(value);
+        while (true) {
+            long currentBits = maxBits.get();
+            if (bits <= currentBits || maxBits.compareAndSet(currentBits, bits)) {
+                return;
+            }
+        }
+    }
+
+    long getCount() {
+        return totalCount.get();
+    }
+
+    double getMax() {
+        return Double.longBitsToDouble(maxBits.get());
+    }
+
+    /**
+     * Get value at percentile
+     *
+     * @param percentile percentile from 0 to 100
+     * @return value, 0 if histogram is empty
+     */
+    double getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= rank) {
+                return Math.min(bucketValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        maxBits.set(0);
+    }
+
+    static int bucketIndex(double value) {
+        if (value == 0) {
+            return 0;
+        }
+        long bits = Double.doubleToRawLongBits(value);
+        int exponent = (int) ((bits >>> MANTISSA_BITS) & 0x7ff) - 1023;
+        if (exponent < MIN_EXPONENT) {
+            return 1;
+        }
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) ((bits >>> (MANTISSA_BITS - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Get bucket representative value: the middle of bucket range
+     */
+    static double bucketValue(int index) {
+        if (index == 0) {
+            return 0;
+        }
+        int exponent = (index - 1) / SUB_BUCKETS + MIN_EXPONENT;
+        int subBucket = (index - 1) % SUB_BUCKETS;
+        return Math.scalb(1 + (subBucket + 0.5) / SUB_BUCKETS, exponent);
+    }
+}
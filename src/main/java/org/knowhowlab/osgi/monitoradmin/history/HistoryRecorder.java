@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.history;
+
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableSamples;
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory history of <code>StatusVariable</code> values.
+ * Every path has its own fixed-size ring buffer, number of paths is limited:
+ * samples of new paths are dropped when the limit is reached.
+ *
+ * @author dmytro.pishchukhin
+ */
+public class HistoryRecorder implements SampleRecorder {
+    /**
+     * Default number of samples kept per path
+     */
+    public static final int DEFAULT_CAPACITY = 100;
+    /**
+     * Default max number of recorded paths
+     */
+    public static final int DEFAULT_MAX_PATHS = 10000;
+
+    private static final long[] NO_TIMESTAMPS = new long[0];
+    private static final byte[] NO_TYPES = new byte[0];
+    private static final int[] NO_VALUES = new int[0];
+
+    private final ConcurrentMap<String, HistoryRingBuffer> buffers = new ConcurrentHashMap<String, HistoryRingBuffer>();
+    private final int capacity;
+    private final int maxPaths;
+    private final AtomicLong droppedSamples = new AtomicLong();
+
+    /**
+     * Create recorder
+     *
+     * @param capacity number of samples kept per path
+     * @param maxPaths max number of recorded paths
+     */
+    public HistoryRecorder(int capacity, int maxPaths) {
+        this.capacity = Math.max(1, capacity);
+        this.maxPaths = maxPaths;
+    }
+
+    public void record(StatusVariablePath path, StatusVariable statusVariable) {
+        HistoryRingBuffer buffer = buffers.get(path.getPath());
+        if (buffer == null) {
+            if (buffers.size() >= maxPaths) {
+                droppedSamples.incrementAndGet();
+                return;
+            }
+            HistoryRingBuffer newBuffer = new HistoryRingBuffer(path.getPath(), capacity);
+            buffer = buffers.putIfAbsent(path.getPath(), newBuffer);
+            if (buffer == null) {
+                buffer = newBuffer;
+            }
+        }
+        buffer.add(statusVariable.getTimeStamp().getTime(), statusVariable);
+    }
+
+    /**
+     * Get recorded paths
+     *
+     * @return paths in alphabetical order
+     */
+    public String[] getRecordedPaths() {
+        Set<String> paths = buffers.keySet();
+        String[] result = paths.toArray(new String[paths.size()]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Get the last samples of <code>StatusVariable</code>
+     *
+     * @param path  <code>StatusVariable</code> path
+     * @param count max number of samples
+     * @return samples, empty if path is not recorded
+     */
+    public StatusVariableSamples getLastSamples(StatusVariablePath path, int count) {
+        HistoryRingBuffer buffer = buffers.get(path.getPath());
+        return buffer != null ? buffer.getLast(count) : emptySamples(path);
+    }
+
+    /**
+     * Get samples of <code>StatusVariable</code> in time range
+     *
+     * @param path     <code>StatusVariable</code> path
+     * @param fromTime range start, inclusive
+     * @param toTime   range end, inclusive
+     * @return samples, empty if path is not recorded
+     */
+    public StatusVariableSamples getSamples(StatusVariablePath path, long fromTime, long toTime) {
+        HistoryRingBuffer buffer = buffers.get(path.getPath());
+        return buffer != null ? buffer.getRange(fromTime, toTime) : emptySamples(path);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get number of samples that were dropped because of paths limit
+     *
+     * @return number of dropped samples
+     */
+    public long getDroppedSamples() {
+        return droppedSamples.get();
+    }
+
+    private static StatusVariableSamples emptySamples(StatusVariablePath path) {
+        return new StatusVariableSamples(path.getPath(), 0, NO_TIMESTAMPS, NO_TYPES, NO_VALUES, null);
+    }
+}
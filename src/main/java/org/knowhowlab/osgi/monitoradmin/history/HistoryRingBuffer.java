@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.history;
+
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableSamples;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fixed-size ring buffer of one <code>StatusVariable</code> samples.
+ * <p/>
+ * Samples are stored in primitive arrays: timestamps, types and values packed into <code>int</code>s.
+ * String values are dictionary-encoded: the value is a code of the string in the buffer dictionary.
+ * The dictionary is compacted when it grows over twice the buffer capacity.
+ *
+ * @author dmytro.pishchukhin
+ */
+class HistoryRingBuffer {
+    private final String path;
+    private final long[] timestamps;
+    private final byte[] types;
+    private final int[] values;
+    // next write position
+    private int head;
+    private int size;
+
+    // string values dictionary
+    private final Map<String, Integer> codes = new HashMap<String, Integer>();
+    private String[] dictionary = new String[8];
+    private int dictionarySize;
+
+    HistoryRingBuffer(String path, int capacity) {
+        this.path = path;
+        timestamps = new long[capacity];
+        types = new byte[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * Add sample. The oldest sample is overwritten if buffer is full
+     *
+     * @param timestamp      sample timestamp
+     * @param statusVariable value
+     */
+    synchronized void add(long timestamp, StatusVariable statusVariable) {
+        int type = statusVariable.getType();
+        int value;
+        switch (type) {
+            case StatusVariable.TYPE_INTEGER:
+                value = statusVariable.getInteger();
+                break;
+            case StatusVariable.TYPE_FLOAT:
+                value = Float.floatToIntBits(statusVariable.getFloat());
+                break;
+            case StatusVariable.TYPE_BOOLEAN:
+                value = statusVariable.getBoolean() ? 1 : 0;
+                break;
+            case StatusVariable.TYPE_STRING:
+                value = encode(statusVariable.getString());
+                break;
+            default:
+                return;
+        }
+        timestamps[head] = timestamp;
+        types[head] = (byte) type;
+        values[head] = value;
+        head = (head + 1) % timestamps.length;
+        if (size < timestamps.length) {
+            size++;
+        }
+    }
+
+    /**
+     * Get the last samples
+     *
+     * @param count max number of samples
+     * @return samples in recording order
+     */
+    synchronized StatusVariableSamples getLast(int count) {
+        int resultSize = Math.min(count, size);
+        return copy(size - resultSize, resultSize);
+    }
+
+    /**
+     * Get samples in time range
+     *
+     * @param fromTime range start, inclusive
+     * @param toTime   range end, inclusive
+     * @return samples in recording order
+     */
+    synchronized StatusVariableSamples getRange(long fromTime, long toTime) {
+        int[] positions = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int position = index(i);
+            if (timestamps[position] >= fromTime && timestamps[position] <= toTime) {
+                positions[count++] = position;
+            }
+        }
+        return copy(positions, count);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized int getDictionarySize() {
+        return dictionarySize;
+    }
+
+    /**
+     * Convert sample sequence number (0 - the oldest sample) to array index
+     */
+    private int index(int i) {
+        return (head - size + i + timestamps.length) % timestamps.length;
+    }
+
+    private StatusVariableSamples copy(int from, int count) {
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = index(from + i);
+        }
+        return copy(positions, count);
+    }
+
+    private StatusVariableSamples copy(int[] positions, int count) {
+        long[] resultTimestamps = new long[count];
+        byte[] resultTypes = new byte[count];
+        int[] resultValues = new int[count];
+        String[] resultStrings = null;
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            resultTimestamps[i] = timestamps[position];
+            resultTypes[i] = types[position];
+            resultValues[i] = values[position];
+            if (types[position] == StatusVariable.TYPE_STRING) {
+                if (resultStrings == null) {
+                    resultStrings = new String[count];
+                }
+                resultStrings[i] = dictionary[values[position]];
+            }
+        }
+        return new StatusVariableSamples(path, count, resultTimestamps, resultTypes, resultValues, resultStrings);
+    }
+
+    private int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (dictionarySize >= 2 * timestamps.length) {
+            compactDictionary();
+        }
+        if (dictionarySize == dictionary.length) {
+            String[] newDictionary = new String[dictionary.length * 2];
+            System.arraycopy(dictionary, 0, newDictionary, 0, dictionarySize);
+            dictionary = newDictionary;
+        }
+        dictionary[dictionarySize] = value;
+        codes.put(value, dictionarySize);
+        return dictionarySize++;
+    }
+
+    /**
+     * Remove strings that are not referenced by buffered samples
+     */
+    private void compactDictionary() {
+        String[] oldDictionary = dictionary;
+        dictionary = new String[oldDictionary.length];
+        dictionarySize = 0;
+        codes.clear();
+        // the oldest sample will be overwritten by the new one
+        for (int i = (size == timestamps.length ? 1 : 0); i < size; i++) {
+            int position = index(i);
+            if (types[position] == StatusVariable.TYPE_STRING) {
+                String value = oldDictionary[values[position]];
+                Integer code = codes.get(value);
+                if (code == null) {
+                    code = dictionarySize;
+                    dictionary[dictionarySize++] = value;
+                    codes.put(value, code);
+                }
+                values[position] = code;
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.history;
+
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
+import org.osgi.service.monitor.StatusVariable;
+
+/**
+ * Receives every <code>StatusVariable</code> value seen by <code>MonitorAdmin</code>:
+ * update notifications from <code>Monitorable</code>s and scheduled jobs measurements.
+ * Is called from producer and scheduler threads, so implementation must be thread-safe and fast.
+ *
+ * @author dmytro.pishchukhin
+ */
+public interface SampleRecorder {
+    /**
+     * Record <code>StatusVariable</code> value
+     *
+     * @param path           <code>StatusVariable</code> path
+     * @param statusVariable <code>StatusVariable</code> value
+     */
+    void record(StatusVariablePath path, StatusVariable statusVariable);
+}
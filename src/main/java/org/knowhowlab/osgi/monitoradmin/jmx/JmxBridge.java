@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.jmx;
+
+import org.knowhowlab.osgi.monitoradmin.LogVisitor;
+import org.knowhowlab.osgi.monitoradmin.api.ExtendedMonitorAdmin;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registers one <code>DynamicMBean</code> per <code>Monitorable</code>.
+ * MBeans are registered and unregistered incrementally as <code>Monitorable</code>
+ * services come and go, attributes are resolved lazily by MBeans themselves.
+ *
+ * @author dmytro.pishchukhin
+ */
+public class JmxBridge {
+    /**
+     * ObjectName domain of Monitorable MBeans
+     */
+    public static final String DOMAIN = "org.knowhowlab.osgi.monitoradmin";
+
+    private final LogVisitor logVisitor;
+    private final MBeanServer server;
+    private final ExtendedMonitorAdmin monitorAdmin;
+    /**
+     * Monitorable ID to registered MBean name. Guarded by <code>this</code>
+     */
+    private final Map<String, ObjectName> names = new HashMap<String, ObjectName>();
+
+    /**
+     * Initialize bridge
+     *
+     * @param logVisitor   logger
+     * @param server       MBean server
+     * @param monitorAdmin <code>MonitorAdmin</code> bound to bridge identity
+     */
+    public JmxBridge(LogVisitor logVisitor, MBeanServer server, ExtendedMonitorAdmin monitorAdmin) {
+        this.logVisitor = logVisitor;
+        this.server = server;
+        this.monitorAdmin = monitorAdmin;
+    }
+
+    /**
+     * Get MBean name of <code>Monitorable</code>
+     *
+     * @param monitorableId <code>Monitorable</code> ID
+     * @return MBean name
+     * @throws JMException invalid ID
+     */
+    public static ObjectName getObjectName(String monitorableId) throws JMException {
+        return new ObjectName(DOMAIN + ":type=Monitorable,name=" + monitorableId);
+    }
+
+    /**
+     * Register MBean of <code>Monitorable</code> if it is not registered yet
+     *
+     * @param monitorableId <code>Monitorable</code> ID
+     */
+    public synchronized void register(String monitorableId) {
+        if (names.containsKey(monitorableId)) {
+            return;
+        }
+        try {
+            ObjectName name = getObjectName(monitorableId);
+            server.registerMBean(new MonitorableMBean(monitorAdmin, monitorableId), name);
+            names.put(monitorableId, name);
+        } catch (JMException e) {
+            logVisitor.warning("Unable to register MBean of Monitorable: " + monitorableId, e);
+        }
+    }
+
+    /**
+     * Unregister MBean of <code>Monitorable</code>
+     *
+     * @param monitorableId <code>Monitorable</code> ID
+     */
+    public synchronized void unregister(String monitorableId) {
+        ObjectName name = names.remove(monitorableId);
+        if (name != null) {
+            unregisterMBean(name);
+        }
+    }
+
+    /**
+     * Unregister all MBeans
+     */
+    public synchronized void close() {
+        for (ObjectName name : names.values()) {
+            unregisterMBean(name);
+        }
+        names.clear();
+    }
+
+    private void unregisterMBean(ObjectName name) {
+        try {
+            server.unregisterMBean(name);
+        } catch (JMException e) {
+            logVisitor.warning("Unable to unregister MBean: " + name, e);
+        }
+    }
+}
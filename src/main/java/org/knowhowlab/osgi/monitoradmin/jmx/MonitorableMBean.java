@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.jmx;
+
+import org.knowhowlab.osgi.monitoradmin.api.ExtendedMonitorAdmin;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableResult;
+import org.osgi.service.monitor.StatusVariable;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * <code>DynamicMBean</code> of one <code>Monitorable</code>: attributes are its StatusVariables.
+ * Nothing is cached or polled: values are read on <code>getAttribute</code>/<code>getAttributes</code>
+ * calls, and <code>getAttributes</code> reads all requested variables with one bulk
+ * {@link ExtendedMonitorAdmin#readStatusVariables(String[])} call
+ *
+ * @author dmytro.pishchukhin
+ */
+class MonitorableMBean implements DynamicMBean {
+    private static final MBeanOperationInfo[] NO_OPERATIONS = new MBeanOperationInfo[0];
+    private static final MBeanNotificationInfo[] NO_NOTIFICATIONS = new MBeanNotificationInfo[0];
+
+    private final ExtendedMonitorAdmin monitorAdmin;
+    private final String monitorableId;
+    private final String pathPrefix;
+
+    MonitorableMBean(ExtendedMonitorAdmin monitorAdmin, String monitorableId) {
+        this.monitorAdmin = monitorAdmin;
+        this.monitorableId = monitorableId;
+        pathPrefix = monitorableId + '/';
+    }
+
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        try {
+            return getValue(monitorAdmin.getStatusVariable(pathPrefix + attribute));
+        } catch (IllegalArgumentException e) {
+            throw new AttributeNotFoundException(attribute);
+        }
+    }
+
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("StatusVariable is read-only: " + attribute.getName());
+    }
+
+    public AttributeList getAttributes(String[] attributes) {
+        String[] paths = new String[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            paths[i] = pathPrefix + attributes[i];
+        }
+        StatusVariableResult[] results = monitorAdmin.readStatusVariables(paths);
+        AttributeList list = new AttributeList(results.length);
+        for (int i = 0; i < results.length; i++) {
+            // unavailable and not permitted attributes are omitted
+            if (results[i].isSuccess()) {
+                list.add(new Attribute(attributes[i], getValue(results[i].getStatusVariable())));
+            }
+        }
+        return list;
+    }
+
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    /**
+     * Attributes list is built from StatusVariable names on every call,
+     * StatusVariables values are not read
+     *
+     * @return MBean info
+     */
+    public MBeanInfo getMBeanInfo() {
+        String[] names;
+        try {
+            names = monitorAdmin.getStatusVariableNames(monitorableId);
+        } catch (IllegalArgumentException e) {
+            // Monitorable is being unregistered
+            names = new String[0];
+        }
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[names.length];
+        for (int i = 0; i < names.length; i++) {
+            attributes[i] = new MBeanAttributeInfo(names[i], Object.class.getName(),
+                    pathPrefix + names[i], true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "Monitorable " + monitorableId, attributes,
+                null, NO_OPERATIONS, NO_NOTIFICATIONS);
+    }
+
+    private static Object getValue(StatusVariable statusVariable) {
+        switch (statusVariable.getType()) {
+            case StatusVariable.TYPE_INTEGER:
+                return statusVariable.getInteger();
+            case StatusVariable.TYPE_FLOAT:
+                return statusVariable.getFloat();
+            case StatusVariable.TYPE_BOOLEAN:
+                return statusVariable.getBoolean();
+            default:
+                return statusVariable.getString();
+        }
+    }
+}
@@ -40,7 +40,7 @@ public abstract class AbstractMonitoringJob implements MonitoringJob {
     // list of monitoring StatusVariables
     Set<String> statusVariablePaths = new HashSet<String>();
     // job state
-    boolean isRunning;
+    volatile boolean isRunning;
     int schedule = 0;
     int count = 0;
 
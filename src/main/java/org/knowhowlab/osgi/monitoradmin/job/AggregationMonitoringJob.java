@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.job;
+
+import org.knowhowlab.osgi.monitoradmin.LogVisitor;
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregation MonitoringJob. Accumulates numeric updates of StatusVariables in fixed or
+ * sliding time windows and fires one event per window with min, max, mean, sum and count.
+ * Boolean values are accumulated as 0 and 1, string values are ignored.
+ *
+ * @author dmytro.pishchukhin
+ */
+public class AggregationMonitoringJob extends AbstractMonitoringJob implements Runnable {
+    /**
+     * Max number of slides in window. Every StatusVariable keeps one accumulator bucket per slide
+     */
+    public static final int MAX_SLIDES_PER_WINDOW = 3600;
+
+    // is not modified after initialization, accumulators are updated concurrently by producers
+    private final Map<String, WindowAccumulator> accumulators = new HashMap<String, WindowAccumulator>();
+    private final Map<String, StatusVariablePath> parsedPaths = new HashMap<String, StatusVariablePath>();
+    private final long window;
+    private final long slide;
+    private final MonitoringJobScheduler scheduler;
+    // is set by start(), null - job is not started yet
+    private volatile ScheduledFuture<?> future;
+    // accessed by scheduler thread only
+    private int windowsEmitted;
+
+    /**
+     * Create aggregation job
+     *
+     * @param scheduler           jobs scheduler
+     * @param visitor             jobs visitor
+     * @param logVisitor          logger
+     * @param initiator           job initiator
+     * @param statusVariablePaths StatusVariables paths
+     * @param window              window length in milliseconds
+     * @param slide               time in milliseconds between window events. Must divide <code>window</code>,
+     *                            equals to <code>window</code> for fixed windows
+     * @param count               number of windows, 0 - unlimited
+     * @throws IllegalArgumentException <code>window / slide</code> is greater than {@link #MAX_SLIDES_PER_WINDOW}
+     */
+    public AggregationMonitoringJob(MonitoringJobScheduler scheduler, MonitoringJobVisitor visitor,
+                                    LogVisitor logVisitor, String initiator, String[] statusVariablePaths,
+                                    long window, long slide, int count) {
+        super(visitor, logVisitor, initiator, statusVariablePaths,
+                (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(slide)), count);
+        if (window / slide > MAX_SLIDES_PER_WINDOW) {
+            throw new IllegalArgumentException("Too many slides in window: " + window / slide
+                    + ", max: " + MAX_SLIDES_PER_WINDOW);
+        }
+        this.scheduler = scheduler;
+        this.window = window;
+        this.slide = slide;
+        for (String path : this.statusVariablePaths) {
+            accumulators.put(path, new WindowAccumulator((int) (window / slide)));
+            parsedPaths.put(path, StatusVariablePath.parse(path));
+        }
+    }
+
+    /**
+     * Schedule window events. Is called once after job is constructed and registered
+     */
+    public void start() {
+        ScheduledFuture<?> scheduled = scheduler.scheduleAtFixedRate(this, slide, slide, TimeUnit.MILLISECONDS);
+        future = scheduled;
+        if (!isRunning) {
+            // job is canceled before future is assigned
+            scheduled.cancel(false);
+        }
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    public long getSlide() {
+        return slide;
+    }
+
+    @Override
+    public void cancel() {
+        isRunning = false;
+        ScheduledFuture<?> scheduled = future;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        if (logVisitor.isInfoEnabled()) {
+            logVisitor.info("Job Canceled: " + this, null);
+        }
+    }
+
+    @Override
+    public boolean isHandleUpdateEvent(String path) {
+        return isRunning() && statusVariablePaths.contains(path);
+    }
+
+    @Override
+    public void handleUpdateEvent(String monitorableId, StatusVariable statusVariable) {
+        WindowAccumulator accumulator = accumulators.get(StatusVariablePath.of(monitorableId, statusVariable.getID()).getPath());
+        if (accumulator == null) {
+            return;
+        }
+        switch (statusVariable.getType()) {
+            case StatusVariable.TYPE_INTEGER:
+                accumulator.add(statusVariable.getInteger());
+                break;
+            case StatusVariable.TYPE_FLOAT:
+                accumulator.add(statusVariable.getFloat());
+                break;
+            case StatusVariable.TYPE_BOOLEAN:
+                accumulator.add(statusVariable.getBoolean() ? 1 : 0);
+                break;
+        }
+    }
+
+    public void run() {
+        if (!isRunning()) {
+            return;
+        }
+        long windowEnd = System.currentTimeMillis();
+        long windowStart = windowEnd - window;
+        for (Map.Entry<String, WindowAccumulator> entry : accumulators.entrySet()) {
+            WindowAggregate aggregate = entry.getValue().slide(windowStart, windowEnd);
+            if (aggregate != null) {
+                StatusVariablePath path = parsedPaths.get(entry.getKey());
+                visitor.fireAggregationEvent(path.getMonitorableId(), path.getStatusVariableId(), aggregate, getInitiator());
+            }
+        }
+        if (count > 0 && ++windowsEmitted >= count) {
+            stop();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{{initiator='%s', statusVariablePaths=%s, window=%s, slide=%s, count=%s}",
+                getClass().getSimpleName(), getInitiator(), statusVariablePaths, window, slide, count);
+    }
+}
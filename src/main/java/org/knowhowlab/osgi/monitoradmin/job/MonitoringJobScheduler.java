@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.job;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared scheduler of <code>ScheduledMonitoringJob</code>s.
+ * All jobs are executed by small fixed pool of workers, so number of threads
+ * does not depend on number of running jobs.
+ * <p/>
+ * Scheduled jobs read StatusVariables of different Monitorables in parallel on shared bounded
+ * pool of collectors, each read is limited by read timeout.
+ * <p/>
+ * With phase spreading scheduled jobs of the same period are started with deterministic offsets within
+ * the period, so jobs started together do not measure at the same instant.
+ *
+ * @author dmytro.pishchukhin
+ */
+public class MonitoringJobScheduler {
+    /**
+     * Default number of scheduler workers
+     */
+    public static final int DEFAULT_POOL_SIZE = 2;
+    /**
+     * Default number of collectors
+     */
+    public static final int DEFAULT_COLLECTOR_POOL_SIZE = 4;
+    /**
+     * Default StatusVariables read timeout in milliseconds
+     */
+    public static final long DEFAULT_READ_TIMEOUT = 5000;
+    /**
+     * Max number of queued reads
+     */
+    private static final int COLLECTOR_QUEUE_CAPACITY = 1024;
+    /**
+     * Window of measurements that are counted as concurrent ticks
+     */
+    private static final long TICK_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ScheduledThreadPoolExecutor executor;
+    /**
+     * Collectors pool. <code>null</code> - StatusVariables are read sequentially by scheduler workers
+     */
+    private final ThreadPoolExecutor collector;
+    private final long readTimeoutNanos;
+    private final boolean phaseSpread;
+    // measurements started in the current tick window. Guarded by this
+    private long tickWindow;
+    private int tickCount;
+    private int tickPeak;
+
+    /**
+     * Initialize scheduler with default collectors pool
+     *
+     * @param poolSize number of workers
+     */
+    public MonitoringJobScheduler(int poolSize) {
+        this(poolSize, DEFAULT_COLLECTOR_POOL_SIZE, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * Initialize scheduler
+     *
+     * @param poolSize          number of workers
+     * @param collectorPoolSize number of collectors, 0 - StatusVariables are read sequentially
+     * @param readTimeout       StatusVariables read timeout in milliseconds
+     */
+    public MonitoringJobScheduler(int poolSize, int collectorPoolSize, long readTimeout) {
+        this(poolSize, collectorPoolSize, readTimeout, false);
+    }
+
+    /**
+     * Initialize scheduler
+     *
+     * @param poolSize          number of workers
+     * @param collectorPoolSize number of collectors, 0 - StatusVariables are read sequentially
+     * @param readTimeout       StatusVariables read timeout in milliseconds
+     * @param phaseSpread       <code>true</code> - scheduled jobs are started with offset within their period
+     */
+    public MonitoringJobScheduler(int poolSize, int collectorPoolSize, long readTimeout, boolean phaseSpread) {
+        executor = new ScheduledThreadPoolExecutor(Math.max(1, poolSize), new SchedulerThreadFactory("MonitorAdmin Scheduler-"));
+        if (collectorPoolSize > 0) {
+            collector = new ThreadPoolExecutor(collectorPoolSize, collectorPoolSize, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(COLLECTOR_QUEUE_CAPACITY),
+                    new SchedulerThreadFactory("MonitorAdmin Collector-"));
+            collector.allowCoreThreadTimeOut(true);
+        } else {
+            collector = null;
+        }
+        readTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, readTimeout));
+        this.phaseSpread = phaseSpread;
+    }
+
+    public boolean isPhaseSpread() {
+        return phaseSpread;
+    }
+
+    /**
+     * Get offset of the first measurement of scheduled job. Offset is a hash of job
+     * initiator and StatusVariables paths, so the same job gets the same offset
+     *
+     * @param initiator job initiator
+     * @param paths     StatusVariables paths
+     * @param period    time in milliseconds between measurements
+     * @return offset in milliseconds within <code>[0, period)</code>, 0 if phase spreading is disabled
+     */
+    long getPhaseOffset(String initiator, Collection<String> paths, long period) {
+        if (!phaseSpread || period <= 1) {
+            return 0;
+        }
+        int hash = 31 * initiator.hashCode() + paths.hashCode();
+        // spread close hashes of similar jobs over the whole range
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return ((hash & 0xffffffffL) * period) >>> 32;
+    }
+
+    /**
+     * Register start of scheduled job measurement
+     */
+    synchronized void tickStarted() {
+        long window = System.nanoTime() / TICK_WINDOW_NANOS;
+        if (window != tickWindow) {
+            tickWindow = window;
+            tickCount = 0;
+        }
+        if (++tickCount > tickPeak) {
+            tickPeak = tickCount;
+        }
+    }
+
+    /**
+     * Get max number of measurements started within 100 milliseconds
+     *
+     * @return peak of concurrent ticks
+     */
+    public synchronized int getTickPeak() {
+        return tickPeak;
+    }
+
+    /**
+     * Reset peak of concurrent ticks
+     */
+    public synchronized void resetTickPeak() {
+        tickPeak = 0;
+        tickCount = 0;
+    }
+
+    /**
+     * Check if StatusVariables are read by collectors pool
+     *
+     * @return <code>true</code> - collectors pool is available
+     */
+    public boolean isParallelCollection() {
+        return collector != null;
+    }
+
+    /**
+     * Get StatusVariables read timeout
+     *
+     * @return timeout in nanoseconds
+     */
+    public long getReadTimeoutNanos() {
+        return readTimeoutNanos;
+    }
+
+    /**
+     * Submit read task to collectors pool
+     *
+     * @param task read task
+     * @param <T>  result type
+     * @return task future
+     * @throws RejectedExecutionException collectors queue is full or scheduler is stopped
+     */
+    public <T> Future<T> collect(Callable<T> task) throws RejectedExecutionException {
+        return collector.submit(task);
+    }
+
+    /**
+     * Schedule periodic task with fixed delay between the end of one execution and start of the next
+     *
+     * @param task         task
+     * @param initialDelay delay of the first execution
+     * @param delay        delay between executions
+     * @param unit         time unit
+     * @return task future. Is used to cancel task
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        return executor.scheduleWithFixedDelay(task, initialDelay, delay, unit);
+    }
+
+    /**
+     * Schedule periodic task with fixed rate
+     *
+     * @param task         task
+     * @param initialDelay delay of the first execution
+     * @param period       period between starts of executions
+     * @param unit         time unit
+     * @return task future. Is used to cancel task
+     */
+    ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return executor.scheduleAtFixedRate(task, initialDelay, period, unit);
+    }
+
+    /**
+     * Schedule one-shot task
+     *
+     * @param task  task
+     * @param delay execution delay
+     * @param unit  time unit
+     * @return task future. Is used to cancel task
+     */
+    ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return executor.schedule(task, delay, unit);
+    }
+
+    /**
+     * Stop scheduler. Scheduled tasks are cancelled
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        if (collector != null) {
+            collector.shutdownNow();
+        }
+    }
+
+    private static class SchedulerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final String prefix;
+
+        private SchedulerThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
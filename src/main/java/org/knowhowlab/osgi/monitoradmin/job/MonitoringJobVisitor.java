@@ -17,6 +17,7 @@
 
 package org.knowhowlab.osgi.monitoradmin.job;
 
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
 import org.osgi.service.monitor.StatusVariable;
 
 /**
@@ -50,4 +51,34 @@ public interface MonitoringJobVisitor {
      * @param initiator initiator
      */
     void fireEvent(String monitorableId, StatusVariable statusVariable, String initiator);
+
+    /**
+     * Record measured StatusVariable value
+     * @param path StatusVariable path
+     * @param statusVariable StatusVariable value
+     */
+    void recordSample(StatusVariablePath path, StatusVariable statusVariable);
+
+    /**
+     * Fire event with window aggregate of StatusVariable
+     * @param monitorableId monitorable id
+     * @param statusVariableId StatusVariable id
+     * @param aggregate window aggregate
+     * @param initiator initiator
+     */
+    void fireAggregationEvent(String monitorableId, String statusVariableId, WindowAggregate aggregate, String initiator);
+
+    /**
+     * Fire event that StatusVariable read has timed out. Event has no value
+     * @param monitorableId monitorable id
+     * @param statusVariableId StatusVariable id
+     * @param initiator initiator
+     */
+    void fireTimeoutEvent(String monitorableId, String statusVariableId, String initiator);
+
+    /**
+     * Record completed measurement of scheduled job
+     * @param startTime measurement start time, <code>System.nanoTime()</code>
+     */
+    void measurementCompleted(long startTime);
 }
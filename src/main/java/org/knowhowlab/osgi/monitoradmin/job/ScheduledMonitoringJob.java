@@ -18,34 +18,232 @@
 package org.knowhowlab.osgi.monitoradmin.job;
 
 import org.knowhowlab.osgi.monitoradmin.LogVisitor;
+import org.knowhowlab.osgi.monitoradmin.api.MonitorableUnavailableException;
 import org.osgi.service.monitor.StatusVariable;
 import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Scheduled MonitoringJob
+ * Scheduled MonitoringJob.
+ * <p/>
+ * StatusVariables are grouped by Monitorable and groups are read in parallel by scheduler collectors.
+ * If group is not read within scheduler read timeout, timeout events are fired for its
+ * StatusVariables, and the group is not read again until the slow read is completed.
+ * Timeout events are fired for StatusVariables of unavailable Monitorables as well.
+ * <p/>
+ * Jobs with schedule in seconds are executed with fixed delay between measurements.
+ * Fixed-rate jobs are executed on <code>System.nanoTime()</code> deadlines with millisecond period,
+ * so collection time does not shift next measurements. Measurement that is not started within
+ * its period is skipped and counted as overrun.
+ * <p/>
+ * Aligned fixed-rate jobs start at wall-clock multiples of period, other jobs start with
+ * scheduler phase offset.
  *
  * @author dmytro.pishchukhin
  */
 public class ScheduledMonitoringJob extends AbstractMonitoringJob implements Runnable {
     private int measurementsTaken = 0;
-    private ExecutorService executorService;
+    // paths are parsed once, not on every measurement
+    private final StatusVariablePath[] parsedPaths;
+    // paths indexes grouped by Monitorable
+    private final int[][] groups;
+    // in-flight reads per group. Accessed by scheduler thread only
+    private final List<Future<StatusVariable[]>> reads;
+    // values of the current measurement, null - read has timed out. Accessed by scheduler thread only
+    private final StatusVariable[] values;
+    private final AtomicLong timedOutReads = new AtomicLong();
+    private final MonitoringJobScheduler scheduler;
+    // is set by start(), null - job is not started yet
+    private volatile ScheduledFuture<?> future;
+    // time in milliseconds between measurements
+    private final long period;
+    private final boolean fixedRate;
+    private final boolean aligned;
+    // fixed-rate mode: time of the first measurement and period in nanoseconds. Is set by start()
+    private long anchorNanos;
+    private final long periodNanos;
+    // fixed-rate mode: index of the last measured period. Accessed by scheduler thread only
+    private long lastTick = -1;
+    private final AtomicLong overruns = new AtomicLong();
+    // change-only mode: events of unchanged values are suppressed
+    private final boolean changeOnly;
+    // max time in nanoseconds without event in change-only mode, 0 - unlimited
+    private final long heartbeatNanos;
+    // last emitted values per path. Accessed by scheduler thread only
+    private final int[] lastTypes;
+    private final int[] lastValues;
+    private final String[] lastStrings;
+    private final long[] lastEmitTimes;
+    private final AtomicLong suppressedEvents = new AtomicLong();
 
-    public ScheduledMonitoringJob(MonitoringJobVisitor visitor, LogVisitor logVisitor, String initiator,
-                                  String[] statusVariablePaths, int schedule, int count) {
+    public ScheduledMonitoringJob(MonitoringJobScheduler scheduler, MonitoringJobVisitor visitor, LogVisitor logVisitor,
+                                  String initiator, String[] statusVariablePaths, int schedule, int count) {
+        this(scheduler, visitor, logVisitor, initiator, statusVariablePaths, schedule, count, false, 0);
+    }
+
+    /**
+     * Create scheduled job
+     *
+     * @param scheduler           jobs scheduler
+     * @param visitor             jobs visitor
+     * @param logVisitor          logger
+     * @param initiator           job initiator
+     * @param statusVariablePaths StatusVariables paths
+     * @param schedule            time in seconds between measurements
+     * @param count               number of measurements, 0 - unlimited
+     * @param changeOnly          <code>true</code> - fire events only when value is changed since the last event
+     * @param heartbeat           time in seconds after which event is fired even if value is not changed,
+     *                            0 - no heartbeat. Is used only in change-only mode
+     */
+    public ScheduledMonitoringJob(MonitoringJobScheduler scheduler, MonitoringJobVisitor visitor, LogVisitor logVisitor,
+                                  String initiator, String[] statusVariablePaths, int schedule, int count,
+                                  boolean changeOnly, int heartbeat) {
+        this(scheduler, visitor, logVisitor, initiator, statusVariablePaths, schedule,
+                TimeUnit.SECONDS.toMillis(schedule), count, false, false, changeOnly, heartbeat);
+    }
+
+    /**
+     * Create fixed-rate scheduled job
+     *
+     * @param scheduler           jobs scheduler
+     * @param visitor             jobs visitor
+     * @param logVisitor          logger
+     * @param initiator           job initiator
+     * @param statusVariablePaths StatusVariables paths
+     * @param period              time in milliseconds between measurements
+     * @param count               number of measurements, 0 - unlimited
+     * @param aligned             <code>true</code> - measurements are aligned to wall-clock multiples of period
+     */
+    public ScheduledMonitoringJob(MonitoringJobScheduler scheduler, MonitoringJobVisitor visitor, LogVisitor logVisitor,
+                                  String initiator, String[] statusVariablePaths, long period, int count,
+                                  boolean aligned) {
+        this(scheduler, visitor, logVisitor, initiator, statusVariablePaths,
+                (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(period)), period, count, true, aligned, false, 0);
+    }
+
+    private ScheduledMonitoringJob(MonitoringJobScheduler scheduler, MonitoringJobVisitor visitor, LogVisitor logVisitor,
+                                   String initiator, String[] statusVariablePaths, int schedule, long period, int count,
+                                   boolean fixedRate, boolean aligned, boolean changeOnly, int heartbeat) {
         super(visitor, logVisitor, initiator, statusVariablePaths, schedule, count);
-        executorService = Executors.newSingleThreadExecutor();
-        executorService.submit(this);
+        parsedPaths = new StatusVariablePath[this.statusVariablePaths.size()];
+        int i = 0;
+        for (String path : this.statusVariablePaths) {
+            parsedPaths[i++] = StatusVariablePath.parse(path);
+        }
+        groups = groupByMonitorable(parsedPaths);
+        reads = new ArrayList<Future<StatusVariable[]>>(groups.length);
+        for (i = 0; i < groups.length; i++) {
+            reads.add(null);
+        }
+        values = new StatusVariable[parsedPaths.length];
+        this.scheduler = scheduler;
+        this.changeOnly = changeOnly;
+        this.heartbeatNanos = TimeUnit.SECONDS.toNanos(Math.max(0, heartbeat));
+        lastTypes = new int[changeOnly ? parsedPaths.length : 0];
+        Arrays.fill(lastTypes, -1);
+        lastValues = new int[lastTypes.length];
+        lastStrings = new String[lastTypes.length];
+        lastEmitTimes = new long[lastTypes.length];
+        this.period = period;
+        this.fixedRate = fixedRate;
+        this.aligned = aligned;
+        periodNanos = TimeUnit.MILLISECONDS.toNanos(period);
+    }
+
+    /**
+     * Schedule measurements. Is called once after job is constructed and registered,
+     * so the first measurement could not stop the job before its future is known
+     */
+    public void start() {
+        ScheduledFuture<?> scheduled;
+        if (fixedRate) {
+            long initialDelay;
+            if (aligned) {
+                initialDelay = TimeUnit.MILLISECONDS.toNanos((period - System.currentTimeMillis() % period) % period);
+            } else {
+                initialDelay = TimeUnit.MILLISECONDS.toNanos(scheduler.getPhaseOffset(getInitiator(), statusVariablePaths, period));
+            }
+            anchorNanos = System.nanoTime() + initialDelay;
+            scheduled = scheduler.scheduleAtFixedRate(this, initialDelay, periodNanos, TimeUnit.NANOSECONDS);
+        } else {
+            scheduled = scheduler.scheduleWithFixedDelay(this, scheduler.getPhaseOffset(getInitiator(), statusVariablePaths, period),
+                    period, TimeUnit.MILLISECONDS);
+        }
+        future = scheduled;
+        if (!isRunning) {
+            // job is canceled before future is assigned
+            scheduled.cancel(false);
+        }
+    }
+
+    public boolean isFixedRate() {
+        return fixedRate;
+    }
+
+    /**
+     * Get time between measurements
+     *
+     * @return period in milliseconds
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    /**
+     * Get number of measurements skipped by fixed-rate job because previous measurement
+     * has not been completed within its period
+     *
+     * @return number of overruns
+     */
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+    public boolean isChangeOnly() {
+        return changeOnly;
+    }
+
+    /**
+     * Get number of events suppressed in change-only mode
+     *
+     * @return number of suppressed events
+     */
+    public long getSuppressedEvents() {
+        return suppressedEvents.get();
+    }
+
+    /**
+     * Get number of StatusVariables reads that have timed out or have been rejected
+     *
+     * @return number of timed out reads
+     */
+    public long getTimedOutReads() {
+        return timedOutReads.get();
     }
 
     @Override
     public void cancel() {
         isRunning = false;
-        executorService.shutdownNow();
-        logVisitor.info("Job Canceled: " + this, null);
+        ScheduledFuture<?> scheduled = future;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        if (logVisitor.isInfoEnabled()) {
+            logVisitor.info("Job Canceled: " + this, null);
+        }
     }
 
     @Override
@@ -59,27 +257,241 @@ public class ScheduledMonitoringJob extends AbstractMonitoringJob implements Run
     }
 
     public void run() {
-        while (isRunning()) {
-            // run loop to fetch StatusVariables values and fire events
-            if (count == 0 || ++measurementsTaken < count) {
-                try {
-                    for (String path : statusVariablePaths) {
-                        StatusVariablePath statusVariablePath = new StatusVariablePath(path);
-                        StatusVariable statusVariable = visitor.getStatusVariable(statusVariablePath.getPath());
-                        visitor.fireEvent(statusVariablePath.getMonitorableId(), statusVariable, getInitiator());
+        if (!isRunning()) {
+            return;
+        }
+        if (fixedRate && !nextTick()) {
+            return;
+        }
+        // fetch StatusVariables values and fire events
+        if (count == 0 || ++measurementsTaken < count) {
+            scheduler.tickStarted();
+            long start = System.nanoTime();
+            try {
+                if (!collect()) {
+                    return;
+                }
+                for (int i = 0; i < parsedPaths.length; i++) {
+                    StatusVariablePath statusVariablePath = parsedPaths[i];
+                    StatusVariable statusVariable = values[i];
+                    values[i] = null;
+                    if (statusVariable == null) {
+                        timedOutReads.incrementAndGet();
+                        visitor.fireTimeoutEvent(statusVariablePath.getMonitorableId(),
+                                statusVariablePath.getStatusVariableId(), getInitiator());
+                        continue;
                     }
-                    try {
-                        TimeUnit.SECONDS.sleep(schedule);
-                    } catch (InterruptedException e) {
-                        return;
+                    if (!changeOnly || isEventRequired(i, statusVariable)) {
+                        visitor.fireEvent(statusVariablePath.getMonitorableId(), statusVariable, getInitiator());
+                    } else {
+                        suppressedEvents.incrementAndGet();
                     }
-                } catch (IllegalArgumentException e) {
-                    // it seems that one StatusVariable is unregistered
-                    stop();
+                    visitor.recordSample(statusVariablePath, statusVariable);
                 }
-            } else {
+            } catch (IllegalArgumentException e) {
+                // it seems that one StatusVariable is unregistered
                 stop();
+            } finally {
+                visitor.measurementCompleted(start);
+            }
+        } else {
+            stop();
+        }
+    }
+
+    /**
+     * Check that fixed-rate execution is the first one in the current period. Executor runs
+     * missed executions back-to-back after overrun, such executions are skipped
+     *
+     * @return <code>true</code> if measurement should be taken
+     */
+    private boolean nextTick() {
+        long tick = (System.nanoTime() - anchorNanos) / periodNanos;
+        if (tick <= lastTick) {
+            return false;
+        }
+        long missed = tick - lastTick - 1;
+        if (missed > 0) {
+            overruns.addAndGet(missed);
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("Job measurements are skipped: " + missed + ", " + this, null);
+            }
+        }
+        lastTick = tick;
+        return true;
+    }
+
+    /**
+     * Read values of all groups. Groups are submitted to collectors at once and
+     * results are awaited till the common deadline
+     *
+     * @return <code>false</code> if scheduler thread is interrupted
+     * @throws IllegalArgumentException one of StatusVariables is unregistered
+     */
+    private boolean collect() {
+        if (!scheduler.isParallelCollection()) {
+            for (int[] group : groups) {
+                read(group);
+            }
+            return true;
+        }
+        long deadline = System.nanoTime() + scheduler.getReadTimeoutNanos();
+        for (int i = 0; i < groups.length; i++) {
+            Future<StatusVariable[]> read = reads.get(i);
+            // slow read of the previous measurement is still awaited
+            if (read == null || read.isDone()) {
+                try {
+                    reads.set(i, scheduler.collect(new GroupRead(groups[i])));
+                } catch (RejectedExecutionException e) {
+                    // collectors are saturated - read by scheduler thread
+                    reads.set(i, null);
+                }
+            }
+        }
+        for (int i = 0; i < groups.length; i++) {
+            Future<StatusVariable[]> read = reads.get(i);
+            if (read == null) {
+                read(groups[i]);
+                continue;
+            }
+            try {
+                StatusVariable[] groupValues = read.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                reads.set(i, null);
+                for (int j = 0; j < groups[i].length; j++) {
+                    values[groups[i][j]] = groupValues[j];
+                }
+            } catch (TimeoutException e) {
+                if (logVisitor.isDebugEnabled()) {
+                    logVisitor.debug("StatusVariables read has timed out: " + parsedPaths[groups[i][0]].getMonitorableId(), null);
+                }
+            } catch (ExecutionException e) {
+                reads.set(i, null);
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw (Error) cause;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Arrays.fill(values, null);
+                return false;
             }
         }
+        return true;
+    }
+
+    /**
+     * Read StatusVariables of one group into current measurement values
+     *
+     * @param group paths indexes
+     */
+    private void read(int[] group) {
+        for (int index : group) {
+            values[index] = read(parsedPaths[index]);
+        }
+    }
+
+    /**
+     * Read StatusVariable
+     *
+     * @param path StatusVariable path
+     * @return value or <code>null</code> if Monitorable is unavailable
+     * @throws IllegalArgumentException StatusVariable is unregistered
+     */
+    private StatusVariable read(StatusVariablePath path) {
+        try {
+            return visitor.getStatusVariable(path.getPath());
+        } catch (MonitorableUnavailableException e) {
+            if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("StatusVariable is unavailable: " + path.getPath(), e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Group paths indexes by Monitorable ID
+     *
+     * @param paths paths
+     * @return indexes groups in order of first path of the group
+     */
+    private static int[][] groupByMonitorable(StatusVariablePath[] paths) {
+        Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+        for (int i = 0; i < paths.length; i++) {
+            List<Integer> group = groups.get(paths[i].getMonitorableId());
+            if (group == null) {
+                group = new ArrayList<Integer>();
+                groups.put(paths[i].getMonitorableId(), group);
+            }
+            group.add(i);
+        }
+        int[][] result = new int[groups.size()][];
+        int i = 0;
+        for (List<Integer> group : groups.values()) {
+            result[i] = new int[group.size()];
+            for (int j = 0; j < result[i].length; j++) {
+                result[i][j] = group.get(j);
+            }
+            i++;
+        }
+        return result;
+    }
+
+    /**
+     * Reads StatusVariables of one Monitorable on collector thread
+     */
+    private class GroupRead implements Callable<StatusVariable[]> {
+        private final int[] group;
+
+        private GroupRead(int[] group) {
+            this.group = group;
+        }
+
+        public StatusVariable[] call() {
+            StatusVariable[] result = new StatusVariable[group.length];
+            for (int i = 0; i < group.length; i++) {
+                result[i] = read(parsedPaths[group[i]]);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Check if value is changed since the last event or heartbeat is expired.
+     * Remembers value if event is required
+     *
+     * @param index          path index
+     * @param statusVariable measured value
+     * @return <code>true</code> if event should be fired
+     */
+    private boolean isEventRequired(int index, StatusVariable statusVariable) {
+        long now = System.nanoTime();
+        int type = statusVariable.getType();
+        int value = 0;
+        String string = null;
+        switch (type) {
+            case StatusVariable.TYPE_INTEGER:
+                value = statusVariable.getInteger();
+                break;
+            case StatusVariable.TYPE_FLOAT:
+                value = Float.floatToIntBits(statusVariable.getFloat());
+                break;
+            case StatusVariable.TYPE_BOOLEAN:
+                value = statusVariable.getBoolean() ? 1 : 0;
+                break;
+            case StatusVariable.TYPE_STRING:
+                string = statusVariable.getString();
+                break;
+        }
+        boolean changed = lastTypes[index] != type || lastValues[index] != value
+                || (string == null ? lastStrings[index] != null : !string.equals(lastStrings[index]));
+        if (!changed && (heartbeatNanos == 0 || now - lastEmitTimes[index] < heartbeatNanos)) {
+            return false;
+        }
+        lastTypes[index] = type;
+        lastValues[index] = value;
+        lastStrings[index] = string;
+        lastEmitTimes[index] = now;
+        return true;
     }
 }
@@ -23,6 +23,10 @@ import org.osgi.service.monitor.StatusVariable;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Subscription MonitoringJob
@@ -30,21 +34,74 @@ import java.util.Map;
  * @author dmytro.pishchukhin
  */
 public class SubscriptionMonitoringJob extends AbstractMonitoringJob {
-    private Map<String, Integer> countStatesMap = new HashMap<String, Integer>();
+    // is not modified after initialization, counters are updated concurrently by producers
+    private final Map<String, AtomicInteger> countStatesMap = new HashMap<String, AtomicInteger>();
+    // is not modified after initialization, empty if job is not rate limited
+    private final Map<String, RateLimiter> rateLimiters = new HashMap<String, RateLimiter>();
+    private final MonitoringJobScheduler scheduler;
+    private final long minIntervalNanos;
 
     public SubscriptionMonitoringJob(MonitoringJobVisitor visitor, LogVisitor logVisitor, String initiator,
                                      String[] statusVariablePaths, int count) {
+        this(null, visitor, logVisitor, initiator, statusVariablePaths, count, 0);
+    }
+
+    /**
+     * Create subscription job
+     *
+     * @param scheduler           scheduler of delayed events, is not used if <code>minInterval</code> is 0
+     * @param visitor             jobs visitor
+     * @param logVisitor          logger
+     * @param initiator           job initiator
+     * @param statusVariablePaths StatusVariables paths
+     * @param count               number of updates between events
+     * @param minInterval         min time in milliseconds between events of the same path, 0 - unlimited.
+     *                            Updates during the interval are coalesced: the latest one is fired
+     *                            at the end of the interval
+     */
+    public SubscriptionMonitoringJob(MonitoringJobScheduler scheduler, MonitoringJobVisitor visitor,
+                                     LogVisitor logVisitor, String initiator, String[] statusVariablePaths,
+                                     int count, long minInterval) {
         super(visitor, logVisitor, initiator, statusVariablePaths, count);
+        this.scheduler = scheduler;
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, minInterval));
         // initialize counts map
         for (String statusVariablePath : statusVariablePaths) {
-            countStatesMap.put(statusVariablePath, 0);
+            countStatesMap.put(statusVariablePath, new AtomicInteger());
+            if (minIntervalNanos > 0) {
+                rateLimiters.put(statusVariablePath, new RateLimiter(StatusVariablePath.parse(statusVariablePath)));
+            }
         }
     }
 
+    /**
+     * Get min time between events of the same path
+     *
+     * @return interval in milliseconds, 0 - unlimited
+     */
+    public long getMinInterval() {
+        return TimeUnit.NANOSECONDS.toMillis(minIntervalNanos);
+    }
+
+    /**
+     * Get number of updates that were coalesced by rate limit
+     *
+     * @return number of coalesced updates
+     */
+    public long getCoalescedEvents() {
+        long result = 0;
+        for (RateLimiter rateLimiter : rateLimiters.values()) {
+            result += rateLimiter.coalesced.get();
+        }
+        return result;
+    }
+
     @Override
     public void cancel() {
         isRunning = false;
-        logVisitor.info("Job Canceled: " + this, null);
+        if (logVisitor.isInfoEnabled()) {
+            logVisitor.info("Job Canceled: " + this, null);
+        }
     }
 
     @Override
@@ -54,13 +111,89 @@ public class SubscriptionMonitoringJob extends AbstractMonitoringJob {
 
     @Override
     public void handleUpdateEvent(String monitorableId, StatusVariable statusVariable) {
-        StatusVariablePath path = new StatusVariablePath(monitorableId, statusVariable.getID());
-        int statusVariableChangesCount = countStatesMap.get(path.getPath());
-        if ((statusVariableChangesCount + 1) == count) {
-            visitor.fireEvent(monitorableId, statusVariable, getInitiator());
-            countStatesMap.put(path.getPath(), 0);
-        } else {
-            countStatesMap.put(path.getPath(), statusVariableChangesCount + 1);
+        StatusVariablePath path = StatusVariablePath.of(monitorableId, statusVariable.getID());
+        AtomicInteger statusVariableChangesCount = countStatesMap.get(path.getPath());
+        while (true) {
+            int changesCount = statusVariableChangesCount.get();
+            int newChangesCount = (changesCount + 1) == count ? 0 : changesCount + 1;
+            if (statusVariableChangesCount.compareAndSet(changesCount, newChangesCount)) {
+                if (newChangesCount == 0) {
+                    if (minIntervalNanos == 0) {
+                        visitor.fireEvent(monitorableId, statusVariable, getInitiator());
+                    } else {
+                        rateLimiters.get(path.getPath()).offer(statusVariable);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Per-path min interval limiter. Fires update immediately if interval since the last event is expired,
+     * otherwise keeps the latest update and fires it at the end of interval.
+     * Fire decisions and events of the path are serialized by the limiter lock, so an older update
+     * is never fired after a newer one
+     */
+    private class RateLimiter implements Runnable {
+        private final StatusVariablePath path;
+        private final AtomicLong coalesced = new AtomicLong();
+        // guarded by this
+        private long lastEventTime = System.nanoTime() - minIntervalNanos;
+        private StatusVariable pending;
+        private boolean flushScheduled;
+
+        private RateLimiter(StatusVariablePath path) {
+            this.path = path;
+        }
+
+        private synchronized void offer(StatusVariable statusVariable) {
+            long now = System.nanoTime();
+            if (now - lastEventTime >= minIntervalNanos) {
+                lastEventTime = now;
+                // older pending update must not be fired after this one
+                if (pending != null) {
+                    pending = null;
+                    coalesced.incrementAndGet();
+                }
+                visitor.fireEvent(path.getMonitorableId(), statusVariable, getInitiator());
+                return;
+            }
+            if (pending != null) {
+                coalesced.incrementAndGet();
+            }
+            pending = statusVariable;
+            if (!flushScheduled) {
+                scheduleFlush(lastEventTime + minIntervalNanos - now);
+            }
+        }
+
+        public synchronized void run() {
+            flushScheduled = false;
+            if (pending == null || !isRunning()) {
+                pending = null;
+                return;
+            }
+            long now = System.nanoTime();
+            if (now - lastEventTime < minIntervalNanos) {
+                // update has been fired since flush was scheduled
+                scheduleFlush(lastEventTime + minIntervalNanos - now);
+                return;
+            }
+            StatusVariable statusVariable = pending;
+            pending = null;
+            lastEventTime = now;
+            visitor.fireEvent(path.getMonitorableId(), statusVariable, getInitiator());
+        }
+
+        private void scheduleFlush(long delay) {
+            flushScheduled = true;
+            try {
+                scheduler.schedule(this, delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // scheduler is stopped
+                flushScheduled = false;
+            }
         }
     }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.job;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates numeric values of one <code>StatusVariable</code> in sliding time window.
+ * Window is split into buckets, one bucket per slide: on every slide the window aggregate
+ * is calculated from all buckets and the oldest bucket is reused for new values.
+ * Fixed window has one bucket.
+ *
+ * @author dmytro.pishchukhin
+ */
+class WindowAccumulator {
+    private final long[] counts;
+    private final double[] sums;
+    private final double[] mins;
+    private final double[] maxs;
+    // guarded by this
+    private int current;
+
+    WindowAccumulator(int buckets) {
+        counts = new long[buckets];
+        sums = new double[buckets];
+        mins = new double[buckets];
+        maxs = new double[buckets];
+        Arrays.fill(mins, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+    }
+
+    synchronized void add(double value) {
+        counts[current]++;
+        sums[current] += value;
+        if (value < mins[current]) {
+            mins[current] = value;
+        }
+        if (value > maxs[current]) {
+            maxs[current] = value;
+        }
+    }
+
+    /**
+     * Calculate window aggregate and start new bucket
+     *
+     * @param windowStart window start time
+     * @param windowEnd   window end time
+     * @return aggregate or <code>null</code> if there were no values in window
+     */
+    synchronized WindowAggregate slide(long windowStart, long windowEnd) {
+        long count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < counts.length; i++) {
+            count += counts[i];
+            sum += sums[i];
+            min = Math.min(min, mins[i]);
+            max = Math.max(max, maxs[i]);
+        }
+        current = (current + 1) % counts.length;
+        counts[current] = 0;
+        sums[current] = 0;
+        mins[current] = Double.POSITIVE_INFINITY;
+        maxs[current] = Double.NEGATIVE_INFINITY;
+        return count == 0 ? null : new WindowAggregate(windowStart, windowEnd, count, sum, min, max);
+    }
+}
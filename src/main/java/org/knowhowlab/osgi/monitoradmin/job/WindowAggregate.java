@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.job;
+
+/**
+ * Summary of numeric <code>StatusVariable</code> updates in time window
+ *
+ * @author dmytro.pishchukhin
+ */
+public final class WindowAggregate {
+    private final long windowStart;
+    private final long windowEnd;
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+
+    WindowAggregate(long windowStart, long windowEnd, long count, double sum, double min, double max) {
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Get window start time
+     *
+     * @return time in milliseconds
+     */
+    public long getWindowStart() {
+        return windowStart;
+    }
+
+    /**
+     * Get window end time
+     *
+     * @return time in milliseconds
+     */
+    public long getWindowEnd() {
+        return windowEnd;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WindowAggregate{count=%d, sum=%s, min=%s, max=%s}", count, sum, min, max);
+    }
+}
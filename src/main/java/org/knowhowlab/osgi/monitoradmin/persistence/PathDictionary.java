@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.persistence;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only dictionary of <code>StatusVariable</code> paths. Records refer to paths by code,
+ * that is the line number of the path in dictionary file.
+ * <p/>
+ * Is not thread-safe: guarded by {@link SegmentStore} lock
+ *
+ * @author dmytro.pishchukhin
+ */
+class PathDictionary {
+    private static final String CHARSET = "UTF-8";
+
+    private final File file;
+    private final Map<String, Integer> codes = new HashMap<String, Integer>();
+    private final List<String> paths = new ArrayList<String>();
+    private Writer writer;
+
+    PathDictionary(File file) throws IOException {
+        this.file = file;
+        if (file.exists()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    codes.put(line, paths.size());
+                    paths.add(line);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Get path code
+     *
+     * @param path path
+     * @return code or <code>-1</code> if path is unknown
+     */
+    int getCode(String path) {
+        Integer code = codes.get(path);
+        return code != null ? code : -1;
+    }
+
+    /**
+     * Get path code, path is appended to dictionary if it's unknown
+     *
+     * @param path path
+     * @return code
+     * @throws IOException unable to append path to dictionary file
+     */
+    int getOrAddCode(String path) throws IOException {
+        Integer code = codes.get(path);
+        if (code == null) {
+            if (writer == null) {
+                writer = new OutputStreamWriter(new FileOutputStream(file, true), CHARSET);
+            }
+            writer.write(path);
+            writer.write('\n');
+            writer.flush();
+            code = paths.size();
+            codes.put(path, code);
+            paths.add(path);
+        }
+        return code;
+    }
+
+    /**
+     * Get snapshot of paths indexed by code
+     *
+     * @return paths
+     */
+    String[] getPaths() {
+        return paths.toArray(new String[paths.size()]);
+    }
+
+    void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.persistence;
+
+import org.knowhowlab.osgi.monitoradmin.api.SampleVisitor;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-mapped segment file with fixed number of fixed-width records.
+ * <p/>
+ * File layout:
+ * <ul>
+ * <li>header: magic, version, capacity, records count, min and max timestamps</li>
+ * <li>time index: min and max timestamps of every {@link #INDEX_BLOCK} records block</li>
+ * <li>records: timestamp, path code, type, string length, integer value, string bytes</li>
+ * </ul>
+ * Records count is updated after record is written, so records below count are always complete.
+ * <p/>
+ * Is not thread-safe: writes and count reads are guarded by {@link SegmentStore} lock
+ *
+ * @author dmytro.pishchukhin
+ */
+class Segment {
+    static final String CHARSET = "UTF-8";
+    static final String EXTENSION = ".seg";
+
+    static final int RECORD_SIZE = 64;
+    static final int TIMESTAMP_OFFSET = 0;
+    static final int PATH_OFFSET = 8;
+    static final int TYPE_OFFSET = 12;
+    static final int STRING_LENGTH_OFFSET = 13;
+    static final int VALUE_OFFSET = 16;
+    static final int STRING_OFFSET = 20;
+    /**
+     * Max length of stored string value in bytes, longer strings are truncated
+     */
+    static final int MAX_STRING_LENGTH = RECORD_SIZE - STRING_OFFSET;
+    /**
+     * Number of records per time index entry
+     */
+    static final int INDEX_BLOCK = 256;
+
+    private static final int MAGIC = 0x4D4F4E53;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_COUNT = 12;
+    private static final int HEADER_MIN_TIMESTAMP = 16;
+    private static final int HEADER_MAX_TIMESTAMP = 24;
+    private static final int INDEX_ENTRY_SIZE = 16;
+
+    private final File file;
+    private final long sequence;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int recordsOffset;
+    private int count;
+    private long minTimestamp;
+    private long maxTimestamp;
+
+    private Segment(File file, long sequence, MappedByteBuffer buffer, int capacity) {
+        this.file = file;
+        this.sequence = sequence;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.recordsOffset = HEADER_SIZE + indexSize(capacity);
+    }
+
+    /**
+     * Create new segment file
+     *
+     * @param directory segments directory
+     * @param sequence  segment sequence number
+     * @param capacity  max number of records
+     * @return segment
+     * @throws IOException unable to create file
+     */
+    static Segment create(File directory, long sequence, int capacity) throws IOException {
+        File file = new File(directory, String.format("%020d", sequence) + EXTENSION);
+        Segment segment = new Segment(file, sequence,
+                map(file, HEADER_SIZE + indexSize(capacity) + (long) capacity * RECORD_SIZE), capacity);
+        segment.buffer.putInt(HEADER_MAGIC, MAGIC);
+        segment.buffer.putInt(HEADER_VERSION, VERSION);
+        segment.buffer.putInt(HEADER_CAPACITY, capacity);
+        segment.setCount(0);
+        segment.minTimestamp = Long.MAX_VALUE;
+        segment.maxTimestamp = Long.MIN_VALUE;
+        segment.buffer.putLong(HEADER_MIN_TIMESTAMP, segment.minTimestamp);
+        segment.buffer.putLong(HEADER_MAX_TIMESTAMP, segment.maxTimestamp);
+        for (int i = 0; i < indexSize(capacity); i += INDEX_ENTRY_SIZE) {
+            segment.buffer.putLong(HEADER_SIZE + i, Long.MAX_VALUE);
+            segment.buffer.putLong(HEADER_SIZE + i + 8, Long.MIN_VALUE);
+        }
+        return segment;
+    }
+
+    /**
+     * Open existing segment file
+     *
+     * @param file     segment file
+     * @param sequence segment sequence number
+     * @return segment
+     * @throws IOException unable to map file or file is not a valid segment
+     */
+    static Segment open(File file, long sequence) throws IOException {
+        MappedByteBuffer buffer = map(file, file.length());
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(HEADER_MAGIC) != MAGIC
+                || buffer.getInt(HEADER_VERSION) != VERSION) {
+            throw new IOException("Invalid segment file: " + file);
+        }
+        int capacity = buffer.getInt(HEADER_CAPACITY);
+        if (capacity <= 0 || buffer.capacity() < HEADER_SIZE + indexSize(capacity) + (long) capacity * RECORD_SIZE) {
+            throw new IOException("Invalid segment file capacity: " + file);
+        }
+        Segment segment = new Segment(file, sequence, buffer, capacity);
+        segment.count = Math.min(Math.max(0, buffer.getInt(HEADER_COUNT)), capacity);
+        segment.minTimestamp = buffer.getLong(HEADER_MIN_TIMESTAMP);
+        segment.maxTimestamp = buffer.getLong(HEADER_MAX_TIMESTAMP);
+        return segment;
+    }
+
+    private static MappedByteBuffer map(File file, long size) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            // mapping stays valid after channel is closed
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static int indexSize(int capacity) {
+        int size = ((capacity + INDEX_BLOCK - 1) / INDEX_BLOCK) * INDEX_ENTRY_SIZE;
+        // keep records aligned
+        return ((size + RECORD_SIZE - 1) / RECORD_SIZE) * RECORD_SIZE;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    boolean isFull() {
+        return count >= capacity;
+    }
+
+    /**
+     * Append record
+     *
+     * @param timestamp      sample timestamp
+     * @param pathCode       path code
+     * @param statusVariable sample
+     */
+    void append(long timestamp, int pathCode, StatusVariable statusVariable) {
+        int offset = recordsOffset + count * RECORD_SIZE;
+        buffer.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+        buffer.putInt(offset + PATH_OFFSET, pathCode);
+        buffer.put(offset + TYPE_OFFSET, (byte) statusVariable.getType());
+        switch (statusVariable.getType()) {
+            case StatusVariable.TYPE_INTEGER:
+                buffer.putInt(offset + VALUE_OFFSET, statusVariable.getInteger());
+                break;
+            case StatusVariable.TYPE_FLOAT:
+                buffer.putInt(offset + VALUE_OFFSET, Float.floatToIntBits(statusVariable.getFloat()));
+                break;
+            case StatusVariable.TYPE_BOOLEAN:
+                buffer.putInt(offset + VALUE_OFFSET, statusVariable.getBoolean() ? 1 : 0);
+                break;
+            case StatusVariable.TYPE_STRING:
+                byte[] bytes = encode(statusVariable.getString());
+                int length = truncatedLength(bytes);
+                buffer.put(offset + STRING_LENGTH_OFFSET, (byte) length);
+                for (int i = 0; i < length; i++) {
+                    buffer.put(offset + STRING_OFFSET + i, bytes[i]);
+                }
+                break;
+        }
+        // update time index
+        int indexOffset = HEADER_SIZE + (count / INDEX_BLOCK) * INDEX_ENTRY_SIZE;
+        if (timestamp < buffer.getLong(indexOffset)) {
+            buffer.putLong(indexOffset, timestamp);
+        }
+        if (timestamp > buffer.getLong(indexOffset + 8)) {
+            buffer.putLong(indexOffset + 8, timestamp);
+        }
+        if (timestamp < minTimestamp) {
+            minTimestamp = timestamp;
+            buffer.putLong(HEADER_MIN_TIMESTAMP, timestamp);
+        }
+        if (timestamp > maxTimestamp) {
+            maxTimestamp = timestamp;
+            buffer.putLong(HEADER_MAX_TIMESTAMP, timestamp);
+        }
+        setCount(count + 1);
+    }
+
+    /**
+     * Scan records. Blocks that are out of time range are skipped by time index.
+     * Reads only records that were appended before <code>count</code> has been taken
+     *
+     * @param count    number of records to scan
+     * @param pathCode path code
+     * @param fromTime range start, inclusive
+     * @param toTime   range end, inclusive
+     * @param sample   cursor
+     * @param visitor  visitor
+     * @return <code>false</code> if visitor stopped scan
+     */
+    boolean scan(int count, int pathCode, long fromTime, long toTime, SegmentSample sample, SampleVisitor visitor) {
+        // independent buffer for concurrent readers
+        ByteBuffer view = buffer.duplicate();
+        for (int block = 0; block * INDEX_BLOCK < count; block++) {
+            int indexOffset = HEADER_SIZE + block * INDEX_ENTRY_SIZE;
+            if (view.getLong(indexOffset) > toTime || view.getLong(indexOffset + 8) < fromTime) {
+                continue;
+            }
+            int end = Math.min(count, (block + 1) * INDEX_BLOCK);
+            for (int i = block * INDEX_BLOCK; i < end; i++) {
+                int offset = recordsOffset + i * RECORD_SIZE;
+                if (view.getInt(offset + PATH_OFFSET) != pathCode) {
+                    continue;
+                }
+                long timestamp = view.getLong(offset + TIMESTAMP_OFFSET);
+                if (timestamp >= fromTime && timestamp <= toTime) {
+                    sample.moveTo(view, offset);
+                    if (!visitor.visit(sample)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Flush changes to disk
+     */
+    void flush() {
+        buffer.force();
+    }
+
+    private void setCount(int count) {
+        this.count = count;
+        buffer.putInt(HEADER_COUNT, count);
+    }
+
+    private static byte[] encode(String value) {
+        try {
+            return value.getBytes(CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get string length limited by {@link #MAX_STRING_LENGTH} that does not split multi-byte character
+     */
+    private static int truncatedLength(byte[] bytes) {
+        if (bytes.length <= MAX_STRING_LENGTH) {
+            return bytes.length;
+        }
+        int length = MAX_STRING_LENGTH;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.persistence;
+
+import org.knowhowlab.osgi.monitoradmin.api.Sample;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+/**
+ * Sample cursor that reads record fields directly from mapped segment
+ *
+ * @author dmytro.pishchukhin
+ */
+class SegmentSample implements Sample {
+    private final String[] paths;
+    private ByteBuffer buffer;
+    private int offset;
+
+    SegmentSample(String[] paths) {
+        this.paths = paths;
+    }
+
+    void moveTo(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    public String getPath() {
+        return paths[buffer.getInt(offset + Segment.PATH_OFFSET)];
+    }
+
+    public long getTimeStamp() {
+        return buffer.getLong(offset + Segment.TIMESTAMP_OFFSET);
+    }
+
+    public int getType() {
+        return buffer.get(offset + Segment.TYPE_OFFSET);
+    }
+
+    public int getInteger() throws IllegalStateException {
+        checkType(StatusVariable.TYPE_INTEGER);
+        return buffer.getInt(offset + Segment.VALUE_OFFSET);
+    }
+
+    public float getFloat() throws IllegalStateException {
+        checkType(StatusVariable.TYPE_FLOAT);
+        return Float.intBitsToFloat(buffer.getInt(offset + Segment.VALUE_OFFSET));
+    }
+
+    public boolean getBoolean() throws IllegalStateException {
+        checkType(StatusVariable.TYPE_BOOLEAN);
+        return buffer.getInt(offset + Segment.VALUE_OFFSET) != 0;
+    }
+
+    public String getString() throws IllegalStateException {
+        checkType(StatusVariable.TYPE_STRING);
+        byte[] bytes = new byte[buffer.get(offset + Segment.STRING_LENGTH_OFFSET) & 0xFF];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + Segment.STRING_OFFSET + i);
+        }
+        try {
+            return new String(bytes, Segment.CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void checkType(int type) {
+        if (getType() != type) {
+            throw new IllegalStateException("Sample type is " + getType());
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.persistence;
+
+import org.knowhowlab.osgi.monitoradmin.LogVisitor;
+import org.knowhowlab.osgi.monitoradmin.api.SampleVisitor;
+import org.knowhowlab.osgi.monitoradmin.history.SampleRecorder;
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent time-series store of <code>StatusVariable</code> samples.
+ * <p/>
+ * Samples are appended to memory-mapped segment files with fixed-width records.
+ * When active segment is full the new one is created. Segments with all samples
+ * older than retention period are deleted.
+ * Paths are stored in the separate dictionary file, string values longer than
+ * {@link #MAX_STRING_LENGTH} bytes are truncated.
+ * <p/>
+ * Samples are put into bounded queue and appended by dedicated writer thread, so producers
+ * and scheduler threads do not wait for file I/O. If queue is full the new sample is dropped and counted.
+ * Appends are serialized by store lock, scans read mapped segments without lock.
+ *
+ * @author dmytro.pishchukhin
+ */
+public class SegmentStore implements SampleRecorder {
+    /**
+     * Default number of records per segment
+     */
+    public static final int DEFAULT_SEGMENT_CAPACITY = 65536;
+    /**
+     * Default retention period in milliseconds
+     */
+    public static final long DEFAULT_RETENTION = 24L * 60 * 60 * 1000;
+    /**
+     * Max length of stored string value in bytes
+     */
+    public static final int MAX_STRING_LENGTH = Segment.MAX_STRING_LENGTH;
+    /**
+     * Default number of samples waiting for writer thread
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+    private static final String DICTIONARY_FILE = "paths.dict";
+    private static final long RETENTION_CHECK_INTERVAL = 60 * 1000;
+    private static final long FLUSH_CHECK_INTERVAL = 100;
+
+    private final LogVisitor logVisitor;
+    private final File directory;
+    private final int segmentCapacity;
+    private final long retention;
+    private final PathDictionary dictionary;
+    private final BlockingQueue<PendingSample> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writerThread;
+    /**
+     * <code>true</code> - new samples are not accepted
+     */
+    private volatile boolean closing;
+    /**
+     * Segments in sequence order, the last one is active. Guarded by <code>this</code>
+     */
+    private final LinkedList<Segment> segments = new LinkedList<Segment>();
+    private long lastSequence;
+    private long nextRetentionCheck;
+    private boolean closed;
+
+    /**
+     * Open store with default queue capacity. Existing segments are loaded, expired ones are deleted
+     *
+     * @param logVisitor      logger
+     * @param directory       segments directory
+     * @param segmentCapacity number of records per segment
+     * @param retention       retention period in milliseconds
+     * @throws IOException unable to create directory or open files
+     */
+    public SegmentStore(LogVisitor logVisitor, File directory, int segmentCapacity, long retention) throws IOException {
+        this(logVisitor, directory, segmentCapacity, retention, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Open store. Existing segments are loaded, expired ones are deleted
+     *
+     * @param logVisitor      logger
+     * @param directory       segments directory
+     * @param segmentCapacity number of records per segment
+     * @param retention       retention period in milliseconds
+     * @param queueCapacity   max number of samples waiting for writer thread
+     * @throws IOException unable to create directory or open files
+     */
+    public SegmentStore(LogVisitor logVisitor, File directory, int segmentCapacity, long retention,
+                        int queueCapacity) throws IOException {
+        this.logVisitor = logVisitor;
+        this.directory = directory;
+        this.segmentCapacity = Math.max(1, segmentCapacity);
+        this.retention = retention;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory: " + directory);
+        }
+        dictionary = new PathDictionary(new File(directory, DICTIONARY_FILE));
+        loadSegments();
+        deleteExpiredSegments(System.currentTimeMillis());
+        queue = new ArrayBlockingQueue<PendingSample>(Math.max(1, queueCapacity));
+        writerThread = new Thread(new Writer(), "MonitorAdmin Store Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Put sample to writer queue. Sample is dropped if queue is full
+     *
+     * @param path           <code>StatusVariable</code> path
+     * @param statusVariable <code>StatusVariable</code> value
+     */
+    public void record(StatusVariablePath path, StatusVariable statusVariable) {
+        if (closing) {
+            return;
+        }
+        if (!queue.offer(new PendingSample(path, statusVariable, null)) && dropped.getAndIncrement() == 0) {
+            logVisitor.warning("Store writer queue is full, samples are dropped", null);
+        }
+    }
+
+    /**
+     * Wait until samples queued before this call are written
+     *
+     * @throws InterruptedException waiting thread is interrupted
+     */
+    public void flush() throws InterruptedException {
+        if (closing) {
+            return;
+        }
+        CountDownLatch written = new CountDownLatch(1);
+        queue.put(new PendingSample(null, null, written));
+        // marker that is queued after STOP is never taken
+        while (!written.await(FLUSH_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+            if (!writerThread.isAlive()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get number of samples dropped because writer queue was full
+     *
+     * @return dropped samples number
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Get number of samples waiting for writer thread
+     *
+     * @return queued samples number
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private synchronized void write(StatusVariablePath path, StatusVariable statusVariable) {
+        if (closed) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            if (now >= nextRetentionCheck) {
+                deleteExpiredSegments(now);
+            }
+            Segment segment = segments.isEmpty() ? null : segments.getLast();
+            if (segment == null || segment.isFull()) {
+                segment = Segment.create(directory, ++lastSequence, segmentCapacity);
+                segments.add(segment);
+            }
+            segment.append(statusVariable.getTimeStamp().getTime(), dictionary.getOrAddCode(path.getPath()), statusVariable);
+        } catch (IOException e) {
+            logVisitor.error("Unable to store sample of " + path.getPath(), e);
+        }
+    }
+
+    /**
+     * Scan samples of <code>StatusVariable</code> in time range
+     *
+     * @param path     <code>StatusVariable</code> path
+     * @param fromTime range start, inclusive
+     * @param toTime   range end, inclusive
+     * @param visitor  samples visitor
+     */
+    public void scan(StatusVariablePath path, long fromTime, long toTime, SampleVisitor visitor) {
+        int pathCode;
+        String[] paths;
+        Segment[] snapshot;
+        int[] counts;
+        synchronized (this) {
+            pathCode = dictionary.getCode(path.getPath());
+            if (pathCode < 0 || closed) {
+                return;
+            }
+            paths = dictionary.getPaths();
+            snapshot = segments.toArray(new Segment[segments.size()]);
+            counts = new int[snapshot.length];
+            for (int i = 0; i < snapshot.length; i++) {
+                counts[i] = snapshot[i].getCount();
+            }
+        }
+        SegmentSample sample = new SegmentSample(paths);
+        for (int i = 0; i < snapshot.length; i++) {
+            if (!snapshot[i].scan(counts[i], pathCode, fromTime, toTime, sample, visitor)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get number of segments
+     *
+     * @return segments number
+     */
+    public synchronized int getSegmentsCount() {
+        return segments.size();
+    }
+
+    /**
+     * Write queued samples, stop writer thread, flush active segment and close dictionary
+     */
+    public void close() {
+        synchronized (this) {
+            if (closing) {
+                return;
+            }
+            closing = true;
+        }
+        try {
+            queue.put(PendingSample.STOP);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeSegments();
+    }
+
+    private synchronized void closeSegments() {
+        closed = true;
+        if (!segments.isEmpty()) {
+            segments.getLast().flush();
+        }
+        segments.clear();
+        try {
+            dictionary.close();
+        } catch (IOException e) {
+            logVisitor.warning("Unable to close paths dictionary", e);
+        }
+    }
+
+    private void loadSegments() {
+        File[] files = directory.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(Segment.EXTENSION);
+            }
+        });
+        if (files == null) {
+            return;
+        }
+        List<Segment> loaded = new ArrayList<Segment>(files.length);
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                long sequence = Long.parseLong(name.substring(0, name.length() - Segment.EXTENSION.length()));
+                loaded.add(Segment.open(file, sequence));
+            } catch (NumberFormatException e) {
+                logVisitor.warning("Skip unknown segment file: " + file, e);
+            } catch (IOException e) {
+                logVisitor.warning("Skip invalid segment file: " + file, e);
+            }
+        }
+        Segment[] sorted = loaded.toArray(new Segment[loaded.size()]);
+        Arrays.sort(sorted, new Comparator<Segment>() {
+            public int compare(Segment segment1, Segment segment2) {
+                return segment1.getSequence() < segment2.getSequence() ? -1
+                        : (segment1.getSequence() == segment2.getSequence() ? 0 : 1);
+            }
+        });
+        segments.addAll(Arrays.asList(sorted));
+        if (sorted.length > 0) {
+            lastSequence = sorted[sorted.length - 1].getSequence();
+        }
+    }
+
+    private void deleteExpiredSegments(long now) {
+        nextRetentionCheck = now + RETENTION_CHECK_INTERVAL;
+        long threshold = now - retention;
+        Iterator<Segment> iterator = segments.iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            // active segment is kept until it is full
+            if (segment == segments.getLast() && !segment.isFull()) {
+                break;
+            }
+            if (segment.getCount() > 0 && segment.getMaxTimestamp() >= threshold) {
+                continue;
+            }
+            iterator.remove();
+            if (!segment.getFile().delete()) {
+                logVisitor.warning("Unable to delete expired segment file: " + segment.getFile(), null);
+            } else if (logVisitor.isDebugEnabled()) {
+                logVisitor.debug("Expired segment file is deleted: " + segment.getFile(), null);
+            }
+        }
+    }
+
+    /**
+     * Writes queued samples until {@link PendingSample#STOP} is taken
+     */
+    private class Writer implements Runnable {
+        public void run() {
+            while (true) {
+                PendingSample sample;
+                try {
+                    sample = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (sample == PendingSample.STOP) {
+                    return;
+                }
+                if (sample.written != null) {
+                    sample.written.countDown();
+                } else {
+                    try {
+                        write(sample.path, sample.statusVariable);
+                    } catch (RuntimeException e) {
+                        logVisitor.error("Unable to store sample of " + sample.path.getPath(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sample waiting for writer thread or flush marker
+     */
+    private static class PendingSample {
+        private static final PendingSample STOP = new PendingSample(null, null, null);
+
+        private final StatusVariablePath path;
+        private final StatusVariable statusVariable;
+        /**
+         * Not <code>null</code> for flush marker
+         */
+        private final CountDownLatch written;
+
+        private PendingSample(StatusVariablePath path, StatusVariable statusVariable, CountDownLatch written) {
+            this.path = path;
+            this.statusVariable = statusVariable;
+            this.written = written;
+        }
+    }
+}
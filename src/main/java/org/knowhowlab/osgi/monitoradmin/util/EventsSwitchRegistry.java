@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thread-safe registry of events on/off switches.
+ * <p/>
+ * Switches are stored as rules with optional '*' wildcard at the end of
+ * monitorable Id and/or StatusVariable Id, so they are applied to StatusVariables
+ * registered later as well. The latest matching rule wins.
+ * Rules are indexed by two-level trie (monitorable Id, StatusVariable Id) that is rebuilt on
+ * every switch and read without locks.
+ *
+ * @author dmytro.pishchukhin
+ */
+public class EventsSwitchRegistry {
+    /**
+     * Rules index. <code>null</code> - no rules, all events are enabled
+     */
+    private volatile TrieNode<TrieNode<Rule>> index;
+    /**
+     * Active rules. Guarded by <code>this</code>
+     */
+    private final List<Rule> rules = new ArrayList<Rule>();
+    private long sequence;
+
+    /**
+     * Switch events on/off for StatusVariables that match filter
+     *
+     * @param filter StatusVariable path filter
+     * @param on     <code>false</code> if event sending should be switched off,
+     *               <code>true</code> if it should be switched on
+     */
+    public synchronized void switchEvents(StatusVariablePathFilter filter, boolean on) {
+        addRule(filter, on);
+        index = buildIndex(rules);
+    }
+
+    /**
+     * Switch events on/off for StatusVariables that match any of filters.
+     * Index is rebuilt once for all filters
+     *
+     * @param filters StatusVariable path filters
+     * @param on      <code>false</code> if event sending should be switched off,
+     *                <code>true</code> if it should be switched on
+     */
+    public synchronized void switchEvents(Collection<StatusVariablePathFilter> filters, boolean on) {
+        for (StatusVariablePathFilter filter : filters) {
+            addRule(filter, on);
+        }
+        index = buildIndex(rules);
+    }
+
+    private void addRule(StatusVariablePathFilter filter, boolean on) {
+        Rule rule = new Rule(filter.getMonitorableId(), filter.isMonitorableWildcard(),
+                filter.getStatusVariableId(), filter.isStatusVariableWildcard(), on, ++sequence);
+        // remove rules that are overridden by the new one
+        Iterator<Rule> iterator = rules.iterator();
+        boolean overlaps = false;
+        while (iterator.hasNext()) {
+            Rule existingRule = iterator.next();
+            if (rule.covers(existingRule)) {
+                iterator.remove();
+            } else if (rule.overlaps(existingRule)) {
+                overlaps = true;
+            }
+        }
+        // events are enabled by default
+        if (!on || overlaps) {
+            rules.add(rule);
+        }
+    }
+
+    /**
+     * Check if events are enabled for StatusVariable
+     *
+     * @param monitorableId    monitorable Id
+     * @param statusVariableId StatusVariable Id
+     * @return <code>true</code> if events are enabled, otherwise - <code>false</code>
+     */
+    public boolean isEventEnabled(String monitorableId, String statusVariableId) {
+        TrieNode<TrieNode<Rule>> node = index;
+        if (node == null) {
+            return true;
+        }
+        Rule latestRule = null;
+        int length = monitorableId.length();
+        for (int i = 0; node != null; i++) {
+            latestRule = findLatestRule(latestRule, node.prefixValue, statusVariableId);
+            if (i == length) {
+                latestRule = findLatestRule(latestRule, node.exactValue, statusVariableId);
+                break;
+            }
+            node = node.getChild(monitorableId.charAt(i));
+        }
+        return latestRule == null || latestRule.on;
+    }
+
+    /**
+     * Check if there are no rules, so all events are enabled
+     *
+     * @return <code>true</code> if all events are enabled
+     */
+    public boolean isEmpty() {
+        return index == null;
+    }
+
+    private static Rule findLatestRule(Rule latestRule, TrieNode<Rule> node, String statusVariableId) {
+        int length = statusVariableId.length();
+        for (int i = 0; node != null; i++) {
+            latestRule = latest(latestRule, node.prefixValue);
+            if (i == length) {
+                latestRule = latest(latestRule, node.exactValue);
+                break;
+            }
+            node = node.getChild(statusVariableId.charAt(i));
+        }
+        return latestRule;
+    }
+
+    private static Rule latest(Rule rule1, Rule rule2) {
+        if (rule1 == null) {
+            return rule2;
+        }
+        if (rule2 == null) {
+            return rule1;
+        }
+        return rule1.sequence > rule2.sequence ? rule1 : rule2;
+    }
+
+    private static TrieNode<TrieNode<Rule>> buildIndex(List<Rule> rules) {
+        if (rules.isEmpty()) {
+            return null;
+        }
+        TrieNode<TrieNode<Rule>> root = new TrieNode<TrieNode<Rule>>();
+        for (Rule rule : rules) {
+            TrieNode<TrieNode<Rule>> monitorableNode = root.getOrCreate(rule.monitorableId);
+            TrieNode<Rule> statusVariableRoot;
+            if (rule.monitorableWildcard) {
+                if (monitorableNode.prefixValue == null) {
+                    monitorableNode.prefixValue = new TrieNode<Rule>();
+                }
+                statusVariableRoot = monitorableNode.prefixValue;
+            } else {
+                if (monitorableNode.exactValue == null) {
+                    monitorableNode.exactValue = new TrieNode<Rule>();
+                }
+                statusVariableRoot = monitorableNode.exactValue;
+            }
+            TrieNode<Rule> statusVariableNode = statusVariableRoot.getOrCreate(rule.statusVariableId);
+            if (rule.statusVariableWildcard) {
+                statusVariableNode.prefixValue = rule;
+            } else {
+                statusVariableNode.exactValue = rule;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Trie node. Is not modified after index is published
+     */
+    private static class TrieNode<V> {
+        private final Map<Character, TrieNode<V>> children = new HashMap<Character, TrieNode<V>>(4);
+        // value for ids that start with node prefix
+        private V prefixValue;
+        // value for id that equals node prefix
+        private V exactValue;
+
+        private TrieNode<V> getChild(char c) {
+            return children.get(c);
+        }
+
+        private TrieNode<V> getOrCreate(String key) {
+            TrieNode<V> node = this;
+            for (int i = 0; i < key.length(); i++) {
+                TrieNode<V> child = node.children.get(key.charAt(i));
+                if (child == null) {
+                    child = new TrieNode<V>();
+                    node.children.put(key.charAt(i), child);
+                }
+                node = child;
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Events switch rule
+     */
+    private static class Rule {
+        private final String monitorableId;
+        private final boolean monitorableWildcard;
+        private final String statusVariableId;
+        private final boolean statusVariableWildcard;
+        private final boolean on;
+        private final long sequence;
+
+        private Rule(String monitorableId, boolean monitorableWildcard, String statusVariableId,
+                     boolean statusVariableWildcard, boolean on, long sequence) {
+            this.monitorableId = monitorableId;
+            this.monitorableWildcard = monitorableWildcard;
+            this.statusVariableId = statusVariableId;
+            this.statusVariableWildcard = statusVariableWildcard;
+            this.on = on;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Check that all paths matched by other rule are matched by this rule
+         */
+        private boolean covers(Rule rule) {
+            return covers(monitorableId, monitorableWildcard, rule.monitorableId, rule.monitorableWildcard)
+                    && covers(statusVariableId, statusVariableWildcard, rule.statusVariableId, rule.statusVariableWildcard);
+        }
+
+        /**
+         * Check that at least one path can be matched by both rules
+         */
+        private boolean overlaps(Rule rule) {
+            return overlaps(monitorableId, monitorableWildcard, rule.monitorableId, rule.monitorableWildcard)
+                    && overlaps(statusVariableId, statusVariableWildcard, rule.statusVariableId, rule.statusVariableWildcard);
+        }
+
+        private static boolean covers(String id1, boolean wildcard1, String id2, boolean wildcard2) {
+            return wildcard1 ? id2.startsWith(id1) : !wildcard2 && id1.equals(id2);
+        }
+
+        private static boolean overlaps(String id1, boolean wildcard1, String id2, boolean wildcard2) {
+            if (wildcard1 && wildcard2) {
+                return id1.startsWith(id2) || id2.startsWith(id1);
+            } else if (wildcard1) {
+                return id2.startsWith(id1);
+            } else if (wildcard2) {
+                return id1.startsWith(id2);
+            } else {
+                return id1.equals(id2);
+            }
+        }
+    }
+}
@@ -18,11 +18,17 @@
 package org.knowhowlab.osgi.monitoradmin.util;
 
 /**
- * Status Variable path object
+ * Status Variable path object.
+ * <p/>
+ * Instances are immutable, so the same instance can be shared: use {@link #parse(String)}
+ * and {@link #of(String, String)} to get canonical instances from the bounded cache.
  *
  * @author dmytro.pishchukhin
  */
 public class StatusVariablePath {
+    private static final StatusVariablePathCache CACHE =
+            new StatusVariablePathCache(StatusVariablePathCache.DEFAULT_SIZE);
+
     protected String monitorableId;
     String statusVariableId;
     protected String path;
@@ -68,6 +74,30 @@ public class StatusVariablePath {
     public StatusVariablePath() {
     }
 
+    /**
+     * Get canonical path object for the given path value. Repeated paths are resolved without parsing
+     *
+     * @param path path value
+     * @return path object
+     * @throws IllegalArgumentException path is <code>null</code> or invalid
+     */
+    public static StatusVariablePath parse(String path) throws IllegalArgumentException {
+        return CACHE.parse(path);
+    }
+
+    /**
+     * Get canonical path object for the given monitorableId and status variable Id.
+     * Repeated paths are resolved without validation and concatenation
+     *
+     * @param monitorableId    monitorableId value
+     * @param statusVariableId status variable Id value
+     * @return path object
+     * @throws IllegalArgumentException ids are <code>null</code> or invalid
+     */
+    public static StatusVariablePath of(String monitorableId, String statusVariableId) throws IllegalArgumentException {
+        return CACHE.get(monitorableId, statusVariableId);
+    }
+
     /**
      * Get monitorable Id
      * @return monitorable Id
@@ -107,8 +137,12 @@ public class StatusVariablePath {
         if (path == null) {
             throw new IllegalArgumentException("Path is null");
         }
-        String[] parts = path.split("/");
-        if (parts.length != 2 || !validateId(parts[0]) || !validateId(parts[1])) {
+        int separatorIndex = path.indexOf('/');
+        if (separatorIndex == -1 || path.indexOf('/', separatorIndex + 1) != -1) {
+            throw new IllegalArgumentException("Path value is invalid: " + path);
+        }
+        String[] parts = {path.substring(0, separatorIndex), path.substring(separatorIndex + 1)};
+        if (!validateId(parts[0]) || !validateId(parts[1])) {
             throw new IllegalArgumentException("Path value is invalid: " + path);
         }
         return parts;
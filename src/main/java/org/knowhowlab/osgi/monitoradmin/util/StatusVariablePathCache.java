@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded cache of canonical <code>StatusVariablePath</code> instances.
+ * Paths are indexed by full path and by (monitorable Id, StatusVariable Id),
+ * so lookups by ids do not concatenate strings.
+ * When cache is full it is cleared and filled again by used paths.
+ *
+ * @author dmytro.pishchukhin
+ */
+class StatusVariablePathCache {
+    /**
+     * Default max number of cached paths
+     */
+    static final int DEFAULT_SIZE = 10000;
+
+    private final ConcurrentMap<String, StatusVariablePath> paths =
+            new ConcurrentHashMap<String, StatusVariablePath>();
+    private final ConcurrentMap<String, ConcurrentMap<String, StatusVariablePath>> ids =
+            new ConcurrentHashMap<String, ConcurrentMap<String, StatusVariablePath>>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxSize;
+
+    StatusVariablePathCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get path object by path value
+     *
+     * @param path path value
+     * @return canonical path object
+     * @throws IllegalArgumentException path is <code>null</code> or invalid
+     */
+    StatusVariablePath parse(String path) throws IllegalArgumentException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path is null");
+        }
+        StatusVariablePath statusVariablePath = paths.get(path);
+        if (statusVariablePath == null) {
+            statusVariablePath = put(new StatusVariablePath(path));
+        }
+        return statusVariablePath;
+    }
+
+    /**
+     * Get path object by monitorable Id and StatusVariable Id
+     *
+     * @param monitorableId    monitorable Id
+     * @param statusVariableId StatusVariable Id
+     * @return canonical path object
+     * @throws IllegalArgumentException ids are <code>null</code> or invalid
+     */
+    StatusVariablePath get(String monitorableId, String statusVariableId) throws IllegalArgumentException {
+        if (monitorableId != null && statusVariableId != null) {
+            ConcurrentMap<String, StatusVariablePath> monitorablePaths = ids.get(monitorableId);
+            if (monitorablePaths != null) {
+                StatusVariablePath statusVariablePath = monitorablePaths.get(statusVariableId);
+                if (statusVariablePath != null) {
+                    return statusVariablePath;
+                }
+            }
+        }
+        return put(new StatusVariablePath(monitorableId, statusVariableId));
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    private StatusVariablePath put(StatusVariablePath statusVariablePath) {
+        if (size.get() >= maxSize) {
+            clear();
+        }
+        StatusVariablePath existingPath = paths.putIfAbsent(statusVariablePath.getPath(), statusVariablePath);
+        if (existingPath != null) {
+            statusVariablePath = existingPath;
+        } else {
+            size.incrementAndGet();
+        }
+        String monitorableId = statusVariablePath.getMonitorableId();
+        ConcurrentMap<String, StatusVariablePath> monitorablePaths = ids.get(monitorableId);
+        if (monitorablePaths == null) {
+            ConcurrentMap<String, StatusVariablePath> newMonitorablePaths =
+                    new ConcurrentHashMap<String, StatusVariablePath>();
+            monitorablePaths = ids.putIfAbsent(monitorableId, newMonitorablePaths);
+            if (monitorablePaths == null) {
+                monitorablePaths = newMonitorablePaths;
+            }
+        }
+        monitorablePaths.putIfAbsent(statusVariablePath.getStatusVariableId(), statusVariablePath);
+        return statusVariablePath;
+    }
+
+    private void clear() {
+        paths.clear();
+        ids.clear();
+        size.set(0);
+    }
+}
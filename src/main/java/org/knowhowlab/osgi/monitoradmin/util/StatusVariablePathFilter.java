@@ -63,10 +63,18 @@ public class StatusVariablePathFilter extends StatusVariablePath {
                 &&
                 (statusVariableWildcard ?
                         statusVariableId.startsWith(this.statusVariableId) :
-                        statusVariableId.endsWith(this.statusVariableId));
+                        statusVariableId.equals(this.statusVariableId));
     }
 
     public String getMonitorableIdFilter() {
         return monitorableIdFilter;
     }
+
+    public boolean isMonitorableWildcard() {
+        return monitorableWildcard;
+    }
+
+    public boolean isStatusVariableWildcard() {
+        return statusVariableWildcard;
+    }
 }
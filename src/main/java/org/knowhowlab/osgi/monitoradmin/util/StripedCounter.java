@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter that spreads updates of concurrent threads over padded cells,
+ * so hot counters do not make updating threads contend on the same cache line.
+ * The value is the sum of cells, it is not an atomic snapshot
+ *
+ * @author dmytro.pishchukhin
+ */
+public class StripedCounter {
+    /**
+     * Distance between cells in longs: one cache line
+     */
+    private static final int PADDING = 8;
+    private static final int STRIPES = stripes();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    /**
+     * Add value
+     *
+     * @param value value
+     */
+    public void add(long value) {
+        cells.addAndGet((int) (Thread.currentThread().getId() & (STRIPES - 1)) * PADDING, value);
+    }
+
+    /**
+     * Add 1
+     */
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * Get current sum
+     *
+     * @return sum of cells
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * Reset cells to 0. Concurrent updates may be lost
+     */
+    public void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0);
+        }
+    }
+
+    /**
+     * Number of cells: power of two that is not less than twice the number of processors, max 64
+     *
+     * @return number of cells
+     */
+    private static int stripes() {
+        int stripes = 1;
+        int processors = Runtime.getRuntime().availableProcessors();
+        while (stripes < processors * 2 && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
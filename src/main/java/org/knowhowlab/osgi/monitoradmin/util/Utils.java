@@ -19,7 +19,8 @@ package org.knowhowlab.osgi.monitoradmin.util;
 
 import org.osgi.framework.Constants;
 
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
 
 import static java.lang.String.format;
 
@@ -29,15 +30,6 @@ import static java.lang.String.format;
  * @author dmytro.pishchukhin
  */
 public class Utils {
-    /**
-     * MonitorableId and Status variable name validate pattern (OSGi core 1.3.2: symbolic-name)
-     */
-    private static final Pattern PATH_ID_VALIDATE_PATTERN = Pattern.compile("((\\w|_|-)+)(\\.(\\w|_|-)+)*");
-    /**
-     * MonitorableId and Status variable name validate pattern (OSGi CMPN 119.6.1: wildcard-pid)
-     */
-    private static final Pattern FILTER_ID_VALIDATE_PATTERN = Pattern.compile("(\\*)|(((\\w|_|-)+)(\\.(\\w|_|-)*)*)(\\*)?");
-
     /**
      * Create service filter for given monitorable Id
      * @param monitorableId monitorable id
@@ -48,20 +40,96 @@ public class Utils {
     }
 
     /**
-     * Validate Path Id
+     * Split comma-separated list. Items are trimmed, empty items are skipped
+     * @param value list
+     * @return items
+     */
+    public static String[] split(String value) {
+        List<String> result = new ArrayList<String>();
+        int begin = 0;
+        while (begin <= value.length()) {
+            int end = value.indexOf(',', begin);
+            if (end < 0) {
+                end = value.length();
+            }
+            String item = value.substring(begin, end).trim();
+            if (item.length() > 0) {
+                result.add(item);
+            }
+            begin = end + 1;
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * Validate Path Id (OSGi core 1.3.2: symbolic-name):
+     * one or more tokens of <code>[a-zA-Z0-9_-]</code> characters separated by '.'
      * @param id id
      * @return validation result
      */
     public static boolean validatePathId(String id) {
-        return PATH_ID_VALIDATE_PATTERN.matcher(id).matches();
+        return validatePathId(id, 0, id.length());
+    }
+
+    /**
+     * Validate Path Id that is a part of the given string
+     * @param value string that contains id
+     * @param beginIndex id begin index, inclusive
+     * @param endIndex id end index, exclusive
+     * @return validation result
+     */
+    static boolean validatePathId(String value, int beginIndex, int endIndex) {
+        if (beginIndex >= endIndex) {
+            return false;
+        }
+        boolean tokenStart = true;
+        for (int i = beginIndex; i < endIndex; i++) {
+            char c = value.charAt(i);
+            if (c == '.') {
+                if (tokenStart) {
+                    // empty token
+                    return false;
+                }
+                tokenStart = true;
+            } else if (isTokenChar(c)) {
+                tokenStart = false;
+            } else {
+                return false;
+            }
+        }
+        return !tokenStart;
     }
 
     /**
-     * Validate Path Filter Id
+     * Validate Path Filter Id (OSGi CMPN 119.6.1: wildcard-pid):
+     * '*' or a token character followed by token characters and '.', with optional '*' at the end
      * @param id id
      * @return validation result
      */
     static boolean validatePathFilterId(String id) {
-        return FILTER_ID_VALIDATE_PATTERN.matcher(id).matches();
+        int length = id.length();
+        if (length == 0) {
+            return false;
+        }
+        if (id.charAt(length - 1) == '*') {
+            length--;
+            if (length == 0) {
+                return true;
+            }
+        }
+        if (!isTokenChar(id.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < length; i++) {
+            char c = id.charAt(i);
+            if (c != '.' && !isTokenChar(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isTokenChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-';
     }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockLogVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockOsgiVisitor;
+import org.osgi.service.event.Event;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author dmytro.pishchukhin
+ */
+public class AsyncEventPublisherTest {
+    private AsyncEventPublisher publisher;
+
+    @After
+    public void uninit() {
+        if (publisher != null) {
+            publisher.stop();
+        }
+    }
+
+    @Test
+    public void testPublish() throws Exception {
+        MockOsgiVisitor osgiVisitor = new MockOsgiVisitor();
+        publisher = new AsyncEventPublisher(osgiVisitor, new MockLogVisitor(), 10, AsyncEventPublisher.OverflowPolicy.BLOCK);
+        publisher.start();
+
+        publisher.publish(createEvent("1"));
+        publisher.publish(createEvent("2"));
+
+        waitForPublished(2);
+        Event[] events = osgiVisitor.getPostedEvents();
+        Assert.assertEquals(2, events.length);
+        Assert.assertEquals("1", events[0].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+        Assert.assertEquals("2", events[1].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+        Assert.assertEquals(2, publisher.getEnqueued());
+        Assert.assertEquals(0, publisher.getDropped());
+    }
+
+    @Test
+    public void testDropNewest() throws Exception {
+        BlockingOsgiVisitor osgiVisitor = new BlockingOsgiVisitor();
+        publisher = new AsyncEventPublisher(osgiVisitor, new MockLogVisitor(), 2, AsyncEventPublisher.OverflowPolicy.DROP_NEWEST);
+        publisher.start();
+
+        fillQueue(osgiVisitor);
+        publisher.publish(createEvent("4"));
+
+        Assert.assertEquals(1, publisher.getDropped());
+        Assert.assertEquals(2, publisher.getHighWaterMark());
+
+        osgiVisitor.release();
+        waitForPublished(3);
+        Event[] events = osgiVisitor.getPostedEvents();
+        Assert.assertEquals("1", events[0].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+        Assert.assertEquals("2", events[1].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+        Assert.assertEquals("3", events[2].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        BlockingOsgiVisitor osgiVisitor = new BlockingOsgiVisitor();
+        publisher = new AsyncEventPublisher(osgiVisitor, new MockLogVisitor(), 2, AsyncEventPublisher.OverflowPolicy.DROP_OLDEST);
+        publisher.start();
+
+        fillQueue(osgiVisitor);
+        publisher.publish(createEvent("4"));
+
+        Assert.assertEquals(1, publisher.getDropped());
+
+        osgiVisitor.release();
+        waitForPublished(3);
+        Event[] events = osgiVisitor.getPostedEvents();
+        Assert.assertEquals("1", events[0].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+        Assert.assertEquals("3", events[1].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+        Assert.assertEquals("4", events[2].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+    }
+
+    @Test
+    public void testParseOverflowPolicy() {
+        Assert.assertEquals(AsyncEventPublisher.OverflowPolicy.BLOCK, AsyncEventPublisher.OverflowPolicy.parse("block"));
+        Assert.assertEquals(AsyncEventPublisher.OverflowPolicy.DROP_OLDEST, AsyncEventPublisher.OverflowPolicy.parse("drop-oldest"));
+        Assert.assertEquals(AsyncEventPublisher.OverflowPolicy.DROP_NEWEST, AsyncEventPublisher.OverflowPolicy.parse(" DROP-NEWEST "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseOverflowPolicy_Invalid() {
+        AsyncEventPublisher.OverflowPolicy.parse("drop-all");
+    }
+
+    /**
+     * First event blocks publisher thread, next two fill the queue
+     */
+    private void fillQueue(BlockingOsgiVisitor osgiVisitor) throws InterruptedException {
+        publisher.publish(createEvent("1"));
+        Assert.assertTrue(osgiVisitor.blocked.await(5, TimeUnit.SECONDS));
+        publisher.publish(createEvent("2"));
+        publisher.publish(createEvent("3"));
+    }
+
+    private void waitForPublished(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (publisher.getPublished() < count && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        Assert.assertEquals(count, publisher.getPublished());
+    }
+
+    private static Event createEvent(String value) {
+        Dictionary<String, String> properties = new Hashtable<String, String>();
+        properties.put(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE, value);
+        return new Event(ConstantsMonitorAdmin.TOPIC, properties);
+    }
+
+    private static class BlockingOsgiVisitor extends MockOsgiVisitor {
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        void release() {
+            released.countDown();
+        }
+
+        @Override
+        public void postEvent(Event event) {
+            blocked.countDown();
+            try {
+                released.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.postEvent(event);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.util.EventsSwitchRegistry;
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePathFilter;
+
+import java.util.Arrays;
+
+/**
+ * @author dmytro.pishchukhin
+ */
+public class EventsSwitchRegistryTest {
+    @Test
+    public void testEmpty() {
+        EventsSwitchRegistry registry = new EventsSwitchRegistry();
+        Assert.assertTrue(registry.isEmpty());
+        Assert.assertTrue(registry.isEventEnabled("com.acme.pid", "sv.id1"));
+    }
+
+    @Test
+    public void testExactPath() {
+        EventsSwitchRegistry registry = new EventsSwitchRegistry();
+        registry.switchEvents(new StatusVariablePathFilter("com.acme.pid/sv.id1"), false);
+        Assert.assertFalse(registry.isEventEnabled("com.acme.pid", "sv.id1"));
+        Assert.assertTrue(registry.isEventEnabled("com.acme.pid", "sv.id"));
+        Assert.assertTrue(registry.isEventEnabled("com.acme.pid", "sv.id12"));
+        Assert.assertTrue(registry.isEventEnabled("com.acme.pid2", "sv.id1"));
+
+        registry.switchEvents(new StatusVariablePathFilter("com.acme.pid/sv.id1"), true);
+        Assert.assertTrue(registry.isEventEnabled("com.acme.pid", "sv.id1"));
+        Assert.assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    public void testBatch() {
+        EventsSwitchRegistry registry = new EventsSwitchRegistry();
+        registry.switchEvents(Arrays.asList(new StatusVariablePathFilter("com.acme.pid/sv.id1"),
+                new StatusVariablePathFilter("com.acme.pid2/sv.id2")), false);
+        Assert.assertFalse(registry.isEventEnabled("com.acme.pid", "sv.id1"));
+        Assert.assertFalse(registry.isEventEnabled("com.acme.pid2", "sv.id2"));
+        Assert.assertTrue(registry.isEventEnabled("com.acme.pid", "sv.id2"));
+
+        registry.switchEvents(Arrays.asList(new StatusVariablePathFilter("com.acme.pid/sv.id1"),
+                new StatusVariablePathFilter("com.acme.pid2/sv.id2")), true);
+        Assert.assertTrue(registry.isEventEnabled("com.acme.pid", "sv.id1"));
+        Assert.assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    public void testWildcards() {
+        EventsSwitchRegistry registry = new EventsSwitchRegistry();
+        registry.switchEvents(new StatusVariablePathFilter("com.acme.*/sv.*"), false);
+        Assert.assertFalse(registry.isEventEnabled("com.acme.pid", "sv.id1"));
+        Assert.assertFalse(registry.isEventEnabled("com.acme.", "sv."));
+        Assert.assertTrue(registry.isEventEnabled("com.acme", "sv.id1"));
+        Assert.assertTrue(registry.isEventEnabled("com.acme.pid", "id1"));
+
+        registry.switchEvents(new StatusVariablePathFilter("*/*"), false);
+        Assert.assertFalse(registry.isEventEnabled("org.pid", "id1"));
+    }
+
+    @Test
+    public void testLatestRuleWins() {
+        EventsSwitchRegistry registry = new EventsSwitchRegistry();
+        registry.switchEvents(new StatusVariablePathFilter("*/*"), false);
+        registry.switchEvents(new StatusVariablePathFilter("com.acme.pid/sv.*"), true);
+        Assert.assertFalse(registry.isEventEnabled("com.acme.pid", "id1"));
+        Assert.assertTrue(registry.isEventEnabled("com.acme.pid", "sv.id1"));
+
+        registry.switchEvents(new StatusVariablePathFilter("com.acme.pid/sv.id1"), false);
+        Assert.assertFalse(registry.isEventEnabled("com.acme.pid", "sv.id1"));
+        Assert.assertTrue(registry.isEventEnabled("com.acme.pid", "sv.id2"));
+
+        registry.switchEvents(new StatusVariablePathFilter("com.*/*"), true);
+        Assert.assertTrue(registry.isEventEnabled("com.acme.pid", "sv.id1"));
+        Assert.assertTrue(registry.isEventEnabled("com.acme.pid", "id1"));
+        Assert.assertFalse(registry.isEventEnabled("org.acme.pid", "id1"));
+
+        registry.switchEvents(new StatusVariablePathFilter("*/*"), true);
+        Assert.assertTrue(registry.isEmpty());
+    }
+}
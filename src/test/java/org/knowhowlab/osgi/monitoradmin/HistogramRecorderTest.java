@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.histogram.HistogramRecorder;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockLogVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockMonitorable;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockOsgiVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MonitorableMockServiceReference;
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.monitor.MonitorAdmin;
+import org.osgi.service.monitor.Monitorable;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * @author dmytro.pishchukhin
+ */
+public class HistogramRecorderTest {
+    private static final StatusVariablePath PATH = StatusVariablePath.of("com.acme.pid", "latency");
+
+    private MockOsgiVisitor osgiVisitor;
+    private LogVisitor logVisitor;
+    private MonitorAdminCommon common;
+
+    @Before
+    public void init() {
+        osgiVisitor = new MockOsgiVisitor();
+        logVisitor = new MockLogVisitor();
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor);
+    }
+
+    @After
+    public void uninit() {
+        common.shutdown();
+    }
+
+    @Test
+    public void testPercentiles() {
+        HistogramRecorder recorder = new HistogramRecorder(logVisitor, new String[]{PATH.getPath()});
+        for (int i = 1; i <= 1000; i++) {
+            recorder.record(PATH, new StatusVariable("latency", StatusVariable.CM_CC, i / 10f));
+        }
+        assertValue(50, recorder.getStatusVariable("com.acme.pid.latency.p50").getFloat());
+        assertValue(90, recorder.getStatusVariable("com.acme.pid.latency.p90").getFloat());
+        assertValue(99, recorder.getStatusVariable("com.acme.pid.latency.p99").getFloat());
+        assertValue(99.9, recorder.getStatusVariable("com.acme.pid.latency.p999").getFloat());
+        Assert.assertEquals(100, recorder.getStatusVariable("com.acme.pid.latency.max").getFloat(), 0.0001);
+        Assert.assertEquals(1000, recorder.getStatusVariable("com.acme.pid.latency.count").getInteger());
+        Assert.assertEquals("p99 of com.acme.pid/latency", recorder.getDescription("com.acme.pid.latency.p99"));
+
+        Assert.assertTrue(recorder.resetStatusVariable("com.acme.pid.latency.p50"));
+        Assert.assertEquals(0, recorder.getStatusVariable("com.acme.pid.latency.count").getInteger());
+        Assert.assertEquals(0, recorder.getStatusVariable("com.acme.pid.latency.p99").getFloat(), 0.0);
+    }
+
+    @Test
+    public void testValuesRange() {
+        HistogramRecorder recorder = new HistogramRecorder(logVisitor, new String[]{PATH.getPath()});
+        recorder.record(PATH, new StatusVariable("latency", StatusVariable.CM_CC, -5));
+        recorder.record(PATH, new StatusVariable("latency", StatusVariable.CM_CC, 0));
+        recorder.record(PATH, new StatusVariable("latency", StatusVariable.CM_CC, Integer.MAX_VALUE));
+        // non-numeric values are ignored
+        recorder.record(PATH, new StatusVariable("latency", StatusVariable.CM_CC, "test"));
+        recorder.record(StatusVariablePath.of("com.acme.pid", "other"), new StatusVariable("other", StatusVariable.CM_CC, 1));
+
+        Assert.assertEquals(3, recorder.getStatusVariable("com.acme.pid.latency.count").getInteger());
+        Assert.assertEquals(0, recorder.getStatusVariable("com.acme.pid.latency.p50").getFloat(), 0.0);
+        assertValue(Integer.MAX_VALUE, recorder.getStatusVariable("com.acme.pid.latency.p999").getFloat());
+        Assert.assertEquals(Integer.MAX_VALUE, recorder.getStatusVariable("com.acme.pid.latency.max").getFloat(), 1);
+    }
+
+    @Test
+    public void testStatusVariableNames() {
+        HistogramRecorder recorder = new HistogramRecorder(logVisitor, new String[]{PATH.getPath(),
+                "com.acme.pid2/latency", "invalid", "com.acme.pid/very.long.status.variable.id", PATH.getPath(),
+                "com.acme/pid.latency"});
+        Assert.assertFalse(recorder.isEmpty());
+        String[] names = recorder.getStatusVariableNames();
+        Assert.assertEquals(24, names.length);
+        Arrays.sort(names);
+        Assert.assertArrayEquals(new String[]{"com.acme.pid.latency.count", "com.acme.pid.latency.max",
+                "com.acme.pid.latency.p50", "com.acme.pid.latency.p90", "com.acme.pid.latency.p99",
+                "com.acme.pid.latency.p999"}, Arrays.copyOfRange(names, 0, 6));
+        Assert.assertEquals("com.acme.pid2.latency.p99", names[10]);
+        // too long and the same derived ids are replaced with path index
+        Assert.assertEquals("p99 of com.acme.pid/very.long.status.variable.id", recorder.getDescription("h3.p99"));
+        Assert.assertEquals("p99 of com.acme/pid.latency", recorder.getDescription("h5.p99"));
+        Assert.assertFalse(recorder.notifiesOnChange("com.acme.pid.latency.p99"));
+
+        Assert.assertTrue(new HistogramRecorder(logVisitor, new String[]{"invalid"}).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownStatusVariable() {
+        HistogramRecorder recorder = new HistogramRecorder(logVisitor, new String[]{PATH.getPath()});
+        recorder.getStatusVariable("com.acme.pid.latency.p75");
+    }
+
+    @Test
+    public void testReadThroughMonitorAdmin() {
+        HistogramRecorder recorder = new HistogramRecorder(logVisitor, new String[]{PATH.getPath()});
+        common.addUpdateRecorder(recorder);
+
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("com.acme.pid"),
+                new MockMonitorable(new StatusVariable("latency", StatusVariable.CM_CC, 0f)));
+        map.put(new MonitorableMockServiceReference(HistogramRecorder.MONITORABLE_ID), recorder);
+        osgiVisitor.setReferences(map);
+
+        for (int i = 1; i <= 100; i++) {
+            common.updated("com.acme.pid", new StatusVariable("latency", StatusVariable.CM_CC, (float) i));
+        }
+        // scheduled jobs measurements are not recorded
+        common.recordSample(PATH, new StatusVariable("latency", StatusVariable.CM_CC, 1000f));
+        MonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, null);
+        assertValue(99, monitorAdmin.getStatusVariable("monitoradmin.histogram/com.acme.pid.latency.p99").getFloat());
+        Assert.assertEquals(100, monitorAdmin.getStatusVariable("monitoradmin.histogram/com.acme.pid.latency.count").getInteger());
+        Assert.assertEquals(6, monitorAdmin.getStatusVariableNames(HistogramRecorder.MONITORABLE_ID).length);
+    }
+
+    private static void assertValue(double expected, double actual) {
+        // histogram relative error is below 1/32
+        Assert.assertEquals(expected, actual, expected / 32);
+    }
+}
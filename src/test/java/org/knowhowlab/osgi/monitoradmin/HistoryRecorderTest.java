@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableHistory;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableSamples;
+import org.knowhowlab.osgi.monitoradmin.history.HistoryRecorder;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockLogVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockMonitorable;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockOsgiVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MonitorableMockServiceReference;
+import org.knowhowlab.osgi.monitoradmin.mocks.SecurityMockBundle;
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.monitor.MonitorPermission;
+import org.osgi.service.monitor.Monitorable;
+import org.osgi.service.monitor.MonitoringJob;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.security.AllPermission;
+import java.util.HashMap;
+
+/**
+ * @author dmytro.pishchukhin
+ */
+public class HistoryRecorderTest {
+    private static final StatusVariablePath PATH = StatusVariablePath.of("com.acme.pid", "sv.id");
+
+    private MockOsgiVisitor osgiVisitor;
+    private LogVisitor logVisitor;
+    private MonitorAdminCommon common;
+
+    @Before
+    public void init() {
+        osgiVisitor = new MockOsgiVisitor();
+        logVisitor = new MockLogVisitor();
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor);
+    }
+
+    @After
+    public void uninit() {
+        common.shutdown();
+    }
+
+    @Test
+    public void testGetLastSamples_RingBufferWraps() {
+        HistoryRecorder recorder = new HistoryRecorder(3, 10);
+        for (int i = 0; i < 5; i++) {
+            recorder.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, i));
+        }
+        StatusVariableSamples samples = recorder.getLastSamples(PATH, 10);
+        Assert.assertEquals(3, samples.size());
+        Assert.assertEquals(2, samples.getInteger(0));
+        Assert.assertEquals(3, samples.getInteger(1));
+        Assert.assertEquals(4, samples.getInteger(2));
+
+        samples = recorder.getLastSamples(PATH, 2);
+        Assert.assertEquals(2, samples.size());
+        Assert.assertEquals(3, samples.getInteger(0));
+        Assert.assertEquals(4, samples.getInteger(1));
+
+        Assert.assertEquals(0, recorder.getLastSamples(StatusVariablePath.of("com.acme.pid", "sv.id2"), 2).size());
+    }
+
+    @Test
+    public void testGetLastSamples_Types() {
+        HistoryRecorder recorder = new HistoryRecorder(10, 10);
+        recorder.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, 1));
+        recorder.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, 1.5f));
+        recorder.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, true));
+        recorder.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, "value"));
+        StatusVariableSamples samples = recorder.getLastSamples(PATH, 10);
+        Assert.assertEquals(4, samples.size());
+        Assert.assertEquals(StatusVariable.TYPE_INTEGER, samples.getType(0));
+        Assert.assertEquals(1, samples.getInteger(0));
+        Assert.assertEquals(StatusVariable.TYPE_FLOAT, samples.getType(1));
+        Assert.assertEquals(1.5f, samples.getFloat(1), 0);
+        Assert.assertEquals(StatusVariable.TYPE_BOOLEAN, samples.getType(2));
+        Assert.assertTrue(samples.getBoolean(2));
+        Assert.assertEquals(StatusVariable.TYPE_STRING, samples.getType(3));
+        Assert.assertEquals("value", samples.getString(3));
+        try {
+            samples.getInteger(3);
+            Assert.fail("Type is checked");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testGetLastSamples_StringsDictionaryIsCompacted() {
+        HistoryRecorder recorder = new HistoryRecorder(2, 10);
+        for (int i = 0; i < 100; i++) {
+            recorder.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, "value" + i));
+        }
+        StatusVariableSamples samples = recorder.getLastSamples(PATH, 2);
+        Assert.assertEquals(2, samples.size());
+        Assert.assertEquals("value98", samples.getString(0));
+        Assert.assertEquals("value99", samples.getString(1));
+    }
+
+    @Test
+    public void testGetSamples_TimeRange() {
+        HistoryRecorder recorder = new HistoryRecorder(10, 10);
+        for (int i = 0; i < 5; i++) {
+            recorder.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, i));
+        }
+        StatusVariableSamples samples = recorder.getSamples(PATH, Long.MIN_VALUE, Long.MAX_VALUE);
+        Assert.assertEquals(5, samples.size());
+        long lastTimestamp = samples.getTimeStamp(4);
+        samples = recorder.getSamples(PATH, lastTimestamp, lastTimestamp);
+        Assert.assertTrue(samples.size() >= 1);
+        Assert.assertEquals(4, samples.getInteger(samples.size() - 1));
+        Assert.assertEquals(0, recorder.getSamples(PATH, lastTimestamp + 1, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testRecord_MaxPaths() {
+        HistoryRecorder recorder = new HistoryRecorder(10, 1);
+        recorder.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, 1));
+        recorder.record(StatusVariablePath.of("com.acme.pid", "sv.id2"), new StatusVariable("sv.id2", StatusVariable.CM_CC, 1));
+        Assert.assertArrayEquals(new String[]{"com.acme.pid/sv.id"}, recorder.getRecordedPaths());
+        Assert.assertEquals(1, recorder.getDroppedSamples());
+    }
+
+    @Test
+    public void testUpdated_IsRecorded() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        MockMonitorable monitorable = new MockMonitorable(new StatusVariable("sv.id", StatusVariable.CM_CC, 0));
+        map.put(new MonitorableMockServiceReference("com.acme.pid"), monitorable);
+        osgiVisitor.setReferences(map);
+
+        HistoryRecorder recorder = new HistoryRecorder(10, 10);
+        common.addSampleRecorder(recorder);
+        common.updated("com.acme.pid", new StatusVariable("sv.id", StatusVariable.CM_CC, 5));
+        common.updated("com.acme.pid", new StatusVariable("sv.id", StatusVariable.CM_CC, 6));
+
+        StatusVariableSamples samples = recorder.getLastSamples(PATH, 10);
+        Assert.assertEquals(2, samples.size());
+        Assert.assertEquals(5, samples.getInteger(0));
+        Assert.assertEquals(6, samples.getInteger(1));
+
+        common.removeSampleRecorder(recorder);
+        common.updated("com.acme.pid", new StatusVariable("sv.id", StatusVariable.CM_CC, 7));
+        Assert.assertEquals(2, recorder.getLastSamples(PATH, 10).size());
+    }
+
+    @Test
+    public void testScheduledJob_IsRecorded() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        MockMonitorable monitorable = new MockMonitorable(new StatusVariable("sv.id", StatusVariable.CM_CC, 3));
+        map.put(new MonitorableMockServiceReference(new SecurityMockBundle(new AllPermission()), "com.acme.pid"), monitorable);
+        osgiVisitor.setReferences(map);
+
+        HistoryRecorder recorder = new HistoryRecorder(10, 10);
+        common.addSampleRecorder(recorder);
+        MonitorAdminImpl monitorAdmin = new MonitorAdminImpl(logVisitor, common, null);
+        MonitoringJob job = monitorAdmin.startScheduledJob("init", new String[]{"com.acme.pid/sv.id"}, 10, 0);
+        Thread.sleep(500);
+        job.stop();
+
+        StatusVariableSamples samples = recorder.getLastSamples(PATH, 10);
+        Assert.assertEquals(1, samples.size());
+        Assert.assertEquals(3, samples.getInteger(0));
+    }
+
+    @Test
+    public void testStatusVariableHistory_Permissions() {
+        HistoryRecorder recorder = new HistoryRecorder(10, 10);
+        recorder.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, 1));
+        recorder.record(StatusVariablePath.of("com.acme.pid", "sv.id2"), new StatusVariable("sv.id2", StatusVariable.CM_CC, 1));
+
+        StatusVariableHistory history = new StatusVariableHistoryImpl(logVisitor, recorder,
+                new SecurityMockBundle(new MonitorPermission("com.acme.pid/sv.id", MonitorPermission.READ)),
+                new PermissionCache(logVisitor, PermissionCache.DEFAULT_SIZE));
+        Assert.assertArrayEquals(new String[]{"com.acme.pid/sv.id"}, history.getRecordedPaths());
+        Assert.assertEquals(1, history.getLastSamples("com.acme.pid/sv.id", 10).size());
+        try {
+            history.getLastSamples("com.acme.pid/sv.id2", 10);
+            Assert.fail("Permission is checked");
+        } catch (SecurityException e) {
+            // expected
+        }
+    }
+}
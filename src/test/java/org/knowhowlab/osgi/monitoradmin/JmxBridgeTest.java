@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.jmx.JmxBridge;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockLogVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockMonitorable;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockOsgiVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MonitorableMockServiceReference;
+import org.knowhowlab.osgi.monitoradmin.mocks.SecurityMockBundle;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.monitor.MonitorPermission;
+import org.osgi.service.monitor.Monitorable;
+import org.osgi.service.monitor.StatusVariable;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.security.AllPermission;
+import java.util.HashMap;
+
+/**
+ * @author dmytro.pishchukhin
+ */
+public class JmxBridgeTest {
+    private MockOsgiVisitor osgiVisitor;
+    private MockLogVisitor logVisitor;
+    private MonitorAdminCommon common;
+    private MBeanServer server;
+    private MockMonitorable monitorable;
+
+    @Before
+    public void init() {
+        osgiVisitor = new MockOsgiVisitor();
+        logVisitor = new MockLogVisitor();
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor);
+        server = MBeanServerFactory.newMBeanServer();
+
+        monitorable = new MockMonitorable(new StatusVariable("sv.count", StatusVariable.CM_CC, 42),
+                new StatusVariable("sv.load", StatusVariable.CM_GAUGE, 0.5f),
+                new StatusVariable("sv.up", StatusVariable.CM_SI, true),
+                new StatusVariable("sv.state", StatusVariable.CM_SI, "ok"));
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference(new SecurityMockBundle(new AllPermission()), "com.acme.pid"),
+                monitorable);
+        osgiVisitor.setReferences(map);
+    }
+
+    @After
+    public void uninit() {
+        common.shutdown();
+    }
+
+    @Test
+    public void testRegister() throws Exception {
+        JmxBridge bridge = new JmxBridge(logVisitor, server, new MonitorAdminImpl(logVisitor, common, null));
+        bridge.register("com.acme.pid");
+        // already registered
+        bridge.register("com.acme.pid");
+        ObjectName name = JmxBridge.getObjectName("com.acme.pid");
+        Assert.assertEquals(new ObjectName("org.knowhowlab.osgi.monitoradmin:type=Monitorable,name=com.acme.pid"), name);
+        Assert.assertTrue(server.isRegistered(name));
+
+        MBeanAttributeInfo[] attributes = server.getMBeanInfo(name).getAttributes();
+        Assert.assertEquals(4, attributes.length);
+        Assert.assertEquals("sv.count", attributes[0].getName());
+        Assert.assertTrue(attributes[0].isReadable());
+        Assert.assertFalse(attributes[0].isWritable());
+
+        Assert.assertEquals(42, server.getAttribute(name, "sv.count"));
+        Assert.assertEquals(0.5f, server.getAttribute(name, "sv.load"));
+        Assert.assertEquals(Boolean.TRUE, server.getAttribute(name, "sv.up"));
+        Assert.assertEquals("ok", server.getAttribute(name, "sv.state"));
+
+        // values are read on every call
+        monitorable.setNewStatusVariableValue("sv.state", "failed");
+        Assert.assertEquals("failed", server.getAttribute(name, "sv.state"));
+
+        AttributeList list = server.getAttributes(name, new String[]{"sv.count", "sv.unknown", "sv.up"});
+        Assert.assertEquals(2, list.size());
+        Assert.assertEquals(new Attribute("sv.count", 42), list.get(0));
+        Assert.assertEquals(new Attribute("sv.up", true), list.get(1));
+
+        try {
+            server.getAttribute(name, "sv.unknown");
+            Assert.fail("Attribute is not available");
+        } catch (AttributeNotFoundException e) {
+            // expected
+        }
+        try {
+            server.setAttribute(name, new Attribute("sv.count", 1));
+            Assert.fail("Attribute is read-only");
+        } catch (AttributeNotFoundException e) {
+            // expected
+        }
+
+        bridge.unregister("com.acme.pid");
+        Assert.assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testPermissions() throws Exception {
+        JmxBridge bridge = new JmxBridge(logVisitor, server, new MonitorAdminImpl(logVisitor, common,
+                new SecurityMockBundle(new MonitorPermission("com.acme.pid/sv.count", MonitorPermission.READ))));
+        bridge.register("com.acme.pid");
+        ObjectName name = JmxBridge.getObjectName("com.acme.pid");
+
+        MBeanAttributeInfo[] attributes = server.getMBeanInfo(name).getAttributes();
+        Assert.assertEquals(1, attributes.length);
+        Assert.assertEquals("sv.count", attributes[0].getName());
+
+        AttributeList list = server.getAttributes(name, new String[]{"sv.count", "sv.up"});
+        Assert.assertEquals(1, list.size());
+        Assert.assertEquals(new Attribute("sv.count", 42), list.get(0));
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        for (int i = 0; i < 10; i++) {
+            map.put(new MonitorableMockServiceReference("com.acme.pid" + i), new MockMonitorable());
+        }
+        osgiVisitor.setReferences(map);
+        JmxBridge bridge = new JmxBridge(logVisitor, server, new MonitorAdminImpl(logVisitor, common, null));
+        for (int i = 0; i < 10; i++) {
+            bridge.register("com.acme.pid" + i);
+        }
+        ObjectName pattern = new ObjectName(JmxBridge.DOMAIN + ":*");
+        Assert.assertEquals(10, server.queryNames(pattern, null).size());
+
+        bridge.close();
+        Assert.assertEquals(0, server.queryNames(pattern, null).size());
+    }
+}
@@ -21,6 +21,8 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.api.ExtendedMonitorAdmin;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableSnapshot;
 import org.knowhowlab.osgi.monitoradmin.mocks.*;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.ServiceReference;
@@ -48,7 +50,7 @@ public class MonitorAdminImplSecurityTest {
     @After
     public void uninit() {
         if (common != null) {
-            common.cancelAllJobs();
+            common.shutdown();
         }
     }
 
@@ -753,6 +755,65 @@ public class MonitorAdminImplSecurityTest {
         Assert.assertEquals(0, paths.length);
     }
 
+    @Test
+    public void testSwitchEvents_WildcardRule_NotCoveredByPermissions() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+
+        MockMonitorable monitorable = new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, 0));
+        monitorable.setNotificationSupport("sv.id1", true);
+        map.put(new MonitorableMockServiceReference(createMockBundle(
+                new MonitorPermission("*/*", MonitorPermission.PUBLISH)
+        ), "com.acme.pid"), monitorable);
+        osgiVisitor.setReferences(map);
+
+        MonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, createMockBundle(
+                new MonitorPermission("com.acme.pid/sv.id1", MonitorPermission.SWITCHEVENTS)
+        ));
+
+        monitorAdmin.switchEvents("*/sv.id1", false);
+
+        MockMonitorable monitorable2 = new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, 0));
+        monitorable2.setNotificationSupport("sv.id1", true);
+        map.put(new MonitorableMockServiceReference(createMockBundle(
+                new MonitorPermission("*/*", MonitorPermission.PUBLISH)
+        ), "com.acme.pid2"), monitorable2);
+        osgiVisitor.setReferences(map);
+
+        String[] paths = common.getDisabledNotificationPaths();
+        Assert.assertEquals(1, paths.length);
+        Assert.assertEquals("com.acme.pid/sv.id1", paths[0]);
+    }
+
+    @Test
+    public void testSwitchEvents_WildcardRule_CoveredByPermissions() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+
+        MockMonitorable monitorable = new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, 0));
+        monitorable.setNotificationSupport("sv.id1", true);
+        map.put(new MonitorableMockServiceReference(createMockBundle(
+                new MonitorPermission("*/*", MonitorPermission.PUBLISH)
+        ), "com.acme.pid"), monitorable);
+        osgiVisitor.setReferences(map);
+
+        MonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, createMockBundle(
+                new MonitorPermission("*/sv.id1", MonitorPermission.SWITCHEVENTS)
+        ));
+
+        monitorAdmin.switchEvents("*/sv.id1", false);
+
+        MockMonitorable monitorable2 = new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, 0));
+        monitorable2.setNotificationSupport("sv.id1", true);
+        map.put(new MonitorableMockServiceReference(createMockBundle(
+                new MonitorPermission("*/*", MonitorPermission.PUBLISH)
+        ), "com.acme.pid2"), monitorable2);
+        osgiVisitor.setReferences(map);
+
+        String[] paths = common.getDisabledNotificationPaths();
+        Assert.assertEquals(2, paths.length);
+        Assert.assertEquals("com.acme.pid/sv.id1", paths[0]);
+        Assert.assertEquals("com.acme.pid2/sv.id1", paths[1]);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testSwitchEvents_NoPublishPermissions() throws Exception {
         HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
@@ -1045,6 +1106,59 @@ public class MonitorAdminImplSecurityTest {
         monitorAdmin.startScheduledJob("init1", new String[]{"com.acme.pid/sv.id1"}, 5, 0);
     }
 
+    @Test
+    public void testGetSnapshot_WithMonitorPermissions() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference(createMockBundle(
+                new MonitorPermission("com.acme.pid1/sv.id1", MonitorPermission.PUBLISH),
+                new MonitorPermission("com.acme.pid1/sv.id2", MonitorPermission.PUBLISH)
+        ), "com.acme.pid1"), new MockMonitorable(
+                new StatusVariable("sv.id1", StatusVariable.CM_CC, 1),
+                new StatusVariable("sv.id2", StatusVariable.CM_CC, 2),
+                new StatusVariable("sv.id3", StatusVariable.CM_CC, 3)));
+        map.put(new MonitorableMockServiceReference(createMockBundle(), "com.acme.pid2"), new MockMonitorable(
+                new StatusVariable("sv.id1", StatusVariable.CM_CC, 4)));
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, createMockBundle(
+                new MonitorPermission("com.acme.pid1/*", MonitorPermission.READ)
+        ));
+
+        StatusVariableSnapshot snapshot = monitorAdmin.getSnapshot();
+        // sv.id3 is not published, com.acme.pid2 is not readable
+        Assert.assertEquals(2, snapshot.size());
+        Assert.assertEquals("com.acme.pid1/sv.id1", snapshot.getPath(0));
+        Assert.assertEquals("com.acme.pid1/sv.id2", snapshot.getPath(1));
+        Assert.assertEquals(0, snapshot.getFailedMonitorableIds().length);
+    }
+
+    @Test
+    public void testStartFixedRateJob_StartJobFrequencyPermissions() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+
+        MockMonitorable monitorable = new MockMonitorable(
+                new StatusVariable("sv.id1", StatusVariable.CM_CC, 0)
+        );
+        map.put(new MonitorableMockServiceReference(createMockBundle(
+                new MonitorPermission("com.acme.pid/sv.id1", MonitorPermission.PUBLISH)
+        ), "com.acme.pid"), monitorable);
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, createMockBundle(
+                new MonitorPermission("com.acme.pid/sv.id1", MonitorPermission.STARTJOB + ":1")
+        ));
+
+        MonitoringJob job = monitorAdmin.startFixedRateJob("init1", new String[]{"com.acme.pid/sv.id1"}, 1500, 0, false);
+        Assert.assertEquals(1, monitorAdmin.getRunningJobs().length);
+        job.stop();
+        try {
+            monitorAdmin.startFixedRateJob("init1", new String[]{"com.acme.pid/sv.id1"}, 100, 0, false);
+            Assert.fail("Sub-second period requires startjob:0 action");
+        } catch (SecurityException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testGetRunningJobs_WithAllPermissions() throws Exception {
         HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
@@ -21,20 +21,38 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.api.ExtendedMonitorAdmin;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableResult;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableSnapshot;
+import org.knowhowlab.osgi.monitoradmin.job.AggregationMonitoringJob;
+import org.knowhowlab.osgi.monitoradmin.job.MonitoringJobScheduler;
+import org.knowhowlab.osgi.monitoradmin.job.ScheduledMonitoringJob;
+import org.knowhowlab.osgi.monitoradmin.job.SubscriptionMonitoringJob;
 import org.knowhowlab.osgi.monitoradmin.mocks.MockLogVisitor;
 import org.knowhowlab.osgi.monitoradmin.mocks.MockMonitorable;
 import org.knowhowlab.osgi.monitoradmin.mocks.MockOsgiVisitor;
 import org.knowhowlab.osgi.monitoradmin.mocks.MonitorableMockServiceReference;
+import org.knowhowlab.osgi.monitoradmin.mocks.SecurityMockBundle;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.event.Event;
 import org.osgi.service.monitor.MonitorAdmin;
+import org.osgi.service.monitor.MonitorPermission;
 import org.osgi.service.monitor.Monitorable;
 import org.osgi.service.monitor.MonitoringJob;
 import org.osgi.service.monitor.StatusVariable;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author dmytro.pishchukhin
@@ -56,7 +74,7 @@ public class MonitorAdminImplTest {
     public void uninit() {
         osgiVisitor.cleanPostedEvents();
         if (common != null) {
-            common.cancelAllJobs();
+            common.shutdown();
         }
     }
 
@@ -149,6 +167,75 @@ public class MonitorAdminImplTest {
         monitorAdmin.getStatusVariable("com.acme.pid/sv.id_u");
     }
 
+    @Test
+    public void testReadStatusVariables_Bulk() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+
+        MockMonitorable monitorable1 = new MockMonitorable();
+        monitorable1.setStatusVariables(new StatusVariable[]{
+                new StatusVariable("sv.id1", StatusVariable.CM_CC, 1),
+                new StatusVariable("sv.id2", StatusVariable.CM_CC, "2")});
+        MockMonitorable monitorable2 = new MockMonitorable();
+        monitorable2.setStatusVariables(new StatusVariable[]{new StatusVariable("sv.id1", StatusVariable.CM_CC, 3)});
+
+        map.put(new MonitorableMockServiceReference("com.acme.pid1"), monitorable1);
+        map.put(new MonitorableMockServiceReference("com.acme.pid2"), monitorable2);
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+
+        String[] paths = {"com.acme.pid1/sv.id2", "com.acme.pid2/sv.id1", "/&%(/=", "com.acme.pid1/sv.id1",
+                "com.aaa/sv.id", "com.acme.pid2/sv.id_u", null};
+        StatusVariableResult[] results = monitorAdmin.readStatusVariables(paths);
+        Assert.assertEquals(paths.length, results.length);
+        for (int i = 0; i < paths.length; i++) {
+            Assert.assertEquals(paths[i], results[i].getPath());
+        }
+        Assert.assertTrue(results[0].isSuccess());
+        Assert.assertEquals("2", results[0].getStatusVariable().getString());
+        Assert.assertTrue(results[1].isSuccess());
+        Assert.assertEquals(3, results[1].getStatusVariable().getInteger());
+        Assert.assertTrue(results[3].isSuccess());
+        Assert.assertEquals(1, results[3].getStatusVariable().getInteger());
+        for (int i : new int[]{2, 4, 5, 6}) {
+            Assert.assertFalse(results[i].isSuccess());
+            Assert.assertNull(results[i].getStatusVariable());
+            Assert.assertTrue(results[i].getError() instanceof IllegalArgumentException);
+        }
+        Assert.assertEquals(0, monitorAdmin.readStatusVariables(new String[0]).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadStatusVariables_Null() throws Exception {
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+
+        monitorAdmin.readStatusVariables(null);
+    }
+
+    @Test
+    public void testReadStatusVariables_Permissions() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+
+        MockMonitorable monitorable = new MockMonitorable();
+        monitorable.setStatusVariables(new StatusVariable[]{
+                new StatusVariable("sv.id1", StatusVariable.CM_CC, 1),
+                new StatusVariable("sv.id2", StatusVariable.CM_CC, 2)});
+
+        map.put(new MonitorableMockServiceReference(new SecurityMockBundle(
+                new MonitorPermission("com.acme.pid/*", MonitorPermission.PUBLISH)), "com.acme.pid"), monitorable);
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common,
+                new SecurityMockBundle(new MonitorPermission("com.acme.pid/sv.id1", MonitorPermission.READ)));
+
+        StatusVariableResult[] results = monitorAdmin.readStatusVariables(
+                new String[]{"com.acme.pid/sv.id1", "com.acme.pid/sv.id2"});
+        Assert.assertTrue(results[0].isSuccess());
+        Assert.assertEquals(1, results[0].getStatusVariable().getInteger());
+        Assert.assertFalse(results[1].isSuccess());
+        Assert.assertTrue(results[1].getError() instanceof SecurityException);
+    }
+
     private MonitorAdmin prepareMonitorAdminForGetStatusVariableTests() {
         HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
 
@@ -619,6 +706,216 @@ public class MonitorAdminImplTest {
         Assert.assertNull(events[0].getProperty(ConstantsMonitorAdmin.MON_LISTENER_ID));
     }
 
+    @Test
+    public void testStartJob_MinInterval() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        MockMonitorable monitorable = new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, "0"));
+        monitorable.setNotificationSupport("sv.id1", true);
+        map.put(new MonitorableMockServiceReference("com.acme.pid"), monitorable);
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+        monitorable.setListener(common);
+        monitorable.setMonitorableId("com.acme.pid");
+
+        SubscriptionMonitoringJob job = (SubscriptionMonitoringJob) monitorAdmin.startJob("init1",
+                new String[]{"com.acme.pid/sv.id1"}, 1, 300);
+        Assert.assertEquals(300, job.getMinInterval());
+        for (int i = 1; i <= 100; i++) {
+            monitorable.setNewStatusVariableValue("sv.id1", String.valueOf(i));
+        }
+        // the first update is sent immediately
+        Event[] events = getJobEvents("init1");
+        Assert.assertEquals(1, events.length);
+        Assert.assertEquals("1", events[0].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+
+        // the latest update is sent at the end of interval
+        TimeUnit.MILLISECONDS.sleep(500);
+        events = getJobEvents("init1");
+        Assert.assertEquals(2, events.length);
+        Assert.assertEquals("100", events[1].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+        Assert.assertEquals(98, job.getCoalescedEvents());
+
+        job.stop();
+    }
+
+    @Test
+    public void testStartJob_MinInterval_ConcurrentUpdates() throws Exception {
+        common.shutdown();
+        final List<Long> eventTimes = new ArrayList<Long>();
+        osgiVisitor = new MockOsgiVisitor() {
+            @Override
+            public synchronized void postEvent(Event event) {
+                if ("init1".equals(event.getProperty(ConstantsMonitorAdmin.MON_LISTENER_ID))) {
+                    eventTimes.add(System.nanoTime());
+                }
+                super.postEvent(event);
+            }
+        };
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor);
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        MockMonitorable monitorable = new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, "0"));
+        monitorable.setNotificationSupport("sv.id1", true);
+        map.put(new MonitorableMockServiceReference("com.acme.pid"), monitorable);
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+        // only job events are posted
+        monitorAdmin.switchEvents("com.acme.pid/sv.id1", false);
+        final long minInterval = 20;
+        MonitoringJob job = monitorAdmin.startJob("init1", new String[]{"com.acme.pid/sv.id1"}, 1, minInterval);
+
+        int threads = 4;
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Runnable() {
+                    public void run() {
+                        int value = 0;
+                        while (System.nanoTime() < deadline) {
+                            common.updated("com.acme.pid", new StatusVariable("sv.id1", StatusVariable.CM_CC,
+                                    String.valueOf(value++)));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        TimeUnit.MILLISECONDS.sleep(minInterval * 4);
+        common.updated("com.acme.pid", new StatusVariable("sv.id1", StatusVariable.CM_CC, "latest"));
+        TimeUnit.MILLISECONDS.sleep(minInterval * 4);
+        job.stop();
+
+        Event[] events = getJobEvents("init1");
+        Assert.assertEquals("latest", events[events.length - 1].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+        synchronized (osgiVisitor) {
+            // at most one event per interval, timestamps are taken after event is fired
+            long minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minInterval);
+            for (int i = 1; i < eventTimes.size(); i++) {
+                long gap = eventTimes.get(i) - eventTimes.get(i - 1);
+                Assert.assertTrue("Gap: " + gap, gap >= minIntervalNanos / 2);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStartJob_InvalidMinInterval() throws Exception {
+        ExtendedMonitorAdmin monitorAdmin = (ExtendedMonitorAdmin) prepareMonitorAdminForStartJobTests();
+
+        monitorAdmin.startJob("init1", new String[]{"com.acme.pid/sv.id1"}, 1, -1);
+    }
+
+    @Test
+    public void testStartAggregationJob_FixedWindow() throws Exception {
+        MockMonitorable monitorable = prepareMonitorableForAggregationJobTests();
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+
+        MonitoringJob job = monitorAdmin.startAggregationJob("init1", new String[]{"com.acme.pid/sv.id1"}, 400, 400, 1);
+        Assert.assertTrue(job.isRunning());
+        for (int i = 1; i <= 10; i++) {
+            monitorable.setNewStatusVariableValue("sv.id1", String.valueOf(i));
+        }
+        Assert.assertEquals(0, getJobEvents("init1").length);
+
+        TimeUnit.MILLISECONDS.sleep(700);
+        Event[] events = getJobEvents("init1");
+        Assert.assertEquals(1, events.length);
+        Assert.assertEquals("sv.id1", events[0].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_NAME));
+        Assert.assertEquals("5.5", events[0].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+        Assert.assertEquals("5.5", events[0].getProperty(ExtendedMonitorAdmin.MON_AGGREGATE_MEAN));
+        Assert.assertEquals("1.0", events[0].getProperty(ExtendedMonitorAdmin.MON_AGGREGATE_MIN));
+        Assert.assertEquals("10.0", events[0].getProperty(ExtendedMonitorAdmin.MON_AGGREGATE_MAX));
+        Assert.assertEquals("55.0", events[0].getProperty(ExtendedMonitorAdmin.MON_AGGREGATE_SUM));
+        Assert.assertEquals("10", events[0].getProperty(ExtendedMonitorAdmin.MON_AGGREGATE_COUNT));
+        // count of windows is reached
+        Assert.assertFalse(job.isRunning());
+    }
+
+    @Test
+    public void testStartAggregationJob_SlidingWindow() throws Exception {
+        MockMonitorable monitorable = prepareMonitorableForAggregationJobTests();
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+
+        // windows are triggered manually
+        AggregationMonitoringJob job = (AggregationMonitoringJob) monitorAdmin.startAggregationJob("init1",
+                new String[]{"com.acme.pid/sv.id1"}, 2000000, 1000000, 0);
+        monitorable.setNewStatusVariableValue("sv.id1", "1");
+        monitorable.setNewStatusVariableValue("sv.id1", "2");
+        job.run();
+        monitorable.setNewStatusVariableValue("sv.id1", "3");
+        job.run();
+        monitorable.setNewStatusVariableValue("sv.id1", "4");
+        job.run();
+        job.run();
+        job.run();
+
+        Event[] events = getJobEvents("init1");
+        Assert.assertEquals(4, events.length);
+        Assert.assertEquals("2", events[0].getProperty(ExtendedMonitorAdmin.MON_AGGREGATE_COUNT));
+        Assert.assertEquals("3", events[1].getProperty(ExtendedMonitorAdmin.MON_AGGREGATE_COUNT));
+        Assert.assertEquals("1.0", events[1].getProperty(ExtendedMonitorAdmin.MON_AGGREGATE_MIN));
+        // the oldest bucket is out of window
+        Assert.assertEquals("2", events[2].getProperty(ExtendedMonitorAdmin.MON_AGGREGATE_COUNT));
+        Assert.assertEquals("3.0", events[2].getProperty(ExtendedMonitorAdmin.MON_AGGREGATE_MIN));
+        Assert.assertEquals("4.0", events[2].getProperty(ExtendedMonitorAdmin.MON_AGGREGATE_MAX));
+        Assert.assertEquals("1", events[3].getProperty(ExtendedMonitorAdmin.MON_AGGREGATE_COUNT));
+        job.stop();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStartAggregationJob_InvalidSlide() throws Exception {
+        prepareMonitorableForAggregationJobTests();
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+
+        monitorAdmin.startAggregationJob("init1", new String[]{"com.acme.pid/sv.id1"}, 1000, 300, 0);
+    }
+
+    @Test
+    public void testStartAggregationJob_TooManySlides() throws Exception {
+        prepareMonitorableForAggregationJobTests();
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+
+        try {
+            monitorAdmin.startAggregationJob("init1", new String[]{"com.acme.pid/sv.id1"},
+                    (AggregationMonitoringJob.MAX_SLIDES_PER_WINDOW + 1) * 10L, 10, 0);
+            Assert.fail("Too many slides in window");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertEquals(0, monitorAdmin.getRunningJobs().length);
+
+        MonitoringJob job = monitorAdmin.startAggregationJob("init1", new String[]{"com.acme.pid/sv.id1"},
+                AggregationMonitoringJob.MAX_SLIDES_PER_WINDOW * 10L, 10, 0);
+        job.stop();
+    }
+
+    private MockMonitorable prepareMonitorableForAggregationJobTests() {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        MockMonitorable monitorable = new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, 0));
+        monitorable.setNotificationSupport("sv.id1", true);
+        map.put(new MonitorableMockServiceReference("com.acme.pid"), monitorable);
+        osgiVisitor.setReferences(map);
+        monitorable.setListener(common);
+        monitorable.setMonitorableId("com.acme.pid");
+        return monitorable;
+    }
+
+    private Event[] getJobEvents(String initiator) {
+        List<Event> result = new ArrayList<Event>();
+        for (Event event : osgiVisitor.getPostedEvents()) {
+            if (initiator.equals(event.getProperty(ConstantsMonitorAdmin.MON_LISTENER_ID))) {
+                result.add(event);
+            }
+        }
+        return result.toArray(new Event[result.size()]);
+    }
+
     @Test
     public void testStartJob_Valid() throws Exception {
         HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
@@ -678,6 +975,51 @@ public class MonitorAdminImplTest {
         Assert.assertNull(events[0].getProperty(ConstantsMonitorAdmin.MON_LISTENER_ID));
     }
 
+    @Test
+    public void testStartJob_ConcurrentUpdates() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+
+        MockMonitorable monitorable = new MockMonitorable();
+
+        StatusVariable[] statusVariables = {
+            new StatusVariable("sv.id1", StatusVariable.CM_CC, 0),
+            new StatusVariable("sv.id2", StatusVariable.CM_CC, 0)
+        };
+        monitorable.setStatusVariables(statusVariables);
+        monitorable.setNotificationSupport("sv.id1", true);
+        monitorable.setNotificationSupport("sv.id2", true);
+
+        map.put(new MonitorableMockServiceReference("com.acme.pid"), monitorable);
+        osgiVisitor.setReferences(map);
+
+        MonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+        monitorAdmin.switchEvents("com.acme.pid/*", false);
+
+        monitorAdmin.startJob("init1", new String[]{"com.acme.pid/sv.id1"}, 2);
+        monitorAdmin.startJob("init2", new String[]{"com.acme.pid/sv.id2"}, 1);
+
+        Thread[] producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            producers[i] = new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        common.updated("com.acme.pid", new StatusVariable("sv.id1", StatusVariable.CM_CC, j));
+                    }
+                }
+            });
+            producers[i].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        Event[] events = osgiVisitor.getPostedEvents();
+        Assert.assertEquals(2000, events.length);
+        for (Event event : events) {
+            Assert.assertEquals("init1", event.getProperty(ConstantsMonitorAdmin.MON_LISTENER_ID));
+        }
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testStartJob_Invalid1() throws Exception {
         MonitorAdmin monitorAdmin = prepareMonitorAdminForStartJobTests();
@@ -780,6 +1122,515 @@ public class MonitorAdminImplTest {
         Assert.assertEquals(0, events.length);
     }
 
+    @Test
+    public void testStartScheduledJob_SharedScheduler() throws Exception {
+        MonitorAdmin monitorAdmin = prepareMonitorAdminForStartScheduledJobTests();
+
+        for (int i = 0; i < 50; i++) {
+            monitorAdmin.startScheduledJob("init" + i, new String[]{"com.acme.pid/sv.id1"}, 1, 0);
+        }
+        Assert.assertEquals(50, monitorAdmin.getRunningJobs().length);
+
+        TimeUnit.MILLISECONDS.sleep(500);
+
+        int schedulerThreads = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("MonitorAdmin Scheduler-")) {
+                schedulerThreads++;
+            }
+        }
+        Assert.assertTrue(schedulerThreads <= MonitoringJobScheduler.DEFAULT_POOL_SIZE);
+        Assert.assertEquals(50, osgiVisitor.getPostedEvents().length);
+    }
+
+    @Test
+    public void testStartScheduledJob_ChangeOnly() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        MockMonitorable monitorable = new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, 1),
+                new StatusVariable("sv.id2", StatusVariable.CM_CC, "test"));
+        map.put(new MonitorableMockServiceReference("com.acme.pid"), monitorable);
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+        // first measurement is taken immediately, the next ones are triggered manually
+        ScheduledMonitoringJob job = (ScheduledMonitoringJob) monitorAdmin.startScheduledJob("init1",
+                new String[]{"com.acme.pid/sv.id1", "com.acme.pid/sv.id2"}, 1000, 0, true, 0);
+        TimeUnit.MILLISECONDS.sleep(200);
+        Assert.assertEquals(2, osgiVisitor.getPostedEvents().length);
+
+        job.run();
+        job.run();
+        Assert.assertEquals(2, osgiVisitor.getPostedEvents().length);
+        Assert.assertEquals(4, job.getSuppressedEvents());
+
+        monitorable.setStatusVariables(new StatusVariable("sv.id1", StatusVariable.CM_CC, 2));
+        job.run();
+        Event[] events = osgiVisitor.getPostedEvents();
+        Assert.assertEquals(3, events.length);
+        Assert.assertEquals("sv.id1", events[2].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_NAME));
+        Assert.assertEquals("2", events[2].getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+
+        monitorable.setStatusVariables(new StatusVariable("sv.id2", StatusVariable.CM_CC, 1.5f));
+        job.run();
+        Assert.assertEquals(4, osgiVisitor.getPostedEvents().length);
+        job.stop();
+    }
+
+    @Test
+    public void testStartScheduledJob_ChangeOnlyHeartbeat() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("com.acme.pid"),
+                new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, 1)));
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+        ScheduledMonitoringJob job = (ScheduledMonitoringJob) monitorAdmin.startScheduledJob("init1",
+                new String[]{"com.acme.pid/sv.id1"}, 1000, 0, true, 1);
+        TimeUnit.MILLISECONDS.sleep(200);
+        job.run();
+        Assert.assertEquals(1, osgiVisitor.getPostedEvents().length);
+
+        TimeUnit.MILLISECONDS.sleep(1000);
+        job.run();
+        Assert.assertEquals(2, osgiVisitor.getPostedEvents().length);
+        job.stop();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStartScheduledJob_InvalidHeartbeat() throws Exception {
+        ExtendedMonitorAdmin monitorAdmin = (ExtendedMonitorAdmin) prepareMonitorAdminForStartScheduledJobTests();
+
+        monitorAdmin.startScheduledJob("init1", new String[]{"com.acme.pid/sv.id1"}, 1, 0, true, -1);
+    }
+
+    @Test
+    public void testStartScheduledJob_ParallelCollection() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("com.acme.pid1"),
+                new SlowMonitorable(400, new StatusVariable("sv.id1", StatusVariable.CM_CC, 1)));
+        map.put(new MonitorableMockServiceReference("com.acme.pid2"),
+                new SlowMonitorable(400, new StatusVariable("sv.id1", StatusVariable.CM_CC, 2)));
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+        MonitoringJob job = monitorAdmin.startScheduledJob("init1",
+                new String[]{"com.acme.pid1/sv.id1", "com.acme.pid2/sv.id1"}, 1000, 0);
+        // sequential reads would take 800ms
+        TimeUnit.MILLISECONDS.sleep(650);
+        Assert.assertEquals(2, getJobEvents("init1").length);
+        job.stop();
+    }
+
+    @Test
+    public void testStartScheduledJob_ReadTimeout() throws Exception {
+        common.shutdown();
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor, new MonitoringJobScheduler(1, 2, 200));
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("com.acme.pid"),
+                new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, 1)));
+        map.put(new MonitorableMockServiceReference("com.acme.slow"),
+                new SlowMonitorable(1000, new StatusVariable("sv.id1", StatusVariable.CM_CC, 2)));
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+        ScheduledMonitoringJob job = (ScheduledMonitoringJob) monitorAdmin.startScheduledJob("init1",
+                new String[]{"com.acme.pid/sv.id1", "com.acme.slow/sv.id1"}, 1000, 0);
+        TimeUnit.MILLISECONDS.sleep(500);
+        Event[] events = getJobEvents("init1");
+        Assert.assertEquals(2, events.length);
+        Event timeoutEvent = "com.acme.slow".equals(events[0].getProperty(ConstantsMonitorAdmin.MON_MONITORABLE_PID))
+                ? events[0] : events[1];
+        Assert.assertEquals(ExtendedMonitorAdmin.TIMEOUT_TOPIC, timeoutEvent.getTopic());
+        Assert.assertEquals("sv.id1", timeoutEvent.getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_NAME));
+        Assert.assertEquals("true", timeoutEvent.getProperty(ExtendedMonitorAdmin.MON_READ_TIMEOUT));
+        Assert.assertNull(timeoutEvent.getProperty(ConstantsMonitorAdmin.MON_STATUSVARIABLE_VALUE));
+        Assert.assertEquals(1, job.getTimedOutReads());
+
+        // slow read is still in progress: it is not repeated
+        job.run();
+        Assert.assertEquals(2, job.getTimedOutReads());
+        job.stop();
+    }
+
+    @Test
+    public void testStartFixedRateJob() throws Exception {
+        ExtendedMonitorAdmin monitorAdmin = (ExtendedMonitorAdmin) prepareMonitorAdminForStartScheduledJobTests();
+        ScheduledMonitoringJob job = (ScheduledMonitoringJob) monitorAdmin.startFixedRateJob("init1",
+                new String[]{"com.acme.pid/sv.id1"}, 100, 0, false);
+        Assert.assertTrue(job.isFixedRate());
+        Assert.assertEquals(100, job.getPeriod());
+        Assert.assertEquals(1, job.getSchedule());
+        TimeUnit.MILLISECONDS.sleep(450);
+        job.stop();
+        int measurements = getJobEvents("init1").length;
+        Assert.assertTrue("Measurements: " + measurements, measurements >= 4 && measurements <= 5);
+        Assert.assertEquals(0, job.getOverruns());
+    }
+
+    @Test
+    public void testStartFixedRateJob_Aligned() throws Exception {
+        final List<Long> readTimes = new ArrayList<Long>();
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("com.acme.pid"),
+                new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, 1)) {
+                    @Override
+                    public StatusVariable getStatusVariable(String s) throws IllegalArgumentException {
+                        synchronized (readTimes) {
+                            readTimes.add(System.currentTimeMillis());
+                        }
+                        return super.getStatusVariable(s);
+                    }
+                });
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+        MonitoringJob job = monitorAdmin.startFixedRateJob("init1", new String[]{"com.acme.pid/sv.id1"}, 200, 0, true);
+        TimeUnit.MILLISECONDS.sleep(700);
+        job.stop();
+        synchronized (readTimes) {
+            Assert.assertTrue(readTimes.size() >= 3);
+            // measurements start at wall-clock multiples of period
+            for (long readTime : readTimes) {
+                Assert.assertTrue("Read time: " + readTime, readTime % 200 < 50);
+            }
+        }
+    }
+
+    @Test
+    public void testStartFixedRateJob_Overruns() throws Exception {
+        common.shutdown();
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor, new MonitoringJobScheduler(1, 0, 1000));
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("com.acme.slow"),
+                new SlowMonitorable(120, new StatusVariable("sv.id1", StatusVariable.CM_CC, 2)));
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+        ScheduledMonitoringJob job = (ScheduledMonitoringJob) monitorAdmin.startFixedRateJob("init1",
+                new String[]{"com.acme.slow/sv.id1"}, 50, 0, false);
+        TimeUnit.MILLISECONDS.sleep(600);
+        job.stop();
+        int measurements = getJobEvents("init1").length;
+        // missed measurements are skipped, not executed back-to-back
+        Assert.assertTrue("Measurements: " + measurements, measurements >= 3 && measurements <= 6);
+        Assert.assertTrue("Overruns: " + job.getOverruns(), job.getOverruns() >= 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStartFixedRateJob_InvalidPeriod() throws Exception {
+        ExtendedMonitorAdmin monitorAdmin = (ExtendedMonitorAdmin) prepareMonitorAdminForStartScheduledJobTests();
+        monitorAdmin.startFixedRateJob("init1", new String[]{"com.acme.pid/sv.id1"}, 0, 0, false);
+    }
+
+    @Test
+    public void testStartScheduledJob_StoppedByFirstMeasurement() throws Exception {
+        common.shutdown();
+        final AtomicInteger canceled = new AtomicInteger();
+        logVisitor = new MockLogVisitor() {
+            @Override
+            public void info(String message, Throwable throwable) {
+                if (message.startsWith("Job Canceled")) {
+                    canceled.incrementAndGet();
+                }
+            }
+        };
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor, new MonitoringJobScheduler(2, 0, 1000));
+        MonitorAdmin monitorAdmin = prepareMonitorAdminForStartScheduledJobTests();
+
+        int jobs = 2000;
+        for (int i = 0; i < jobs; i++) {
+            monitorAdmin.startScheduledJob("init" + i, new String[]{"com.acme.pid/sv.id1"}, 1, 1);
+        }
+        for (int i = 0; i < 100 && canceled.get() < jobs; i++) {
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+        // every job future is canceled
+        Assert.assertEquals(jobs, canceled.get());
+        Assert.assertEquals(0, monitorAdmin.getRunningJobs().length);
+    }
+
+    @Test
+    public void testStartScheduledJob_PhaseSpread() throws Exception {
+        common.shutdown();
+        MonitoringJobScheduler scheduler = new MonitoringJobScheduler(1, 0, 1000, true);
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor, scheduler);
+        MonitorAdmin monitorAdmin = prepareMonitorAdminForStartScheduledJobTests();
+
+        List<MonitoringJob> jobs = new ArrayList<MonitoringJob>();
+        for (int i = 0; i < 20; i++) {
+            jobs.add(monitorAdmin.startScheduledJob("init" + i, new String[]{"com.acme.pid/sv.id1"}, 1, 0));
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(150);
+            int started = 0;
+            for (int i = 0; i < 20; i++) {
+                started += getJobEvents("init" + i).length;
+            }
+            // offsets are spread over the whole second
+            Assert.assertTrue("Started: " + started, started < 12);
+            TimeUnit.MILLISECONDS.sleep(1000);
+            for (int i = 0; i < 20; i++) {
+                Assert.assertTrue(getJobEvents("init" + i).length >= 1);
+            }
+            Assert.assertTrue("Ticks peak: " + scheduler.getTickPeak(), scheduler.getTickPeak() < 12);
+        } finally {
+            for (MonitoringJob job : jobs) {
+                job.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testStartScheduledJob_NoPhaseSpread() throws Exception {
+        MonitoringJobScheduler scheduler = common.getScheduler();
+        Assert.assertFalse(scheduler.isPhaseSpread());
+        MonitorAdmin monitorAdmin = prepareMonitorAdminForStartScheduledJobTests();
+
+        List<MonitoringJob> jobs = new ArrayList<MonitoringJob>();
+        for (int i = 0; i < 20; i++) {
+            jobs.add(monitorAdmin.startScheduledJob("init" + i, new String[]{"com.acme.pid/sv.id1"}, 10, 0));
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(50);
+            // all jobs are measured at once, tick window may be crossed
+            Assert.assertTrue("Ticks peak: " + scheduler.getTickPeak(), scheduler.getTickPeak() >= 10);
+            scheduler.resetTickPeak();
+            Assert.assertEquals(0, scheduler.getTickPeak());
+        } finally {
+            for (MonitoringJob job : jobs) {
+                job.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testGetSnapshot() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("com.acme.pid2"), new MockMonitorable(
+                new StatusVariable("sv.id1", StatusVariable.CM_CC, 5),
+                new StatusVariable("sv.id2", StatusVariable.CM_GAUGE, 1.5f)));
+        map.put(new MonitorableMockServiceReference("com.acme.empty"), new MockMonitorable());
+        map.put(new MonitorableMockServiceReference("com.acme.pid1"), new MockMonitorable(
+                new StatusVariable("sv.id2", StatusVariable.CM_SI, "test"),
+                new StatusVariable("sv.id1", StatusVariable.CM_DER, true)));
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+        long before = System.currentTimeMillis();
+        StatusVariableSnapshot snapshot = monitorAdmin.getSnapshot();
+        Assert.assertTrue(snapshot.getCaptureTime() >= before);
+        Assert.assertTrue(snapshot.getCaptureTime() <= System.currentTimeMillis());
+        Assert.assertTrue(snapshot.getReadSpread() >= 0);
+        Assert.assertArrayEquals(new String[]{"com.acme.empty", "com.acme.pid1", "com.acme.pid2"},
+                snapshot.getMonitorableIds());
+        Assert.assertEquals(0, snapshot.getFailedMonitorableIds().length);
+        Assert.assertEquals(4, snapshot.size());
+        Assert.assertEquals(0, snapshot.getOffset(1));
+        Assert.assertEquals(2, snapshot.getOffset(2));
+        Assert.assertEquals(4, snapshot.getOffset(3));
+
+        Assert.assertEquals("com.acme.pid1/sv.id1", snapshot.getPath(0));
+        Assert.assertEquals(StatusVariable.TYPE_BOOLEAN, snapshot.getType(0));
+        Assert.assertEquals(StatusVariable.CM_DER, snapshot.getCollectionMethod(0));
+        Assert.assertTrue(snapshot.getBoolean(0));
+        Assert.assertEquals("com.acme.pid1/sv.id2", snapshot.getPath(1));
+        Assert.assertEquals("test", snapshot.getString(1));
+        Assert.assertEquals("com.acme.pid2/sv.id1", snapshot.getPath(2));
+        Assert.assertEquals(5, snapshot.getInteger(2));
+        Assert.assertEquals("com.acme.pid2", snapshot.getMonitorableId(3));
+        Assert.assertEquals("sv.id2", snapshot.getStatusVariableId(3));
+        Assert.assertEquals(1.5f, snapshot.getFloat(3), 0f);
+        StatusVariable statusVariable = snapshot.getStatusVariable(3);
+        Assert.assertEquals("sv.id2", statusVariable.getID());
+        Assert.assertEquals(StatusVariable.CM_GAUGE, statusVariable.getCollectionMethod());
+        Assert.assertEquals(1.5f, statusVariable.getFloat(), 0f);
+        try {
+            snapshot.getInteger(3);
+            Assert.fail("StatusVariable is float");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testGetSnapshot_Parallel() throws Exception {
+        common.shutdown();
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor, new MonitoringJobScheduler(1, 4, 300));
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        for (int i = 0; i < 3; i++) {
+            map.put(new MonitorableMockServiceReference("com.acme.pid" + i),
+                    new SlowMonitorable(100, new StatusVariable("sv.id1", StatusVariable.CM_CC, i)));
+        }
+        map.put(new MonitorableMockServiceReference("com.acme.slow"),
+                new SlowMonitorable(1000, new StatusVariable("sv.id1", StatusVariable.CM_CC, 2)));
+        osgiVisitor.setReferences(map);
+
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+        long start = System.nanoTime();
+        StatusVariableSnapshot snapshot = monitorAdmin.getSnapshot();
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // Monitorables are read in parallel, the slow one is not awaited after read timeout
+        Assert.assertTrue("Duration: " + duration, duration < 600);
+        Assert.assertArrayEquals(new String[]{"com.acme.pid0", "com.acme.pid1", "com.acme.pid2"},
+                snapshot.getMonitorableIds());
+        Assert.assertArrayEquals(new String[]{"com.acme.slow"}, snapshot.getFailedMonitorableIds());
+        Assert.assertEquals(3, snapshot.size());
+        Assert.assertTrue("Spread: " + snapshot.getReadSpread(),
+                snapshot.getReadSpread() < TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    public void testGetStatusVariable_PublishedNamesAreCached() throws Exception {
+        final AtomicInteger namesCalls = new AtomicInteger();
+        MockMonitorable monitorable = new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, 1)) {
+            @Override
+            public String[] getStatusVariableNames() {
+                namesCalls.incrementAndGet();
+                return super.getStatusVariableNames();
+            }
+        };
+        MonitorableMockServiceReference reference = new MonitorableMockServiceReference("com.acme.pid");
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(reference, monitorable);
+        osgiVisitor.setReferences(map);
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+
+        for (int i = 0; i < 10; i++) {
+            monitorAdmin.getStatusVariable("com.acme.pid/sv.id1");
+            monitorAdmin.readStatusVariables(new String[]{"com.acme.pid/sv.id1"});
+        }
+        Assert.assertEquals(1, namesCalls.get());
+
+        // modified Monitorable is asked again
+        monitorable.setStatusVariables(new StatusVariable("sv.id2", StatusVariable.CM_CC, 2));
+        common.invalidatePublishedNames(reference);
+        Assert.assertNotNull(monitorAdmin.getStatusVariable("com.acme.pid/sv.id2"));
+        Assert.assertEquals(2, namesCalls.get());
+    }
+
+    @Test
+    public void testGetStatusVariable_Coalesced() throws Exception {
+        SlowMonitorable monitorable = new SlowMonitorable(300, new StatusVariable("sv.id1", StatusVariable.CM_CC, 7));
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("com.acme.pid"), monitorable);
+        osgiVisitor.setReferences(map);
+        final MonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            List<Future<StatusVariable>> results = new ArrayList<Future<StatusVariable>>();
+            for (int i = 0; i < 5; i++) {
+                results.add(executor.submit(new Callable<StatusVariable>() {
+                    public StatusVariable call() throws Exception {
+                        latch.await();
+                        return monitorAdmin.getStatusVariable("com.acme.pid/sv.id1");
+                    }
+                }));
+            }
+            latch.countDown();
+            for (Future<StatusVariable> result : results) {
+                Assert.assertEquals(7, result.get(5, TimeUnit.SECONDS).getInteger());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // concurrent reads share the in-flight call
+        Assert.assertTrue("Calls: " + monitorable.calls.get(), monitorable.calls.get() < 5);
+        Assert.assertEquals(5 - monitorable.calls.get(),
+                common.getStatistics().getStatusVariable("reads.coalesced").getInteger());
+
+        // sequential reads are not coalesced
+        int calls = monitorable.calls.get();
+        monitorAdmin.getStatusVariable("com.acme.pid/sv.id1");
+        monitorAdmin.getStatusVariable("com.acme.pid/sv.id1");
+        Assert.assertEquals(calls + 2, monitorable.calls.get());
+        Assert.assertEquals(5 - calls, common.getStatistics().getStatusVariable("reads.coalesced").getInteger());
+    }
+
+    @Test
+    public void testGetStatusVariable_CoalescedFailure() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("com.acme.pid"),
+                new SlowMonitorable(300, new StatusVariable("sv.id1", StatusVariable.CM_CC, 7)));
+        osgiVisitor.setReferences(map);
+        final MonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<StatusVariable>> results = new ArrayList<Future<StatusVariable>>();
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(new Callable<StatusVariable>() {
+                    public StatusVariable call() throws Exception {
+                        return monitorAdmin.getStatusVariable("com.acme.pid/sv.id2");
+                    }
+                }));
+            }
+            // error of the shared call is thrown to every caller
+            for (Future<StatusVariable> result : results) {
+                try {
+                    result.get(5, TimeUnit.SECONDS);
+                    Assert.fail("StatusVariable does not exist");
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGetStatusVariable_CoalescedReentrant() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("com.acme.pid"),
+                new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, 7)) {
+                    private boolean nested;
+
+                    @Override
+                    public StatusVariable getStatusVariable(String s) throws IllegalArgumentException {
+                        if (!nested) {
+                            nested = true;
+                            try {
+                                // Monitorable reads its own StatusVariable through MonitorAdmin
+                                return common.getStatusVariable("com.acme.pid/" + s);
+                            } finally {
+                                nested = false;
+                            }
+                        }
+                        return super.getStatusVariable(s);
+                    }
+                });
+        osgiVisitor.setReferences(map);
+        MonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, bundle);
+
+        Assert.assertEquals(7, monitorAdmin.getStatusVariable("com.acme.pid/sv.id1").getInteger());
+    }
+
+    /**
+     * Monitorable with slow StatusVariables reads
+     */
+    private static class SlowMonitorable extends MockMonitorable {
+        private final long delay;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private SlowMonitorable(long delay, StatusVariable... statusVariables) {
+            super(statusVariables);
+            this.delay = delay;
+        }
+
+        @Override
+        public StatusVariable getStatusVariable(String s) throws IllegalArgumentException {
+            calls.incrementAndGet();
+            try {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getStatusVariable(s);
+        }
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testStartScheduledJob_Invalid1() throws Exception {
         MonitorAdmin monitorAdmin = prepareMonitorAdminForStartScheduledJobTests();
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.job.MonitoringJobScheduler;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockLogVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockMonitorable;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockOsgiVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MonitorableMockServiceReference;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.monitor.MonitorAdmin;
+import org.osgi.service.monitor.Monitorable;
+import org.osgi.service.monitor.MonitoringJob;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.util.HashMap;
+
+/**
+ * @author dmytro.pishchukhin
+ */
+public class MonitorAdminStatisticsTest {
+    private MockOsgiVisitor osgiVisitor;
+    private MockLogVisitor logVisitor;
+    private MonitorAdminCommon common;
+    private MonitorAdminStatistics statistics;
+    private MonitorAdmin monitorAdmin;
+
+    @Before
+    public void init() {
+        osgiVisitor = new MockOsgiVisitor();
+        logVisitor = new MockLogVisitor();
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor, new MonitoringJobScheduler(1));
+        statistics = common.getStatistics();
+        MockMonitorable monitorable = new MockMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, 1));
+        monitorable.setNotificationSupport("sv.id1", true);
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("com.acme.pid"), monitorable);
+        map.put(new MonitorableMockServiceReference(MonitorAdminStatistics.MONITORABLE_ID), statistics);
+        osgiVisitor.setReferences(map);
+        monitorAdmin = new MonitorAdminImpl(logVisitor, common, null);
+    }
+
+    @After
+    public void uninit() {
+        common.shutdown();
+    }
+
+    @Test
+    public void testUpdates() throws Exception {
+        MonitoringJob job = monitorAdmin.startJob("init1", new String[]{"com.acme.pid/sv.id1"}, 1);
+        try {
+            for (int i = 0; i < 3; i++) {
+                common.updated("com.acme.pid", new StatusVariable("sv.id1", StatusVariable.CM_CC, i));
+            }
+            Assert.assertEquals(3, statistics.getStatusVariable("updates").getInteger());
+            Assert.assertEquals(3, statistics.getStatusVariable("notifications").getInteger());
+            // update event and job event per update
+            Assert.assertEquals(6, statistics.getStatusVariable("events").getInteger());
+            Assert.assertTrue(statistics.getStatusVariable("update.time").getFloat() >= 0);
+            Assert.assertTrue(statistics.getStatusVariable("event.time").getFloat() >= 0);
+        } finally {
+            job.stop();
+        }
+    }
+
+    @Test
+    public void testUpdates_InvalidMonitorable() throws Exception {
+        try {
+            common.updated("com.acme.pid2", new StatusVariable("sv.id1", StatusVariable.CM_CC, 1));
+            Assert.fail("Monitorable does not exist");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertEquals(1, statistics.getStatusVariable("updates").getInteger());
+        Assert.assertEquals(0, statistics.getStatusVariable("notifications").getInteger());
+    }
+
+    @Test
+    public void testLookups() throws Exception {
+        monitorAdmin.getStatusVariable("com.acme.pid/sv.id1");
+        int lookups = statistics.getStatusVariable("lookups").getInteger();
+        Assert.assertTrue(lookups > 0);
+        monitorAdmin.getStatusVariable("com.acme.pid/sv.id1");
+        Assert.assertTrue(statistics.getStatusVariable("lookups").getInteger() > lookups);
+    }
+
+    @Test
+    public void testRunningJobs() throws Exception {
+        MonitoringJob subscription = monitorAdmin.startJob("init1", new String[]{"com.acme.pid/sv.id1"}, 1);
+        MonitoringJob scheduled = monitorAdmin.startScheduledJob("init1", new String[]{"com.acme.pid/sv.id1"}, 1, 0);
+        try {
+            Assert.assertEquals(1, statistics.getStatusVariable("jobs.scheduled").getInteger());
+            Assert.assertEquals(1, statistics.getStatusVariable("jobs.subscription").getInteger());
+        } finally {
+            subscription.stop();
+            scheduled.stop();
+        }
+        Assert.assertEquals(0, statistics.getStatusVariable("jobs.scheduled").getInteger());
+        Assert.assertEquals(0, statistics.getStatusVariable("jobs.subscription").getInteger());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        common.updated("com.acme.pid", new StatusVariable("sv.id1", StatusVariable.CM_CC, 2));
+        Assert.assertEquals(1, statistics.getStatusVariable("updates").getInteger());
+        Assert.assertTrue(statistics.resetStatusVariable("update.time"));
+        Assert.assertEquals(0, statistics.getStatusVariable("updates").getInteger());
+        Assert.assertEquals(0f, statistics.getStatusVariable("update.time").getFloat(), 0f);
+        Assert.assertFalse(statistics.resetStatusVariable("jobs.scheduled"));
+        try {
+            statistics.resetStatusVariable("sv.id1");
+            Assert.fail("Unknown StatusVariable");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testEventPublisher() throws Exception {
+        Assert.assertEquals(0, statistics.getStatusVariable("events.enqueued").getInteger());
+        Assert.assertFalse(statistics.resetStatusVariable("events.queue.peak"));
+
+        AsyncEventPublisher publisher = new AsyncEventPublisher(osgiVisitor, logVisitor, 10,
+                AsyncEventPublisher.OverflowPolicy.BLOCK);
+        publisher.start();
+        common.setEventPublisher(publisher);
+        try {
+            // publisher is blocked on posting of the first event
+            synchronized (osgiVisitor) {
+                for (int i = 0; i < 3; i++) {
+                    common.updated("com.acme.pid", new StatusVariable("sv.id1", StatusVariable.CM_CC, i));
+                }
+            }
+            for (int i = 0; i < 100 && statistics.getStatusVariable("events.published").getInteger() < 3; i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(3, statistics.getStatusVariable("events.enqueued").getInteger());
+            Assert.assertEquals(3, statistics.getStatusVariable("events.published").getInteger());
+            StatusVariable peak = statistics.getStatusVariable("events.queue.peak");
+            Assert.assertEquals(StatusVariable.CM_GAUGE, peak.getCollectionMethod());
+            Assert.assertTrue(peak.getInteger() >= 2);
+
+            Assert.assertTrue(statistics.resetStatusVariable("events.queue.peak"));
+            Assert.assertEquals(0, statistics.getStatusVariable("events.queue.peak").getInteger());
+        } finally {
+            common.setEventPublisher(null);
+            publisher.stop();
+        }
+    }
+
+    @Test
+    public void testCounterWraps() throws Exception {
+        Assert.assertEquals(Integer.MAX_VALUE, MonitorAdminStatistics.counter("updates", Integer.MAX_VALUE).getInteger());
+        Assert.assertEquals(0, MonitorAdminStatistics.counter("updates", Integer.MAX_VALUE + 1L).getInteger());
+        Assert.assertEquals(41, MonitorAdminStatistics.counter("updates", Integer.MAX_VALUE + 42L).getInteger());
+    }
+
+    @Test
+    public void testMonitorAdminAccess() throws Exception {
+        common.updated("com.acme.pid", new StatusVariable("sv.id1", StatusVariable.CM_CC, 2));
+        StatusVariable updates = monitorAdmin.getStatusVariable("monitoradmin/updates");
+        Assert.assertEquals(StatusVariable.CM_CC, updates.getCollectionMethod());
+        Assert.assertEquals(1, updates.getInteger());
+        Assert.assertEquals(0, monitorAdmin.getStatusVariable("monitoradmin/events.dropped").getInteger());
+    }
+}
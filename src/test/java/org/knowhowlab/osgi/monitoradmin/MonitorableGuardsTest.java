@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.api.ExtendedMonitorAdmin;
+import org.knowhowlab.osgi.monitoradmin.api.MonitorableUnavailableException;
+import org.knowhowlab.osgi.monitoradmin.job.MonitoringJobScheduler;
+import org.knowhowlab.osgi.monitoradmin.job.ScheduledMonitoringJob;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockLogVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockMonitorable;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockOsgiVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MonitorableMockServiceReference;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.Event;
+import org.osgi.service.monitor.MonitorAdmin;
+import org.osgi.service.monitor.Monitorable;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @author dmytro.pishchukhin
+ */
+public class MonitorableGuardsTest {
+    private MockOsgiVisitor osgiVisitor;
+    private MockLogVisitor logVisitor;
+    private MonitorAdminCommon common;
+    private FailingMonitorable monitorable;
+
+    @Before
+    public void init() {
+        osgiVisitor = new MockOsgiVisitor();
+        logVisitor = new MockLogVisitor();
+        monitorable = new FailingMonitorable(new StatusVariable("sv.id1", StatusVariable.CM_CC, 1));
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("com.acme.pid"), monitorable);
+        osgiVisitor.setReferences(map);
+    }
+
+    @After
+    public void uninit() {
+        if (common != null) {
+            common.shutdown();
+        }
+    }
+
+    @Test
+    public void testCircuitBreaker() throws Exception {
+        MonitorableGuards guards = new MonitorableGuards(3, 200, 0, 0);
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor, new MonitoringJobScheduler(1), guards);
+        MonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, null);
+
+        monitorable.failure = new IllegalStateException("DB is down");
+        for (int i = 0; i < 3; i++) {
+            try {
+                monitorAdmin.getStatusVariable("com.acme.pid/sv.id1");
+                Assert.fail("Monitorable has failed");
+            } catch (MonitorableUnavailableException e) {
+                Assert.assertEquals("com.acme.pid", e.getMonitorableId());
+                Assert.assertSame(monitorable.failure, e.getCause());
+            }
+        }
+        Assert.assertEquals(3, monitorable.calls);
+        Assert.assertEquals(1, guards.getStatusVariable("open").getInteger());
+        Assert.assertEquals("com.acme.pid", guards.getStatusVariable("open.ids").getString());
+
+        // open circuit rejects calls without Monitorable access
+        monitorable.failure = null;
+        try {
+            monitorAdmin.getStatusVariable("com.acme.pid/sv.id1");
+            Assert.fail("Circuit is open");
+        } catch (MonitorableUnavailableException e) {
+            Assert.assertNull(e.getCause());
+        }
+        Assert.assertEquals(3, monitorable.calls);
+        Assert.assertEquals(3, guards.getStatusVariable("failed").getInteger());
+        Assert.assertEquals(1, guards.getStatusVariable("rejected").getInteger());
+
+        // failed probe opens circuit again
+        TimeUnit.MILLISECONDS.sleep(250);
+        monitorable.failure = new IllegalStateException("DB is still down");
+        try {
+            monitorAdmin.getStatusVariable("com.acme.pid/sv.id1");
+            Assert.fail("Monitorable has failed");
+        } catch (MonitorableUnavailableException e) {
+            Assert.assertSame(monitorable.failure, e.getCause());
+        }
+        Assert.assertEquals(1, guards.getStatusVariable("open").getInteger());
+
+        // successful probe closes circuit
+        TimeUnit.MILLISECONDS.sleep(250);
+        monitorable.failure = null;
+        Assert.assertEquals(1, monitorAdmin.getStatusVariable("com.acme.pid/sv.id1").getInteger());
+        Assert.assertEquals(0, guards.getStatusVariable("open").getInteger());
+        Assert.assertEquals("", guards.getStatusVariable("open.ids").getString());
+
+        Assert.assertTrue(guards.resetStatusVariable("failed"));
+        Assert.assertEquals(0, guards.getStatusVariable("failed").getInteger());
+        Assert.assertFalse(guards.resetStatusVariable("open"));
+    }
+
+    @Test
+    public void testUnknownStatusVariable_IsNotFailure() throws Exception {
+        MonitorableGuards guards = new MonitorableGuards(1, 60000, 0, 0);
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor, new MonitoringJobScheduler(1), guards);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                common.getStatusVariable("com.acme.pid/sv.id2");
+                Assert.fail("StatusVariable is unknown");
+            } catch (IllegalArgumentException e) {
+                Assert.assertFalse(e instanceof MonitorableUnavailableException);
+            }
+        }
+        Assert.assertEquals(0, guards.getStatusVariable("open").getInteger());
+    }
+
+    @Test
+    public void testSlowCalls() throws Exception {
+        MonitorableGuards guards = new MonitorableGuards(2, 60000, 50, 0);
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor, new MonitoringJobScheduler(1), guards);
+
+        monitorable.delay = 300;
+        // slow calls are abandoned after call timeout and counted as failures
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            try {
+                common.getStatusVariable("com.acme.pid/sv.id1");
+                Assert.fail("Call has timed out");
+            } catch (MonitorableUnavailableException e) {
+                Assert.assertTrue(e.getCause() instanceof TimeoutException);
+            }
+            Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(250));
+        }
+        Assert.assertEquals(2, guards.getStatusVariable("slow").getInteger());
+        Assert.assertEquals(1, guards.getStatusVariable("open").getInteger());
+    }
+
+    @Test
+    public void testHungMonitorable_KeepsBulkheadPermit() throws Exception {
+        MonitorableGuards guards = new MonitorableGuards(0, 0, 50, 1);
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor, new MonitoringJobScheduler(1), guards);
+
+        monitorable.setStatusVariables(new StatusVariable("sv.id1", StatusVariable.CM_CC, 1),
+                new StatusVariable("sv.id2", StatusVariable.CM_CC, 2));
+        monitorable.delay = 400;
+        try {
+            common.getStatusVariable("com.acme.pid/sv.id1");
+            Assert.fail("Call has timed out");
+        } catch (MonitorableUnavailableException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        // abandoned call is interrupted, but hung Monitorable ignores interruption
+        try {
+            common.getStatusVariable("com.acme.pid/sv.id2");
+            Assert.fail("Too many concurrent calls");
+        } catch (MonitorableUnavailableException e) {
+            Assert.assertNull(e.getCause());
+        }
+        Assert.assertEquals(1, guards.getStatusVariable("rejected").getInteger());
+
+        monitorable.delay = 0;
+        TimeUnit.MILLISECONDS.sleep(500);
+        Assert.assertEquals(2, common.getStatusVariable("com.acme.pid/sv.id2").getInteger());
+    }
+
+    @Test
+    public void testMetadataCalls_AreGuarded() throws Exception {
+        MonitorableGuards guards = new MonitorableGuards(2, 60000, 50, 0);
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor, new MonitoringJobScheduler(1), guards);
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, null);
+
+        Assert.assertEquals("sv.id1", monitorAdmin.getDescription("com.acme.pid/sv.id1"));
+        Assert.assertArrayEquals(new String[]{"sv.id1"}, monitorAdmin.getStatusVariableNames("com.acme.pid"));
+
+        monitorable.metadataDelay = 300;
+        long start = System.nanoTime();
+        try {
+            monitorAdmin.getStatusVariableNames("com.acme.pid");
+            Assert.fail("Call has timed out");
+        } catch (MonitorableUnavailableException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        try {
+            monitorAdmin.getDescription("com.acme.pid/sv.id1");
+            Assert.fail("Call has timed out");
+        } catch (MonitorableUnavailableException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        Assert.assertEquals(2, guards.getStatusVariable("slow").getInteger());
+        Assert.assertEquals(1, guards.getStatusVariable("open").getInteger());
+    }
+
+    @Test
+    public void testBulkhead() throws Exception {
+        MonitorableGuards guards = new MonitorableGuards(0, 0, 0, 1);
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor, new MonitoringJobScheduler(1), guards);
+
+        monitorable.setStatusVariables(new StatusVariable("sv.id1", StatusVariable.CM_CC, 1),
+                new StatusVariable("sv.id2", StatusVariable.CM_CC, 2));
+        monitorable.delay = 500;
+        final CountDownLatch started = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                started.countDown();
+                common.getStatusVariable("com.acme.pid/sv.id1");
+            }
+        });
+        thread.start();
+        started.await();
+        TimeUnit.MILLISECONDS.sleep(100);
+        try {
+            // concurrent read of the same StatusVariable would share the in-flight call
+            common.getStatusVariable("com.acme.pid/sv.id2");
+            Assert.fail("Too many concurrent calls");
+        } catch (MonitorableUnavailableException e) {
+            // expected
+        }
+        thread.join();
+        Assert.assertEquals(1, common.getStatusVariable("com.acme.pid/sv.id1").getInteger());
+        Assert.assertEquals(1, guards.getStatusVariable("rejected").getInteger());
+        Assert.assertEquals(0, guards.getStatusVariable("open").getInteger());
+    }
+
+    @Test
+    public void testScheduledJob_FailingMonitorable() throws Exception {
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor, new MonitoringJobScheduler(1, 0, 1000),
+                new MonitorableGuards(2, 60000, 0, 0));
+        ExtendedMonitorAdmin monitorAdmin = new MonitorAdminImpl(logVisitor, common, null);
+
+        monitorable.failure = new IllegalStateException("DB is down");
+        ScheduledMonitoringJob job = (ScheduledMonitoringJob) monitorAdmin.startScheduledJob("init1",
+                new String[]{"com.acme.pid/sv.id1"}, 1000, 0);
+        TimeUnit.MILLISECONDS.sleep(200);
+        job.run();
+        job.run();
+        // job is not stopped by failures
+        Assert.assertTrue(job.isRunning());
+        Assert.assertEquals(3, job.getTimedOutReads());
+        // the last read is rejected by open circuit
+        Assert.assertEquals(2, monitorable.calls);
+        Event[] events = osgiVisitor.getPostedEvents();
+        Assert.assertEquals(3, events.length);
+        Assert.assertEquals(ExtendedMonitorAdmin.TIMEOUT_TOPIC, events[2].getTopic());
+        Assert.assertEquals("true", events[2].getProperty(ExtendedMonitorAdmin.MON_READ_TIMEOUT));
+        job.stop();
+    }
+
+    /**
+     * Monitorable with configurable failures and delays of StatusVariables reads
+     */
+    private static class FailingMonitorable extends MockMonitorable {
+        private volatile RuntimeException failure;
+        private volatile long delay;
+        private volatile long metadataDelay;
+        private volatile int calls;
+
+        private FailingMonitorable(StatusVariable... statusVariables) {
+            super(statusVariables);
+        }
+
+        @Override
+        public StatusVariable getStatusVariable(String s) throws IllegalArgumentException {
+            calls++;
+            sleep(delay);
+            if (failure != null) {
+                throw failure;
+            }
+            return super.getStatusVariable(s);
+        }
+
+        @Override
+        public String[] getStatusVariableNames() {
+            sleep(metadataDelay);
+            return super.getStatusVariableNames();
+        }
+
+        @Override
+        public String getDescription(String s) throws IllegalArgumentException {
+            sleep(metadataDelay);
+            return super.getDescription(s);
+        }
+
+        /**
+         * Sleep ignoring interruptions like hung <code>Monitorable</code>
+         */
+        private static void sleep(long delay) {
+            boolean interrupted = false;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(remaining);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
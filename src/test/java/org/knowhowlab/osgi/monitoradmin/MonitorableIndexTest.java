@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.mocks.MonitorableMockServiceReference;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+
+import java.util.Hashtable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author dmytro.pishchukhin
+ */
+public class MonitorableIndexTest {
+    @Test
+    public void testGet_NotRegistered() {
+        MonitorableIndex index = new MonitorableIndex();
+        Assert.assertNull(index.get("com.acme.pid"));
+    }
+
+    @Test
+    public void testAddRemove() {
+        MonitorableIndex index = new MonitorableIndex();
+        ServiceReference reference = new MonitorableMockServiceReference("com.acme.pid");
+
+        index.add(reference);
+        Assert.assertSame(reference, index.get("com.acme.pid"));
+        Assert.assertNull(index.get("com.acme.pid2"));
+
+        index.remove(reference);
+        Assert.assertNull(index.get("com.acme.pid"));
+    }
+
+    @Test
+    public void testRanking() {
+        MonitorableIndex index = new MonitorableIndex();
+        MonitorableMockServiceReference reference1 = createReference("com.acme.pid", 0);
+        MonitorableMockServiceReference reference2 = createReference("com.acme.pid", 10);
+        MonitorableMockServiceReference reference3 = createReference("com.acme.pid", 0);
+
+        index.add(reference1);
+        index.add(reference2);
+        index.add(reference3);
+        Assert.assertSame(reference2, index.get("com.acme.pid"));
+
+        // ranking is changed
+        reference3.setProperties(createProperties("com.acme.pid", 20));
+        index.modified(reference3);
+        Assert.assertSame(reference3, index.get("com.acme.pid"));
+
+        index.remove(reference3);
+        Assert.assertSame(reference2, index.get("com.acme.pid"));
+
+        index.remove(reference2);
+        Assert.assertSame(reference1, index.get("com.acme.pid"));
+    }
+
+    @Test
+    public void testTieInRanking() {
+        MonitorableIndex index = new MonitorableIndex();
+        MonitorableMockServiceReference reference1 = createReference("com.acme.pid", 5);
+        MonitorableMockServiceReference reference2 = createReference("com.acme.pid", 5);
+
+        index.add(reference2);
+        index.add(reference1);
+        // registered first wins
+        Assert.assertSame(reference1, index.get("com.acme.pid"));
+    }
+
+    @Test
+    public void testPidChanged() {
+        MonitorableIndex index = new MonitorableIndex();
+        MonitorableMockServiceReference reference = createReference("com.acme.pid1", 0);
+
+        index.add(reference);
+        reference.setProperties(createProperties("com.acme.pid2", 0));
+        index.modified(reference);
+
+        Assert.assertNull(index.get("com.acme.pid1"));
+        Assert.assertSame(reference, index.get("com.acme.pid2"));
+    }
+
+    @Test
+    public void testModified_BestReferenceIsAlwaysVisible() throws Exception {
+        final MonitorableIndex index = new MonitorableIndex();
+        final MonitorableMockServiceReference reference = createReference("com.acme.pid", 0);
+        index.add(reference);
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicInteger misses = new AtomicInteger();
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                while (running.get()) {
+                    if (index.get("com.acme.pid") == null) {
+                        misses.incrementAndGet();
+                    }
+                }
+            }
+        });
+        reader.start();
+        try {
+            for (int i = 0; i < 100000; i++) {
+                index.modified(reference);
+            }
+        } finally {
+            running.set(false);
+            reader.join();
+        }
+        Assert.assertEquals(0, misses.get());
+        Assert.assertSame(reference, index.get("com.acme.pid"));
+    }
+
+    private static MonitorableMockServiceReference createReference(String pid, int ranking) {
+        MonitorableMockServiceReference reference = new MonitorableMockServiceReference(pid);
+        reference.setProperties(createProperties(pid, ranking));
+        return reference;
+    }
+
+    private static Hashtable<String, Object> createProperties(String pid, int ranking) {
+        Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put(Constants.SERVICE_PID, pid);
+        props.put(Constants.SERVICE_RANKING, ranking);
+        return props;
+    }
+}
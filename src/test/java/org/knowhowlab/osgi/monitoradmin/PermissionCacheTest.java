@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockLogVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.SecurityMockBundle;
+import org.osgi.framework.Bundle;
+import org.osgi.service.monitor.MonitorPermission;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author dmytro.pishchukhin
+ */
+public class PermissionCacheTest {
+    @Test
+    public void testHasPermission_NoSecurity() {
+        PermissionCache cache = new PermissionCache(new MockLogVisitor(), 10);
+        Assert.assertTrue(cache.hasPermission(null, "com.acme.pid/sv.id", MonitorPermission.READ));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        PermissionCache cache = new PermissionCache(new MockLogVisitor(), 10);
+        Bundle bundle = new SecurityMockBundle(new MonitorPermission("com.acme.pid/*", MonitorPermission.READ));
+
+        Assert.assertTrue(cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.READ));
+        Assert.assertFalse(cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.RESET));
+        Assert.assertFalse(cache.hasPermission(bundle, "com.acme.pid2/sv.id", MonitorPermission.READ));
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(3, cache.getMisses());
+
+        Assert.assertTrue(cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.READ));
+        Assert.assertFalse(cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.RESET));
+        Assert.assertEquals(2, cache.getHits());
+        Assert.assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidate() {
+        PermissionCache cache = new PermissionCache(new MockLogVisitor(), 10);
+        Bundle bundle1 = new SecurityMockBundle(new MonitorPermission("*/*", MonitorPermission.READ));
+        Bundle bundle2 = new SecurityMockBundle(new MonitorPermission("*/*", MonitorPermission.READ));
+
+        cache.hasPermission(bundle1, "com.acme.pid/sv.id", MonitorPermission.READ);
+        cache.hasPermission(bundle2, "com.acme.pid/sv.id", MonitorPermission.READ);
+        Assert.assertEquals(2, cache.size());
+
+        cache.invalidate(bundle1.getBundleId());
+        Assert.assertEquals(1, cache.size());
+
+        cache.invalidateAll();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBounded() {
+        PermissionCache cache = new PermissionCache(new MockLogVisitor(), 2);
+        Bundle bundle = new SecurityMockBundle(new MonitorPermission("*/*", MonitorPermission.READ));
+
+        cache.hasPermission(bundle, "com.acme.pid/sv.id1", MonitorPermission.READ);
+        cache.hasPermission(bundle, "com.acme.pid/sv.id2", MonitorPermission.READ);
+        cache.hasPermission(bundle, "com.acme.pid/sv.id3", MonitorPermission.READ);
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testInvalidPath() {
+        PermissionCache cache = new PermissionCache(new MockLogVisitor(), 10);
+        Bundle bundle = new SecurityMockBundle(new MonitorPermission("*/*", MonitorPermission.READ));
+
+        Assert.assertFalse(cache.hasPermission(bundle, "com.acme.pid/sv.id", "unknown"));
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+        PermissionCache cache = new PermissionCache(new MockLogVisitor(), 10, 100);
+        SecurityMockBundle bundle = new SecurityMockBundle(new MonitorPermission("*/*", MonitorPermission.READ));
+
+        Assert.assertTrue(cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.READ));
+        bundle.setPermissions();
+        // decision is cached
+        Assert.assertTrue(cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.READ));
+        TimeUnit.MILLISECONDS.sleep(150);
+        // decision is expired
+        Assert.assertFalse(cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.READ));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testBypassed() {
+        PermissionCache cache = new PermissionCache(new MockLogVisitor(), 10);
+        SecurityMockBundle bundle = new SecurityMockBundle(new MonitorPermission("*/*", MonitorPermission.READ));
+
+        Assert.assertTrue(cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.READ));
+        cache.setBypassed(true);
+        Assert.assertEquals(0, cache.size());
+        bundle.setPermissions();
+        Assert.assertFalse(cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.READ));
+        Assert.assertEquals(0, cache.size());
+
+        cache.setBypassed(false);
+        Assert.assertFalse(cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.READ));
+        Assert.assertEquals(1, cache.size());
+    }
+}
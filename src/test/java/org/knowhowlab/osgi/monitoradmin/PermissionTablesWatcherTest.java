@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockLogVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.SecurityMockBundle;
+import org.osgi.service.condpermadmin.BundleLocationCondition;
+import org.osgi.service.condpermadmin.ConditionInfo;
+import org.osgi.service.condpermadmin.ConditionalPermissionAdmin;
+import org.osgi.service.condpermadmin.ConditionalPermissionInfo;
+import org.osgi.service.condpermadmin.ConditionalPermissionUpdate;
+import org.osgi.service.permissionadmin.PermissionAdmin;
+import org.osgi.service.permissionadmin.PermissionInfo;
+import org.osgi.service.monitor.MonitorPermission;
+
+import java.security.AccessControlContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author dmytro.pishchukhin
+ */
+public class PermissionTablesWatcherTest {
+    private static final PermissionInfo READ_ALL =
+            new PermissionInfo(MonitorPermission.class.getName(), "*/*", MonitorPermission.READ);
+
+    private PermissionCache cache;
+    private PermissionTablesWatcher watcher;
+    private SecurityMockBundle bundle;
+
+    @Before
+    public void init() {
+        cache = new PermissionCache(new MockLogVisitor(), 10, 0);
+        watcher = new PermissionTablesWatcher(cache, new MockLogVisitor());
+        bundle = new SecurityMockBundle(new MonitorPermission("*/*", MonitorPermission.READ));
+    }
+
+    @Test
+    public void testPermissionAdminChanges() {
+        MockPermissionAdmin permissionAdmin = new MockPermissionAdmin();
+        permissionAdmin.setPermissions("file:bundle.jar", new PermissionInfo[]{READ_ALL});
+        Assert.assertFalse(watcher.check(permissionAdmin, null));
+        Assert.assertTrue(cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.READ));
+
+        // nothing is changed
+        Assert.assertFalse(watcher.check(permissionAdmin, null));
+        Assert.assertEquals(1, cache.size());
+
+        // setPermissions fires no events
+        permissionAdmin.setPermissions("file:bundle.jar", null);
+        bundle.setPermissions();
+        Assert.assertTrue(watcher.check(permissionAdmin, null));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertFalse(cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.READ));
+    }
+
+    @Test
+    public void testConditionalPermissionAdminChanges() {
+        MockConditionalPermissionAdmin conditionalPermissionAdmin = new MockConditionalPermissionAdmin();
+        conditionalPermissionAdmin.infos.add(new MockConditionalPermissionInfo("p1", new ConditionInfo[]{
+                new ConditionInfo(BundleLocationCondition.class.getName(), new String[]{"file:*"})}));
+        Assert.assertFalse(watcher.check(null, conditionalPermissionAdmin));
+        // bundle location conditions do not change decisions
+        Assert.assertFalse(cache.isBypassed());
+        cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.READ);
+        Assert.assertEquals(1, cache.size());
+
+        conditionalPermissionAdmin.infos.add(new MockConditionalPermissionInfo("p2", new ConditionInfo[0]));
+        Assert.assertTrue(watcher.check(null, conditionalPermissionAdmin));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testDynamicConditions() {
+        MockConditionalPermissionAdmin conditionalPermissionAdmin = new MockConditionalPermissionAdmin();
+        conditionalPermissionAdmin.infos.add(new MockConditionalPermissionInfo("p1", new ConditionInfo[]{
+                new ConditionInfo("com.acme.TimeOfDayCondition", new String[]{"9-18"})}));
+        watcher.check(null, conditionalPermissionAdmin);
+        Assert.assertTrue(cache.isBypassed());
+        cache.hasPermission(bundle, "com.acme.pid/sv.id", MonitorPermission.READ);
+        Assert.assertEquals(0, cache.size());
+
+        conditionalPermissionAdmin.infos.clear();
+        watcher.check(null, conditionalPermissionAdmin);
+        Assert.assertFalse(cache.isBypassed());
+    }
+
+    private static class MockPermissionAdmin implements PermissionAdmin {
+        private final Map<String, PermissionInfo[]> permissions = new TreeMap<String, PermissionInfo[]>();
+        private PermissionInfo[] defaultPermissions;
+
+        public PermissionInfo[] getPermissions(String location) {
+            return permissions.get(location);
+        }
+
+        public void setPermissions(String location, PermissionInfo[] permissionInfos) {
+            if (permissionInfos == null) {
+                permissions.remove(location);
+            } else {
+                permissions.put(location, permissionInfos);
+            }
+        }
+
+        public String[] getLocations() {
+            return permissions.isEmpty() ? null : permissions.keySet().toArray(new String[permissions.size()]);
+        }
+
+        public PermissionInfo[] getDefaultPermissions() {
+            return defaultPermissions;
+        }
+
+        public void setDefaultPermissions(PermissionInfo[] permissionInfos) {
+            defaultPermissions = permissionInfos;
+        }
+    }
+
+    private static class MockConditionalPermissionAdmin implements ConditionalPermissionAdmin {
+        private final List<ConditionalPermissionInfo> infos = new ArrayList<ConditionalPermissionInfo>();
+
+        @Deprecated
+        public Enumeration<ConditionalPermissionInfo> getConditionalPermissionInfos() {
+            return Collections.enumeration(infos);
+        }
+
+        @Deprecated
+        public ConditionalPermissionInfo addConditionalPermissionInfo(ConditionInfo[] conditions, PermissionInfo[] permissions) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Deprecated
+        public ConditionalPermissionInfo setConditionalPermissionInfo(String name, ConditionInfo[] conditions,
+                                                                      PermissionInfo[] permissions) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Deprecated
+        public ConditionalPermissionInfo getConditionalPermissionInfo(String name) {
+            throw new UnsupportedOperationException();
+        }
+
+        public AccessControlContext getAccessControlContext(String[] signers) {
+            throw new UnsupportedOperationException();
+        }
+
+        public ConditionalPermissionUpdate newConditionalPermissionUpdate() {
+            final List<ConditionalPermissionInfo> snapshot = new ArrayList<ConditionalPermissionInfo>(infos);
+            return new ConditionalPermissionUpdate() {
+                public List<ConditionalPermissionInfo> getConditionalPermissionInfos() {
+                    return snapshot;
+                }
+
+                public boolean commit() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        public ConditionalPermissionInfo newConditionalPermissionInfo(String name, ConditionInfo[] conditions,
+                                                                      PermissionInfo[] permissions, String access) {
+            throw new UnsupportedOperationException();
+        }
+
+        public ConditionalPermissionInfo newConditionalPermissionInfo(String encoded) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class MockConditionalPermissionInfo implements ConditionalPermissionInfo {
+        private final String name;
+        private final ConditionInfo[] conditions;
+
+        private MockConditionalPermissionInfo(String name, ConditionInfo[] conditions) {
+            this.name = name;
+            this.conditions = conditions;
+        }
+
+        public ConditionInfo[] getConditionInfos() {
+            return conditions;
+        }
+
+        public PermissionInfo[] getPermissionInfos() {
+            return new PermissionInfo[]{READ_ALL};
+        }
+
+        @Deprecated
+        public void delete() {
+            throw new UnsupportedOperationException();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getAccessDecision() {
+            return ALLOW;
+        }
+
+        public String getEncoded() {
+            StringBuilder builder = new StringBuilder(ALLOW).append(" {");
+            for (ConditionInfo condition : conditions) {
+                builder.append(condition.getEncoded());
+            }
+            return builder.append(READ_ALL.getEncoded()).append("} \"").append(name).append('"').toString();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.export.PrometheusExporter;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockLogVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockMonitorable;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockOsgiVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.MonitorableMockServiceReference;
+import org.knowhowlab.osgi.monitoradmin.mocks.SecurityMockBundle;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.monitor.MonitorAdmin;
+import org.osgi.service.monitor.MonitorPermission;
+import org.osgi.service.monitor.Monitorable;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.security.AllPermission;
+import java.util.HashMap;
+
+/**
+ * @author dmytro.pishchukhin
+ */
+public class PrometheusExporterTest {
+    private MockOsgiVisitor osgiVisitor;
+    private MockLogVisitor logVisitor;
+    private MonitorAdminCommon common;
+    private PrometheusExporter exporter;
+
+    @Before
+    public void init() {
+        osgiVisitor = new MockOsgiVisitor();
+        logVisitor = new MockLogVisitor();
+        common = new MonitorAdminCommon(osgiVisitor, logVisitor);
+
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference(new SecurityMockBundle(new AllPermission()), "com.acme.pid1"),
+                new MockMonitorable(new StatusVariable("sv.count", StatusVariable.CM_CC, 42),
+                        new StatusVariable("sv.load", StatusVariable.CM_GAUGE, 0.5f),
+                        new StatusVariable("sv.up", StatusVariable.CM_SI, true),
+                        new StatusVariable("sv.state", StatusVariable.CM_SI, "a\"b\\c\n\u00e9")));
+        map.put(new MonitorableMockServiceReference(new SecurityMockBundle(new AllPermission()), "2nd.pid"),
+                new MockMonitorable(new StatusVariable("sv-id", StatusVariable.CM_DER, -7)));
+        osgiVisitor.setReferences(map);
+    }
+
+    @After
+    public void uninit() {
+        if (exporter != null) {
+            exporter.stop();
+        }
+        common.shutdown();
+    }
+
+    @Test
+    public void testScrape() throws Exception {
+        startExporter(new MonitorAdminImpl(logVisitor, common, null));
+
+        HttpURLConnection connection = open();
+        Assert.assertEquals(200, connection.getResponseCode());
+        Assert.assertEquals("text/plain; version=0.0.4; charset=utf-8", connection.getContentType());
+        Assert.assertEquals("# TYPE _nd_pid_sv_id gauge\n" +
+                "_nd_pid_sv_id -7\n" +
+                "# TYPE com_acme_pid1_sv_count counter\n" +
+                "com_acme_pid1_sv_count 42\n" +
+                "# TYPE com_acme_pid1_sv_load gauge\n" +
+                "com_acme_pid1_sv_load 0.5\n" +
+                "# TYPE com_acme_pid1_sv_state gauge\n" +
+                "com_acme_pid1_sv_state{value=\"a\\\"b\\\\c\\n\u00e9\"} 1\n" +
+                "# TYPE com_acme_pid1_sv_up gauge\n" +
+                "com_acme_pid1_sv_up 1\n", read(connection));
+    }
+
+    @Test
+    public void testScrape_Permissions() throws Exception {
+        startExporter(new MonitorAdminImpl(logVisitor, common,
+                new SecurityMockBundle(new MonitorPermission("com.acme.pid1/sv.count", MonitorPermission.READ))));
+
+        Assert.assertEquals("# TYPE com_acme_pid1_sv_count counter\n" +
+                "com_acme_pid1_sv_count 42\n", read(open()));
+    }
+
+    @Test
+    public void testScrape_LargeResponse() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        StatusVariable[] statusVariables = new StatusVariable[100];
+        for (int i = 0; i < statusVariables.length; i++) {
+            statusVariables[i] = new StatusVariable("sv.id" + i, StatusVariable.CM_CC, i);
+        }
+        for (int i = 0; i < 100; i++) {
+            map.put(new MonitorableMockServiceReference("com.acme.pid" + i), new MockMonitorable(statusVariables));
+        }
+        osgiVisitor.setReferences(map);
+        startExporter(new MonitorAdminImpl(logVisitor, common, null));
+
+        String response = read(open());
+        Assert.assertEquals(2 * 100 * 100, response.split("\n").length);
+        Assert.assertTrue(response.contains("\ncom_acme_pid99_sv_id99 99\n"));
+    }
+
+    @Test
+    public void testScrape_MetricNameCollision() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("a"),
+                new MockMonitorable(new StatusVariable("b.c", StatusVariable.CM_CC, 1)));
+        map.put(new MonitorableMockServiceReference("a.b"),
+                new MockMonitorable(new StatusVariable("c", StatusVariable.CM_GAUGE, 2)));
+        map.put(new MonitorableMockServiceReference("a_b"),
+                new MockMonitorable(new StatusVariable("c", StatusVariable.CM_CC, 3)));
+        osgiVisitor.setReferences(map);
+        startExporter(new MonitorAdminImpl(logVisitor, common, null));
+
+        Assert.assertEquals("# TYPE a_b_c counter\n" +
+                "a_b_c 1\n" +
+                "# HELP monitoradmin_scrape_collisions StatusVariables that are skipped because of metric name collision\n" +
+                "# TYPE monitoradmin_scrape_collisions gauge\n" +
+                "monitoradmin_scrape_collisions{path=\"a.b/c\"} 1\n" +
+                "monitoradmin_scrape_collisions{path=\"a_b/c\"} 1\n", read(open()));
+    }
+
+    @Test
+    public void testScrape_SlowMonitorableIsMissing() throws Exception {
+        HashMap<ServiceReference, Monitorable> map = new HashMap<ServiceReference, Monitorable>();
+        map.put(new MonitorableMockServiceReference("com.acme.fast"),
+                new MockMonitorable(new StatusVariable("sv.id", StatusVariable.CM_CC, 1)));
+        map.put(new MonitorableMockServiceReference("com.acme.slow"),
+                new MockMonitorable(new StatusVariable("sv.id", StatusVariable.CM_CC, 2)) {
+                    @Override
+                    public StatusVariable getStatusVariable(String s) throws IllegalArgumentException {
+                        try {
+                            Thread.sleep(2000);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return super.getStatusVariable(s);
+                    }
+                });
+        osgiVisitor.setReferences(map);
+        exporter = new PrometheusExporter(logVisitor, new MonitorAdminImpl(logVisitor, common, null),
+                new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 2, 200);
+        exporter.start();
+
+        long start = System.currentTimeMillis();
+        Assert.assertEquals("# TYPE com_acme_fast_sv_id counter\n" +
+                "com_acme_fast_sv_id 1\n" +
+                "# HELP monitoradmin_scrape_missing Monitorables that are not read within scrape timeout\n" +
+                "# TYPE monitoradmin_scrape_missing gauge\n" +
+                "monitoradmin_scrape_missing{monitorable=\"com.acme.slow\"} 1\n", read(open()));
+        Assert.assertTrue(System.currentTimeMillis() - start < 1500);
+
+        // shorter scrape timeout of Prometheus server is honored
+        exporter.stop();
+        startExporter(new MonitorAdminImpl(logVisitor, common, null));
+        HttpURLConnection connection = open();
+        connection.setRequestProperty("X-Prometheus-Scrape-Timeout-Seconds", "0.7");
+        start = System.currentTimeMillis();
+        Assert.assertTrue(read(connection).contains("monitoradmin_scrape_missing{monitorable=\"com.acme.slow\"} 1\n"));
+        Assert.assertTrue(System.currentTimeMillis() - start < 1500);
+    }
+
+    @Test
+    public void testUnsupportedMethod() throws Exception {
+        startExporter(new MonitorAdminImpl(logVisitor, common, null));
+
+        HttpURLConnection connection = open();
+        connection.setRequestMethod("DELETE");
+        Assert.assertEquals(405, connection.getResponseCode());
+    }
+
+    private void startExporter(MonitorAdmin monitorAdmin) throws IOException {
+        exporter = new PrometheusExporter(logVisitor, monitorAdmin,
+                new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 2);
+        exporter.start();
+    }
+
+    private HttpURLConnection open() throws IOException {
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + exporter.getPort()
+                + PrometheusExporter.CONTEXT_PATH).openConnection();
+    }
+
+    private static String read(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getInputStream();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                out.write(buffer, 0, count);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
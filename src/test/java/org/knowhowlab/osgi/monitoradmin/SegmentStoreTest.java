@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2009-2016 Dmytro Pishchukhin (http://knowhowlab.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.knowhowlab.osgi.monitoradmin;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.knowhowlab.osgi.monitoradmin.api.Sample;
+import org.knowhowlab.osgi.monitoradmin.api.SampleVisitor;
+import org.knowhowlab.osgi.monitoradmin.api.StatusVariableStore;
+import org.knowhowlab.osgi.monitoradmin.mocks.MockLogVisitor;
+import org.knowhowlab.osgi.monitoradmin.mocks.SecurityMockBundle;
+import org.knowhowlab.osgi.monitoradmin.persistence.SegmentStore;
+import org.knowhowlab.osgi.monitoradmin.util.StatusVariablePath;
+import org.osgi.service.monitor.MonitorPermission;
+import org.osgi.service.monitor.StatusVariable;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * @author dmytro.pishchukhin
+ */
+public class SegmentStoreTest {
+    private static final StatusVariablePath PATH = StatusVariablePath.of("com.acme.pid", "sv.id");
+    private static final StatusVariablePath OTHER_PATH = StatusVariablePath.of("com.acme.pid", "sv.id2");
+
+    private LogVisitor logVisitor;
+    private File directory;
+    private SegmentStore store;
+
+    @Before
+    public void init() throws IOException {
+        logVisitor = new MockLogVisitor();
+        directory = File.createTempFile("segments", "");
+        Assert.assertTrue(directory.delete());
+    }
+
+    @After
+    public void uninit() {
+        if (store != null) {
+            store.close();
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testScan_Types() throws Exception {
+        store = new SegmentStore(logVisitor, directory, 100, SegmentStore.DEFAULT_RETENTION);
+        store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, 5));
+        store.record(OTHER_PATH, new StatusVariable("sv.id2", StatusVariable.CM_CC, 7));
+        store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, 1.5f));
+        store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, true));
+        store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, "test"));
+        store.flush();
+
+        final int[] visited = new int[1];
+        store.scan(PATH, 0, Long.MAX_VALUE, new SampleVisitor() {
+            private int index;
+
+            public boolean visit(Sample sample) {
+                Assert.assertEquals(PATH.getPath(), sample.getPath());
+                switch (index++) {
+                    case 0:
+                        Assert.assertEquals(5, sample.getInteger());
+                        break;
+                    case 1:
+                        Assert.assertEquals(1.5f, sample.getFloat(), 0.0f);
+                        break;
+                    case 2:
+                        Assert.assertTrue(sample.getBoolean());
+                        break;
+                    case 3:
+                        Assert.assertEquals("test", sample.getString());
+                        try {
+                            sample.getInteger();
+                            Assert.fail("IllegalStateException is expected");
+                        } catch (IllegalStateException e) {
+                            // expected
+                        }
+                        break;
+                }
+                visited[0]++;
+                return true;
+            }
+        });
+        Assert.assertEquals(4, visited[0]);
+    }
+
+    @Test
+    public void testScan_TimeRangeAndStop() throws Exception {
+        store = new SegmentStore(logVisitor, directory, 1000, SegmentStore.DEFAULT_RETENTION);
+        for (int i = 0; i < 600; i++) {
+            store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, i));
+        }
+        store.flush();
+        long now = System.currentTimeMillis();
+        Assert.assertEquals(0, count(store, PATH, now + 1000, Long.MAX_VALUE));
+        Assert.assertEquals(0, count(store, PATH, 0, now - 60 * 60 * 1000));
+        Assert.assertEquals(600, count(store, PATH, 0, Long.MAX_VALUE));
+        Assert.assertEquals(0, count(store, StatusVariablePath.of("com.acme.pid", "unknown"), 0, Long.MAX_VALUE));
+
+        final int[] visited = new int[1];
+        store.scan(PATH, 0, Long.MAX_VALUE, new SampleVisitor() {
+            public boolean visit(Sample sample) {
+                return ++visited[0] < 10;
+            }
+        });
+        Assert.assertEquals(10, visited[0]);
+    }
+
+    @Test
+    public void testStringIsTruncated() throws Exception {
+        store = new SegmentStore(logVisitor, directory, 10, SegmentStore.DEFAULT_RETENTION);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < SegmentStore.MAX_STRING_LENGTH; i++) {
+            builder.append('\u0444');
+        }
+        store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, builder.toString()));
+        store.flush();
+        store.scan(PATH, 0, Long.MAX_VALUE, new SampleVisitor() {
+            public boolean visit(Sample sample) {
+                Assert.assertEquals(SegmentStore.MAX_STRING_LENGTH / 2, sample.getString().length());
+                return true;
+            }
+        });
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        store = new SegmentStore(logVisitor, directory, 4, SegmentStore.DEFAULT_RETENTION);
+        for (int i = 0; i < 10; i++) {
+            store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, i));
+        }
+        store.record(OTHER_PATH, new StatusVariable("sv.id2", StatusVariable.CM_CC, 10));
+        store.flush();
+        Assert.assertEquals(3, store.getSegmentsCount());
+        store.close();
+
+        store = new SegmentStore(logVisitor, directory, 4, SegmentStore.DEFAULT_RETENTION);
+        Assert.assertEquals(3, store.getSegmentsCount());
+        Assert.assertEquals(10, count(store, PATH, 0, Long.MAX_VALUE));
+        Assert.assertEquals(1, count(store, OTHER_PATH, 0, Long.MAX_VALUE));
+        // active segment is filled up
+        store.record(OTHER_PATH, new StatusVariable("sv.id2", StatusVariable.CM_CC, 11));
+        store.flush();
+        Assert.assertEquals(3, store.getSegmentsCount());
+        Assert.assertEquals(2, count(store, OTHER_PATH, 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testRetention() throws Exception {
+        store = new SegmentStore(logVisitor, directory, 2, 1);
+        for (int i = 0; i < 5; i++) {
+            store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, i));
+        }
+        store.flush();
+        Assert.assertEquals(3, store.getSegmentsCount());
+        store.close();
+        Thread.sleep(10);
+
+        // full segments are expired, active one is kept
+        store = new SegmentStore(logVisitor, directory, 2, 1);
+        Assert.assertEquals(1, store.getSegmentsCount());
+        Assert.assertEquals(1, count(store, PATH, 0, Long.MAX_VALUE));
+        store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, 5));
+        store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, 6));
+        store.flush();
+        Assert.assertEquals(3, count(store, PATH, 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testStatusVariableStore_Permissions() throws Exception {
+        store = new SegmentStore(logVisitor, directory, 10, SegmentStore.DEFAULT_RETENTION);
+        store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, 1));
+        store.flush();
+        SecurityMockBundle bundle = new SecurityMockBundle(
+                new MonitorPermission("com.acme.pid/sv.id", MonitorPermission.READ));
+        StatusVariableStore service = new StatusVariableStoreImpl(logVisitor, store, bundle,
+                new PermissionCache(logVisitor, PermissionCache.DEFAULT_SIZE));
+        final int[] visited = new int[1];
+        SampleVisitor visitor = new SampleVisitor() {
+            public boolean visit(Sample sample) {
+                visited[0]++;
+                return true;
+            }
+        };
+        service.scan(PATH.getPath(), 0, Long.MAX_VALUE, visitor);
+        Assert.assertEquals(1, visited[0]);
+        try {
+            service.scan(OTHER_PATH.getPath(), 0, Long.MAX_VALUE, visitor);
+            Assert.fail("SecurityException is expected");
+        } catch (SecurityException e) {
+            // expected
+        }
+        try {
+            service.scan("com.acme.pid", 0, Long.MAX_VALUE, visitor);
+            Assert.fail("IllegalArgumentException is expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            service.scan(PATH.getPath(), 0, Long.MAX_VALUE, null);
+            Assert.fail("IllegalArgumentException is expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testQueueOverflow_SamplesAreDropped() throws Exception {
+        store = new SegmentStore(logVisitor, directory, 100, SegmentStore.DEFAULT_RETENTION, 2);
+        synchronized (store) {
+            // writer thread is blocked by store lock
+            for (int i = 0; i < 10; i++) {
+                store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, i));
+            }
+        }
+        store.flush();
+        Assert.assertTrue(store.getDropped() >= 7);
+        Assert.assertEquals(10 - store.getDropped(), count(store, PATH, 0, Long.MAX_VALUE));
+        Assert.assertEquals(0, store.getQueueDepth());
+    }
+
+    @Test
+    public void testClose_QueuedSamplesAreWritten() throws Exception {
+        store = new SegmentStore(logVisitor, directory, 1000, SegmentStore.DEFAULT_RETENTION);
+        for (int i = 0; i < 500; i++) {
+            store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, i));
+        }
+        store.close();
+        // samples are not accepted by closed store
+        store.record(PATH, new StatusVariable("sv.id", StatusVariable.CM_CC, 500));
+        store.flush();
+
+        store = new SegmentStore(logVisitor, directory, 1000, SegmentStore.DEFAULT_RETENTION);
+        Assert.assertEquals(500, count(store, PATH, 0, Long.MAX_VALUE));
+        Assert.assertEquals(0, store.getDropped());
+    }
+
+    private static int count(SegmentStore store, StatusVariablePath path, long fromTime, long toTime) {
+        final int[] visited = new int[1];
+        store.scan(path, fromTime, toTime, new SampleVisitor() {
+            public boolean visit(Sample sample) {
+                visited[0]++;
+                return true;
+            }
+        });
+        return visited[0];
+    }
+}
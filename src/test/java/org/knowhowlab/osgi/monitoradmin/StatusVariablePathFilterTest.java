@@ -53,4 +53,22 @@ public class StatusVariablePathFilterTest {
     public void testParse_InvalidFilter3() {
         new StatusVariablePathFilter("aaa*.aaa./aaa");
     }
+
+    @Test
+    public void testParse_ValidFilter3() {
+        StatusVariablePathFilter filter = new StatusVariablePathFilter("aaa..*/aaa");
+        Assert.assertEquals("aaa..", filter.getMonitorableId());
+        Assert.assertTrue(filter.isMonitorableWildcard());
+        Assert.assertFalse(filter.isStatusVariableWildcard());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParse_InvalidFilter4() {
+        new StatusVariablePathFilter(".aaa*/aaa");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParse_InvalidFilter5() {
+        new StatusVariablePathFilter("aaa/**");
+    }
 }
@@ -46,4 +46,46 @@ public class StatusVariablePathTest {
     public void testParse_InvalidPath3() {
         new StatusVariablePath("aaa.aaa./aaa");
     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParse_InvalidPath4() {
+        new StatusVariablePath("aaa/aaa/");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParse_InvalidPath5() {
+        new StatusVariablePath("aaa..aaa/aaa");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParse_InvalidPath6() {
+        new StatusVariablePath("aaa/aa a");
+    }
+
+    @Test
+    public void testParse_Cached() {
+        StatusVariablePath path = StatusVariablePath.parse("com.acme.pid/sv.id-1");
+        Assert.assertEquals("com.acme.pid", path.getMonitorableId());
+        Assert.assertEquals("sv.id-1", path.getStatusVariableId());
+        Assert.assertSame(path, StatusVariablePath.parse("com.acme.pid/sv.id-1"));
+        Assert.assertSame(path, StatusVariablePath.of("com.acme.pid", "sv.id-1"));
+    }
+
+    @Test
+    public void testOf_Cached() {
+        StatusVariablePath path = StatusVariablePath.of("com.acme.pid2", "sv_id");
+        Assert.assertEquals("com.acme.pid2/sv_id", path.getPath());
+        Assert.assertSame(path, StatusVariablePath.of("com.acme.pid2", "sv_id"));
+        Assert.assertSame(path, StatusVariablePath.parse("com.acme.pid2/sv_id"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParse_CachedNull() {
+        StatusVariablePath.parse(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOf_CachedInvalid() {
+        StatusVariablePath.of("com.acme.pid", ".sv");
+    }
 }
@@ -28,6 +28,14 @@ import java.util.logging.Logger;
 public class MockLogVisitor implements LogVisitor {
     private static final Logger LOG = Logger.getLogger(MockLogVisitor.class.getName());
 
+    public boolean isDebugEnabled() {
+        return LOG.isLoggable(Level.FINE);
+    }
+
+    public boolean isInfoEnabled() {
+        return LOG.isLoggable(Level.INFO);
+    }
+
     public void debug(String message, Throwable throwable) {
         LOG.log(Level.FINE, message, throwable);
     }
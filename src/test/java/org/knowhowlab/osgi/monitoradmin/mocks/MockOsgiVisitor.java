@@ -33,11 +33,11 @@ public class MockOsgiVisitor implements OsgiVisitor {
 
     private List<Event> events = new ArrayList<Event>();
 
-    public Event[] getPostedEvents() {
+    public synchronized Event[] getPostedEvents() {
         return events.toArray(new Event[events.size()]);
     }
 
-    public void cleanPostedEvents() {
+    public synchronized void cleanPostedEvents() {
         events.clear();
     }
 
@@ -65,7 +65,18 @@ public class MockOsgiVisitor implements OsgiVisitor {
         return result.toArray(new ServiceReference[result.size()]);
     }
 
-    public void postEvent(Event event) {
+    public ServiceReference findMonitorableReference(String monitorableId) {
+        ServiceReference mostSuitableMonitorable = null;
+        for (ServiceReference reference : serviceReferences.keySet()) {
+            if (monitorableId.equals(reference.getProperty(Constants.SERVICE_PID)) &&
+                    (mostSuitableMonitorable == null || mostSuitableMonitorable.compareTo(reference) < 0)) {
+                mostSuitableMonitorable = reference;
+            }
+        }
+        return mostSuitableMonitorable;
+    }
+
+    public synchronized void postEvent(Event event) {
         events.add(event);
     }
 }
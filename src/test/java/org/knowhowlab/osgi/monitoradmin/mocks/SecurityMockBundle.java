@@ -54,6 +54,10 @@ public class SecurityMockBundle extends MockBundle {
         super(symName, headers, context);
     }
 
+    public void setPermissions(Permission... permissions) {
+        this.permissions = permissions;
+    }
+
     @Override
     public boolean hasPermission(Object permission) {
         if (permissions != null) {